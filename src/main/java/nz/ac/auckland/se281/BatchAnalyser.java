@@ -0,0 +1,370 @@
+package nz.ac.auckland.se281;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import nz.ac.auckland.se281.datastructures.Adjacency;
+import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.RelationProperties;
+import nz.ac.auckland.se281.datastructures.VertexTable;
+
+/**
+ * Runs the same checks over every graph file in a folder, and writes one row of results per file.
+ * Files are loaded and analysed on a fixed pool of worker threads, and the rows are written as
+ * soon as each file is done, so the order of the rows follows the order the files finish in.
+ *
+ * <p>Only a bounded number of files are loaded at once, so the memory used depends on the size of
+ * the largest files rather than on the number of files. Each file is held to the memory budget on
+ * its own, and a file that cannot be read, is over the budget, or fails part way through its
+ * analysis gets a row with the error instead of stopping the batch. The output is JSON lines if
+ * its name ends in ".jsonl", and CSV otherwise.
+ */
+public class BatchAnalyser {
+  /** The extensions of the files that are analysed. */
+  private static final String[] EXTENSIONS = {".txt", ".dot", ".gv"};
+
+  private static final String[] COLUMNS = {
+    "file",
+    "verticies",
+    "edges",
+    "reflexive",
+    "symmetric",
+    "transitive",
+    "antisymmetric",
+    "equivalence",
+    "acyclic",
+    "roots",
+    "components",
+    "load_ms",
+    "analyse_ms",
+    "error"
+  };
+
+  private final int threads;
+
+  private final MemoryBudget budget;
+
+  private int fileCount;
+
+  private int failureCount;
+
+  /**
+   * Create a batch analyser.
+   *
+   * @param threads The number of files to analyse at once.
+   * @param budget The memory budget each graph is checked against once it is loaded.
+   */
+  public BatchAnalyser(final int threads, final MemoryBudget budget) {
+    this.threads = threads;
+    this.budget = budget;
+  }
+
+  /**
+   * Analyses every graph file in a folder and its subfolders.
+   *
+   * @param folder The folder to analyse.
+   * @param output The file to write the rows to.
+   * @throws IOException If the folder cannot be read or the output cannot be written.
+   */
+  public void analyse(final Path folder, final Path output) throws IOException {
+    final boolean json = output.toString().toLowerCase(Locale.ROOT).endsWith(".jsonl");
+    final ExecutorService pool = Executors.newFixedThreadPool(threads);
+    final CompletionService<String[]> done = new ExecutorCompletionService<>(pool);
+    // A permit is held from submitting a file until its graph is no longer needed.
+    final Semaphore loaded = new Semaphore(threads * 2);
+    int pending = 0;
+
+    fileCount = 0;
+    failureCount = 0;
+
+    try (Stream<Path> files = Files.walk(folder);
+        BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+      if (!json) {
+        out.write(String.join(",", COLUMNS));
+        out.newLine();
+      }
+
+      // The output may be inside the folder, and is never read as a graph.
+      final Path written = output.toAbsolutePath().normalize();
+      final Iterator<Path> iterator =
+          files
+              .filter(BatchAnalyser::isGraphFile)
+              .filter(file -> !file.toAbsolutePath().normalize().equals(written))
+              .sorted()
+              .iterator();
+
+      while (iterator.hasNext()) {
+        final Path file = iterator.next();
+        final String name = folder.relativize(file).toString();
+        loaded.acquireUninterruptibly();
+        done.submit(
+            () -> {
+              try {
+                return analyseFile(file, name);
+              } finally {
+                loaded.release();
+              }
+            });
+        pending++;
+
+        // Rows that are already finished are written while the remaining files are submitted.
+        for (Future<String[]> row = done.poll(); row != null; row = done.poll()) {
+          write(out, get(row), json);
+          pending--;
+        }
+      }
+
+      for (; pending > 0; pending--) {
+        write(out, get(done.take()), json);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while analysing " + folder, e);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Get the number of files analysed by the last batch.
+   *
+   * @return The number of files.
+   */
+  public int getFileCount() {
+    return fileCount;
+  }
+
+  /**
+   * Get the number of files in the last batch that could not be read or analysed.
+   *
+   * @return The number of files.
+   */
+  public int getFailureCount() {
+    return failureCount;
+  }
+
+  /**
+   * Checks if a path is a graph file.
+   *
+   * @param path The path.
+   * @return If the path is a regular file with the extension of a graph file.
+   */
+  private static boolean isGraphFile(final Path path) {
+    final String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+
+    for (final String extension : EXTENSIONS) {
+      if (name.endsWith(extension)) {
+        return Files.isRegularFile(path);
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Loads and analyses one file. A file that cannot be read, is over the memory budget, or runs
+   * out of memory or fails during its analysis gives a row with the error, and whatever columns
+   * were filled in before it.
+   *
+   * @param file The file.
+   * @param name The name of the file to put in its row.
+   * @return The values of the row, in the order of the columns.
+   */
+  private String[] analyseFile(final Path file, final String name) {
+    final String[] row = new String[COLUMNS.length];
+    row[0] = name;
+
+    try {
+      long start = System.nanoTime();
+      final Graph<String> graph = load(file, budget);
+      final long loadNanos = System.nanoTime() - start;
+      start = System.nanoTime();
+
+      row[1] = String.valueOf(graph.getVertexTable().size());
+      row[2] = String.valueOf(graph.getEdgeCount());
+      row[11] = millis(loadNanos);
+
+      final RelationProperties properties = graph.relationProperties();
+
+      row[3] = String.valueOf(properties.isReflexive());
+      row[4] = String.valueOf(properties.isSymmetric());
+      row[5] = String.valueOf(properties.isTransitive());
+      row[6] = String.valueOf(properties.isAntiSymmetric());
+      row[7] = String.valueOf(properties.isEquivalence());
+      row[8] = String.valueOf(graph.topologicalSort().isAcyclic());
+      row[9] = String.valueOf(graph.getRootIds().length);
+      row[10] = String.valueOf(graph.computeStronglyConnectedComponents().getComponentCount());
+      row[12] = millis(System.nanoTime() - start);
+    } catch (IOException
+        | MemoryBudgetExceededException
+        | RuntimeException
+        | OutOfMemoryError e) {
+      // The graph is dropped with the error, so the heap it took is free for the other files.
+      row[COLUMNS.length - 1] = e.getMessage() == null ? e.toString() : e.getMessage();
+    }
+
+    return row;
+  }
+
+  /**
+   * Loads a graph, from its snapshot if it has an up to date one. The memory reading it needs is
+   * checked against the free heap first, and the graph against the budget once it is read.
+   *
+   * @param file The graph file.
+   * @param budget The memory budget the graph is checked against.
+   * @return The graph, with its edges on the heap.
+   * @throws IOException If the file cannot be read.
+   * @throws MemoryBudgetExceededException If reading the file needs more memory than the heap has
+   *     free, or the graph keeps more than the budget.
+   */
+  private static Graph<String> load(final Path file, final MemoryBudget budget)
+      throws IOException, MemoryBudgetExceededException {
+    try (GraphSnapshot snapshot = GraphSnapshot.open(ResultCache.defaultDirectory(), file)) {
+      if (snapshot != null) {
+        MemoryBudget.ofFreeHeap().check(snapshot.estimateHeap(true));
+        final VertexTable<String> table = new VertexTable<>(snapshot.readVertexIds());
+        return check(budget, table, snapshot.readEdges());
+      }
+    } catch (IOException e) {
+      // A damaged snapshot is parsed instead.
+    }
+
+    MemoryBudget.ofFreeHeap().check(MemoryBudget.estimateParse(Files.size(file)));
+    final DotFile dot = DotFile.read(file);
+    final VertexTable<String> table = new VertexTable<>(dot.getVertexIds());
+    return check(budget, table, GraphCalculator.readEdges(dot, table));
+  }
+
+  /**
+   * Builds a graph once it is checked against the memory budget.
+   *
+   * @param budget The memory budget.
+   * @param table The verticies of the graph.
+   * @param edges The edges of the graph, on the heap.
+   * @return The graph.
+   * @throws MemoryBudgetExceededException If the graph keeps more than the budget.
+   */
+  private static Graph<String> check(
+      final MemoryBudget budget, final VertexTable<String> table, final Adjacency edges)
+      throws MemoryBudgetExceededException {
+    budget.check(GraphCalculator.getFixedBytes(table) + edges.getHeapBytes());
+    return new Graph<>(table, edges);
+  }
+
+  /**
+   * Gets the row of a finished file.
+   *
+   * @param row The finished analysis.
+   * @return The values of the row.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  private static String[] get(final Future<String[]> row) throws InterruptedException {
+    try {
+      return row.get();
+    } catch (ExecutionException e) {
+      // The analysis catches its own errors, so this is a bug in a check.
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Writes a row, and counts it.
+   *
+   * @param out The output.
+   * @param row The values of the row.
+   * @param json If the row is written as a JSON object rather than CSV.
+   * @throws IOException If the output cannot be written.
+   */
+  private void write(final BufferedWriter out, final String[] row, final boolean json)
+      throws IOException {
+    fileCount++;
+
+    if (row[COLUMNS.length - 1] != null) {
+      failureCount++;
+    }
+
+    final StringBuilder sb = new StringBuilder();
+
+    for (int i = 0; i < COLUMNS.length; i++) {
+      if (json) {
+        sb.append(i == 0 ? "{" : ",").append('"').append(COLUMNS[i]).append("\":");
+        // Names and errors are strings, everything else is a number or a boolean.
+        if (row[i] == null) {
+          sb.append("null");
+        } else if (i == 0 || i == COLUMNS.length - 1) {
+          sb.append(jsonString(row[i]));
+        } else {
+          sb.append(row[i]);
+        }
+      } else {
+        sb.append(i == 0 ? "" : ",").append(row[i] == null ? "" : csvField(row[i]));
+      }
+    }
+
+    out.write(json ? sb.append('}').toString() : sb.toString());
+    out.newLine();
+  }
+
+  /**
+   * Quotes a CSV field if it holds a comma, quote or line break.
+   *
+   * @param value The value.
+   * @return The field.
+   */
+  private static String csvField(final String value) {
+    if (value.indexOf(',') < 0
+        && value.indexOf('"') < 0
+        && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  /**
+   * Quotes a JSON string.
+   *
+   * @param value The value.
+   * @return The string literal.
+   */
+  private static String jsonString(final String value) {
+    final StringBuilder sb = new StringBuilder("\"");
+
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+
+    return sb.append('"').toString();
+  }
+
+  /**
+   * Formats a duration in milliseconds.
+   *
+   * @param nanos The duration in nanoseconds.
+   * @return The milliseconds, to one decimal place.
+   */
+  private static String millis(final long nanos) {
+    return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+  }
+}
@@ -8,16 +8,42 @@ package nz.ac.auckland.se281;
 public enum Command {
   OPEN_FILE(1, "Open the file <FILENAME>"),
   INFO(0, "Print information about the current loaded file"),
+  WATCH_FILE(0, "Watch the loaded file, and apply any changes to it before each command"),
+  GRAPH_MEMORY(0, "Display roughly how much memory the loaded graph keeps, and the budget"),
+  SET_MEMORY_BUDGET(1, "Set the most memory a graph opened later may keep, such as 512m or none"),
 
   LIST_VERTICIES_EDGES(0, "List the set of vertices and edges"),
   LIST_ROOT_VERTICIES(0, "List the set of root vertices"),
+  LIST_ROOTS_REACHING(1, "List the root vertices that can reach the vertex <VERTEX>"),
 
   CHECK_REFLEXIVITY(0, "Check reflexivity of the graph"),
   CHECK_SYMMETRY(0, "Check symmetry of the graph"),
   CHECK_TRANSITIVITY(0, "Check transitivity of the graph"),
   CHECK_ANTISYMMETRY(0, "Check anti-symmetry of the graph"),
   CHECK_EQUIVALENCE(0, "Check equivalence of the graph"),
+  CHECK_ALL(0, "Check reflexivity, symmetry, transitivity, anti-symmetry and equivalence at once"),
+  EXPLAIN_REFLEXIVITY(1, "Check reflexivity, and show up to <COUNT> verticies without a self loop"),
+  EXPLAIN_SYMMETRY(1, "Check symmetry, and show up to <COUNT> edges without a reverse edge"),
+  EXPLAIN_TRANSITIVITY(
+      1, "Check transitivity, and show up to <COUNT> paths of two edges without a shortcut"),
+  EXPLAIN_ANTISYMMETRY(
+      1, "Check anti-symmetry, and show up to <COUNT> pairs of vertices with edges both ways"),
+  SAMPLE_SYMMETRY(
+      2, "Estimate the share of edges without a reverse edge from <SAMPLES> edges in <MS> ms"),
+  SAMPLE_TRANSITIVITY(
+      2, "Estimate the share of 2-paths without a shortcut from <SAMPLES> 2-paths in <MS> ms"),
+  SAMPLE_ANTISYMMETRY(
+      2, "Estimate the share of edges with a reverse edge from <SAMPLES> edges in <MS> ms"),
+  CHECK_ACYCLIC(0, "Check if the graph has no cycles, and show a cycle if it does"),
+  DEGREE_STATS(0, "Display degree statistics, a degree histogram and the hubs of the graph"),
   COMPUTE_EQUIVALENCE(1, "Compute equivalence class for a vertex in loaded file <VERTEX>"),
+  COMPUTE_SCC(1, "Compute the strongly connected component of the vertex <VERTEX>"),
+  LIST_SCC(0, "List every strongly connected component of the graph"),
+  LIST_WCC(0, "List every weakly connected component of the graph"),
+  DISTANCES(1, "Display the hop distance and parent of every vertex reached from <VERTEX>"),
+  ALL_DISTANCES(1, "Write the hop distance between every pair of vertices to the file <FILENAME>"),
+  SHORTEST_PATH(2, "Display the shortest weighted path from the vertex <VERTEX> to <VERTEX>"),
+  TOPO_SORT(0, "Display a topological order of the graph, or a cycle if there is none"),
 
   GRAPH_SEARCH_IBFS(
       0, "Perform a breadth-first search on the current loaded file, and display the BFS order"),
@@ -33,6 +59,22 @@ public enum Command {
       "Perform a recursive depth-first search on the current loaded file, and display the DFS"
           + " order"),
 
+  REACHABLE(
+      2,
+      true,
+      "Check if the vertex <VERTEX> can reach the vertex <VERTEX>, any number of pairs can be"
+          + " given"),
+
+  BSP_ANALYSE(
+      1,
+      "Compute the roots, properties and breadth-first search order on <WORKERS> worker"
+          + " processes"),
+
+  BATCH_ANALYSE(
+      2,
+      "Check every graph file in the folder <FOLDER> on every core, and write a CSV or JSONL row"
+          + " per file to <FILENAME>"),
+
   HELP(0, "Print usage"),
   EXIT(0, "Exit the application");
 
@@ -40,6 +82,8 @@ public enum Command {
 
   private final int numArgs;
 
+  private final boolean repeatable;
+
   private final String message;
 
   /**
@@ -49,7 +93,19 @@ public enum Command {
    * @param message The help message for the command.
    */
   private Command(final int numArgs, final String message) {
+    this(numArgs, false, message);
+  }
+
+  /**
+   * Create a new command.
+   *
+   * @param numArgs The number of arguments the command takes.
+   * @param repeatable If the arguments can be repeated to run the command on a batch of inputs.
+   * @param message The help message for the command.
+   */
+  private Command(final int numArgs, final boolean repeatable, final String message) {
     this.numArgs = numArgs;
+    this.repeatable = repeatable;
     this.message = message;
   }
 
@@ -62,6 +118,15 @@ public enum Command {
     return numArgs;
   }
 
+  /**
+   * Get if the arguments of the command can be repeated, to run the command on a batch of inputs.
+   *
+   * @return If the arguments are repeatable.
+   */
+  public boolean isRepeatable() {
+    return repeatable;
+  }
+
   /**
    * Get the help message and required arguments for the command.
    *
@@ -0,0 +1,157 @@
+package nz.ac.auckland.se281;
+
+import com.paypal.digraph.parser.GraphEdge;
+import com.paypal.digraph.parser.GraphNode;
+import com.paypal.digraph.parser.GraphParser;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import nz.ac.auckland.se281.datastructures.Edge;
+
+/**
+ * The verticies and edges read from a DOT file.
+ *
+ * <p>This is the only class that refers to the digraph parser, so the parser classes are loaded
+ * the first time a file is actually parsed, rather than when the calculator starts, and not at all
+ * when a graph is read from a snapshot.
+ */
+public class DotFile {
+  private final List<String> vertexIds;
+  private final String[] sources;
+  private final String[] destinations;
+  private final double[] weights;
+
+  /**
+   * Create the contents of a file.
+   *
+   * @param vertexIds The id of every vertex.
+   * @param sources The id of the source of each edge.
+   * @param destinations The id of the destination of each edge.
+   * @param weights The weight of each edge, or null if no edge has a weight.
+   */
+  private DotFile(
+      final List<String> vertexIds,
+      final String[] sources,
+      final String[] destinations,
+      final double[] weights) {
+    this.vertexIds = vertexIds;
+    this.sources = sources;
+    this.destinations = destinations;
+    this.weights = weights;
+  }
+
+  /**
+   * Parses a DOT file.
+   *
+   * @param file The file to read.
+   * @return The contents of the file.
+   * @throws FileNotFoundException If the file does not exist.
+   */
+  public static DotFile read(final Path file) throws FileNotFoundException {
+    final FileInputStream in = new FileInputStream(file.toFile());
+    final GraphParser parser;
+
+    try {
+      parser = new GraphParser(in);
+    } finally {
+      try {
+        in.close();
+      } catch (IOException e) {
+        // The file has already been read.
+      }
+    }
+
+    final List<String> ids = new ArrayList<>();
+
+    for (final GraphNode node : parser.getNodes().values()) {
+      ids.add(node.getId());
+    }
+
+    final Collection<GraphEdge> edges = parser.getEdges().values();
+    final String[] sources = new String[edges.size()];
+    final String[] destinations = new String[edges.size()];
+    final double[] weights = new double[edges.size()];
+    boolean weighted = false;
+    int count = 0;
+
+    for (final GraphEdge edge : edges) {
+      sources[count] = edge.getNode1().getId();
+      destinations[count] = edge.getNode2().getId();
+      weights[count] = parseWeight(edge.getAttribute("weight"));
+      weighted |= weights[count] != Edge.DEFAULT_WEIGHT;
+      count++;
+    }
+
+    // Unweighted graphs keep no weight array at all.
+    return new DotFile(ids, sources, destinations, weighted ? weights : null);
+  }
+
+  /**
+   * Reads the weight attribute of an edge.
+   *
+   * @param attribute The value of the attribute, or null if the edge has none.
+   * @return The weight, or the default weight if the attribute is missing or not a number.
+   */
+  private static double parseWeight(final Object attribute) {
+    if (attribute == null) {
+      return Edge.DEFAULT_WEIGHT;
+    }
+
+    try {
+      return Double.parseDouble(attribute.toString().trim());
+    } catch (NumberFormatException e) {
+      return Edge.DEFAULT_WEIGHT;
+    }
+  }
+
+  /**
+   * Get the id of every vertex in the file.
+   *
+   * @return The ids.
+   */
+  public List<String> getVertexIds() {
+    return vertexIds;
+  }
+
+  /**
+   * Get the number of edges in the file, including any duplicates.
+   *
+   * @return The number of edges.
+   */
+  public int getEdgeCount() {
+    return sources.length;
+  }
+
+  /**
+   * Get the id of the source of an edge.
+   *
+   * @param edge The index of the edge.
+   * @return The id.
+   */
+  public String getSource(final int edge) {
+    return sources[edge];
+  }
+
+  /**
+   * Get the id of the destination of an edge.
+   *
+   * @param edge The index of the edge.
+   * @return The id.
+   */
+  public String getDestination(final int edge) {
+    return destinations[edge];
+  }
+
+  /**
+   * Get the weight of every edge.
+   *
+   * @return The weights, or null if no edge has a weight.
+   */
+  public double[] getWeights() {
+    return weights;
+  }
+}
@@ -1,17 +1,43 @@
 package nz.ac.auckland.se281;
 
-import com.paypal.digraph.parser.GraphEdge;
-import com.paypal.digraph.parser.GraphNode;
-import com.paypal.digraph.parser.GraphParser;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import nz.ac.auckland.se281.datastructures.Adjacency;
+import nz.ac.auckland.se281.datastructures.BreadthFirstDistances;
+import nz.ac.auckland.se281.datastructures.BspCoordinator;
+import nz.ac.auckland.se281.datastructures.CompressedAdjacency;
+import nz.ac.auckland.se281.datastructures.ContentHash;
+import nz.ac.auckland.se281.datastructures.CsrAdjacency;
+import nz.ac.auckland.se281.datastructures.DegreeIndex;
 import nz.ac.auckland.se281.datastructures.Edge;
+import nz.ac.auckland.se281.datastructures.EdgeChanges;
+import nz.ac.auckland.se281.datastructures.ExternalAdjacency;
+import nz.ac.auckland.se281.datastructures.ExternalCsrBuilder;
 import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.MultiSourceBfs;
+import nz.ac.auckland.se281.datastructures.OffHeapAdjacency;
+import nz.ac.auckland.se281.datastructures.PropertySample;
+import nz.ac.auckland.se281.datastructures.PropertySampler;
+import nz.ac.auckland.se281.datastructures.ReachabilityIndex;
+import nz.ac.auckland.se281.datastructures.RelationProperties;
+import nz.ac.auckland.se281.datastructures.ShortestPaths;
+import nz.ac.auckland.se281.datastructures.StronglyConnectedComponents;
+import nz.ac.auckland.se281.datastructures.TopologicalSort;
+import nz.ac.auckland.se281.datastructures.VertexTable;
+import nz.ac.auckland.se281.datastructures.Violations;
+import nz.ac.auckland.se281.datastructures.WeakComponentProgram;
 
 /**
  * The calculator that reports properties of graphs to the user.
@@ -21,41 +47,672 @@ import nz.ac.auckland.se281.datastructures.Graph;
 public class GraphCalculator {
   private static final Path TESTCASES = Path.of("testcases");
 
+  private static final int HUB_COUNT = 5;
+
+  /** Graphs with at least this many edges keep their edges off the heap. */
+  private static final int OFF_HEAP_EDGES = 1 << 24;
+
+  /**
+   * The system property that forces the edge storage, "heap", "offheap", "compressed" or
+   * "external", which keeps the edges in a file on disk.
+   */
+  private static final String STORAGE_PROPERTY = "graph.storage";
+
+  /**
+   * The system property that sets the memory the edges of an edge file are sorted in, such as
+   * "256m", so files with more edges than fit in memory can still be stored on disk.
+   */
+  private static final String SORT_BUFFER_PROPERTY = "graph.sort.buffer";
+
+  private static final long SORT_BUFFER_BYTES = 64L << 20;
+
+  /** The budget checked when a file is opened, shared by every file opened afterwards. */
+  private static MemoryBudget budget = MemoryBudget.fromProperty();
+
   private final Path file;
 
-  private final Collection<GraphNode> verticies;
+  private VertexTable<String> verticies;
+
+  private ParseOrder order;
+
+  private Graph<String> graph;
+
+  private String storage;
+
+  private ExternalAdjacency edgeFile;
 
-  private final Collection<GraphEdge> edges;
+  private ContentHash hash;
 
-  private final Graph<String> graph;
+  private ResultCache cache;
+
+  private WatchService watcher;
+
+  private long[] fileStamp;
+
+  private MultiSourceBfs rootSearch;
+
+  private StronglyConnectedComponents components;
+
+  private ReachabilityIndex reachability;
+
+  private PropertySampler sampler;
 
   /**
    * Creates a new graph calculator.
    *
    * @param filename The name of the test case to read.
    * @throws FileNotFoundException If the file does not exist.
+   * @throws MemoryBudgetExceededException If the graph would keep more than the memory budget, or
+   *     the file needs more memory to parse than the heap has free.
    */
-  public GraphCalculator(final String filename) throws FileNotFoundException {
+  public GraphCalculator(final String filename)
+      throws FileNotFoundException, MemoryBudgetExceededException {
     file = TESTCASES.resolve(filename);
 
-    final GraphParser parser = new GraphParser(new FileInputStream(file.toFile()));
+    // An unchanged file is read back from its snapshot, which skips loading the parser entirely.
+    final Path directory = ResultCache.defaultDirectory();
+
+    if (loadSnapshot(directory)) {
+      return;
+    }
+
+    // The stamp is taken before parsing, so a write during the parse makes the snapshot stale.
+    final long[] stamp = GraphSnapshot.readStamp(file);
+    final byte[] digest = directory == null ? null : GraphSnapshot.readDigest(file);
+    // The parser only needs its memory until the file is read, so it is checked against the heap.
+    MemoryBudget.ofFreeHeap().check(MemoryBudget.estimateParse(stamp == null ? 0 : stamp[1]));
+    final DotFile dot = DotFile.read(file);
+    final VertexTable<String> table = new VertexTable<>(dot.getVertexIds());
+    final ParseOrder order = ParseOrder.of(dot, table);
+    final Adjacency adjacency = readStoredEdges(dot, table);
+    load(table, order, adjacency);
+    GraphSnapshot.write(directory, file, stamp, digest, table, adjacency, order);
+  }
+
+  /**
+   * Loads the graph from the snapshot of the file, if it has an up to date one. The memory reading
+   * it needs is checked against the free heap first, as it is before a parse, and the edges are
+   * streamed straight into an edge file when they are stored on disk.
+   *
+   * @param directory The cache directory, or null if caching is turned off.
+   * @return True if the graph was loaded, false if it has to be parsed.
+   * @throws MemoryBudgetExceededException If the snapshot needs more memory to read than the heap
+   *     has free, or the graph would keep more than the memory budget.
+   */
+  private boolean loadSnapshot(final Path directory) throws MemoryBudgetExceededException {
+    try (GraphSnapshot snapshot = GraphSnapshot.open(directory, file)) {
+      if (snapshot == null) {
+        return false;
+      }
+
+      MemoryBudget.ofFreeHeap().check(snapshot.estimateHeap(!isStoredOnDisk()));
+      final VertexTable<String> table = new VertexTable<>(snapshot.readVertexIds());
+
+      if (!isStoredOnDisk()) {
+        final Adjacency adjacency = snapshot.readEdges();
+        load(table, snapshot.readOrder(), adjacency);
+        return true;
+      }
+
+      final Path edges = createEdgeFile();
+      try (ExternalCsrBuilder builder =
+          new ExternalCsrBuilder(
+              table.size(), snapshot.isWeighted(), edges.getParent(), getSortBuffer())) {
+        snapshot.readEdges(builder);
+        final Adjacency adjacency = builder.build(edges);
+        load(table, snapshot.readOrder(), adjacency);
+      }
+      return true;
+    } catch (IOException e) {
+      // A damaged snapshot, or an edge file that cannot be written, falls back to a parse.
+      return false;
+    }
+  }
+
+  /**
+   * Analyses every graph file in a folder on every core, and writes a row of results per file.
+   *
+   * @param folder The folder, relative to the test cases folder.
+   * @param filename The file to write the rows to, as JSON lines if it ends in ".jsonl".
+   */
+  public static void batchAnalyse(final String folder, final String filename) {
+    final Path directory = TESTCASES.resolve(folder);
+
+    if (!Files.isDirectory(directory)) {
+      MessageCli.FOLDER_NOT_FOUND.printMessage(folder);
+      return;
+    }
+
+    final BatchAnalyser batch =
+        new BatchAnalyser(Runtime.getRuntime().availableProcessors(), budget);
+
+    try {
+      batch.analyse(directory, Path.of(filename));
+    } catch (IOException e) {
+      MessageCli.FILE_NOT_WRITTEN.printMessage(filename);
+      return;
+    }
+
+    final int count = batch.getFileCount();
+    MessageCli.BATCH_ANALYSED.printMessage(
+        String.valueOf(count), count == 1 ? "" : "s", folder, filename);
+
+    if (batch.getFailureCount() > 0) {
+      final int failures = batch.getFailureCount();
+      MessageCli.BATCH_FAILURES.printMessage(
+          String.valueOf(failures), failures == 1 ? "" : "s");
+    }
+  }
+
+  /**
+   * Sets the memory budget checked when files are opened from now on.
+   *
+   * @param size The budget, such as "512m", or "none".
+   */
+  public static void setMemoryBudget(final String size) {
+    final MemoryBudget parsed = MemoryBudget.parse(size);
+
+    if (parsed == null) {
+      MessageCli.INVALID_MEMORY_BUDGET.printMessage(size);
+      return;
+    }
+
+    budget = parsed;
+    MessageCli.MEMORY_BUDGET_SET.printMessage(budget.toString());
+  }
+
+  /**
+   * Builds the graph, replacing any graph already loaded. A graph over the memory budget leaves
+   * the loaded graph as it was.
+   *
+   * @param table The verticies of the graph, with every vertex id interned once.
+   * @param order The order the file was parsed in.
+   * @param adjacency The edges of the graph, on the heap or already in an edge file.
+   * @throws MemoryBudgetExceededException If the graph would keep more than the memory budget.
+   */
+  private void load(
+      final VertexTable<String> table, final ParseOrder order, final Adjacency adjacency)
+      throws MemoryBudgetExceededException {
+    final Adjacency stored = store(table, order, adjacency);
+    closeEdgeFile();
+    edgeFile = stored instanceof ExternalAdjacency ? (ExternalAdjacency) stored : null;
+    verticies = table;
+    this.order = order;
+    graph = new Graph<>(verticies, stored);
+    limitMatrix();
+
+    // Results are cached under the content of the graph, so renaming or rewriting the file in a
+    // different order still finds them.
+    hash = new ContentHash(verticies, adjacency);
+    saveResults();
+    cache = new ResultCache(ResultCache.defaultDirectory(), hash.toString());
+    forgetResults();
+  }
+
+  /**
+   * Converts the edges of a parsed file into successor lists over a vertex table.
+   *
+   * @param dot The parsed file.
+   * @param table The verticies of the file.
+   * @return The edges, on the heap.
+   */
+  static Adjacency readEdges(final DotFile dot, final VertexTable<String> table) {
+    final int[] sources = new int[dot.getEdgeCount()];
+    final int[] destinations = new int[dot.getEdgeCount()];
+
+    for (int i = 0; i < dot.getEdgeCount(); i++) {
+      sources[i] = table.getId(dot.getSource(i));
+      destinations[i] = table.getId(dot.getDestination(i));
+    }
+
+    return CsrAdjacency.build(
+        table.size(), sources, destinations, dot.getWeights(), dot.getEdgeCount());
+  }
+
+  /**
+   * Converts the edges of a parsed file into successor lists, which are sorted straight into an
+   * edge file when the edges are stored on disk, so the lists are never built on the heap. The
+   * parsed file itself still holds every edge until it is dropped.
+   *
+   * @param dot The parsed file.
+   * @param table The verticies of the file.
+   * @return The edges, on the heap or in an edge file.
+   */
+  private Adjacency readStoredEdges(final DotFile dot, final VertexTable<String> table) {
+    if (!isStoredOnDisk()) {
+      return readEdges(dot, table);
+    }
+
+    Path edges = null;
+
+    try {
+      edges = createEdgeFile();
+
+      try (ExternalCsrBuilder builder =
+          new ExternalCsrBuilder(
+              table.size(), dot.getWeights() != null, edges.getParent(), getSortBuffer())) {
+        for (int i = 0; i < dot.getEdgeCount(); i++) {
+          builder.add(
+              table.getId(dot.getSource(i)),
+              table.getId(dot.getDestination(i)),
+              dot.getWeights() == null ? Edge.DEFAULT_WEIGHT : dot.getWeights()[i]);
+        }
+        return builder.build(edges);
+      }
+    } catch (IOException e) {
+      MessageCli.FILE_NOT_WRITTEN.printMessage(String.valueOf(edges));
+      return readEdges(dot, table);
+    }
+  }
+
+  /**
+   * Checks if the system property keeps the edges in a file on disk.
+   *
+   * @return True if the edges are stored on disk.
+   */
+  private static boolean isStoredOnDisk() {
+    return System.getProperty(STORAGE_PROPERTY, "").equalsIgnoreCase("external");
+  }
+
+  /**
+   * Creates an empty edge file in the temporary folder, which is deleted when the calculator exits
+   * if it is not deleted before.
+   *
+   * @return The file.
+   * @throws IOException If the file cannot be created.
+   */
+  private static Path createEdgeFile() throws IOException {
+    final Path edges = Files.createTempFile("graph-edges-", ".bin");
+    edges.toFile().deleteOnExit();
+    return edges;
+  }
+
+  /**
+   * Gets the memory the edges of an edge file are sorted in, from the system property.
+   *
+   * @return The size of the sort buffer in bytes.
+   */
+  private static long getSortBuffer() {
+    final MemoryBudget size = MemoryBudget.parse(System.getProperty(SORT_BUFFER_PROPERTY, "64m"));
+    return size == null || size == MemoryBudget.NONE ? SORT_BUFFER_BYTES : size.getBytes();
+  }
+
+  /** Drops the search and reachability results kept for the loaded graph. */
+  private void forgetResults() {
+    rootSearch = null;
+    components = null;
+    reachability = null;
+    sampler = null;
+  }
+
+  /** Starts watching the loaded file, so changes to it are applied before each later command. */
+  public void watchFile() {
+    if (watcher == null) {
+      try {
+        watcher = FileSystems.getDefault().newWatchService();
+        // Rewriting a file by moving a new one over it shows up as the file being created.
+        file.toAbsolutePath()
+            .getParent()
+            .register(
+                watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+      } catch (IOException e) {
+        stopWatching();
+        MessageCli.FILE_NOT_FOUND.printMessage(file.getFileName().toString());
+        return;
+      }
+      fileStamp = GraphSnapshot.readStamp(file);
+    }
+
+    MessageCli.WATCHING_FILE.printMessage(file.getFileName().toString());
+  }
+
+  /**
+   * Saves any results not yet cached, stops watching the loaded file, and removes the file its
+   * edges were kept in, if any.
+   */
+  public void close() {
+    saveResults();
+    stopWatching();
+    closeEdgeFile();
+  }
+
+  /**
+   * Writes the results computed since the last save to the result cache, which is done once after
+   * each command rather than for each result.
+   */
+  public void saveResults() {
+    if (cache != null) {
+      cache.flush();
+    }
+  }
+
+  /** Closes and deletes the file the edges of the loaded graph are kept in, if any. */
+  private void closeEdgeFile() {
+    deleteEdgeFile(edgeFile);
+    edgeFile = null;
+  }
+
+  /**
+   * Closes and deletes the edge file of some edges, if they are kept in one.
+   *
+   * @param edges The edges, which may be on the heap or null.
+   */
+  private static void deleteEdgeFile(final Adjacency edges) {
+    if (!(edges instanceof ExternalAdjacency)) {
+      return;
+    }
+
+    try {
+      ((ExternalAdjacency) edges).close();
+      Files.deleteIfExists(((ExternalAdjacency) edges).getFile());
+    } catch (IOException e) {
+      // The file is in the temporary folder, and is deleted on exit anyway.
+    }
+  }
+
+  /** Stops watching the loaded file. */
+  public void stopWatching() {
+    if (watcher == null) {
+      return;
+    }
+
+    try {
+      watcher.close();
+    } catch (IOException e) {
+      // Nothing more can be done with a watcher that fails to close.
+    }
+    watcher = null;
+  }
+
+  /**
+   * Applies any changes made to the watched file since the last check. Only the inserted and
+   * removed edges are applied to the graph and its indexes, unless the verticies changed, in which
+   * case the whole graph is loaded again. Edges kept on disk, or changes too large to overlay, are
+   * stored again in the storage a load would choose, within the memory budget.
+   */
+  public void applyFileChanges() {
+    if (!hasFileChanged()) {
+      return;
+    }
+
+    final String filename = file.getFileName().toString();
+    final DotFile dot;
+
+    try {
+      MemoryBudget.ofFreeHeap().check(
+          MemoryBudget.estimateParse(fileStamp == null ? 0 : fileStamp[1]));
+    } catch (MemoryBudgetExceededException e) {
+      printOverBudget(filename, e);
+      return;
+    }
+
+    try {
+      dot = DotFile.read(file);
+    } catch (FileNotFoundException | RuntimeException e) {
+      // The file may be half written, a complete version raises another event.
+      MessageCli.FILE_NOT_REREAD.printMessage(filename);
+      return;
+    }
+
+    final List<String> ids = dot.getVertexIds();
+    boolean sameVerticies = ids.size() == verticies.size();
+
+    for (int i = 0; i < ids.size() && sameVerticies; i++) {
+      sameVerticies = verticies.getId(ids.get(i)) >= 0;
+    }
+
+    // Edges on disk are sorted straight into a new edge file and compared from there, so the new
+    // version is never built on the heap.
+    Adjacency next = null;
+    if (sameVerticies) {
+      next = edgeFile != null ? readStoredEdges(dot, verticies) : readEdges(dot, verticies);
+    }
+    final EdgeChanges changes = sameVerticies ? graph.findEdgeChanges(next) : null;
+
+    if (changes == null || changes.isEmpty()) {
+      deleteEdgeFile(next);
+    }
+
+    if (changes == null) {
+      final VertexTable<String> table = new VertexTable<>(ids);
+      try {
+        load(table, ParseOrder.of(dot, table), readStoredEdges(dot, table));
+      } catch (MemoryBudgetExceededException e) {
+        printOverBudget(filename, e);
+        return;
+      }
+      MessageCli.FILE_RELOADED.printMessage(filename);
+      return;
+    }
+
+    // The file keeps its edges even when only their order changed, so the listing follows it.
+    final ParseOrder nextOrder = ParseOrder.of(dot, verticies);
+
+    if (changes.isEmpty()) {
+      order = nextOrder;
+      return;
+    }
+
+    // An overlay would hide an edge file from the searches that read it, and a large one costs more
+    // than new edges, so those changes are applied by storing the new edges as a load would.
+    final long overlayBytes =
+        (long) (changes.getInserted().length + changes.getRemoved().length) * 2 * Long.BYTES;
+    if (edgeFile != null
+        || graph.isCompactionDue(changes)
+        || !budget.fits(
+            getFixedBytes(verticies)
+                + nextOrder.getBytes()
+                + graph.getEdgeHeapBytes()
+                + overlayBytes)) {
+      final Adjacency stored;
+      try {
+        stored = store(verticies, nextOrder, next);
+      } catch (MemoryBudgetExceededException e) {
+        deleteEdgeFile(next);
+        printOverBudget(filename, e);
+        return;
+      }
+      closeEdgeFile();
+      edgeFile = stored instanceof ExternalAdjacency ? (ExternalAdjacency) stored : null;
+      graph.replaceEdges(changes, stored);
+    } else {
+      graph.applyEdgeChanges(changes);
+    }
+    order = nextOrder;
+    limitMatrix();
+    hash.update(changes);
+    saveResults();
+    cache = new ResultCache(ResultCache.defaultDirectory(), hash.toString());
+    forgetResults();
+
+    final int inserted = changes.getInserted().length;
+    final int removed = changes.getRemoved().length;
+    MessageCli.FILE_CHANGES_APPLIED.printMessage(
+        filename,
+        String.valueOf(inserted),
+        inserted == 1 ? "" : "s",
+        String.valueOf(removed),
+        removed == 1 ? "" : "s");
+  }
+
+  /**
+   * Checks if the watched file has been written since the last check, draining every pending
+   * event of the directory.
+   *
+   * @return True if the file changed, or events were lost and it may have.
+   */
+  private boolean hasFileChanged() {
+    if (watcher == null) {
+      return false;
+    }
+
+    boolean changed = false;
+    WatchKey key;
+
+    while ((key = watcher.poll()) != null) {
+      for (final WatchEvent<?> event : key.pollEvents()) {
+        changed |=
+            event.kind() == StandardWatchEventKinds.OVERFLOW
+                || file.getFileName().equals(event.context());
+      }
+      key.reset();
+    }
+
+    // Events can arrive after the next command, so the time and size of the file are compared too.
+    final long[] stamp = GraphSnapshot.readStamp(file);
+    changed |= !Arrays.equals(stamp, fileStamp);
+    fileStamp = stamp;
+
+    return changed;
+  }
+
+  /**
+   * Decides where the edges of a graph are stored. Large graphs are moved off the heap, so the
+   * garbage collector never scans their edges, when the JVM has the direct memory for them. Edges
+   * that would take the graph over the memory budget are compressed instead, or moved off the heap
+   * if even that is too much.
+   *
+   * @param table The verticies of the graph.
+   * @param order The order the file was parsed in, which is kept on the heap with the table.
+   * @param adjacency The edges of the graph, on the heap or already in an edge file.
+   * @return The edges in the chosen storage.
+   * @throws MemoryBudgetExceededException If the graph is over the budget however it is stored, or
+   *     its edges have to go off the heap and there is not enough direct memory free.
+   */
+  private Adjacency store(
+      final VertexTable<String> table, final ParseOrder order, final Adjacency adjacency)
+      throws MemoryBudgetExceededException {
+    final String forced = System.getProperty(STORAGE_PROPERTY, "");
+    final long fixed = getFixedBytes(table) + order.getBytes();
+    final Adjacency stored;
+    boolean switched = false;
+
+    if (forced.equalsIgnoreCase("compressed")) {
+      stored = CompressedAdjacency.copyOf(adjacency);
+      storage = "compressed on the heap";
+    } else if (isStoredOnDisk()) {
+      stored = writeEdgeFile(adjacency);
+      storage = stored instanceof ExternalAdjacency ? "on disk" : "on the heap";
+    } else if (forced.equalsIgnoreCase("offheap")
+        || (!forced.equalsIgnoreCase("heap")
+            && adjacency.getEdgeCount() >= OFF_HEAP_EDGES
+            && MemoryBudget.ofFreeDirectMemory().fits(getOffHeapBytes(adjacency)))) {
+      stored = copyOffHeap(adjacency);
+      storage = "off the heap";
+    } else if (forced.equalsIgnoreCase("heap")
+        || budget.fits(fixed + adjacency.getHeapBytes())) {
+      stored = adjacency;
+      storage = "on the heap";
+    } else {
+      final CompressedAdjacency compressed = CompressedAdjacency.copyOf(adjacency);
+      final boolean fits = budget.fits(fixed + compressed.getHeapBytes());
+      stored = fits ? compressed : copyOffHeap(adjacency);
+      storage = fits ? "compressed on the heap" : "off the heap";
+      switched = true;
+    }
+
+    budget.check(fixed + stored.getHeapBytes());
+
+    if (switched) {
+      MessageCli.STORAGE_OVER_BUDGET.printMessage(
+          file.getFileName().toString(),
+          MemoryBudget.format(fixed + adjacency.getHeapBytes()),
+          budget.toString(),
+          storage);
+    }
+    return stored;
+  }
+
+  /**
+   * Gets the direct memory the edges of a graph would take off the heap.
+   *
+   * @param adjacency The edges of the graph.
+   * @return The bytes.
+   */
+  private static long getOffHeapBytes(final Adjacency adjacency) {
+    return OffHeapAdjacency.getBytes(
+        adjacency.getVertexCount(), adjacency.getEdgeCount(), adjacency.isWeighted());
+  }
+
+  /**
+   * Copies the edges of a graph off the heap, refusing them if the JVM does not have the direct
+   * memory for them rather than letting the allocation fail with an error.
+   *
+   * @param adjacency The edges of the graph.
+   * @return The edges off the heap.
+   * @throws MemoryBudgetExceededException If the edges need more direct memory than is free.
+   */
+  private static Adjacency copyOffHeap(final Adjacency adjacency)
+      throws MemoryBudgetExceededException {
+    final long needed = getOffHeapBytes(adjacency);
+    MemoryBudget.ofFreeDirectMemory().check(needed);
 
-    this.verticies = parser.getNodes().values();
-    this.edges = parser.getEdges().values();
+    try {
+      return OffHeapAdjacency.copyOf(adjacency);
+    } catch (OutOfMemoryError e) {
+      // Something else can take the direct memory between the check and the copy.
+      throw new MemoryBudgetExceededException(needed, MemoryBudget.ofFreeDirectMemory());
+    }
+  }
+
+  /**
+   * Limits the bit matrix the property checks build for dense graphs to what the memory budget
+   * has left once the graph is loaded, as a matrix can keep far more than the edges it is built
+   * from.
+   */
+  private void limitMatrix() {
+    graph.setMatrixLimit(
+        budget.getBytes()
+            - getFixedBytes(verticies)
+            - order.getBytes()
+            - graph.getEdgeHeapBytes());
+  }
 
-    final Set<String> verticies = new HashSet<>();
+  /**
+   * Estimates the heap a graph keeps apart from its edges.
+   *
+   * @param table The verticies of the graph.
+   * @return The bytes kept by the vertex table and the degree index.
+   */
+  static long getFixedBytes(final VertexTable<String> table) {
+    // The vertex table and the degree index stay on the heap wherever the edges are stored.
+    return table.getBytes() + (long) table.size() * 2 * Integer.BYTES;
+  }
 
-    for (final GraphNode node : this.verticies) {
-      verticies.add(node.getId());
+  /**
+   * Writes edges to a file in the temporary folder, so only their offsets stay in memory and
+   * searches read the successor lists from disk.
+   *
+   * @param adjacency The edges of the graph, on the heap or already in an edge file.
+   * @return The edges on disk, or on the heap if the file cannot be written.
+   */
+  private Adjacency writeEdgeFile(final Adjacency adjacency) {
+    if (adjacency instanceof ExternalAdjacency) {
+      return adjacency;
     }
 
-    final Set<Edge<String>> edges = new HashSet<>();
+    Path edges = null;
 
-    for (final GraphEdge edge : this.edges) {
-      edges.add(new Edge<>(edge.getNode1().getId(), edge.getNode2().getId()));
+    try {
+      edges = createEdgeFile();
+      return ExternalAdjacency.write(adjacency, edges);
+    } catch (IOException e) {
+      MessageCli.FILE_NOT_WRITTEN.printMessage(String.valueOf(edges));
+      return adjacency;
     }
+  }
 
-    graph = new Graph<>(verticies, edges);
+  /**
+   * Prints that a file was refused for needing more memory than is available.
+   *
+   * @param filename The name of the file.
+   * @param e The refusal.
+   */
+  static void printOverBudget(final String filename, final MemoryBudgetExceededException e) {
+    MessageCli.OVER_MEMORY_BUDGET.printMessage(
+        filename, MemoryBudget.format(e.getNeeded()), e.getBudget().toString());
   }
 
   /** Prints the filename of the test case that is loaded. */
@@ -63,23 +720,63 @@ public class GraphCalculator {
     MessageCli.INFO.printMessage(TESTCASES.relativize(file).toString());
   }
 
-  /** Prints the set of verticies and edges in the graph. */
+  /**
+   * Prints roughly how much memory the loaded graph keeps, split into its vertex table, the order
+   * its file was parsed in, edges, indexes and the results kept for later commands, against the
+   * memory budget.
+   */
+  public void printMemory() {
+    final long vertexBytes = verticies.getBytes();
+    final long orderBytes = order.getBytes();
+    final long edgeBytes = graph.getEdgeHeapBytes();
+    final long indexBytes = graph.getIndexBytes();
+    long cacheBytes = 0;
+
+    if (rootSearch != null) {
+      cacheBytes += rootSearch.getBytes();
+    }
+    if (components != null) {
+      cacheBytes += components.getBytes();
+    }
+    if (reachability != null) {
+      cacheBytes += reachability.getBytes();
+    }
+    if (sampler != null) {
+      cacheBytes += sampler.getBytes();
+    }
+
+    MessageCli.MEMORY_VERTICIES.printMessage(
+        MemoryBudget.format(vertexBytes), String.valueOf(verticies.size()));
+    MessageCli.MEMORY_ORDER.printMessage(MemoryBudget.format(orderBytes));
+    MessageCli.MEMORY_EDGES.printMessage(
+        storage,
+        MemoryBudget.format(edgeBytes),
+        MemoryBudget.format(graph.getEdgeOffHeapBytes()));
+    MessageCli.MEMORY_INDEXES.printMessage(MemoryBudget.format(indexBytes));
+    MessageCli.MEMORY_CACHES.printMessage(MemoryBudget.format(cacheBytes));
+    MessageCli.MEMORY_TOTAL.printMessage(
+        MemoryBudget.format(vertexBytes + orderBytes + edgeBytes + indexBytes + cacheBytes),
+        budget.toString());
+  }
+
+  /** Prints the set of verticies and edges in the graph, in the order the parser read them. */
   public void printVerticiesEdges() {
     final StringBuilder sb = new StringBuilder("Verticies:").append(System.lineSeparator());
 
     // Vertically print each vertex.
-    for (final GraphNode node : verticies) {
-      sb.append("\t").append(node.getId()).append(System.lineSeparator());
+    for (int i = 0; i < order.getVertexCount(); i++) {
+      final String vertex = verticies.getVertex(order.getVertex(i));
+      sb.append("\t").append(vertex).append(System.lineSeparator());
     }
 
     sb.append(System.lineSeparator()).append("Edges:").append(System.lineSeparator());
 
     // Vertically print each edge between verticies.
-    for (final GraphEdge edge : edges) {
+    for (int i = 0; i < order.getEdgeCount(); i++) {
       sb.append("\t")
-          .append(edge.getNode1().getId())
+          .append(verticies.getVertex(order.getSource(i)))
           .append(" -> ")
-          .append(edge.getNode2().getId())
+          .append(verticies.getVertex(order.getDestination(i)))
           .append(System.lineSeparator());
     }
 
@@ -88,32 +785,647 @@ public class GraphCalculator {
 
   /** Prints the set of verticies in the graph that are root verticies. */
   public void printRoots() {
-    System.out.println(graph.getRoots());
+    System.out.println(formatVerticies(cache.getIds("roots", graph::getRootIds)));
+  }
+
+  /**
+   * Prints the root verticies that can reach the given vertex.
+   *
+   * @param vertex The vertex to find the roots of.
+   */
+  public void printRootsReaching(final String vertex) {
+    final int id = verticies.getId(vertex);
+
+    if (id < 0) {
+      MessageCli.VERTEX_NOT_FOUND.printMessage(vertex);
+      return;
+    }
+
+    // Search from every root at once, and keep the search for later queries.
+    if (rootSearch == null) {
+      rootSearch = graph.multiSourceBreadthFirstSearch(graph.getRootIds(), false);
+    }
+
+    final int[] sources = rootSearch.getSourcesReaching(id);
+    final int[] roots = new int[sources.length];
+
+    for (int i = 0; i < sources.length; i++) {
+      roots[i] = rootSearch.getSource(sources[i]);
+    }
+
+    System.out.println(formatVerticies(roots));
+  }
+
+  /**
+   * Prints if each pair of verticies is reachable, the first of a pair being the start.
+   *
+   * @param pairs The verticies, two for each query.
+   */
+  public void printReachable(final String[] pairs) {
+    final int[] sources = new int[pairs.length / 2];
+    final int[] destinations = new int[pairs.length / 2];
+
+    // Resolve every vertex before answering, so a batch is all or nothing.
+    for (int i = 0; i < pairs.length; i++) {
+      final int id = verticies.getId(pairs[i]);
+
+      if (id < 0) {
+        MessageCli.VERTEX_NOT_FOUND.printMessage(pairs[i]);
+        return;
+      }
+
+      if (i % 2 == 0) {
+        sources[i / 2] = id;
+      } else {
+        destinations[i / 2] = id;
+      }
+    }
+
+    if (reachability == null) {
+      reachability = new ReachabilityIndex(getComponents());
+    }
+
+    final boolean[] results = new boolean[sources.length];
+    reachability.areReachable(sources, destinations, results);
+
+    final StringBuilder sb = new StringBuilder();
+
+    for (int i = 0; i < results.length; i++) {
+      sb.append(
+              MessageCli.VERTEX_REACHABLE.getMessage(
+                  pairs[2 * i + 1], prefixNot(results[i]), pairs[2 * i]))
+          .append(System.lineSeparator());
+    }
+
+    System.out.print(sb.toString());
+  }
+
+  /** Prints a summary of the in and out degrees of the verticies in the graph. */
+  public void printDegreeStats() {
+    final DegreeIndex degrees = graph.getDegreeIndex();
+    final int size = degrees.getVertexCount();
+    int minIn = size == 0 ? 0 : Integer.MAX_VALUE;
+    int maxIn = 0;
+    int minOut = minIn;
+    int maxOut = 0;
+    int sources = 0;
+    int sinks = 0;
+    int isolated = 0;
+
+    for (int vertex = 0; vertex < size; vertex++) {
+      minIn = Math.min(minIn, degrees.getInDegree(vertex));
+      maxIn = Math.max(maxIn, degrees.getInDegree(vertex));
+      minOut = Math.min(minOut, degrees.getOutDegree(vertex));
+      maxOut = Math.max(maxOut, degrees.getOutDegree(vertex));
+      sources += degrees.isSource(vertex) ? 1 : 0;
+      sinks += degrees.isSink(vertex) ? 1 : 0;
+      isolated += degrees.isIsolated(vertex) ? 1 : 0;
+    }
+
+    final String mean = String.format("%.2f", degrees.getMeanDegree());
+    final StringBuilder sb = new StringBuilder("Degree statistics:").append(System.lineSeparator());
+    sb.append("\tOut degree: min ").append(minOut).append(", max ").append(maxOut);
+    sb.append(", mean ").append(mean).append(System.lineSeparator());
+    sb.append("\tIn degree: min ").append(minIn).append(", max ").append(maxIn);
+    sb.append(", mean ").append(mean).append(System.lineSeparator());
+    sb.append("\tSources: ").append(sources).append(", sinks: ").append(sinks);
+    sb.append(", isolated: ").append(isolated).append(System.lineSeparator());
+
+    // Each histogram bucket covers a power of two range of total degrees.
+    sb.append("\tDegree histogram:").append(System.lineSeparator());
+    final int[] histogram = degrees.getDegreeHistogram();
+
+    for (int bucket = 0; bucket < histogram.length; bucket++) {
+      final long low = bucket == 0 ? 0 : 1L << (bucket - 1);
+      final long high = bucket == 0 ? 0 : (1L << bucket) - 1;
+      sb.append("\t\t").append(low);
+      if (high > low) {
+        sb.append("-").append(high);
+      }
+      sb.append(": ").append(histogram[bucket]).append(System.lineSeparator());
+    }
+
+    sb.append("\tHubs: ").append(formatVerticies(degrees.getHubs(HUB_COUNT)));
+    sb.append(System.lineSeparator());
+
+    System.out.print(sb.toString());
   }
 
   /** Prints if the set of verticies in the graph exhibit the reflexivity property. */
   public void printReflexitivity() {
-    MessageCli.GRAPH_REFLEXIVE.printMessage(prefixNot(graph.isReflexive()));
+    final boolean holds = cache.getFlag("reflexive", graph::isReflexive);
+    MessageCli.GRAPH_REFLEXIVE.printMessage(prefixNot(holds));
   }
 
   /** Prints if the set of edges in the graph exhibit the symmetric property. */
   public void printSymmetry() {
-    MessageCli.GRAPH_SYMMETRIC.printMessage(prefixNot(graph.isSymmetric()));
+    final boolean holds = cache.getFlag("symmetric", graph::isSymmetric);
+    MessageCli.GRAPH_SYMMETRIC.printMessage(prefixNot(holds));
   }
 
   /** Prints if the set of edges in the graph exhibit transitivity. */
   public void printTransitivity() {
-    MessageCli.GRAPH_TRANSITIVE.printMessage(prefixNot(graph.isTransitive()));
+    final boolean holds = cache.getFlag("transitive", graph::isTransitive);
+    MessageCli.GRAPH_TRANSITIVE.printMessage(prefixNot(holds));
   }
 
   /** Prints if the set of edges in the graph exhibit anti-symmetry. */
   public void printAntiSymmetry() {
-    MessageCli.GRAPH_ANTI_SYMMETRIC.printMessage(prefixNot(graph.isAntiSymmetric()));
+    final boolean holds = cache.getFlag("antisymmetric", graph::isAntiSymmetric);
+    MessageCli.GRAPH_ANTI_SYMMETRIC.printMessage(prefixNot(holds));
   }
 
   /** Prints if the entire graph is considered an equivalence relation. */
   public void printEquivalence() {
-    MessageCli.GRAPH_EQUIVALENCE.printMessage(prefixNot(graph.isEquivalence()));
+    final boolean holds = cache.getFlag("equivalence", graph::isEquivalence);
+    MessageCli.GRAPH_EQUIVALENCE.printMessage(prefixNot(holds));
+  }
+
+  /**
+   * Prints if the graph is reflexive, symmetric, transitive, antisymmetric and an equivalence
+   * relation. Any property that is not cached is decided in one shared pass over the edges.
+   */
+  public void printAllProperties() {
+    final RelationProperties[] fused = new RelationProperties[1];
+    final Supplier<RelationProperties> properties =
+        () -> {
+          if (fused[0] == null) {
+            fused[0] = graph.relationProperties();
+          }
+          return fused[0];
+        };
+
+    final boolean reflexive = cache.getFlag("reflexive", () -> properties.get().isReflexive());
+    final boolean symmetric = cache.getFlag("symmetric", () -> properties.get().isSymmetric());
+    final boolean transitive = cache.getFlag("transitive", () -> properties.get().isTransitive());
+    final boolean antiSymmetric =
+        cache.getFlag("antisymmetric", () -> properties.get().isAntiSymmetric());
+    final boolean equivalence =
+        cache.getFlag("equivalence", () -> reflexive && symmetric && transitive);
+
+    final StringBuilder sb = new StringBuilder();
+    sb.append(MessageCli.GRAPH_REFLEXIVE.getMessage(prefixNot(reflexive)));
+    sb.append(System.lineSeparator());
+    sb.append(MessageCli.GRAPH_SYMMETRIC.getMessage(prefixNot(symmetric)));
+    sb.append(System.lineSeparator());
+    sb.append(MessageCli.GRAPH_TRANSITIVE.getMessage(prefixNot(transitive)));
+    sb.append(System.lineSeparator());
+    sb.append(MessageCli.GRAPH_ANTI_SYMMETRIC.getMessage(prefixNot(antiSymmetric)));
+    sb.append(System.lineSeparator());
+    sb.append(MessageCli.GRAPH_EQUIVALENCE.getMessage(prefixNot(equivalence)));
+    sb.append(System.lineSeparator());
+    System.out.print(sb.toString());
+  }
+
+  /**
+   * Prints if the graph is reflexive, and the verticies without a self loop if it is not.
+   *
+   * @param limit The most violations to print.
+   */
+  public void explainReflexivity(final String limit) {
+    explain(
+        "reflexive",
+        MessageCli.GRAPH_REFLEXIVE,
+        limit,
+        graph::findReflexivityViolations,
+        (found, i) ->
+            MessageCli.MISSING_SELF_LOOP.getMessage(
+                vertexOf(found, i, 0), vertexOf(found, i, 0), vertexOf(found, i, 0)));
+  }
+
+  /**
+   * Prints if the graph is symmetric, and the edges without a reverse edge if it is not.
+   *
+   * @param limit The most violations to print.
+   */
+  public void explainSymmetry(final String limit) {
+    explain(
+        "symmetric",
+        MessageCli.GRAPH_SYMMETRIC,
+        limit,
+        graph::findSymmetryViolations,
+        (found, i) ->
+            MessageCli.MISSING_REVERSE_EDGE.getMessage(
+                vertexOf(found, i, 0),
+                vertexOf(found, i, 1),
+                vertexOf(found, i, 1),
+                vertexOf(found, i, 0)));
+  }
+
+  /**
+   * Prints if the graph is transitive, and the paths of two edges without a shortcut edge if it is
+   * not.
+   *
+   * @param limit The most violations to print.
+   */
+  public void explainTransitivity(final String limit) {
+    explain(
+        "transitive",
+        MessageCli.GRAPH_TRANSITIVE,
+        limit,
+        graph::findTransitivityViolations,
+        (found, i) ->
+            MessageCli.MISSING_SHORTCUT_EDGE.getMessage(
+                vertexOf(found, i, 0),
+                vertexOf(found, i, 1),
+                vertexOf(found, i, 2),
+                vertexOf(found, i, 0),
+                vertexOf(found, i, 2)));
+  }
+
+  /**
+   * Prints if the graph is antisymmetric, and the pairs of different verticies with edges both ways
+   * if it is not.
+   *
+   * @param limit The most violations to print.
+   */
+  public void explainAntiSymmetry(final String limit) {
+    explain(
+        "antisymmetric",
+        MessageCli.GRAPH_ANTI_SYMMETRIC,
+        limit,
+        graph::findAntiSymmetryViolations,
+        (found, i) ->
+            MessageCli.TWO_WAY_EDGE.getMessage(
+                vertexOf(found, i, 0),
+                vertexOf(found, i, 1),
+                vertexOf(found, i, 1),
+                vertexOf(found, i, 0)));
+  }
+
+  /**
+   * Prints if a property holds, and the violations of it if it does not. The search that answers
+   * the property also finds the violations, so the graph is only searched once.
+   *
+   * @param name The name the property is cached under.
+   * @param property The message reporting the property.
+   * @param limit The most violations to print.
+   * @param search Finds up to a number of violations of the property.
+   * @param describe Describes one violation.
+   */
+  private void explain(
+      final String name,
+      final MessageCli property,
+      final String limit,
+      final IntFunction<Violations> search,
+      final BiFunction<Violations, Integer, String> describe) {
+    int count = 0;
+
+    try {
+      count = Integer.parseInt(limit);
+    } catch (NumberFormatException e) {
+      // Left at zero, which is reported below.
+    }
+
+    if (count <= 0) {
+      MessageCli.INVALID_VIOLATION_COUNT.printMessage(limit);
+      return;
+    }
+
+    final int wanted = count;
+    final Violations[] found = new Violations[1];
+    final boolean holds =
+        cache.getFlag(
+            name,
+            () -> {
+              found[0] = search.apply(wanted);
+              return found[0].isEmpty();
+            });
+
+    final StringBuilder sb = new StringBuilder(property.getMessage(prefixNot(holds)));
+    sb.append(System.lineSeparator());
+
+    if (!holds) {
+      // A cached answer still needs the violations, which stop the search early.
+      if (found[0] == null) {
+        found[0] = search.apply(wanted);
+      }
+
+      for (int i = 0; i < found[0].size(); i++) {
+        sb.append("\t").append(describe.apply(found[0], i)).append(System.lineSeparator());
+      }
+
+      if (found[0].isFull()) {
+        sb.append(
+                MessageCli.VIOLATIONS_LIMITED.getMessage(
+                    String.valueOf(wanted), wanted == 1 ? "" : "s"))
+            .append(System.lineSeparator());
+      }
+    }
+
+    System.out.print(sb.toString());
+  }
+
+  /**
+   * Gets the vertex at one position of a violation.
+   *
+   * @param found The violations.
+   * @param index The index of the violation.
+   * @param part The position of the vertex in the violation.
+   * @return The vertex.
+   */
+  private String vertexOf(final Violations found, final int index, final int part) {
+    return verticies.getVertex(found.get(index, part));
+  }
+
+  /**
+   * Prints an estimate of the share of edges without a reverse edge, from a random sample of the
+   * edges.
+   *
+   * @param samples The most edges to sample.
+   * @param millis The most milliseconds to spend sampling.
+   */
+  public void sampleSymmetry(final String samples, final String millis) {
+    sample(samples, millis, "edges", "have no reverse edge", PropertySampler::sampleSymmetry);
+  }
+
+  /**
+   * Prints an estimate of the share of paths of two edges without a shortcut edge, from a random
+   * sample of the paths.
+   *
+   * @param samples The most paths to sample.
+   * @param millis The most milliseconds to spend sampling.
+   */
+  public void sampleTransitivity(final String samples, final String millis) {
+    sample(
+        samples, millis, "2-paths", "have no shortcut edge", PropertySampler::sampleTransitivity);
+  }
+
+  /**
+   * Prints an estimate of the share of edges between different verticies that have a reverse edge,
+   * from a random sample of the edges.
+   *
+   * @param samples The most edges to sample.
+   * @param millis The most milliseconds to spend sampling.
+   */
+  public void sampleAntiSymmetry(final String samples, final String millis) {
+    sample(
+        samples,
+        millis,
+        "edges",
+        "have a reverse edge to a different vertex",
+        PropertySampler::sampleAntiSymmetry);
+  }
+
+  /**
+   * Samples the graph within a budget and prints the estimated violation rate, with its 95%
+   * confidence interval.
+   *
+   * @param samples The most cases to sample.
+   * @param millis The most milliseconds to spend sampling.
+   * @param population What is sampled, such as "edges".
+   * @param violation What a violating case does.
+   * @param method The sampling method to run.
+   */
+  private void sample(
+      final String samples,
+      final String millis,
+      final String population,
+      final String violation,
+      final SampleMethod method) {
+    long maxSamples = 0;
+    long time = 0;
+
+    try {
+      maxSamples = Long.parseLong(samples);
+      time = Long.parseLong(millis);
+    } catch (NumberFormatException e) {
+      // Left at zero, which is reported below.
+    }
+
+    if (maxSamples <= 0 || time <= 0) {
+      MessageCli.INVALID_SAMPLE_BUDGET.printMessage(maxSamples <= 0 ? samples : millis);
+      return;
+    }
+
+    // A time too long to count in nanoseconds is as good as no limit.
+    final long nanos = time > Long.MAX_VALUE / 1_000_000 ? Long.MAX_VALUE : time * 1_000_000;
+
+    if (sampler == null) {
+      // Compressed successor lists decode a whole list for every lookup, so a filter is faster.
+      // The storage in use is what counts, as the memory budget can compress a graph by itself.
+      sampler = graph.propertySampler(storage.startsWith("compressed"));
+    }
+
+    final PropertySample found = method.sample(sampler, maxSamples, nanos);
+
+    if (found.getSamples() == 0) {
+      MessageCli.NOTHING_TO_SAMPLE.printMessage(population);
+      return;
+    }
+
+    MessageCli.SAMPLED_VIOLATIONS.printMessage(
+        String.valueOf(found.getViolations()),
+        String.valueOf(found.getSamples()),
+        population,
+        violation,
+        String.valueOf(found.getNanos() / 1_000_000));
+    MessageCli.SAMPLED_RATE.printMessage(
+        percent(found.getRate()),
+        String.valueOf(found.getPopulation()),
+        population,
+        violation,
+        percent(found.getLowerBound()),
+        percent(found.getUpperBound()));
+
+    if (found.getFalsePositiveRate() > 0) {
+      MessageCli.SAMPLED_WITH_FILTER.printMessage(percent(found.getFalsePositiveRate()));
+    }
+  }
+
+  /**
+   * Formats a share as a percentage.
+   *
+   * @param share The share, between 0 and 1.
+   * @return The percentage, to two decimal places.
+   */
+  private static String percent(final double share) {
+    return String.format("%.2f", share * 100);
+  }
+
+  /** One of the sampling methods of a {@link PropertySampler}. */
+  private interface SampleMethod {
+
+    /**
+     * Runs the sampling method.
+     *
+     * @param sampler The sampler to run it on.
+     * @param samples The most cases to sample.
+     * @param nanos The most nanoseconds to spend.
+     * @return The estimate.
+     */
+    PropertySample sample(PropertySampler sampler, long samples, long nanos);
+  }
+
+  /**
+   * Prints the hop distance and parent of every vertex reachable from the given vertex, in the
+   * order they are reached.
+   *
+   * @param vertex The vertex to measure distances from.
+   */
+  public void printDistances(final String vertex) {
+    final int id = verticies.getId(vertex);
+
+    if (id < 0) {
+      MessageCli.VERTEX_NOT_FOUND.printMessage(vertex);
+      return;
+    }
+
+    final BreadthFirstDistances search = graph.breadthFirstDistances(id);
+    final StringBuilder sb = new StringBuilder("Distances from ");
+    sb.append(vertex).append(":").append(System.lineSeparator());
+
+    // Vertically print each reached vertex with its distance, and the vertex it was reached from.
+    for (final int reached : search.getReached()) {
+      sb.append("\t").append(verticies.getVertex(reached)).append(": ");
+      sb.append(search.getLevel(reached));
+
+      if (search.getParent(reached) >= 0) {
+        sb.append(" (from ").append(verticies.getVertex(search.getParent(reached))).append(")");
+      }
+
+      sb.append(System.lineSeparator());
+    }
+
+    System.out.print(sb.toString());
+  }
+
+  /**
+   * Prints the roots, the properties and the breadth first search order of the graph, computed by
+   * worker processes that each hold a partition of the graph.
+   *
+   * @param workers The number of worker processes to start.
+   */
+  public void printDistributed(final String workers) {
+    int count = 0;
+
+    try {
+      count = Integer.parseInt(workers);
+    } catch (NumberFormatException e) {
+      // Left at zero, which is reported below.
+    }
+
+    if (count <= 0) {
+      MessageCli.INVALID_WORKER_COUNT.printMessage(workers);
+      return;
+    }
+
+    try (BspCoordinator coordinator = graph.distribute(count)) {
+      final StringBuilder sb = new StringBuilder();
+      sb.append(formatVerticies(coordinator.getRootIds())).append(System.lineSeparator());
+      appendProperty(sb, MessageCli.GRAPH_REFLEXIVE, coordinator.isReflexive());
+      appendProperty(sb, MessageCli.GRAPH_SYMMETRIC, coordinator.isSymmetric());
+      appendProperty(sb, MessageCli.GRAPH_TRANSITIVE, coordinator.isTransitive());
+      appendProperty(sb, MessageCli.GRAPH_ANTI_SYMMETRIC, coordinator.isAntiSymmetric());
+      appendProperty(sb, MessageCli.GRAPH_EQUIVALENCE, coordinator.isEquivalence());
+      sb.append(formatVerticies(coordinator.breadthFirstSearch())).append(System.lineSeparator());
+
+      System.out.print(sb.toString());
+    } catch (IOException e) {
+      // A connection that drops has no message of its own, so its type is shown instead.
+      MessageCli.WORKERS_FAILED.printMessage(
+          e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+    }
+  }
+
+  /**
+   * Appends a property message on its own line.
+   *
+   * @param sb The builder to append to.
+   * @param message The message for the property.
+   * @param holds Whether the property is observed.
+   */
+  private void appendProperty(
+      final StringBuilder sb, final MessageCli message, final boolean holds) {
+    sb.append(message.getMessage(prefixNot(holds))).append(System.lineSeparator());
+  }
+
+  /**
+   * Prints the lightest path between two verticies, where edges without a weight count as 1.
+   *
+   * @param source The vertex to start from.
+   * @param destination The vertex to reach.
+   */
+  public void printShortestPath(final String source, final String destination) {
+    final int from = verticies.getId(source);
+    final int to = verticies.getId(destination);
+
+    if (from < 0 || to < 0) {
+      MessageCli.VERTEX_NOT_FOUND.printMessage(from < 0 ? source : destination);
+      return;
+    }
+
+    final ShortestPaths search;
+
+    try {
+      search = graph.shortestPaths();
+    } catch (IllegalArgumentException e) {
+      MessageCli.NEGATIVE_WEIGHT.printMessage();
+      return;
+    }
+
+    search.run(from);
+    final double length = search.getDistance(to);
+
+    if (length == Double.POSITIVE_INFINITY) {
+      MessageCli.NO_PATH.printMessage(source, destination);
+      return;
+    }
+
+    // Whole lengths are printed without a decimal point.
+    final String formatted =
+        length == Math.rint(length) ? String.valueOf((long) length) : String.valueOf(length);
+    MessageCli.SHORTEST_PATH.printMessage(
+        source, destination, formatted, formatVerticies(search.getPath(to)));
+  }
+
+  /**
+   * Writes the hop distance between every pair of verticies to a file.
+   *
+   * @param filename The file to write to, relative to the working directory.
+   */
+  public void writeAllDistances(final String filename) {
+    try {
+      graph.writeAllPairDistances(Path.of(filename));
+      MessageCli.DISTANCES_WRITTEN.printMessage(String.valueOf(verticies.size()), filename);
+    } catch (IOException e) {
+      MessageCli.FILE_NOT_WRITTEN.printMessage(filename);
+    }
+  }
+
+  /** Prints if the graph has no cycles, and a cycle if it has one. */
+  public void printAcyclic() {
+    final TopologicalSort sort = graph.topologicalSort();
+
+    // The level by level sort only needs to finish to answer, so wide graphs use every core.
+    if (sort.isAcyclic()) {
+      MessageCli.GRAPH_ACYCLIC.printMessage("");
+    } else {
+      printCycle(sort);
+    }
+  }
+
+  /** Prints a topological order of the graph, or a cycle if the graph is not acyclic. */
+  public void printTopologicalSort() {
+    final TopologicalSort sort = graph.topologicalSort();
+    final int[] order = sort.sort();
+
+    if (order.length == verticies.size()) {
+      System.out.println(formatVerticies(order));
+    } else {
+      printCycle(sort);
+    }
+  }
+
+  /**
+   * Prints that the graph is not acyclic, along with a cycle as a witness.
+   *
+   * @param sort The sort of the graph.
+   */
+  private void printCycle(final TopologicalSort sort) {
+    MessageCli.GRAPH_ACYCLIC.printMessage(prefixNot(false));
+    // The components are kept for later commands, and a self loop is found without them.
+    MessageCli.GRAPH_CYCLE.printMessage(formatVerticies(sort.findCycle(this::getComponents)));
   }
 
   /**
@@ -122,29 +1434,158 @@ public class GraphCalculator {
    * @param vertex The vertex to compute the equivalence class of.
    */
   public void printEquivalenceClass(final String vertex) {
-    final Object[] equivalenceClass = graph.getEquivalenceClass(vertex).toArray();
-    Arrays.sort(equivalenceClass);
-    System.out.println(Arrays.toString(equivalenceClass));
+    final int id = verticies.getId(vertex);
+
+    // Class ids are already in vertex order, and an unknown vertex has an empty class.
+    if (id < 0) {
+      System.out.println(formatVerticies(new int[0]));
+      return;
+    }
+
+    final int[] members = cache.getIds("class." + id, () -> graph.getEquivalenceClassIds(id));
+    System.out.println(formatVerticies(members));
+  }
+
+  /**
+   * Prints the verticies in the strongly connected component of the given vertex.
+   *
+   * @param vertex The vertex to find the component of.
+   */
+  public void printComponent(final String vertex) {
+    final int id = verticies.getId(vertex);
+
+    if (id < 0) {
+      MessageCli.VERTEX_NOT_FOUND.printMessage(vertex);
+      return;
+    }
+
+    final StronglyConnectedComponents components = getComponents();
+    System.out.println(formatVerticies(components.getMembers(components.getComponent(id))));
+  }
+
+  /** Prints every strongly connected component, ordered by their smallest vertex. */
+  public void printComponents() {
+    final StronglyConnectedComponents components = getComponents();
+    final int count = components.getComponentCount();
+    final boolean[] printed = new boolean[count];
+
+    final StringBuilder sb = new StringBuilder();
+    sb.append(
+            MessageCli.GRAPH_COMPONENTS.getMessage(
+                String.valueOf(count), count == 1 ? "" : "s"))
+        .append(System.lineSeparator());
+
+    // Verticies are visited in order, so each component is reached through its smallest member.
+    for (int vertex = 0; vertex < verticies.size(); vertex++) {
+      final int component = components.getComponent(vertex);
+
+      if (!printed[component]) {
+        printed[component] = true;
+        sb.append("\t")
+            .append(formatVerticies(components.getMembers(component)))
+            .append(System.lineSeparator());
+      }
+    }
+
+    System.out.print(sb.toString());
+  }
+
+  /** Prints every weakly connected component, ordered by their smallest vertex. */
+  public void printWeakComponents() {
+    final int[] labels =
+        graph.vertexComputation().run(new WeakComponentProgram(), Integer.MAX_VALUE);
+    final int[] sizes = new int[labels.length];
+    int count = 0;
+
+    for (final int label : labels) {
+      if (sizes[label]++ == 0) {
+        count++;
+      }
+    }
+
+    final StringBuilder sb = new StringBuilder();
+    sb.append(
+            MessageCli.GRAPH_WEAK_COMPONENTS.getMessage(
+                String.valueOf(count), count == 1 ? "" : "s"))
+        .append(System.lineSeparator());
+
+    // Group the verticies by label, keeping each group in vertex order.
+    final int[] starts = new int[labels.length + 1];
+    for (int label = 0; label < labels.length; label++) {
+      starts[label + 1] = starts[label] + sizes[label];
+    }
+    final int[] members = new int[labels.length];
+    final int[] next = Arrays.copyOf(starts, labels.length);
+    for (int vertex = 0; vertex < labels.length; vertex++) {
+      members[next[labels[vertex]]++] = vertex;
+    }
+
+    // Each label is the smallest member of its component, so labels come up in vertex order.
+    for (int label = 0; label < labels.length; label++) {
+      if (sizes[label] > 0) {
+        sb.append("\t")
+            .append(formatVerticies(Arrays.copyOfRange(members, starts[label], starts[label + 1])))
+            .append(System.lineSeparator());
+      }
+    }
+
+    System.out.print(sb.toString());
+  }
+
+  /**
+   * Gets the strongly connected components of the graph, computing them on first use.
+   *
+   * @return The components.
+   */
+  private StronglyConnectedComponents getComponents() {
+    if (components == null) {
+      components = graph.computeStronglyConnectedComponents();
+    }
+
+    return components;
   }
 
   /** Prints the search order of an iterative breadth first search. */
   public void printIterativeBreadthFirstSearch() {
-    System.out.println(Arrays.toString(graph.iterativeBreadthFirstSearch().toArray()));
+    final int[] order = cache.getIds("ibfs", graph::iterativeBreadthFirstSearchIds);
+    System.out.println(formatVerticies(order));
   }
 
   /** Prints the search order of an iterative depth first search. */
   public void printDepthFirstSearch() {
-    System.out.println(Arrays.toString(graph.iterativeDepthFirstSearch().toArray()));
+    final int[] order = cache.getIds("idfs", graph::iterativeDepthFirstSearchIds);
+    System.out.println(formatVerticies(order));
   }
 
   /** Prints the search order of a recursive breadth first search. */
   public void printRecursiveBreadthFirstSearch() {
-    System.out.println(Arrays.toString(graph.recursiveBreadthFirstSearch().toArray()));
+    final int[] order = cache.getIds("rbfs", graph::recursiveBreadthFirstSearchIds);
+    System.out.println(formatVerticies(order));
   }
 
   /** Prints the search order of a recursive depth first search. */
   public void printRecursiveDepthFirstSearch() {
-    System.out.println(Arrays.toString(graph.recursiveDepthFirstSearch().toArray()));
+    final int[] order = cache.getIds("rdfs", graph::recursiveDepthFirstSearchIds);
+    System.out.println(formatVerticies(order));
+  }
+
+  /**
+   * Formats vertex ids as a list of vertex names, in the same form as {@link List#toString()}.
+   *
+   * @param ids The ids of the verticies to format.
+   * @return The formatted list.
+   */
+  private String formatVerticies(final int[] ids) {
+    final StringBuilder sb = new StringBuilder("[");
+
+    for (int i = 0; i < ids.length; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(verticies.getVertex(ids[i]));
+    }
+
+    return sb.append("]").toString();
   }
 
   /**
@@ -0,0 +1,407 @@
+package nz.ac.auckland.se281;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import nz.ac.auckland.se281.datastructures.Adjacency;
+import nz.ac.auckland.se281.datastructures.CsrAdjacency;
+import nz.ac.auckland.se281.datastructures.ExternalCsrBuilder;
+import nz.ac.auckland.se281.datastructures.NeighbourCursor;
+import nz.ac.auckland.se281.datastructures.VertexTable;
+
+/**
+ * A binary copy of a parsed graph, kept in the cache directory next to the cached results. Opening
+ * a file that has not changed since its snapshot was written reads the vertex names and successor
+ * lists straight back, without loading the DOT parser at all.
+ *
+ * <p>A snapshot records the path, last modified time, size and a digest of the content of its
+ * file, and is ignored as soon as any of them differ, so a rewrite that keeps the size and lands
+ * within the same modified time is still noticed. The successor lists are written one vertex at a
+ * time with their weights alongside, so they can be read onto the heap or streamed into an edge
+ * file without ever being held in memory. The order the file was parsed in comes last.
+ */
+public class GraphSnapshot implements Closeable {
+  private static final int MAGIC = 0x47534e50;
+
+  /** Bumped whenever the layout changes, so older snapshots are never read. */
+  private static final String FORMAT = "3";
+
+  private static final String DIGEST = "SHA-256";
+
+  /**
+   * Roughly how many bytes of the heap each byte of vertex names takes once it is read into the
+   * vertex table, for the strings, the entries and the map from names to ids.
+   */
+  private static final int HEAP_BYTES_PER_NAME_BYTE = 8;
+
+  private final DataInputStream in;
+  private final long fileBytes;
+  private final int vertexCount;
+  private final int edgeCount;
+  private final boolean weighted;
+  private final int orderEdgeCount;
+
+  /**
+   * Create a snapshot that is open for reading, just after its counts.
+   *
+   * @param in The stream, at the vertex names.
+   * @param fileBytes The size of the snapshot file.
+   * @param vertexCount The number of verticies.
+   * @param edgeCount The number of edges.
+   * @param weighted If each edge has a weight.
+   * @param orderEdgeCount The number of edges the file was parsed with, including duplicates.
+   */
+  private GraphSnapshot(
+      final DataInputStream in,
+      final long fileBytes,
+      final int vertexCount,
+      final int edgeCount,
+      final boolean weighted,
+      final int orderEdgeCount) {
+    this.in = in;
+    this.fileBytes = fileBytes;
+    this.vertexCount = vertexCount;
+    this.edgeCount = edgeCount;
+    this.weighted = weighted;
+    this.orderEdgeCount = orderEdgeCount;
+  }
+
+  /**
+   * Reads the last modified time and the size of a file.
+   *
+   * @param file The file.
+   * @return The time and size, or null if the file cannot be read.
+   */
+  public static long[] readStamp(final Path file) {
+    try {
+      return new long[] {Files.getLastModifiedTime(file).toMillis(), Files.size(file)};
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Reads the digest of the content of a file.
+   *
+   * @param file The file.
+   * @return The digest, or null if the file cannot be read.
+   */
+  public static byte[] readDigest(final Path file) {
+    try (InputStream in = Files.newInputStream(file)) {
+      final MessageDigest digest = MessageDigest.getInstance(DIGEST);
+      final byte[] buffer = new byte[1 << 16];
+      int read;
+
+      while ((read = in.read(buffer)) >= 0) {
+        digest.update(buffer, 0, read);
+      }
+
+      return digest.digest();
+    } catch (IOException | NoSuchAlgorithmException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Finds the snapshot file of a graph file.
+   *
+   * @param directory The cache directory.
+   * @param file The graph file.
+   * @return The snapshot file.
+   */
+  private static Path snapshotFile(final Path directory, final Path file) {
+    final String path = file.toAbsolutePath().normalize().toString();
+    return directory.resolve(
+        "graph-" + FORMAT + "-snapshot-" + Integer.toHexString(path.hashCode()) + ".bin");
+  }
+
+  /**
+   * Opens the snapshot of a file, if there is one that is up to date. Only the header is read,
+   * so the memory the rest needs can be checked before reading it.
+   *
+   * @param directory The cache directory, or null if caching is turned off.
+   * @param file The graph file.
+   * @return The snapshot, or null if there is none, or it is out of date or damaged.
+   */
+  public static GraphSnapshot open(final Path directory, final Path file) {
+    final long[] stamp = readStamp(file);
+
+    if (directory == null || stamp == null) {
+      return null;
+    }
+
+    final Path snapshot = snapshotFile(directory, file);
+
+    if (!Files.isRegularFile(snapshot)) {
+      return null;
+    }
+
+    DataInputStream in = null;
+
+    try {
+      in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16));
+
+      if (in.readInt() != MAGIC
+          || !in.readUTF().equals(file.toAbsolutePath().normalize().toString())
+          || in.readLong() != stamp[0]
+          || in.readLong() != stamp[1]) {
+        close(in);
+        return null;
+      }
+
+      // The content is only read once everything cheaper to compare has matched.
+      final byte[] digest = new byte[in.readUnsignedByte()];
+      in.readFully(digest);
+
+      if (!Arrays.equals(digest, readDigest(file))) {
+        close(in);
+        return null;
+      }
+
+      final int size = in.readInt();
+      final int edges = in.readInt();
+      final boolean weighted = in.readBoolean();
+      final int orderEdges = in.readInt();
+
+      if (size < 0 || edges < 0 || orderEdges < 0) {
+        close(in);
+        return null;
+      }
+
+      return new GraphSnapshot(in, Files.size(snapshot), size, edges, weighted, orderEdges);
+    } catch (IOException | RuntimeException e) {
+      // A damaged snapshot is parsed again and overwritten.
+      close(in);
+      return null;
+    }
+  }
+
+  /**
+   * Closes a stream, ignoring a failure to close it.
+   *
+   * @param in The stream, or null.
+   */
+  private static void close(final InputStream in) {
+    if (in == null) {
+      return;
+    }
+
+    try {
+      in.close();
+    } catch (IOException e) {
+      // Nothing more can be done with a stream that fails to close.
+    }
+  }
+
+  /**
+   * Estimates the heap reading the rest of the snapshot needs.
+   *
+   * @param edgesOnHeap If the edges are read onto the heap, rather than streamed into a file.
+   * @return The estimated bytes.
+   */
+  public long estimateHeap(final boolean edgesOnHeap) {
+    final long edgeBytes = (long) edgeCount * (Integer.BYTES + (weighted ? Double.BYTES : 0));
+    final long orderBytes = ParseOrder.getBytes(vertexCount, orderEdgeCount);
+    // What is left of the file once the degrees, edges and order are taken out is the vertex names.
+    final long nameBytes =
+        Math.max(0, fileBytes - (long) vertexCount * Integer.BYTES - edgeBytes - orderBytes);
+    final long heap = nameBytes * HEAP_BYTES_PER_NAME_BYTE + orderBytes;
+
+    return edgesOnHeap ? heap + (long) (vertexCount + 1) * Integer.BYTES + edgeBytes : heap;
+  }
+
+  /**
+   * Get if each edge of the graph has a weight.
+   *
+   * @return If the graph is weighted.
+   */
+  public boolean isWeighted() {
+    return weighted;
+  }
+
+  /**
+   * Reads the id of every vertex, in the order of the vertex table. This must be read first.
+   *
+   * @return The ids.
+   * @throws IOException If the snapshot is cut short.
+   */
+  public List<String> readVertexIds() throws IOException {
+    final List<String> ids = new ArrayList<>(vertexCount);
+
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      ids.add(in.readUTF());
+    }
+
+    return ids;
+  }
+
+  /**
+   * Reads the successor lists onto the heap, after the vertex ids.
+   *
+   * @return The edges.
+   * @throws IOException If the snapshot is cut short or damaged.
+   */
+  public Adjacency readEdges() throws IOException {
+    final int[] offsets = new int[vertexCount + 1];
+    final int[] targets = new int[edgeCount];
+    final double[] weights = weighted ? new double[edgeCount] : null;
+
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      offsets[vertex + 1] = offsets[vertex] + readDegree(offsets[vertex]);
+
+      for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++) {
+        targets[i] = in.readInt();
+        if (weighted) {
+          weights[i] = in.readDouble();
+        }
+      }
+    }
+
+    return new CsrAdjacency(offsets, targets, weights);
+  }
+
+  /**
+   * Streams the successor lists into an edge file builder, after the vertex ids, so they are never
+   * all on the heap.
+   *
+   * @param builder The builder, over as many verticies as the snapshot.
+   * @throws IOException If the snapshot is cut short or damaged, or the builder fails.
+   */
+  public void readEdges(final ExternalCsrBuilder builder) throws IOException {
+    int read = 0;
+
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      final int degree = readDegree(read);
+      read += degree;
+
+      for (int i = 0; i < degree; i++) {
+        final int target = in.readInt();
+        if (weighted) {
+          builder.add(vertex, target, in.readDouble());
+        } else {
+          builder.add(vertex, target);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the order the file was parsed in, after the successor lists.
+   *
+   * @return The order.
+   * @throws IOException If the snapshot is cut short or damaged.
+   */
+  public ParseOrder readOrder() throws IOException {
+    return ParseOrder.read(in, vertexCount, orderEdgeCount);
+  }
+
+  /**
+   * Reads the out degree of the next vertex, checking it against the number of edges.
+   *
+   * @param read The number of edges read so far.
+   * @return The out degree.
+   * @throws IOException If the degree is more than the edges left.
+   */
+  private int readDegree(final int read) throws IOException {
+    final int degree = in.readInt();
+
+    if (degree < 0 || degree > edgeCount - read) {
+      throw new IOException("the snapshot has more edges than it says");
+    }
+
+    return degree;
+  }
+
+  @Override
+  public void close() {
+    close(in);
+  }
+
+  /**
+   * Writes the snapshot of a file, replacing the old snapshot in one move so a reader never sees
+   * half a snapshot, then evicts old cache files if the cache has grown past its size limit.
+   *
+   * @param directory The cache directory, or null if caching is turned off.
+   * @param file The graph file.
+   * @param stamp The time and size of the file before it was parsed.
+   * @param digest The digest of the content of the file before it was parsed.
+   * @param verticies The table of the verticies of the graph.
+   * @param edges The successor lists over the table.
+   * @param order The order the file was parsed in.
+   */
+  public static void write(
+      final Path directory,
+      final Path file,
+      final long[] stamp,
+      final byte[] digest,
+      final VertexTable<String> verticies,
+      final Adjacency edges,
+      final ParseOrder order) {
+    if (directory == null || stamp == null || digest == null) {
+      return;
+    }
+
+    Path temp = null;
+
+    try {
+      Files.createDirectories(directory);
+      temp = Files.createTempFile(directory, "tmp-", ".bin");
+
+      try (DataOutputStream out =
+          new DataOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+        out.writeInt(MAGIC);
+        out.writeUTF(file.toAbsolutePath().normalize().toString());
+        out.writeLong(stamp[0]);
+        out.writeLong(stamp[1]);
+        out.writeByte(digest.length);
+        out.write(digest);
+        out.writeInt(verticies.size());
+        out.writeInt(edges.getEdgeCount());
+        out.writeBoolean(edges.isWeighted());
+        out.writeInt(order.getEdgeCount());
+
+        for (int vertex = 0; vertex < verticies.size(); vertex++) {
+          out.writeUTF(verticies.getVertex(vertex));
+        }
+
+        final NeighbourCursor cursor = edges.cursor();
+
+        for (int vertex = 0; vertex < verticies.size(); vertex++) {
+          out.writeInt(edges.getOutDegree(vertex));
+          cursor.reset(vertex);
+          while (cursor.hasNext()) {
+            out.writeInt(cursor.next());
+            if (edges.isWeighted()) {
+              out.writeDouble(cursor.weight());
+            }
+          }
+        }
+
+        order.write(out);
+      }
+
+      final Path snapshot = snapshotFile(directory, file);
+      Files.move(
+          temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      temp = null;
+      ResultCache.evict(directory, snapshot);
+    } catch (IOException | UnsupportedOperationException e) {
+      // The graph was parsed, so the next process simply parses it again.
+    } finally {
+      ResultCache.deleteQuietly(temp);
+    }
+  }
+}
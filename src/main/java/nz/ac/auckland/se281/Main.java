@@ -1,6 +1,7 @@
 package nz.ac.auckland.se281;
 
 import java.io.FileNotFoundException;
+import java.util.Arrays;
 import java.util.Scanner;
 
 /**
@@ -29,7 +30,9 @@ public class Main {
       // Add extra padding to vertically align the argument counts.
       sb.append("\t".repeat(command.calculatePaddingSize()));
 
-      if (command.getNumArgs() > 0) {
+      if (command.isRepeatable()) {
+        sb.append("[").append(command.getNumArgs()).append(" arguments...]");
+      } else if (command.getNumArgs() > 0) {
         sb.append("[").append(command.getNumArgs()).append(" arguments]");
       } else {
         sb.append("[no args]");
@@ -102,36 +105,63 @@ public class Main {
     }
 
     // A file is only open if there is a calculator instance.
-    // The user cannot do anything other than open a file, exit,
-    // or get help if there is no file.
+    // The user cannot do anything other than open a file, analyse a folder, set the memory
+    // budget, exit, or get help if there is no file.
     if (calculator == null
         && command != Command.OPEN_FILE
+        && command != Command.BATCH_ANALYSE
+        && command != Command.SET_MEMORY_BUDGET
         && command != Command.EXIT
         && command != Command.HELP) {
       MessageCli.FILE_NOT_OPEN.printMessage();
       return true;
     }
 
+    // A watched file may have been rewritten since the last command.
+    if (calculator != null) {
+      calculator.applyFileChanges();
+    }
+
     switch (command) {
       case OPEN_FILE:
         final String filename = args[1];
 
         try {
-          calculator = new GraphCalculator(filename);
+          final GraphCalculator opened = new GraphCalculator(filename);
+
+          // The old file is no longer loaded, so changes to it and its edge file no longer matter.
+          if (calculator != null) {
+            calculator.close();
+          }
+          calculator = opened;
           MessageCli.OPENED_FILE_SUCCESSFULLY.printMessage(filename);
         } catch (FileNotFoundException e) {
           MessageCli.FILE_NOT_FOUND.printMessage(filename);
+        } catch (MemoryBudgetExceededException e) {
+          GraphCalculator.printOverBudget(filename, e);
         }
         break;
       case INFO:
         calculator.printInfo();
         break;
+      case WATCH_FILE:
+        calculator.watchFile();
+        break;
+      case GRAPH_MEMORY:
+        calculator.printMemory();
+        break;
+      case SET_MEMORY_BUDGET:
+        GraphCalculator.setMemoryBudget(args[1]);
+        break;
       case LIST_VERTICIES_EDGES:
         calculator.printVerticiesEdges();
         break;
       case LIST_ROOT_VERTICIES:
         calculator.printRoots();
         break;
+      case LIST_ROOTS_REACHING:
+        calculator.printRootsReaching(args[1]);
+        break;
       case CHECK_REFLEXIVITY:
         calculator.printReflexitivity();
         break;
@@ -147,9 +177,60 @@ public class Main {
       case CHECK_EQUIVALENCE:
         calculator.printEquivalence();
         break;
+      case CHECK_ALL:
+        calculator.printAllProperties();
+        break;
+      case EXPLAIN_REFLEXIVITY:
+        calculator.explainReflexivity(args[1]);
+        break;
+      case EXPLAIN_SYMMETRY:
+        calculator.explainSymmetry(args[1]);
+        break;
+      case EXPLAIN_TRANSITIVITY:
+        calculator.explainTransitivity(args[1]);
+        break;
+      case EXPLAIN_ANTISYMMETRY:
+        calculator.explainAntiSymmetry(args[1]);
+        break;
+      case SAMPLE_SYMMETRY:
+        calculator.sampleSymmetry(args[1], args[2]);
+        break;
+      case SAMPLE_TRANSITIVITY:
+        calculator.sampleTransitivity(args[1], args[2]);
+        break;
+      case SAMPLE_ANTISYMMETRY:
+        calculator.sampleAntiSymmetry(args[1], args[2]);
+        break;
+      case CHECK_ACYCLIC:
+        calculator.printAcyclic();
+        break;
+      case DEGREE_STATS:
+        calculator.printDegreeStats();
+        break;
       case COMPUTE_EQUIVALENCE:
         calculator.printEquivalenceClass(args[1]);
         break;
+      case COMPUTE_SCC:
+        calculator.printComponent(args[1]);
+        break;
+      case LIST_SCC:
+        calculator.printComponents();
+        break;
+      case LIST_WCC:
+        calculator.printWeakComponents();
+        break;
+      case DISTANCES:
+        calculator.printDistances(args[1]);
+        break;
+      case ALL_DISTANCES:
+        calculator.writeAllDistances(args[1]);
+        break;
+      case SHORTEST_PATH:
+        calculator.printShortestPath(args[1], args[2]);
+        break;
+      case TOPO_SORT:
+        calculator.printTopologicalSort();
+        break;
       case GRAPH_SEARCH_IBFS:
         calculator.printIterativeBreadthFirstSearch();
         break;
@@ -162,7 +243,19 @@ public class Main {
       case GRAPH_SEARCH_RDFS:
         calculator.printRecursiveDepthFirstSearch();
         break;
+      case REACHABLE:
+        calculator.printReachable(Arrays.copyOfRange(args, 1, args.length));
+        break;
+      case BSP_ANALYSE:
+        calculator.printDistributed(args[1]);
+        break;
+      case BATCH_ANALYSE:
+        GraphCalculator.batchAnalyse(args[1], args[2]);
+        break;
       case EXIT:
+        if (calculator != null) {
+          calculator.close();
+        }
         MessageCli.END.printMessage();
 
         // Signal that the program should exit.
@@ -172,6 +265,11 @@ public class Main {
         break;
     }
 
+    // Results computed by the command are written to the result cache together.
+    if (calculator != null) {
+      calculator.saveResults();
+    }
+
     // Signal that another command is expected.
     return true;
   }
@@ -184,6 +282,13 @@ public class Main {
    * @return If the correct number of arguments were provided.
    */
   private boolean checkArgs(final Command command, final String[] args) {
-    return command.getNumArgs() == args.length - 1;
+    final int numArgs = args.length - 1;
+
+    // Repeatable commands take any positive multiple of their argument count.
+    if (command.isRepeatable()) {
+      return numArgs > 0 && numArgs % command.getNumArgs() == 0;
+    }
+
+    return command.getNumArgs() == numArgs;
   }
 }
@@ -0,0 +1,211 @@
+package nz.ac.auckland.se281;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * The most heap a loaded graph may keep. Opening a file checks what its graph would keep against
+ * the budget once its edges are read, and before that checks the memory the parser needs against
+ * the heap that is actually free, so a file far larger than expected is refused with a message
+ * rather than running the JVM out of memory.
+ *
+ * <p>Sizes are written as a number of bytes with an optional "k", "m" or "g" suffix, such as
+ * "512m", or "none" for no budget at all.
+ */
+public class MemoryBudget {
+  /** The system property that sets the budget when the calculator starts. */
+  private static final String PROPERTY = "graph.memory";
+
+  /**
+   * Roughly how many bytes the DOT parser keeps per byte of file while it parses, for the tokens,
+   * the parse tree and the node and edge maps it builds before any of them can be dropped.
+   */
+  private static final int PARSE_BYTES_PER_FILE_BYTE = 100;
+
+  private static final String[] UNITS = {"B", "KB", "MB", "GB", "TB"};
+
+  /** A budget that every graph fits. */
+  public static final MemoryBudget NONE = new MemoryBudget(Long.MAX_VALUE);
+
+  private final long limit;
+
+  /**
+   * Create a budget.
+   *
+   * @param limit The most bytes a graph may keep on the heap.
+   */
+  private MemoryBudget(final long limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * Reads the budget set by the system property, which is no budget if it is missing or invalid.
+   *
+   * @return The budget.
+   */
+  public static MemoryBudget fromProperty() {
+    final MemoryBudget budget = parse(System.getProperty(PROPERTY, "none"));
+    return budget == null ? NONE : budget;
+  }
+
+  /**
+   * Parses a budget written by the user.
+   *
+   * @param text The size, such as "512m", or "none".
+   * @return The budget, or null if the text is not a size.
+   */
+  public static MemoryBudget parse(final String text) {
+    String size = text.trim().toLowerCase(Locale.ROOT);
+
+    if (size.equals("none") || size.equals("off")) {
+      return NONE;
+    }
+
+    // "512mb" is read the same as "512m".
+    if (size.endsWith("b")) {
+      size = size.substring(0, size.length() - 1);
+    }
+
+    int shift = 0;
+
+    if (!size.isEmpty()) {
+      final int unit = "kmg".indexOf(size.charAt(size.length() - 1));
+      if (unit >= 0) {
+        shift = 10 * (unit + 1);
+        size = size.substring(0, size.length() - 1);
+      }
+    }
+
+    try {
+      final long value = Long.parseLong(size);
+      if (value <= 0 || value > Long.MAX_VALUE >> shift) {
+        return null;
+      }
+      return new MemoryBudget(value << shift);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Gets the heap that is free right now, as a budget for memory that is only needed for a while.
+   *
+   * @return The free heap.
+   */
+  public static MemoryBudget ofFreeHeap() {
+    final Runtime runtime = Runtime.getRuntime();
+    return new MemoryBudget(runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory());
+  }
+
+  /**
+   * Gets the direct memory that is free right now, which is what edges moved off the heap are
+   * allocated from. The JVM limits direct memory with {@code -XX:MaxDirectMemorySize}, or to the
+   * most heap when the flag is not set, and fails an allocation past the limit with an error.
+   *
+   * @return The free direct memory.
+   */
+  public static MemoryBudget ofFreeDirectMemory() {
+    long used = 0;
+
+    for (final BufferPoolMXBean pool :
+        ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      if (pool.getName().equals("direct")) {
+        used = pool.getMemoryUsed();
+      }
+    }
+
+    return new MemoryBudget(Math.max(0, getMaxDirectMemory() - used));
+  }
+
+  /**
+   * Gets the most direct memory the JVM allows.
+   *
+   * @return The limit in bytes.
+   */
+  private static long getMaxDirectMemory() {
+    long max = 0;
+
+    try {
+      final HotSpotDiagnosticMXBean vm =
+          ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+      if (vm != null) {
+        max = Long.parseLong(vm.getVMOption("MaxDirectMemorySize").getValue());
+      }
+    } catch (IllegalArgumentException e) {
+      // A JVM without the flag has the default limit.
+    }
+
+    // A limit of zero is the default, which is the most heap.
+    return max > 0 ? max : Runtime.getRuntime().maxMemory();
+  }
+
+  /**
+   * Estimates the heap the parser needs to read a file.
+   *
+   * @param fileBytes The size of the file.
+   * @return The estimated bytes.
+   */
+  public static long estimateParse(final long fileBytes) {
+    return fileBytes * PARSE_BYTES_PER_FILE_BYTE;
+  }
+
+  /**
+   * Get the most bytes the budget allows.
+   *
+   * @return The limit in bytes.
+   */
+  public long getBytes() {
+    return limit;
+  }
+
+  /**
+   * Checks if something of a size fits within the budget.
+   *
+   * @param bytes The size.
+   * @return If the size is at most the budget.
+   */
+  public boolean fits(final long bytes) {
+    return bytes <= limit;
+  }
+
+  /**
+   * Refuses something that does not fit within the budget.
+   *
+   * @param bytes The size.
+   * @throws MemoryBudgetExceededException If the size is over the budget.
+   */
+  public void check(final long bytes) throws MemoryBudgetExceededException {
+    if (!fits(bytes)) {
+      throw new MemoryBudgetExceededException(bytes, this);
+    }
+  }
+
+  /**
+   * Formats a number of bytes in the largest unit that keeps it at least one.
+   *
+   * @param bytes The number of bytes.
+   * @return The size, such as "1.5 MB".
+   */
+  public static String format(final long bytes) {
+    if (bytes < 1024) {
+      return bytes + " B";
+    }
+
+    double size = bytes;
+    int unit = 0;
+
+    while (size >= 1024 && unit < UNITS.length - 1) {
+      size /= 1024;
+      unit++;
+    }
+
+    return String.format(Locale.ROOT, "%.1f %s", size, UNITS[unit]);
+  }
+
+  @Override
+  public String toString() {
+    return limit == Long.MAX_VALUE ? "none" : format(limit);
+  }
+}
@@ -0,0 +1,43 @@
+package nz.ac.auckland.se281;
+
+/**
+ * Thrown when opening a graph would keep more of the heap than the memory budget allows, or needs
+ * more to parse than the heap has free.
+ */
+public class MemoryBudgetExceededException extends Exception {
+  private static final long serialVersionUID = 1L;
+
+  private final long needed;
+
+  private final transient MemoryBudget budget;
+
+  /**
+   * Create the exception.
+   *
+   * @param needed The estimated bytes the graph needs.
+   * @param budget The budget it is over.
+   */
+  public MemoryBudgetExceededException(final long needed, final MemoryBudget budget) {
+    super("needs about " + MemoryBudget.format(needed) + ", but only " + budget + " is available");
+    this.needed = needed;
+    this.budget = budget;
+  }
+
+  /**
+   * Get the estimated bytes the graph needs.
+   *
+   * @return The bytes.
+   */
+  public long getNeeded() {
+    return needed;
+  }
+
+  /**
+   * Get the budget the graph is over.
+   *
+   * @return The budget.
+   */
+  public MemoryBudget getBudget() {
+    return budget;
+  }
+}
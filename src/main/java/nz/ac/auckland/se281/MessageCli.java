@@ -15,13 +15,59 @@ public enum MessageCli {
   OPENED_FILE_SUCCESSFULLY("Successfully opened graph from file %s"),
   FILE_NOT_OPEN("Error: no valid file open"),
   FILE_NOT_FOUND("Error: file '%s' not found in `testcases` folder"),
+  FILE_NOT_WRITTEN("Error: could not write file '%s'"),
+  FOLDER_NOT_FOUND("Error: folder '%s' not found in `testcases` folder"),
+  BATCH_ANALYSED("Analysed %s graph file%s in folder %s, and wrote the results to %s"),
+  BATCH_FAILURES("%s file%s could not be read or analysed, see the error column"),
   INFO("File name: %s"),
+  WATCHING_FILE("Watching file %s for changes"),
+  FILE_CHANGES_APPLIED("Applied changes to %s: %s edge%s inserted, %s edge%s removed"),
+  FILE_RELOADED("Reloaded all of %s, as its verticies or weighting changed"),
+  FILE_NOT_REREAD("Error: could not read the changes to '%s', the loaded graph is kept"),
+  INVALID_WORKER_COUNT("Error: '%s' is not a valid number of workers"),
+  WORKERS_FAILED("Error: could not run the worker processes: %s"),
+  VERTEX_NOT_FOUND("Error: vertex '%s' not found in the graph"),
+  INVALID_MEMORY_BUDGET(
+      "Error: '%s' is not a valid memory budget, use a size such as 512m or none"),
+  MEMORY_BUDGET_SET("The memory budget for opening graphs is %s"),
+  OVER_MEMORY_BUDGET("Error: '%s' needs about %s of memory to open, but only %s is available"),
+  STORAGE_OVER_BUDGET(
+      "The edges of %s would take the graph to about %s, over the budget of %s, so they are"
+          + " stored %s"),
+  INVALID_VIOLATION_COUNT("Error: '%s' is not a valid number of violations"),
+
+  MEMORY_VERTICIES("Vertex table: about %s for %s verticies"),
+  MEMORY_ORDER("Parse order: about %s"),
+  MEMORY_EDGES("Edges, stored %s: about %s on the heap and %s off the heap"),
+  MEMORY_INDEXES("Indexes: about %s"),
+  MEMORY_CACHES("Cached results: about %s"),
+  MEMORY_TOTAL("Total: about %s on the heap, against a memory budget of %s"),
 
   GRAPH_REFLEXIVE("The graph is %sreflexive"),
   GRAPH_SYMMETRIC("The graph is %ssymmetric"),
   GRAPH_ANTI_SYMMETRIC("The graph is %santisymmetric"),
   GRAPH_EQUIVALENCE("The graph is %san equivalence relation"),
   GRAPH_TRANSITIVE("The graph is %stransitive"),
+  MISSING_SELF_LOOP("Vertex %s has no edge %s -> %s"),
+  MISSING_REVERSE_EDGE("Edge %s -> %s has no reverse edge %s -> %s"),
+  MISSING_SHORTCUT_EDGE("Path %s -> %s -> %s has no edge %s -> %s"),
+  TWO_WAY_EDGE("Edges %s -> %s and %s -> %s join two different verticies"),
+  VIOLATIONS_LIMITED("Stopped after %s violation%s, there may be more"),
+  INVALID_SAMPLE_BUDGET("Error: '%s' is not a valid number of samples or milliseconds"),
+  NOTHING_TO_SAMPLE("The graph has no %s to sample"),
+  SAMPLED_VIOLATIONS("%s of %s sampled %s %s, in %s ms"),
+  SAMPLED_RATE("An estimated %s% of the %s %s %s (95% confidence %s% to %s%)"),
+  SAMPLED_WITH_FILTER(
+      "Edges were looked up in a Bloom filter, which takes %s% of missing edges as present"),
+  GRAPH_ACYCLIC("The graph is %sacyclic"),
+  GRAPH_CYCLE("Cycle found: %s"),
+  GRAPH_COMPONENTS("The graph has %s strongly connected component%s"),
+  GRAPH_WEAK_COMPONENTS("The graph has %s weakly connected component%s"),
+  DISTANCES_WRITTEN("Wrote the hop distances between %s verticies to file %s"),
+  SHORTEST_PATH("The shortest path from %s to %s has length %s: %s"),
+  NO_PATH("There is no path from %s to %s"),
+  NEGATIVE_WEIGHT("Error: shortest paths need every edge weight to be non-negative"),
+  VERTEX_REACHABLE("Vertex %s is %sreachable from vertex %s"),
 
   END("You closed the terminal. Goodbye.");
 
@@ -0,0 +1,187 @@
+package nz.ac.auckland.se281;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import nz.ac.auckland.se281.datastructures.VertexTable;
+
+/**
+ * The order the parser read the verticies and edges of a file in, over the ids of the vertex table.
+ * The table sorts the verticies and the successor lists sort and merge the edges, so this is kept
+ * alongside them to list the graph the way the file has it, duplicate edges included.
+ */
+public class ParseOrder {
+  private final int[] verticies;
+  private final int[] sources;
+  private final int[] destinations;
+
+  /**
+   * Create an order.
+   *
+   * @param verticies The id of each vertex, in the order they were read.
+   * @param sources The id of the source of each edge, in the order they were read.
+   * @param destinations The id of the destination of each edge, lined up with the sources.
+   */
+  private ParseOrder(final int[] verticies, final int[] sources, final int[] destinations) {
+    this.verticies = verticies;
+    this.sources = sources;
+    this.destinations = destinations;
+  }
+
+  /**
+   * Records the order of a parsed file.
+   *
+   * @param dot The parsed file.
+   * @param table The verticies of the file.
+   * @return The order.
+   */
+  public static ParseOrder of(final DotFile dot, final VertexTable<String> table) {
+    final List<String> ids = dot.getVertexIds();
+    final int[] verticies = new int[ids.size()];
+
+    for (int i = 0; i < verticies.length; i++) {
+      verticies[i] = table.getId(ids.get(i));
+    }
+
+    final int[] sources = new int[dot.getEdgeCount()];
+    final int[] destinations = new int[dot.getEdgeCount()];
+
+    for (int i = 0; i < sources.length; i++) {
+      sources[i] = table.getId(dot.getSource(i));
+      destinations[i] = table.getId(dot.getDestination(i));
+    }
+
+    return new ParseOrder(verticies, sources, destinations);
+  }
+
+  /**
+   * Reads an order written by {@link #write(DataOutputStream)}.
+   *
+   * @param in The stream, at the order.
+   * @param vertexCount The number of verticies.
+   * @param edgeCount The number of edges the file was read with, including any duplicates.
+   * @return The order.
+   * @throws IOException If the stream is cut short or holds an id out of range.
+   */
+  public static ParseOrder read(
+      final DataInputStream in, final int vertexCount, final int edgeCount) throws IOException {
+    final int[] verticies = new int[vertexCount];
+    final int[] sources = new int[edgeCount];
+    final int[] destinations = new int[edgeCount];
+
+    for (int i = 0; i < vertexCount; i++) {
+      verticies[i] = readId(in, vertexCount);
+    }
+
+    for (int i = 0; i < edgeCount; i++) {
+      sources[i] = readId(in, vertexCount);
+      destinations[i] = readId(in, vertexCount);
+    }
+
+    return new ParseOrder(verticies, sources, destinations);
+  }
+
+  /**
+   * Reads the id of a vertex, checking it is in the table.
+   *
+   * @param in The stream.
+   * @param vertexCount The number of verticies.
+   * @return The id.
+   * @throws IOException If the stream is cut short or the id is out of range.
+   */
+  private static int readId(final DataInputStream in, final int vertexCount) throws IOException {
+    final int id = in.readInt();
+
+    if (id < 0 || id >= vertexCount) {
+      throw new IOException("the order has a vertex that is not in the table");
+    }
+
+    return id;
+  }
+
+  /**
+   * Writes the order, so it can be read back with {@link #read(DataInputStream, int, int)}.
+   *
+   * @param out The stream.
+   * @throws IOException If the stream cannot be written.
+   */
+  public void write(final DataOutputStream out) throws IOException {
+    for (final int vertex : verticies) {
+      out.writeInt(vertex);
+    }
+
+    for (int i = 0; i < sources.length; i++) {
+      out.writeInt(sources[i]);
+      out.writeInt(destinations[i]);
+    }
+  }
+
+  /**
+   * Estimates the heap an order keeps.
+   *
+   * @param vertexCount The number of verticies.
+   * @param edgeCount The number of edges the file was read with, including any duplicates.
+   * @return The bytes.
+   */
+  public static long getBytes(final int vertexCount, final int edgeCount) {
+    return ((long) vertexCount + 2L * edgeCount) * Integer.BYTES;
+  }
+
+  /**
+   * Estimates the heap the order keeps.
+   *
+   * @return The bytes.
+   */
+  public long getBytes() {
+    return getBytes(verticies.length, sources.length);
+  }
+
+  /**
+   * Get the number of verticies.
+   *
+   * @return The number of verticies.
+   */
+  public int getVertexCount() {
+    return verticies.length;
+  }
+
+  /**
+   * Get the number of edges the file was read with, including any duplicates.
+   *
+   * @return The number of edges.
+   */
+  public int getEdgeCount() {
+    return sources.length;
+  }
+
+  /**
+   * Get the id of a vertex.
+   *
+   * @param index The position of the vertex in the file.
+   * @return The id.
+   */
+  public int getVertex(final int index) {
+    return verticies[index];
+  }
+
+  /**
+   * Get the id of the source of an edge.
+   *
+   * @param index The position of the edge in the file.
+   * @return The id.
+   */
+  public int getSource(final int index) {
+    return sources[index];
+  }
+
+  /**
+   * Get the id of the destination of an edge.
+   *
+   * @param index The position of the edge in the file.
+   * @return The id.
+   */
+  public int getDestination(final int index) {
+    return destinations[index];
+  }
+}
@@ -0,0 +1,325 @@
+package nz.ac.auckland.se281;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk cache of the results computed for one graph, so a later process that opens an
+ * unchanged graph can answer without computing them again. Each graph has a properties file named
+ * after its content hash, and the least recently used files are deleted once the cache directory
+ * grows past its size limit. The files are named after the code of the calculator too, so results
+ * stored by an older build are never read.
+ *
+ * <p>Results are kept in memory as they are computed and written by {@link #flush()}, once for
+ * each command rather than once for each result. The directory is only scanned for files to evict
+ * when a cache is opened, or once the writes of this cache have grown it by more than a slack.
+ *
+ * <p>The cache is off unless the system property turns it on, so runs such as the tests always
+ * compute what they print. It is only ever an optimisation: if the directory cannot be read or
+ * written, results are simply computed as if nothing was cached.
+ */
+public class ResultCache {
+  /**
+   * The system property that turns the cache "on" in the home directory, or sets the cache
+   * directory. The cache is off if it is missing or "off".
+   */
+  public static final String DIRECTORY_PROPERTY = "graph.cache";
+
+  /** Bumped whenever the stored results change meaning, so older files are never read. */
+  private static final String FORMAT = "1";
+
+  /** Stamp of the classes of the calculator, which changes whenever they are rebuilt. */
+  private static final String CODE_STAMP = readCodeStamp();
+
+  private static final long MAX_BYTES = 64L << 20;
+
+  /** How much the writes of one cache may grow the directory before it is checked again. */
+  private static final long EVICT_SLACK = MAX_BYTES >> 6;
+
+  private final Path file;
+  private final Properties results = new Properties();
+  private boolean unsaved;
+  private long writtenBytes;
+  private long grownBytes;
+
+  /**
+   * Opens the cache of a graph, reading any results stored by an earlier process.
+   *
+   * @param directory The cache directory, or null to cache nothing.
+   * @param key The content hash of the graph.
+   */
+  public ResultCache(final Path directory, final String key) {
+    file =
+        directory == null
+            ? null
+            : directory.resolve(
+                "graph-" + FORMAT + "-" + CODE_STAMP + "-" + key + ".properties");
+
+    if (file != null && Files.isRegularFile(file)) {
+      try (InputStream in = Files.newInputStream(file)) {
+        results.load(in);
+        // Reading a file counts as using it, so it is kept over files that are not read.
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      } catch (IOException | IllegalArgumentException e) {
+        results.clear();
+      }
+    }
+
+    if (file != null) {
+      try {
+        writtenBytes = Files.isRegularFile(file) ? Files.size(file) : 0;
+        if (Files.isDirectory(directory)) {
+          evict(directory, file);
+        }
+      } catch (IOException e) {
+        // Nothing is evicted, the next cache opened tries again.
+      }
+    }
+  }
+
+  /**
+   * Finds the cache directory from the system property, which is a folder in the home directory
+   * if the property is "on".
+   *
+   * @return The directory, or null if caching is turned off.
+   */
+  public static Path defaultDirectory() {
+    final String setting = System.getProperty(DIRECTORY_PROPERTY, "off");
+
+    if (setting.equalsIgnoreCase("off")) {
+      return null;
+    }
+
+    return setting.equalsIgnoreCase("on")
+        ? Path.of(System.getProperty("user.home"), ".cache", "graph-calculator")
+        : Path.of(setting);
+  }
+
+  /**
+   * Stamps the classes of the calculator with the size and time of every file they are loaded
+   * from, which is the jar or each class file of the classes folder.
+   *
+   * @return The stamp, or "0" if the classes cannot be found.
+   */
+  private static String readCodeStamp() {
+    try {
+      final Path code =
+          Path.of(ResultCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+      long stamp = 1;
+
+      try (Stream<Path> files = Files.walk(code)) {
+        final Path[] paths = files.filter(Files::isRegularFile).sorted().toArray(Path[]::new);
+        for (final Path path : paths) {
+          stamp = 31 * stamp + Files.size(path);
+          stamp = 31 * stamp + Files.getLastModifiedTime(path).toMillis();
+        }
+      }
+
+      return Long.toHexString(stamp);
+    } catch (IOException | URISyntaxException | RuntimeException e) {
+      // Without a stamp the cache still works, it just trusts FORMAT alone.
+      return "0";
+    }
+  }
+
+  /**
+   * Gets a stored flag, computing and storing it if it is missing.
+   *
+   * @param name The name of the result.
+   * @param compute Computes the result.
+   * @return The result.
+   */
+  public boolean getFlag(final String name, final BooleanSupplier compute) {
+    final String stored = results.getProperty(name);
+
+    if (stored != null) {
+      return Boolean.parseBoolean(stored);
+    }
+
+    final boolean value = compute.getAsBoolean();
+    store(name, String.valueOf(value));
+    return value;
+  }
+
+  /**
+   * Gets a stored list of ids, computing and storing it if it is missing.
+   *
+   * @param name The name of the result.
+   * @param compute Computes the result.
+   * @return The result.
+   */
+  public int[] getIds(final String name, final Supplier<int[]> compute) {
+    final String stored = results.getProperty(name);
+
+    if (stored != null) {
+      try {
+        return parseIds(stored);
+      } catch (NumberFormatException e) {
+        // A damaged entry is computed again and overwritten.
+      }
+    }
+
+    final int[] ids = compute.get();
+    final StringBuilder sb = new StringBuilder();
+
+    for (int i = 0; i < ids.length; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(ids[i]);
+    }
+
+    store(name, sb.toString());
+    return ids;
+  }
+
+  /**
+   * Parses a comma separated list of ids.
+   *
+   * @param stored The stored list.
+   * @return The ids.
+   */
+  private static int[] parseIds(final String stored) {
+    if (stored.isEmpty()) {
+      return new int[0];
+    }
+
+    final String[] parts = stored.split(",");
+    final int[] ids = new int[parts.length];
+
+    for (int i = 0; i < parts.length; i++) {
+      ids[i] = Integer.parseInt(parts[i]);
+    }
+
+    return ids;
+  }
+
+  /**
+   * Stores a result in memory, to be written by the next {@link #flush()}.
+   *
+   * @param name The name of the result.
+   * @param value The result.
+   */
+  private void store(final String name, final String value) {
+    results.setProperty(name, value);
+    unsaved = true;
+  }
+
+  /**
+   * Writes the results stored since the last flush, replacing the old file in one move so a reader
+   * never sees half a file. Does nothing if no result was stored.
+   */
+  public void flush() {
+    if (file == null || !unsaved) {
+      return;
+    }
+
+    unsaved = false;
+    Path temp = null;
+
+    try {
+      Files.createDirectories(file.getParent());
+      temp = Files.createTempFile(file.getParent(), "tmp-", ".properties");
+
+      try (OutputStream out = Files.newOutputStream(temp)) {
+        results.store(out, null);
+      }
+
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      temp = null;
+
+      final long size = Files.size(file);
+      grownBytes += size - writtenBytes;
+      writtenBytes = size;
+      if (grownBytes > EVICT_SLACK) {
+        grownBytes = 0;
+        evict(file.getParent(), file);
+      }
+    } catch (IOException | UnsupportedOperationException e) {
+      // The result is still kept in memory for this process.
+    } finally {
+      deleteQuietly(temp);
+    }
+  }
+
+  /**
+   * Deletes a temporary file left by a write that failed part of the way.
+   *
+   * @param temp The file, or null if there is none.
+   */
+  static void deleteQuietly(final Path temp) {
+    if (temp == null) {
+      return;
+    }
+
+    try {
+      Files.deleteIfExists(temp);
+    } catch (IOException e) {
+      // The file is in the cache directory, where it is only ever wasted space.
+    }
+  }
+
+  /**
+   * Deletes the least recently used cache files, results and snapshots alike, until the directory
+   * is within its size limit.
+   *
+   * @param directory The cache directory.
+   * @param keep The file just written, which is never deleted.
+   * @throws IOException If the directory cannot be listed.
+   */
+  static void evict(final Path directory, final Path keep) throws IOException {
+    final List<Path> files = new ArrayList<>();
+    long total = 0;
+
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "graph-*")) {
+      for (final Path entry : entries) {
+        files.add(entry);
+        total += Files.size(entry);
+      }
+    }
+
+    if (total <= MAX_BYTES) {
+      return;
+    }
+
+    files.sort(Comparator.comparing(ResultCache::lastModified));
+
+    for (final Path entry : files) {
+      if (total <= MAX_BYTES) {
+        break;
+      }
+      if (!entry.equals(keep)) {
+        total -= Files.size(entry);
+        Files.deleteIfExists(entry);
+      }
+    }
+  }
+
+  /**
+   * Gets the last modified time of a file, treating unreadable files as the oldest.
+   *
+   * @param path The file.
+   * @return The time.
+   */
+  private static FileTime lastModified(final Path path) {
+    try {
+      return Files.getLastModifiedTime(path);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * The successor lists of a graph over dense vertex ids. Every successor list is sorted in ascending
+ * order and holds no duplicates, which the traversals rely on for their visiting order.
+ */
+public interface Adjacency {
+
+  /**
+   * The method returns the number of verticies the adjacency is defined over.
+   *
+   * @return number of verticies.
+   */
+  int getVertexCount();
+
+  /**
+   * The method returns the number of distinct edges.
+   *
+   * @return number of edges.
+   */
+  int getEdgeCount();
+
+  /**
+   * The method returns the number of successors of a vertex.
+   *
+   * @param vertex id of the vertex.
+   * @return out degree of the vertex.
+   */
+  int getOutDegree(int vertex);
+
+  /**
+   * The method returns a boolean true if the edges carry their own weights.
+   *
+   * @return boolean of is weighted.
+   */
+  boolean isWeighted();
+
+  /**
+   * The method returns a successor of a vertex by its position in the sorted successor list,
+   * without walking the list up to it where the storage allows.
+   *
+   * @param vertex id of the vertex.
+   * @param index position below the out degree of the vertex.
+   * @return id of the successor.
+   */
+  int getSuccessor(int vertex, int index);
+
+  /**
+   * Checks if there is an edge from the source to the destination.
+   *
+   * @param source id of the source vertex.
+   * @param destination id of the destination vertex.
+   * @return boolean of if the edge exists.
+   */
+  boolean containsEdge(int source, int destination);
+
+  /**
+   * The method returns roughly how many bytes of the heap the edges keep, counting their arrays.
+   *
+   * @return size on the heap in bytes.
+   */
+  long getHeapBytes();
+
+  /**
+   * The method returns how many bytes the edges keep outside the heap, in direct buffers.
+   *
+   * @return size off the heap in bytes.
+   */
+  long getOffHeapBytes();
+
+  /**
+   * Creates a cursor for iterating over successor lists. A cursor can be reset and reused for any
+   * number of verticies.
+   *
+   * @return new cursor.
+   */
+  NeighbourCursor cursor();
+}
@@ -0,0 +1,425 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * A relation stored as a square matrix of bits, with each row packed into longs. Dense relations,
+ * such as equivalence relations made of a few large classes, are answered with whole words at a
+ * time: composition uses the method of the Four Russians, and symmetry compares the matrix with its
+ * transpose, built 64 by 64 bits at a time.
+ */
+public class BitMatrix {
+  /** The largest number of verticies a matrix is built for, which keeps a matrix within 128MB. */
+  public static final int MAX_SIZE = 1 << 15;
+
+  /** The number of rows combined by each table of the Four Russians. */
+  private static final int GROUP_BITS = 8;
+
+  /** The number of words of each row multiplied at once, so the rows being built stay in cache. */
+  private static final int TILE_WORDS = 16;
+
+  /** The number of rows composed by each task, which share the tables of the Four Russians. */
+  private static final int CHUNK_ROWS = 1 << 11;
+
+  private final int size;
+  private final int words;
+  private final long[] bits;
+
+  /**
+   * the constructor for an empty relation.
+   *
+   * @param size number of verticies.
+   */
+  public BitMatrix(int size) {
+    if (size > MAX_SIZE) {
+      throw new IllegalArgumentException("too many verticies for a bit matrix: " + size);
+    }
+    this.size = size;
+    this.words = (size + 63) >>> 6;
+    this.bits = new long[size * words];
+  }
+
+  /**
+   * Builds the matrix of the edges of a graph.
+   *
+   * @param edges successor lists of the graph.
+   * @return the matrix.
+   */
+  public static BitMatrix of(Adjacency edges) {
+    BitMatrix matrix = new BitMatrix(edges.getVertexCount());
+    NeighbourCursor cursor = edges.cursor();
+
+    for (int x = 0; x < matrix.size; x++) {
+      cursor.reset(x);
+      while (cursor.hasNext()) {
+        matrix.set(x, cursor.next());
+      }
+    }
+    return matrix;
+  }
+
+  /**
+   * The method returns roughly how many bytes a matrix keeps, before it is built.
+   *
+   * @param size number of verticies.
+   * @return size in bytes.
+   */
+  public static long getBytes(int size) {
+    return (long) size * ((size + 63) >>> 6) * Long.BYTES;
+  }
+
+  /**
+   * The method returns roughly how many bytes the matrix keeps, counting its arrays.
+   *
+   * @return size in bytes.
+   */
+  public long getBytes() {
+    return (long) bits.length * Long.BYTES;
+  }
+
+  /**
+   * The method returns the number of verticies of the relation.
+   *
+   * @return number of verticies.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks if x is related to y.
+   *
+   * @param x id of the first vertex.
+   * @param y id of the second vertex.
+   * @return boolean of xRy.
+   */
+  public boolean get(int x, int y) {
+    return (bits[x * words + (y >>> 6)] & (1L << y)) != 0;
+  }
+
+  /**
+   * Relates x to y.
+   *
+   * @param x id of the first vertex.
+   * @param y id of the second vertex.
+   */
+  public void set(int x, int y) {
+    bits[x * words + (y >>> 6)] |= 1L << y;
+  }
+
+  /**
+   * Composes this relation with another: x is related to z when xRy in this relation and ySz in
+   * the other, for some y.
+   *
+   * @param other the relation applied second.
+   * @return the composed relation.
+   */
+  public BitMatrix compose(BitMatrix other) {
+    if (other.size != size) {
+      throw new IllegalArgumentException("relations over different verticies");
+    }
+
+    BitMatrix product = new BitMatrix(size);
+    int[] rows = IntStream.range(0, size).toArray();
+    int chunks = (size + CHUNK_ROWS - 1) / CHUNK_ROWS;
+
+    IntStream.range(0, chunks)
+        .parallel()
+        .forEach(
+            chunk -> {
+              int from = chunk * CHUNK_ROWS;
+              int to = Math.min(size, from + CHUNK_ROWS);
+              multiplyRows(other, rows, from, to, product.bits, from);
+            });
+    return product;
+  }
+
+  /**
+   * Computes some rows of a composition with the method of the Four Russians. For every group of 8
+   * rows of the other relation, a table of the unions of all 256 subsets of them is built, and
+   * each row being computed then adds the union picked by its 8 bits for the group with one pass
+   * over its words, rather than one pass for every bit.
+   *
+   * @param other the relation applied second.
+   * @param rows ids of the rows of this relation to compute.
+   * @param from index in rows of the first row to compute.
+   * @param to index in rows after the last row to compute.
+   * @param out words to write the computed rows to.
+   * @param outFirst row of out to write the first computed row to.
+   */
+  private void multiplyRows(
+      BitMatrix other, int[] rows, int from, int to, long[] out, int outFirst) {
+    long[] table = new long[(1 << GROUP_BITS) * TILE_WORDS];
+
+    // the rows are computed one tile of words at a time, so the rows being built stay in cache.
+    for (int tile = 0; tile < words; tile += TILE_WORDS) {
+      int width = Math.min(TILE_WORDS, words - tile);
+
+      for (int group = 0; group < size; group += GROUP_BITS) {
+        // each entry is the entry without its lowest bit plus the row of that bit, so the table
+        // takes one pass over the tile for each entry.
+        int subsets = 1 << Math.min(GROUP_BITS, size - group);
+        for (int subset = 1; subset < subsets; subset++) {
+          int base = (subset & (subset - 1)) * TILE_WORDS;
+          int row = (group + Integer.numberOfTrailingZeros(subset)) * words + tile;
+          int entry = subset * TILE_WORDS;
+          for (int w = 0; w < width; w++) {
+            table[entry + w] = table[base + w] | other.bits[row + w];
+          }
+        }
+
+        // a group never crosses a word, as 64 is a multiple of the group size.
+        int word = group >>> 6;
+        int shift = group & 63;
+        for (int i = from; i < to; i++) {
+          int subset = (int) (bits[rows[i] * words + word] >>> shift) & ((1 << GROUP_BITS) - 1);
+          if (subset != 0) {
+            int target = (outFirst + i - from) * words + tile;
+            int entry = subset * TILE_WORDS;
+            for (int w = 0; w < width; w++) {
+              out[target + w] |= table[entry + w];
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Lists one row of each set of identical rows. Identical rows have identical rows in any
+   * composition, so only these need to be computed.
+   *
+   * @param nextSame filled with the next row identical to each row, or -1 after the last, so each
+   *     listed row leads a chain of its copies in ascending order.
+   * @return ids of the rows, in order.
+   */
+  private int[] distinctRows(int[] nextSame) {
+    Map<Long, Integer> firstWithHash = new HashMap<>();
+    int[] distinct = new int[size];
+    int[] lastSame = new int[size];
+    int count = 0;
+    Arrays.fill(nextSame, -1);
+
+    for (int x = 0; x < size; x++) {
+      long hash = 0;
+      for (int w = x * words; w < (x + 1) * words; w++) {
+        hash = (hash ^ bits[w]) * 0x9E3779B97F4A7C15L;
+      }
+
+      // a row is only skipped when it equals a row that was kept, so a collision costs nothing.
+      Integer first = firstWithHash.putIfAbsent(hash, x);
+      if (first == null
+          || !Arrays.equals(
+              bits, x * words, (x + 1) * words, bits, first * words, (first + 1) * words)) {
+        distinct[count++] = x;
+        lastSame[x] = x;
+      } else {
+        nextSame[lastSame[first]] = x;
+        lastSame[first] = x;
+      }
+    }
+    return Arrays.copyOf(distinct, count);
+  }
+
+  /**
+   * Builds the transpose of the relation, where y is related to x whenever xRy.
+   *
+   * @return the transpose.
+   */
+  public BitMatrix transpose() {
+    BitMatrix transpose = new BitMatrix(size);
+    long[] block = new long[64];
+
+    for (int rowWord = 0; rowWord < words; rowWord++) {
+      for (int colWord = 0; colWord < words; colWord++) {
+        int rows = Math.min(64, size - rowWord * 64);
+        for (int i = 0; i < 64; i++) {
+          block[i] = i < rows ? bits[(rowWord * 64 + i) * words + colWord] : 0;
+        }
+
+        transpose64(block);
+
+        int columns = Math.min(64, size - colWord * 64);
+        for (int i = 0; i < columns; i++) {
+          transpose.bits[(colWord * 64 + i) * words + rowWord] = block[i];
+        }
+      }
+    }
+    return transpose;
+  }
+
+  /**
+   * Transposes a 64 by 64 block of bits in place, by swapping ever smaller sub-blocks across the
+   * diagonal.
+   *
+   * @param block 64 rows of 64 bits.
+   */
+  private static void transpose64(long[] block) {
+    long mask = 0x00000000FFFFFFFFL;
+
+    for (int j = 32; j != 0; j >>= 1, mask ^= mask << j) {
+      for (int k = 0; k < 64; k = ((k | j) + 1) & ~j) {
+        long swap = ((block[k] >>> j) ^ block[k | j]) & mask;
+        block[k] ^= swap << j;
+        block[k | j] ^= swap;
+      }
+    }
+  }
+
+  /**
+   * Checks if every pair of another relation is also in this relation.
+   *
+   * @param other relation over the same verticies.
+   * @return boolean of the other relation being a subset.
+   */
+  public boolean contains(BitMatrix other) {
+    for (int i = 0; i < bits.length; i++) {
+      if ((other.bits[i] & ~bits[i]) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if xRy and yRz always gives xRz, by checking that the composition of the relation with
+   * itself is contained in the relation. Only one of each set of identical rows is composed, which
+   * leaves a single row for each class of an equivalence relation.
+   *
+   * @return boolean of transitivity.
+   */
+  public boolean isTransitive() {
+    return findTransitivityViolations(1).isEmpty();
+  }
+
+  /**
+   * Finds 2-paths xRyRz without xRz. The composition is checked one chunk of rows at a time, and
+   * each missing xRz found is explained by searching the row of x for a y with yRz. A row that is
+   * a copy of an earlier row misses the same xRz, so it is reported along with the earlier row.
+   *
+   * <p>Chunks run in parallel and stop once enough violations are found, so when more than one is
+   * wanted, which ones are found can depend on the timing of the chunks.
+   *
+   * @param limit most violations to find.
+   * @return the triples (x, y, z).
+   */
+  public Violations findTransitivityViolations(int limit) {
+    int[] nextSame = new int[size];
+    int[] rows = distinctRows(nextSame);
+    int chunks = (rows.length + CHUNK_ROWS - 1) / CHUNK_ROWS;
+    Violations[] found = new Violations[chunks];
+    AtomicInteger total = new AtomicInteger();
+
+    IntStream.range(0, chunks)
+        .parallel()
+        .forEach(
+            chunk -> {
+              found[chunk] = new Violations(3, limit);
+              if (total.get() >= limit) {
+                return;
+              }
+              int from = chunk * CHUNK_ROWS;
+              int to = Math.min(rows.length, from + CHUNK_ROWS);
+              long[] product = new long[(to - from) * words];
+              multiplyRows(this, rows, from, to, product, 0);
+
+              for (int i = from; i < to && !found[chunk].isFull(); i++) {
+                int x = rows[i];
+                int composed = (i - from) * words;
+                for (int w = 0; w < words && !found[chunk].isFull(); w++) {
+                  long missing = product[composed + w] & ~bits[x * words + w];
+                  while (missing != 0 && !found[chunk].isFull()) {
+                    int z = (w << 6) + Long.numberOfTrailingZeros(missing);
+                    missing &= missing - 1;
+                    int y = findMiddle(x, z);
+                    for (int same = x; same >= 0 && !found[chunk].isFull(); same = nextSame[same]) {
+                      found[chunk].add(same, y, z);
+                      total.incrementAndGet();
+                    }
+                  }
+                }
+              }
+            });
+
+    // chunks are merged in order, so a single violation is always the first one found.
+    Violations violations = new Violations(3, limit);
+    for (Violations chunkFound : found) {
+      violations.addAll(chunkFound);
+    }
+    return violations;
+  }
+
+  /**
+   * Finds a y with xRy and yRz.
+   *
+   * @param x id of the first vertex.
+   * @param z id of the last vertex.
+   * @return id of the first such y, or -1 if there is none.
+   */
+  private int findMiddle(int x, int z) {
+    for (int w = 0; w < words; w++) {
+      long row = bits[x * words + w];
+      while (row != 0) {
+        int y = (w << 6) + Long.numberOfTrailingZeros(row);
+        row &= row - 1;
+        if (get(y, z)) {
+          return y;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Finds edges xRy without yRx, which are the bits of each row missing from the same row of the
+   * transpose.
+   *
+   * @param transpose the transpose of this relation.
+   * @param limit most violations to find.
+   * @return the pairs (x, y).
+   */
+  public Violations findSymmetryViolations(BitMatrix transpose, int limit) {
+    Violations violations = new Violations(2, limit);
+
+    for (int x = 0; x < size && !violations.isFull(); x++) {
+      for (int w = 0; w < words && !violations.isFull(); w++) {
+        long missing = bits[x * words + w] & ~transpose.bits[x * words + w];
+        while (missing != 0 && !violations.isFull()) {
+          violations.add(x, (w << 6) + Long.numberOfTrailingZeros(missing));
+          missing &= missing - 1;
+        }
+      }
+    }
+    return violations;
+  }
+
+  /**
+   * Finds pairs of distinct verticies with both xRy and yRx, each pair once with x below y.
+   *
+   * @param transpose the transpose of this relation.
+   * @param limit most violations to find.
+   * @return the pairs (x, y).
+   */
+  public Violations findAntiSymmetryViolations(BitMatrix transpose, int limit) {
+    Violations violations = new Violations(2, limit);
+
+    for (int x = 0; x < size && !violations.isFull(); x++) {
+      // only the words at or after the diagonal can hold a y above x.
+      for (int w = x >>> 6; w < words && !violations.isFull(); w++) {
+        long both = bits[x * words + w] & transpose.bits[x * words + w];
+        if (w == x >>> 6) {
+          both &= -2L << x;
+        }
+        while (both != 0 && !violations.isFull()) {
+          violations.add(x, (w << 6) + Long.numberOfTrailingZeros(both));
+          both &= both - 1;
+        }
+      }
+    }
+    return violations;
+  }
+}
@@ -0,0 +1,212 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * A breadth first search that keeps the level of each vertex, which is its hop distance from the
+ * source, and the parent it was first reached from. The arrays are reused between searches, so one
+ * instance can run any number of searches.
+ */
+public class BreadthFirstDistances {
+  /** Roughly how many bytes of the all pairs file are mapped and filled by one task. */
+  private static final long BLOCK_BYTES = 1 << 24;
+
+  private final Adjacency edges;
+  private final NeighbourCursor cursor;
+  private final int[] levels;
+  private final int[] parents;
+  private final int[] queue;
+  private int reachedCount;
+
+  /**
+   * the constructor for the search.
+   *
+   * @param edges successor lists to search.
+   */
+  public BreadthFirstDistances(Adjacency edges) {
+    this.edges = edges;
+    this.cursor = edges.cursor();
+    this.levels = new int[edges.getVertexCount()];
+    this.parents = new int[edges.getVertexCount()];
+    this.queue = new int[edges.getVertexCount()];
+  }
+
+  /**
+   * Searches from a source, replacing the results of the previous search.
+   *
+   * @param source id of the vertex to search from.
+   */
+  public void run(int source) {
+    Arrays.fill(levels, -1);
+    Arrays.fill(parents, -1);
+
+    int front = 0;
+    int end = 0;
+    levels[source] = 0;
+    queue[end++] = source;
+
+    while (front < end) {
+      int vertex = queue[front++];
+
+      // children are read in ascending order, so each keeps the first parent in search order.
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        int child = cursor.next();
+        if (levels[child] < 0) {
+          levels[child] = levels[vertex] + 1;
+          parents[child] = vertex;
+          queue[end++] = child;
+        }
+      }
+    }
+
+    reachedCount = end;
+  }
+
+  /**
+   * The method returns the hop distance of a vertex from the last source.
+   *
+   * @param vertex id of the vertex.
+   * @return number of edges on a shortest path, or -1 if the vertex is unreachable.
+   */
+  public int getLevel(int vertex) {
+    return levels[vertex];
+  }
+
+  /**
+   * The method returns the vertex that a vertex was first reached from.
+   *
+   * @param vertex id of the vertex.
+   * @return id of the parent, or -1 for the source and unreachable verticies.
+   */
+  public int getParent(int vertex) {
+    return parents[vertex];
+  }
+
+  /**
+   * The method returns the verticies reached by the last search, in the order they were reached.
+   *
+   * @return ids in search order, starting with the source.
+   */
+  public int[] getReached() {
+    return Arrays.copyOf(queue, reachedCount);
+  }
+
+  /**
+   * Writes the hop distance between every pair of verticies to a file. The file holds one row per
+   * source in id order, and each row holds one big-endian int per destination, -1 if the
+   * destination is unreachable. Rows are searched in parallel and written straight into memory
+   * mapped blocks of the file, so the matrix is never held on the heap. A row longer than a block
+   * is written through one mapping per block, as a single mapping cannot pass 2GB.
+   *
+   * @param edges successor lists to search.
+   * @param output file to write to, which is replaced.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void writeAllPairs(Adjacency edges, Path output) throws IOException {
+    writeAllPairs(edges, output, BLOCK_BYTES);
+  }
+
+  /**
+   * Writes the hop distance between every pair of verticies to a file, see {@link
+   * #writeAllPairs(Adjacency, Path)}.
+   *
+   * @param edges successor lists to search.
+   * @param output file to write to, which is replaced.
+   * @param blockBytes most bytes mapped at once, a multiple of 4.
+   * @throws IOException if the file cannot be written.
+   */
+  static void writeAllPairs(Adjacency edges, Path output, long blockBytes) throws IOException {
+    int size = edges.getVertexCount();
+    long rowBytes = (long) size * Integer.BYTES;
+    int rowsPerBlock = (int) Math.max(1, Math.min(size, blockBytes / Math.max(1, rowBytes)));
+    int blocks = (size + rowsPerBlock - 1) / rowsPerBlock;
+
+    try (FileChannel channel =
+        FileChannel.open(
+            output,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      channel.truncate(0);
+
+      // each worker keeps its own search and claims blocks until none are left.
+      AtomicInteger nextBlock = new AtomicInteger();
+      int workers = Math.min(blocks, Runtime.getRuntime().availableProcessors());
+
+      IntStream.range(0, workers)
+          .parallel()
+          .forEach(
+              worker -> {
+                BreadthFirstDistances search = new BreadthFirstDistances(edges);
+
+                for (int block = nextBlock.getAndIncrement();
+                    block < blocks;
+                    block = nextBlock.getAndIncrement()) {
+                  int first = block * rowsPerBlock;
+                  int last = Math.min(size, first + rowsPerBlock);
+
+                  try {
+                    if (rowBytes > blockBytes) {
+                      search.run(first);
+                      writeRow(channel, first * rowBytes, search.levels, blockBytes);
+                      continue;
+                    }
+
+                    MappedByteBuffer mapped =
+                        channel.map(
+                            FileChannel.MapMode.READ_WRITE,
+                            first * rowBytes,
+                            (last - first) * rowBytes);
+                    IntBuffer rows = mapped.asIntBuffer();
+
+                    for (int source = first; source < last; source++) {
+                      search.run(source);
+                      rows.put(search.levels);
+                    }
+                    mapped.force();
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                }
+              });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Writes one row that is longer than a block, through one mapping per block of the row.
+   *
+   * @param channel the file.
+   * @param position offset of the row in the file.
+   * @param levels the row.
+   * @param blockBytes most bytes mapped at once.
+   * @throws IOException if the file cannot be written.
+   */
+  private static void writeRow(FileChannel channel, long position, int[] levels, long blockBytes)
+      throws IOException {
+    int perBlock = (int) (blockBytes / Integer.BYTES);
+
+    for (int from = 0; from < levels.length; from += perBlock) {
+      int count = Math.min(perBlock, levels.length - from);
+      MappedByteBuffer mapped =
+          channel.map(
+              FileChannel.MapMode.READ_WRITE,
+              position + (long) from * Integer.BYTES,
+              (long) count * Integer.BYTES);
+      mapped.asIntBuffer().put(levels, from, count);
+      mapped.force();
+    }
+  }
+}
@@ -0,0 +1,517 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs graph algorithms in the bulk synchronous parallel style of Pregel, over worker processes
+ * started on the same machine. Verticies are partitioned by id modulo the number of workers, and
+ * each {@link BspWorker} only holds the successor lists of its own verticies.
+ *
+ * <p>An algorithm is a series of supersteps. In each superstep the coordinator sends every worker
+ * the operation to run over a local socket, and every worker runs it in parallel. The messages
+ * the workers produce for each other are spilled to files in a shared directory and read by the
+ * owners of the verticies they address in the next superstep, so only small results come back to
+ * the coordinator. Results match the single process methods of {@link Graph}.
+ */
+public class BspCoordinator implements AutoCloseable {
+  /** How long workers are given to start and connect. */
+  private static final int CONNECT_TIMEOUT_MILLIS = 60_000;
+
+  /** How often the workers are checked for having exited while waiting for them to connect. */
+  private static final int POLL_MILLIS = 100;
+
+  /** The most of the error output of a worker that exited early to report. */
+  private static final int MAX_ERROR_CHARS = 2000;
+
+  private final int vertexCount;
+  private final int workerCount;
+  private final Process[] processes;
+  private final Socket[] sockets;
+  private final DataInputStream[] inputs;
+  private final DataOutputStream[] outputs;
+  private final Path spill;
+
+  /**
+   * the constructor for the coordinator, which starts the workers and sends each its partition.
+   *
+   * @param edges successor lists of the graph.
+   * @param workerCount number of worker processes to start.
+   * @throws IOException if a worker cannot be started or reached.
+   */
+  public BspCoordinator(Adjacency edges, int workerCount) throws IOException {
+    this.vertexCount = edges.getVertexCount();
+    this.workerCount = workerCount;
+    this.processes = new Process[workerCount];
+    this.sockets = new Socket[workerCount];
+    this.inputs = new DataInputStream[workerCount];
+    this.outputs = new DataOutputStream[workerCount];
+    this.spill = Files.createTempDirectory("bsp-");
+
+    try {
+      connect();
+      load(edges);
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Starts every worker with the class path of this process, and waits for each to connect back.
+   * The error output of each worker goes to a file in the spill directory, so a worker that exits
+   * before connecting is reported straight away with its exit status and what it printed, rather
+   * than after the whole timeout.
+   *
+   * @throws IOException if a worker cannot be started, exits early or does not connect in time.
+   */
+  private void connect() throws IOException {
+    String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+    try (ServerSocket server =
+        new ServerSocket(0, workerCount, InetAddress.getLoopbackAddress())) {
+      server.setSoTimeout(POLL_MILLIS);
+
+      for (int worker = 0; worker < workerCount; worker++) {
+        processes[worker] =
+            new ProcessBuilder(
+                    java,
+                    "-cp",
+                    System.getProperty("java.class.path"),
+                    BspWorker.class.getName(),
+                    String.valueOf(server.getLocalPort()),
+                    String.valueOf(worker),
+                    String.valueOf(workerCount),
+                    spill.toString())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(errorFile(worker).toFile())
+                .start();
+      }
+
+      // workers may connect in any order, so each one starts by sending its index.
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT_MILLIS);
+      for (int i = 0; i < workerCount; i++) {
+        Socket socket = accept(server, deadline);
+        socket.setTcpNoDelay(true);
+        DataInputStream in =
+            new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        int worker = in.readInt();
+
+        sockets[worker] = socket;
+        inputs[worker] = in;
+        outputs[worker] =
+            new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+      }
+    }
+  }
+
+  /**
+   * Waits for the next worker to connect, checking between waits that no worker has exited.
+   *
+   * @param server the socket the workers connect to.
+   * @param deadline the {@link System#nanoTime()} by which every worker must have connected.
+   * @return the connection.
+   * @throws IOException if a worker has exited, or the deadline passes.
+   */
+  private Socket accept(ServerSocket server, long deadline) throws IOException {
+    while (true) {
+      try {
+        return server.accept();
+      } catch (SocketTimeoutException e) {
+        for (int worker = 0; worker < workerCount; worker++) {
+          if (!processes[worker].isAlive()) {
+            throw new IOException(
+                "worker "
+                    + worker
+                    + " exited with status "
+                    + processes[worker].exitValue()
+                    + ": "
+                    + readErrors(worker));
+          }
+        }
+        if (System.nanoTime() - deadline > 0) {
+          throw new IOException(
+              "workers did not connect within " + CONNECT_TIMEOUT_MILLIS + " milliseconds");
+        }
+      }
+    }
+  }
+
+  /**
+   * The method returns the file the error output of a worker goes to.
+   *
+   * @param worker index of the worker.
+   * @return the file, in the spill directory.
+   */
+  private Path errorFile(int worker) {
+    return spill.resolve("worker-" + worker + ".err");
+  }
+
+  /**
+   * Reads the end of what a worker printed as errors.
+   *
+   * @param worker index of the worker.
+   * @return the errors, trimmed.
+   */
+  private String readErrors(int worker) {
+    try {
+      String errors = Files.readString(errorFile(worker)).trim();
+      return errors.length() > MAX_ERROR_CHARS
+          ? errors.substring(errors.length() - MAX_ERROR_CHARS)
+          : errors;
+    } catch (IOException e) {
+      return "its error output could not be read";
+    }
+  }
+
+  /**
+   * Streams every worker the successor lists of the verticies it owns, one worker at a time, so no
+   * partition is ever held in memory.
+   *
+   * @param edges successor lists of the graph.
+   * @throws IOException if a worker cannot be reached.
+   */
+  private void load(Adjacency edges) throws IOException {
+    NeighbourCursor cursor = edges.cursor();
+
+    for (int worker = 0; worker < workerCount; worker++) {
+      long edgeCount = 0;
+      for (int vertex = worker; vertex < vertexCount; vertex += workerCount) {
+        edgeCount += edges.getOutDegree(vertex);
+      }
+
+      DataOutputStream out = outputs[worker];
+      out.writeInt(BspWorker.LOAD);
+      out.writeInt(vertexCount);
+      out.writeInt(Math.toIntExact(edgeCount));
+
+      for (int vertex = worker; vertex < vertexCount; vertex += workerCount) {
+        out.writeInt(edges.getOutDegree(vertex));
+        cursor.reset(vertex);
+        while (cursor.hasNext()) {
+          out.writeInt(cursor.next());
+        }
+      }
+      out.flush();
+    }
+
+    for (int worker = 0; worker < workerCount; worker++) {
+      BspWorker.readInts(inputs[worker]);
+    }
+  }
+
+  /**
+   * Runs one superstep. Every batch is sent before any reply is read, so the workers process their
+   * batches at the same time.
+   *
+   * @param op the operation every worker runs.
+   * @param batches the ints for each worker.
+   * @return the reply of each worker.
+   * @throws IOException if a worker cannot be reached.
+   */
+  private int[][] superstep(int op, int[][] batches) throws IOException {
+    for (int worker = 0; worker < workerCount; worker++) {
+      outputs[worker].writeInt(op);
+      BspWorker.writeInts(outputs[worker], batches[worker], batches[worker].length);
+      outputs[worker].flush();
+    }
+
+    int[][] replies = new int[workerCount][];
+    for (int worker = 0; worker < workerCount; worker++) {
+      replies[worker] = BspWorker.readInts(inputs[worker]);
+    }
+    return replies;
+  }
+
+  /**
+   * Runs a superstep that needs nothing from the coordinator.
+   *
+   * @param op the operation every worker runs.
+   * @return the reply of each worker.
+   * @throws IOException if a worker cannot be reached.
+   */
+  private int[][] superstep(int op) throws IOException {
+    return superstep(op, broadcast(new int[0]));
+  }
+
+  /**
+   * Gives every worker the same batch of ints.
+   *
+   * @param messages the ints.
+   * @return the batch for each worker.
+   */
+  private int[][] broadcast(int[] messages) {
+    int[][] batches = new int[workerCount][];
+    Arrays.fill(batches, messages);
+    return batches;
+  }
+
+  /**
+   * Splits pairs into a batch for each worker, by the owner of the vertex in the first int of each
+   * pair.
+   *
+   * @param pairs the pairs.
+   * @return the batch for each worker.
+   */
+  private int[][] route(int[] pairs) {
+    int[] counts = new int[workerCount];
+    for (int i = 0; i < pairs.length; i += 2) {
+      counts[pairs[i] % workerCount] += 2;
+    }
+
+    int[][] batches = new int[workerCount][];
+    for (int worker = 0; worker < workerCount; worker++) {
+      batches[worker] = new int[counts[worker]];
+    }
+
+    int[] filled = new int[workerCount];
+    for (int i = 0; i < pairs.length; i += 2) {
+      int worker = pairs[i] % workerCount;
+      batches[worker][filled[worker]++] = pairs[i];
+      batches[worker][filled[worker]++] = pairs[i + 1];
+    }
+    return batches;
+  }
+
+  /**
+   * Adds up a count replied by every worker.
+   *
+   * @param replies the replies.
+   * @param column index of the count in each reply.
+   * @return the total.
+   */
+  private static long sum(int[][] replies, int column) {
+    long total = 0;
+    for (int[] reply : replies) {
+      total += BspWorker.count(reply, column);
+    }
+    return total;
+  }
+
+  /**
+   * Checks reflexivity, see {@link Graph#isReflexive()}.
+   *
+   * @return boolean of reflexivity.
+   * @throws IOException if a worker cannot be reached.
+   */
+  public boolean isReflexive() throws IOException {
+    return sum(superstep(BspWorker.MISSING_SELF_LOOPS), 0) == 0;
+  }
+
+  /**
+   * Checks symmetry, see {@link Graph#isSymmetric()}. Every edge xRy asks the owner of y if yRx
+   * exists.
+   *
+   * @return boolean of symmetry.
+   * @throws IOException if a worker cannot be reached.
+   */
+  public boolean isSymmetric() throws IOException {
+    superstep(BspWorker.REVERSE_EDGES, broadcast(new int[] {0}));
+    int[][] counts = superstep(BspWorker.COUNT_EDGES);
+    return sum(counts, 0) == sum(counts, 1);
+  }
+
+  /**
+   * Checks antisymmetry, see {@link Graph#isAntiSymmetric()}.
+   *
+   * @return boolean of antisymmetry.
+   * @throws IOException if a worker cannot be reached.
+   */
+  public boolean isAntiSymmetric() throws IOException {
+    superstep(BspWorker.REVERSE_EDGES, broadcast(new int[] {1}));
+    return sum(superstep(BspWorker.COUNT_EDGES), 0) == 0;
+  }
+
+  /**
+   * Checks transitivity, see {@link Graph#isTransitive()}. Every edge xRy is sent to the owner of
+   * y, which extends it by each yRz and asks the owner of x if xRz exists.
+   *
+   * @return boolean of transitivity.
+   * @throws IOException if a worker cannot be reached.
+   */
+  public boolean isTransitive() throws IOException {
+    superstep(BspWorker.REVERSE_EDGES, broadcast(new int[] {0}));
+    superstep(BspWorker.TWO_HOPS);
+    int[][] counts = superstep(BspWorker.COUNT_EDGES);
+    return sum(counts, 0) == sum(counts, 1);
+  }
+
+  /**
+   * Checks equivalence, see {@link Graph#isEquivalence()}.
+   *
+   * @return boolean of equivalence.
+   * @throws IOException if a worker cannot be reached.
+   */
+  public boolean isEquivalence() throws IOException {
+    return isReflexive() && isSymmetric() && isTransitive();
+  }
+
+  /**
+   * Finds the root verticies, see {@link Graph#getRootIds()}.
+   *
+   * @return ids of the roots in ascending order.
+   * @throws IOException if a worker cannot be reached.
+   */
+  public int[] getRootIds() throws IOException {
+    boolean[] isRoot = new boolean[vertexCount];
+
+    if (isEquivalence()) {
+      for (int[] reply : superstep(BspWorker.FIRST_SUCCESSORS)) {
+        for (int vertex : reply) {
+          isRoot[vertex] = true;
+        }
+      }
+    }
+
+    superstep(BspWorker.IN_DEGREES);
+    for (int[] reply : superstep(BspWorker.SOURCES)) {
+      for (int vertex : reply) {
+        isRoot[vertex] = true;
+      }
+    }
+
+    BspWorker.IntList roots = new BspWorker.IntList();
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      if (isRoot[vertex]) {
+        roots.add(vertex);
+      }
+    }
+    return roots.toArray();
+  }
+
+  /**
+   * Searches breadth first from every root, see {@link Graph#iterativeBreadthFirstSearchIds()}.
+   * The roots are visited first, then each root is searched in turn, so a vertex belongs to the
+   * search of the first root that reaches it without passing through another root. The roots
+   * spread their index as a label until every vertex holds the smallest, which takes as many
+   * supersteps as the deepest search.
+   *
+   * <p>Every search then runs at once, each vertex only accepting its own root's search. Each level
+   * is one pair of supersteps: the frontier sends its search positions to its successors, then
+   * each newly reached vertex keeps the earliest parent. Sorting a level by parent position and
+   * then id gives the order a queue would have visited it in, and positions are handed out in that
+   * order so they increase through each search.
+   *
+   * @return ids in search order.
+   * @throws IOException if a worker cannot be reached.
+   */
+  public int[] breadthFirstSearch() throws IOException {
+    int[] roots = getRootIds();
+    int[] vertexAt = Arrays.copyOf(roots, vertexCount);
+    int[] rootAt = new int[vertexCount];
+    int count = roots.length;
+
+    int[] frontier = new int[roots.length * 2];
+    for (int i = 0; i < roots.length; i++) {
+      frontier[2 * i] = roots[i];
+      frontier[2 * i + 1] = i;
+      rootAt[i] = i;
+    }
+
+    superstep(BspWorker.START_LABELS, route(frontier));
+    long lowered;
+    do {
+      lowered = sum(superstep(BspWorker.SPREAD_LABELS), 0);
+    } while (lowered > 0);
+
+    while (frontier.length > 0) {
+      superstep(BspWorker.EXPAND, route(frontier));
+      int[][] reached = superstep(BspWorker.VISIT);
+
+      int size = 0;
+      for (int[] reply : reached) {
+        size += reply.length / 2;
+      }
+      long[] level = new long[size];
+      size = 0;
+      for (int[] reply : reached) {
+        for (int j = 0; j < reply.length; j += 2) {
+          level[size++] = ((long) reply[j + 1] << 32) | reply[j];
+        }
+      }
+      Arrays.sort(level);
+
+      frontier = new int[level.length * 2];
+      for (int j = 0; j < level.length; j++) {
+        frontier[2 * j] = (int) level[j];
+        frontier[2 * j + 1] = count;
+        rootAt[count] = rootAt[(int) (level[j] >>> 32)];
+        vertexAt[count++] = (int) level[j];
+      }
+    }
+
+    // group the positions by root, keeping their order within each search.
+    int[] starts = new int[roots.length + 1];
+    for (int position = roots.length; position < count; position++) {
+      starts[rootAt[position] + 1]++;
+    }
+    starts[0] = roots.length;
+    for (int i = 0; i < roots.length; i++) {
+      starts[i + 1] += starts[i];
+    }
+
+    int[] order = Arrays.copyOf(roots, count);
+    for (int position = roots.length; position < count; position++) {
+      order[starts[rootAt[position]]++] = vertexAt[position];
+    }
+    return order;
+  }
+
+  /** Shuts down every worker, forcibly if one does not exit in time. */
+  @Override
+  public void close() {
+    for (int worker = 0; worker < workerCount; worker++) {
+      try {
+        if (outputs[worker] != null) {
+          outputs[worker].writeInt(BspWorker.SHUTDOWN);
+          outputs[worker].flush();
+        }
+        if (sockets[worker] != null) {
+          sockets[worker].close();
+        }
+      } catch (IOException e) {
+        // the worker is already gone, which is what closing wants.
+      }
+    }
+
+    for (Process process : processes) {
+      if (process == null) {
+        continue;
+      }
+      try {
+        if (!process.waitFor(5, TimeUnit.SECONDS)) {
+          process.destroyForcibly();
+        }
+      } catch (InterruptedException e) {
+        process.destroyForcibly();
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    deleteSpill();
+  }
+
+  /** Deletes the spill directory and any messages a failed superstep left in it. */
+  private void deleteSpill() {
+    try (Stream<Path> files = Files.walk(spill)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+        Files.deleteIfExists(file);
+      }
+    } catch (IOException e) {
+      // the directory is in the temporary folder, so it is cleaned up eventually anyway.
+    }
+  }
+}
@@ -0,0 +1,683 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A worker process of the bulk synchronous engine, see {@link BspCoordinator}. The worker owns
+ * every vertex whose id is congruent to its index modulo the number of workers, and keeps only the
+ * successor lists of those verticies.
+ *
+ * <p>Each superstep the coordinator sends an operation and a small batch of ints, and the worker
+ * replies with a small result. Messages between verticies never pass through the coordinator: they
+ * are pairs or triples whose first int is the vertex they are addressed to, and each worker spills
+ * them to one file for every owner. The owner streams its files in the next superstep, so neither
+ * side ever holds a whole superstep of messages in memory.
+ */
+public class BspWorker {
+  static final int LOAD = 0;
+  static final int MISSING_SELF_LOOPS = 1;
+  static final int REVERSE_EDGES = 2;
+  static final int COUNT_EDGES = 3;
+  static final int TWO_HOPS = 4;
+  static final int IN_DEGREES = 5;
+  static final int SOURCES = 6;
+  static final int FIRST_SUCCESSORS = 7;
+  static final int START_LABELS = 8;
+  static final int SPREAD_LABELS = 9;
+  static final int EXPAND = 10;
+  static final int VISIT = 11;
+  static final int SHUTDOWN = 12;
+
+  private final int index;
+  private final int workerCount;
+  private final Path spill;
+  private int step;
+  private int vertexCount;
+  private int[] offsets = new int[1];
+  private int[] targets = new int[0];
+  private int[] inDegrees = new int[0];
+  private int[] labels = new int[0];
+  private boolean[] changed = new boolean[0];
+  private boolean[] visited = new boolean[0];
+  private int[] bestParent = new int[0];
+
+  /**
+   * the constructor for the worker.
+   *
+   * @param index index of the worker.
+   * @param workerCount total number of workers.
+   * @param spill directory the workers exchange messages through.
+   */
+  BspWorker(int index, int workerCount, Path spill) {
+    this.index = index;
+    this.workerCount = workerCount;
+    this.spill = spill;
+  }
+
+  /**
+   * Connects to the coordinator and serves supersteps until told to shut down.
+   *
+   * @param args the coordinator port, the index of this worker, the number of workers and the
+   *     directory messages are spilled to.
+   * @throws IOException if the connection to the coordinator or the spill directory fails.
+   */
+  public static void main(String[] args) throws IOException {
+    int port = Integer.parseInt(args[0]);
+    BspWorker worker =
+        new BspWorker(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Path.of(args[3]));
+
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      socket.setTcpNoDelay(true);
+      DataInputStream in =
+          new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+
+      out.writeInt(worker.index);
+      out.flush();
+
+      for (int op = in.readInt(); op != SHUTDOWN; op = in.readInt()) {
+        int[] reply = worker.apply(op, in);
+        writeInts(out, reply, reply.length);
+        out.flush();
+      }
+    }
+  }
+
+  /**
+   * Runs one superstep, reading its batch from the coordinator.
+   *
+   * @param op the operation to run.
+   * @param in stream from the coordinator, just after the operation.
+   * @return the reply to the coordinator.
+   * @throws IOException if the coordinator or a spill file cannot be read or written.
+   */
+  int[] apply(int op, DataInputStream in) throws IOException {
+    step++;
+
+    // the partition is read straight into the successor lists, rather than as one batch.
+    if (op == LOAD) {
+      load(in);
+      return new int[0];
+    }
+
+    int[] batch = readInts(in);
+    switch (op) {
+      case MISSING_SELF_LOOPS:
+        return missingSelfLoops();
+      case REVERSE_EDGES:
+        return reverseEdges(batch[0] != 0);
+      case COUNT_EDGES:
+        return countEdges();
+      case TWO_HOPS:
+        return twoHops();
+      case IN_DEGREES:
+        return inDegrees();
+      case SOURCES:
+        return sources();
+      case FIRST_SUCCESSORS:
+        return firstSuccessors();
+      case START_LABELS:
+        return startLabels(batch);
+      case SPREAD_LABELS:
+        return spreadLabels();
+      case EXPAND:
+        return expand(batch);
+      case VISIT:
+        return visit();
+      default:
+        throw new IllegalArgumentException("unknown operation " + op);
+    }
+  }
+
+  /**
+   * Reads the partition: the vertex count and the number of owned edges, then the out degree and
+   * successors of each owned vertex in ascending order.
+   *
+   * @param in stream from the coordinator.
+   * @throws IOException if the stream fails.
+   */
+  private void load(DataInputStream in) throws IOException {
+    vertexCount = in.readInt();
+    int owned = (vertexCount - index + workerCount - 1) / workerCount;
+    offsets = new int[owned + 1];
+    targets = new int[in.readInt()];
+    inDegrees = new int[owned];
+    labels = new int[owned];
+    changed = new boolean[owned];
+    visited = new boolean[owned];
+    bestParent = new int[owned];
+    Arrays.fill(bestParent, Integer.MAX_VALUE);
+
+    for (int local = 0; local < owned; local++) {
+      offsets[local + 1] = offsets[local] + in.readInt();
+      for (int i = offsets[local]; i < offsets[local + 1]; i++) {
+        targets[i] = in.readInt();
+      }
+    }
+  }
+
+  /**
+   * The method returns the global id of an owned vertex.
+   *
+   * @param local index of the vertex within this worker.
+   * @return global id.
+   */
+  private int global(int local) {
+    return local * workerCount + index;
+  }
+
+  /**
+   * Checks if this worker owns a vertex.
+   *
+   * @param vertex global id of the vertex.
+   * @return boolean of the vertex being owned.
+   */
+  private boolean owns(int vertex) {
+    return vertex % workerCount == index;
+  }
+
+  /**
+   * Checks if an owned vertex has an edge to another vertex.
+   *
+   * @param vertex global id of the owned source.
+   * @param destination global id of the destination.
+   * @return boolean of the edge existing.
+   */
+  private boolean hasEdge(int vertex, int destination) {
+    int local = vertex / workerCount;
+    return Arrays.binarySearch(targets, offsets[local], offsets[local + 1], destination) >= 0;
+  }
+
+  /**
+   * Counts the owned verticies without a self loop.
+   *
+   * @return the count.
+   */
+  private int[] missingSelfLoops() {
+    long count = 0;
+    for (int local = 0; local < offsets.length - 1; local++) {
+      if (!hasEdge(global(local), global(local))) {
+        count++;
+      }
+    }
+    return counts(count);
+  }
+
+  /**
+   * Sends the reverse of every owned edge to the owner of its destination as a query.
+   *
+   * @param skipSelfLoops if self loops should not be sent.
+   * @return no reply, the pairs (y, x) for every edge xRy are spilled.
+   * @throws IOException if a spill file cannot be written.
+   */
+  private int[] reverseEdges(boolean skipSelfLoops) throws IOException {
+    try (Outbox outbox = new Outbox()) {
+      for (int local = 0; local < offsets.length - 1; local++) {
+        int x = global(local);
+        for (int i = offsets[local]; i < offsets[local + 1]; i++) {
+          if (!skipSelfLoops || targets[i] != x) {
+            outbox.send(targets[i], x);
+          }
+        }
+      }
+    }
+    return new int[0];
+  }
+
+  /**
+   * Counts how many of the queried edges exist.
+   *
+   * @return the count of edges found, then the count of queries, for the pairs (x, y) received
+   *     asking if xRy exists.
+   * @throws IOException if a spill file cannot be read.
+   */
+  private int[] countEdges() throws IOException {
+    long[] counts = new long[2];
+    receive(
+        2,
+        message -> {
+          if (hasEdge(message[0], message[1])) {
+            counts[0]++;
+          }
+          counts[1]++;
+        });
+    return counts(counts[0], counts[1]);
+  }
+
+  /**
+   * Extends each received edge xRy by every yRz, asking the owner of x if xRz exists.
+   *
+   * @return no reply, the pairs (x, z) to check are spilled.
+   * @throws IOException if a spill file cannot be read or written.
+   */
+  private int[] twoHops() throws IOException {
+    try (Outbox outbox = new Outbox()) {
+      receive(
+          2,
+          message -> {
+            int local = message[0] / workerCount;
+            for (int j = offsets[local]; j < offsets[local + 1]; j++) {
+              outbox.send(message[1], targets[j]);
+            }
+          });
+    }
+    return new int[0];
+  }
+
+  /**
+   * Counts the owned edges into each destination. Counts for the same destination are combined
+   * before they are sent.
+   *
+   * @return no reply, the pairs (y, count) are spilled.
+   * @throws IOException if a spill file cannot be written.
+   */
+  private int[] inDegrees() throws IOException {
+    int[] sorted = targets.clone();
+    Arrays.sort(sorted);
+
+    try (Outbox outbox = new Outbox()) {
+      for (int i = 0; i < sorted.length; ) {
+        int start = i;
+        while (i < sorted.length && sorted[i] == sorted[start]) {
+          i++;
+        }
+        outbox.send(sorted[start], i - start);
+      }
+    }
+    return new int[0];
+  }
+
+  /**
+   * Sums the in degree counts received for the owned verticies and lists those with only outgoing
+   * edges.
+   *
+   * @return ids of the owned verticies with an in degree of 0 and an out degree above 0.
+   * @throws IOException if a spill file cannot be read.
+   */
+  private int[] sources() throws IOException {
+    Arrays.fill(inDegrees, 0);
+    receive(2, message -> inDegrees[message[0] / workerCount] += message[1]);
+
+    IntList result = new IntList();
+    for (int local = 0; local < inDegrees.length; local++) {
+      if (inDegrees[local] == 0 && offsets[local + 1] > offsets[local]) {
+        result.add(global(local));
+      }
+    }
+    return result.toArray();
+  }
+
+  /**
+   * Lists the smallest successor of each owned vertex.
+   *
+   * @return ids of the successors, one for each owned vertex with any.
+   */
+  private int[] firstSuccessors() {
+    IntList result = new IntList();
+    for (int local = 0; local < offsets.length - 1; local++) {
+      if (offsets[local + 1] > offsets[local]) {
+        result.add(targets[offsets[local]]);
+      }
+    }
+    return result.toArray();
+  }
+
+  /**
+   * Starts labelling each vertex with the first root that reaches it. The owned roots are visited
+   * and labelled with their own index, and send it to their successors.
+   *
+   * @param batch pairs (root, index of the root) with the root owned.
+   * @return no reply, the pairs (y, label) are spilled.
+   * @throws IOException if a spill file cannot be written.
+   */
+  private int[] startLabels(int[] batch) throws IOException {
+    Arrays.fill(labels, Integer.MAX_VALUE);
+    Arrays.fill(visited, false);
+
+    try (Outbox outbox = new Outbox()) {
+      for (int i = 0; i < batch.length; i += 2) {
+        int local = batch[i] / workerCount;
+        labels[local] = batch[i + 1];
+        visited[local] = true;
+        sendLabel(outbox, local);
+      }
+    }
+    return new int[0];
+  }
+
+  /**
+   * Lowers the label of each owned vertex to the smallest label it receives, and passes every
+   * lowered label on to the successors. Roots keep their own label, as a search never passes
+   * through another root.
+   *
+   * @return the count of verticies whose label was lowered, the pairs (y, label) are spilled.
+   * @throws IOException if a spill file cannot be read or written.
+   */
+  private int[] spreadLabels() throws IOException {
+    IntList lowered = new IntList();
+    receive(
+        2,
+        message -> {
+          int local = message[0] / workerCount;
+          if (!visited[local] && message[1] < labels[local]) {
+            labels[local] = message[1];
+            if (!changed[local]) {
+              changed[local] = true;
+              lowered.add(local);
+            }
+          }
+        });
+
+    try (Outbox outbox = new Outbox()) {
+      for (int i = 0; i < lowered.size(); i++) {
+        changed[lowered.get(i)] = false;
+        sendLabel(outbox, lowered.get(i));
+      }
+    }
+    return counts(lowered.size());
+  }
+
+  /**
+   * Sends the label of an owned vertex to each of its successors.
+   *
+   * @param outbox the messages of this superstep.
+   * @param local index of the vertex within this worker.
+   * @throws IOException if a spill file cannot be written.
+   */
+  private void sendLabel(Outbox outbox, int local) throws IOException {
+    for (int j = offsets[local]; j < offsets[local + 1]; j++) {
+      outbox.send(targets[j], labels[local]);
+    }
+  }
+
+  /**
+   * Sends the label and position of each frontier vertex to its successors, skipping successors
+   * this worker knows are already visited or belong to the search of another root.
+   *
+   * @param batch pairs (x, position) with x owned.
+   * @return no reply, the triples (y, label, position) for every edge xRy are spilled.
+   * @throws IOException if a spill file cannot be written.
+   */
+  private int[] expand(int[] batch) throws IOException {
+    try (Outbox outbox = new Outbox()) {
+      for (int i = 0; i < batch.length; i += 2) {
+        int local = batch[i] / workerCount;
+        for (int j = offsets[local]; j < offsets[local + 1]; j++) {
+          int child = targets[j];
+          if (!owns(child)
+              || !visited[child / workerCount] && labels[child / workerCount] == labels[local]) {
+            outbox.send(child, labels[local], batch[i + 1]);
+          }
+        }
+      }
+    }
+    return new int[0];
+  }
+
+  /**
+   * Visits the owned verticies that are reached for the first time by the search of the root they
+   * are labelled with. A vertex reached by several parents keeps the parent that comes first in
+   * the search order.
+   *
+   * @return pairs (y, parent position) for every newly visited vertex.
+   * @throws IOException if a spill file cannot be read.
+   */
+  private int[] visit() throws IOException {
+    IntList reached = new IntList();
+    receive(
+        3,
+        message -> {
+          int local = message[0] / workerCount;
+          if (visited[local] || labels[local] != message[1]) {
+            return;
+          }
+          if (bestParent[local] == Integer.MAX_VALUE) {
+            reached.add(local);
+          }
+          bestParent[local] = Math.min(bestParent[local], message[2]);
+        });
+
+    int[] result = new int[reached.size() * 2];
+    for (int i = 0; i < reached.size(); i++) {
+      int local = reached.get(i);
+      result[2 * i] = global(local);
+      result[2 * i + 1] = bestParent[local];
+      visited[local] = true;
+      bestParent[local] = Integer.MAX_VALUE;
+    }
+    return result;
+  }
+
+  /**
+   * The method returns the file one worker spills its messages for another to in a superstep.
+   *
+   * @param superstep the superstep the messages were sent in.
+   * @param from index of the sending worker.
+   * @param to index of the owning worker.
+   * @return the spill file.
+   */
+  private Path spillFile(int superstep, int from, int to) {
+    return spill.resolve(superstep + "-" + from + "-" + to + ".bin");
+  }
+
+  /**
+   * Streams every message sent to this worker in the previous superstep, deleting each spill file
+   * once it has been read.
+   *
+   * @param width number of ints in each message.
+   * @param receiver handles each message.
+   * @throws IOException if a spill file cannot be read.
+   */
+  private void receive(int width, Receiver receiver) throws IOException {
+    int[] message = new int[width];
+
+    for (int from = 0; from < workerCount; from++) {
+      Path file = spillFile(step - 1, from, index);
+      if (!Files.exists(file)) {
+        continue;
+      }
+
+      try (DataInputStream in =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+        for (long left = Files.size(file) / ((long) Integer.BYTES * width); left > 0; left--) {
+          for (int i = 0; i < width; i++) {
+            message[i] = in.readInt();
+          }
+          receiver.receive(message);
+        }
+      }
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * Encodes counts as a reply, each as a pair of ints so a count over every edge cannot overflow.
+   *
+   * @param counts the counts.
+   * @return the reply.
+   */
+  private static int[] counts(long... counts) {
+    int[] reply = new int[counts.length * 2];
+    for (int i = 0; i < counts.length; i++) {
+      reply[2 * i] = (int) (counts[i] >>> 32);
+      reply[2 * i + 1] = (int) counts[i];
+    }
+    return reply;
+  }
+
+  /**
+   * Decodes a count from a reply, see {@link #counts(long...)}.
+   *
+   * @param reply the reply.
+   * @param column index of the count.
+   * @return the count.
+   */
+  static long count(int[] reply, int column) {
+    return ((long) reply[2 * column] << 32) | (reply[2 * column + 1] & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Writes a length prefixed block of ints.
+   *
+   * @param out stream to write to.
+   * @param ints ints to write.
+   * @param length number of ints to write.
+   * @throws IOException if the stream fails.
+   */
+  static void writeInts(DataOutputStream out, int[] ints, int length) throws IOException {
+    out.writeInt(length);
+    for (int i = 0; i < length; i++) {
+      out.writeInt(ints[i]);
+    }
+  }
+
+  /**
+   * Reads a length prefixed block of ints.
+   *
+   * @param in stream to read from.
+   * @return the ints.
+   * @throws IOException if the stream fails.
+   */
+  static int[] readInts(DataInputStream in) throws IOException {
+    int[] ints = new int[in.readInt()];
+    for (int i = 0; i < ints.length; i++) {
+      ints[i] = in.readInt();
+    }
+    return ints;
+  }
+
+  /** Handles a message read from a spill file. */
+  @FunctionalInterface
+  private interface Receiver {
+    /**
+     * Handles a message.
+     *
+     * @param message the ints of the message, reused for the next message.
+     * @throws IOException if handling it needs to spill and that fails.
+     */
+    void receive(int[] message) throws IOException;
+  }
+
+  /** The messages this worker sends in one superstep, spilled to one file for each owner. */
+  private class Outbox implements Closeable {
+    private final DataOutputStream[] outputs = new DataOutputStream[workerCount];
+
+    /**
+     * Sends a pair to the owner of its vertex.
+     *
+     * @param vertex the vertex the message is addressed to.
+     * @param value the value.
+     * @throws IOException if the spill file cannot be written.
+     */
+    void send(int vertex, int value) throws IOException {
+      DataOutputStream out = output(vertex);
+      out.writeInt(vertex);
+      out.writeInt(value);
+    }
+
+    /**
+     * Sends a triple to the owner of its vertex.
+     *
+     * @param vertex the vertex the message is addressed to.
+     * @param first the first value.
+     * @param second the second value.
+     * @throws IOException if the spill file cannot be written.
+     */
+    void send(int vertex, int first, int second) throws IOException {
+      DataOutputStream out = output(vertex);
+      out.writeInt(vertex);
+      out.writeInt(first);
+      out.writeInt(second);
+    }
+
+    /**
+     * The method returns the stream to the owner of a vertex, creating its spill file on the
+     * first message so owners that are sent nothing have no file to read.
+     *
+     * @param vertex the vertex.
+     * @return the stream.
+     * @throws IOException if the spill file cannot be created.
+     */
+    private DataOutputStream output(int vertex) throws IOException {
+      int owner = vertex % workerCount;
+      if (outputs[owner] == null) {
+        outputs[owner] =
+            new DataOutputStream(
+                new BufferedOutputStream(
+                    Files.newOutputStream(spillFile(step, index, owner)), 1 << 16));
+      }
+      return outputs[owner];
+    }
+
+    /**
+     * Flushes and closes every spill file.
+     *
+     * @throws IOException if a spill file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+      for (DataOutputStream out : outputs) {
+        if (out != null) {
+          out.close();
+        }
+      }
+    }
+  }
+
+  /** A growable array of ints. */
+  static class IntList {
+    private int[] values = new int[16];
+    private int size;
+
+    /**
+     * Appends a value.
+     *
+     * @param value value to append.
+     */
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    /**
+     * The method returns a value.
+     *
+     * @param i index of the value.
+     * @return the value.
+     */
+    int get(int i) {
+      return values[i];
+    }
+
+    /**
+     * The method returns the number of values.
+     *
+     * @return number of values.
+     */
+    int size() {
+      return size;
+    }
+
+    /**
+     * Copies the values into an array of their exact length.
+     *
+     * @return the values.
+     */
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
@@ -0,0 +1,508 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Adjacency that stores each sorted successor list as variable length bytes, in the style of
+ * WebGraph. Graphs with locality have successors close to each other and to neighbouring lists,
+ * which this format turns into small numbers that mostly fit in a single byte.
+ *
+ * <p>The list of vertex v is encoded as:
+ *
+ * <ul>
+ *   <li>the out degree.
+ *   <li>the reference r, 0 for none, or 1 to {@link #WINDOW} to copy from the list of v - r.
+ *   <li>if there is a reference, the number of copy blocks and then their lengths. The blocks
+ *       alternately copy and skip runs of the referenced list, starting with a copy, and anything
+ *       after the last block is skipped.
+ *   <li>the remaining successors, or residuals: the first as a zig-zag offset from v, then each as
+ *       the gap to the previous one minus one.
+ * </ul>
+ *
+ * <p>Every number is a 7 bit varint. Reference chains are at most {@link #MAX_CHAIN} lists long, so
+ * a cursor decodes a whole list into reusable buffers when it is reset, then hands out the
+ * successors like any other cursor. Weights are not compressed, and are kept in a plain array
+ * lined up with the decoded lists.
+ */
+public class CompressedAdjacency implements Adjacency {
+  /** How many earlier lists are tried as a reference. */
+  private static final int WINDOW = 7;
+
+  /** The longest chain of references a list may need to be decoded. */
+  private static final int MAX_CHAIN = 3;
+
+  private final byte[] data;
+  private final int[] offsets;
+  private final int edgeCount;
+  private final int maxDegree;
+  private final int[] edgeOffsets;
+  private final double[] weights;
+
+  /**
+   * the constructor for the adjacency, which is built by {@link #copyOf(Adjacency)}.
+   *
+   * @param data encoded successor lists.
+   * @param offsets start of each encoded list.
+   * @param edgeCount number of edges.
+   * @param maxDegree largest out degree.
+   * @param edgeOffsets index of the first weight of each vertex, or null if unweighted.
+   * @param weights weight of each edge in decoded order, or null if unweighted.
+   */
+  private CompressedAdjacency(
+      byte[] data,
+      int[] offsets,
+      int edgeCount,
+      int maxDegree,
+      int[] edgeOffsets,
+      double[] weights) {
+    this.data = data;
+    this.offsets = offsets;
+    this.edgeCount = edgeCount;
+    this.maxDegree = maxDegree;
+    this.edgeOffsets = edgeOffsets;
+    this.weights = weights;
+  }
+
+  /**
+   * Compresses any adjacency. Each list tries every earlier list in the window as a reference and
+   * keeps whichever encoding is shortest.
+   *
+   * @param edges successor lists to compress.
+   * @return the compressed adjacency.
+   */
+  public static CompressedAdjacency copyOf(Adjacency edges) {
+    int size = edges.getVertexCount();
+    int[] offsets = new int[size];
+    int[] chain = new int[size];
+    ByteSink out = new ByteSink();
+    ByteSink candidate = new ByteSink();
+    ByteSink best = new ByteSink();
+    NeighbourCursor cursor = edges.cursor();
+
+    // the lists of the last few verticies, kept in a ring so they can be referenced.
+    int[][] recent = new int[WINDOW + 1][];
+    int[] recentLengths = new int[WINDOW + 1];
+    int maxDegree = 0;
+
+    boolean weighted = edges.isWeighted();
+    int[] edgeOffsets = weighted ? new int[size + 1] : null;
+    double[] weights = weighted ? new double[edges.getEdgeCount()] : null;
+    int edgeIndex = 0;
+
+    for (int vertex = 0; vertex < size; vertex++) {
+      int slot = vertex % (WINDOW + 1);
+      int degree = edges.getOutDegree(vertex);
+      if (recent[slot] == null || recent[slot].length < degree) {
+        recent[slot] = new int[Math.max(degree, 4)];
+      }
+      int[] list = recent[slot];
+
+      if (weighted) {
+        edgeOffsets[vertex] = edgeIndex;
+      }
+      cursor.reset(vertex);
+      for (int i = 0; i < degree; i++) {
+        list[i] = cursor.next();
+        if (weighted) {
+          weights[edgeIndex++] = cursor.weight();
+        }
+      }
+      recentLengths[slot] = degree;
+      maxDegree = Math.max(maxDegree, degree);
+
+      best.clear();
+      encode(best, vertex, list, degree, null, 0, 0);
+      chain[vertex] = 0;
+
+      for (int r = 1; r <= WINDOW && r <= vertex && degree > 0; r++) {
+        int refSlot = (vertex - r) % (WINDOW + 1);
+        if (chain[vertex - r] >= MAX_CHAIN || recentLengths[refSlot] == 0) {
+          continue;
+        }
+
+        candidate.clear();
+        encode(candidate, vertex, list, degree, recent[refSlot], recentLengths[refSlot], r);
+        if (candidate.length < best.length) {
+          ByteSink temp = best;
+          best = candidate;
+          candidate = temp;
+          chain[vertex] = chain[vertex - r] + 1;
+        }
+      }
+
+      offsets[vertex] = out.length;
+      out.append(best);
+    }
+
+    if (weighted) {
+      edgeOffsets[size] = edgeIndex;
+    }
+
+    return new CompressedAdjacency(
+        Arrays.copyOf(out.bytes, out.length),
+        offsets,
+        edges.getEdgeCount(),
+        maxDegree,
+        edgeOffsets,
+        weights);
+  }
+
+  /**
+   * Encodes one successor list, see the class description for the format.
+   *
+   * @param out where the bytes are written.
+   * @param vertex id of the vertex the list belongs to.
+   * @param list sorted successors.
+   * @param length number of successors.
+   * @param reference sorted list to copy from, or null for no reference.
+   * @param referenceLength number of entries in the referenced list.
+   * @param distance how many verticies back the referenced list is.
+   */
+  private static void encode(
+      ByteSink out,
+      int vertex,
+      int[] list,
+      int length,
+      int[] reference,
+      int referenceLength,
+      int distance) {
+    out.writeVarint(length);
+    if (length == 0) {
+      return;
+    }
+
+    out.writeVarint(reference == null ? 0 : distance);
+    int[] residuals = list;
+    int residualCount = length;
+
+    if (reference != null) {
+      // merge the two sorted lists, cutting the reference into alternating copy and skip runs.
+      residuals = new int[length];
+      residualCount = 0;
+      int[] blocks = new int[referenceLength + 1];
+      int blockCount = 0;
+      boolean copying = true;
+      int run = 0;
+      int i = 0;
+
+      for (int j = 0; j < referenceLength; j++) {
+        while (i < length && list[i] < reference[j]) {
+          residuals[residualCount++] = list[i++];
+        }
+        boolean shared = i < length && list[i] == reference[j];
+        if (shared) {
+          i++;
+        }
+        if (shared != copying) {
+          blocks[blockCount++] = run;
+          copying = shared;
+          run = 0;
+        }
+        run++;
+      }
+      while (i < length) {
+        residuals[residualCount++] = list[i++];
+      }
+      // a trailing skip run is implied, so it is never written.
+      if (copying) {
+        blocks[blockCount++] = run;
+      }
+
+      out.writeVarint(blockCount);
+      for (int b = 0; b < blockCount; b++) {
+        out.writeVarint(blocks[b]);
+      }
+    }
+
+    out.writeVarint(residualCount);
+    for (int i = 0; i < residualCount; i++) {
+      if (i == 0) {
+        int offset = residuals[0] - vertex;
+        out.writeVarint((offset << 1) ^ (offset >> 31));
+      } else {
+        out.writeVarint(residuals[i] - residuals[i - 1] - 1);
+      }
+    }
+  }
+
+  /**
+   * The method returns the number of bytes used by the encoded lists and their offsets, not
+   * counting any weights.
+   *
+   * @return size of the encoding in bytes.
+   */
+  public long getEncodedBytes() {
+    return data.length + (long) offsets.length * Integer.BYTES;
+  }
+
+  @Override
+  public int getVertexCount() {
+    return offsets.length;
+  }
+
+  @Override
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  @Override
+  public int getOutDegree(int vertex) {
+    // the out degree is the first number of every list.
+    int position = offsets[vertex];
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = data[position++];
+      value |= (b & 0x7f) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  @Override
+  public boolean isWeighted() {
+    return weights != null;
+  }
+
+  @Override
+  public int getSuccessor(int vertex, int index) {
+    // the gaps before a successor are only known once the whole list is decoded.
+    Cursor cursor = new Cursor(this);
+    cursor.reset(vertex);
+    return cursor.decoded[0][index];
+  }
+
+  @Override
+  public boolean containsEdge(int source, int destination) {
+    // a fresh cursor only allocates buffers as long as the list, and holds nothing afterwards.
+    Cursor cursor = new Cursor(this);
+    cursor.reset(source);
+    return Arrays.binarySearch(cursor.decoded[0], 0, cursor.end, destination) >= 0;
+  }
+
+  @Override
+  public long getHeapBytes() {
+    long bytes = getEncodedBytes();
+    if (edgeOffsets != null) {
+      bytes += (long) edgeOffsets.length * Integer.BYTES;
+    }
+    return weights == null ? bytes : bytes + (long) weights.length * Double.BYTES;
+  }
+
+  @Override
+  public long getOffHeapBytes() {
+    return 0;
+  }
+
+  @Override
+  public NeighbourCursor cursor() {
+    return new Cursor(this);
+  }
+
+  /**
+   * Cursor that decodes a whole list into its buffers when it is reset. The buffers grow to the
+   * longest list the cursor has decoded, so the many cursors of a deep search over short lists stay
+   * small even when the graph has a hub.
+   */
+  private static class Cursor implements NeighbourCursor {
+    private final CompressedAdjacency edges;
+    // decoded[d] holds the list decoded at reference depth d, residuals[d] its residuals.
+    private final int[][] decoded = new int[MAX_CHAIN + 1][0];
+    private final int[][] residuals = new int[MAX_CHAIN + 1][0];
+    private int vertex;
+    private int position;
+    private int end;
+    private int read;
+
+    /**
+     * the constructor for the cursor.
+     *
+     * @param edges the adjacency whose lists are decoded.
+     */
+    Cursor(CompressedAdjacency edges) {
+      this.edges = edges;
+    }
+
+    @Override
+    public void reset(int vertex) {
+      this.vertex = vertex;
+      this.end = decode(vertex, 0);
+      this.position = 0;
+    }
+
+    /**
+     * Decodes a list, first decoding the list it references one level deeper.
+     *
+     * @param vertex id of the vertex.
+     * @param depth reference depth, which picks the buffers to use.
+     * @return number of successors, which are left in decoded[depth].
+     */
+    private int decode(int vertex, int depth) {
+      read = edges.offsets[vertex];
+      int degree = readVarint();
+      if (degree == 0) {
+        return 0;
+      }
+
+      int[] out = buffer(decoded, depth, degree);
+      int copied = 0;
+      int distance = readVarint();
+
+      if (distance > 0) {
+        int resume = read;
+        decode(vertex - distance, depth + 1);
+        int[] reference = decoded[depth + 1];
+        read = resume;
+
+        int blockCount = readVarint();
+        int j = 0;
+        for (int b = 0; b < blockCount; b++) {
+          int length = readVarint();
+          if (b % 2 == 0) {
+            System.arraycopy(reference, j, out, copied, length);
+            copied += length;
+          }
+          j += length;
+        }
+      }
+
+      int residualCount = readVarint();
+      int[] rest = buffer(residuals, depth, residualCount);
+      for (int i = 0; i < residualCount; i++) {
+        int value = readVarint();
+        if (i == 0) {
+          rest[0] = vertex + ((value >>> 1) ^ -(value & 1));
+        } else {
+          rest[i] = rest[i - 1] + value + 1;
+        }
+      }
+
+      // merge the copied successors with the residuals from the back, in place.
+      int i = copied - 1;
+      int k = residualCount - 1;
+      for (int w = degree - 1; k >= 0; w--) {
+        if (i >= 0 && out[i] > rest[k]) {
+          out[w] = out[i--];
+        } else {
+          out[w] = rest[k--];
+        }
+      }
+
+      return degree;
+    }
+
+    /**
+     * The method returns the buffer of a depth, replacing it with a larger one if it is too short
+     * for a list. The contents are not kept, as every list is decoded into it from scratch.
+     *
+     * @param buffers the buffers of every depth.
+     * @param depth reference depth.
+     * @param length number of entries the list needs.
+     * @return the buffer.
+     */
+    private int[] buffer(int[][] buffers, int depth, int length) {
+      if (buffers[depth].length < length) {
+        // doubling keeps a cursor that meets longer and longer lists from reallocating each time.
+        int grown = Math.max(length, 2 * buffers[depth].length);
+        buffers[depth] = new int[Math.min(edges.maxDegree, grown)];
+      }
+      return buffers[depth];
+    }
+
+    /**
+     * Reads the next varint of the encoded lists.
+     *
+     * @return the value.
+     */
+    private int readVarint() {
+      // most gaps fit in one byte, so that case skips the loop.
+      byte first = edges.data[read++];
+      if (first >= 0) {
+        return first;
+      }
+
+      int value = first & 0x7f;
+      for (int shift = 7; ; shift += 7) {
+        byte b = edges.data[read++];
+        value |= (b & 0x7f) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return position < end;
+    }
+
+    @Override
+    public int next() {
+      return decoded[0][position++];
+    }
+
+    @Override
+    public double weight() {
+      return edges.weights == null
+          ? Edge.DEFAULT_WEIGHT
+          : edges.weights[edges.edgeOffsets[vertex] + position - 1];
+    }
+  }
+
+  /** A growable array of bytes that varints are written to. */
+  private static class ByteSink {
+    private byte[] bytes = new byte[64];
+    private int length;
+
+    /** Empties the sink. */
+    void clear() {
+      length = 0;
+    }
+
+    /**
+     * Writes a non-negative value as a varint, 7 bits per byte with the high bit set on every
+     * byte but the last.
+     *
+     * @param value value to write.
+     */
+    void writeVarint(int value) {
+      while ((value & ~0x7f) != 0) {
+        writeByte((byte) ((value & 0x7f) | 0x80));
+        value >>>= 7;
+      }
+      writeByte((byte) value);
+    }
+
+    /**
+     * Appends everything written to another sink.
+     *
+     * @param other sink to copy from.
+     */
+    void append(ByteSink other) {
+      ensureCapacity(length + other.length);
+      System.arraycopy(other.bytes, 0, bytes, length, other.length);
+      length += other.length;
+    }
+
+    /**
+     * Appends a single byte.
+     *
+     * @param b byte to write.
+     */
+    private void writeByte(byte b) {
+      ensureCapacity(length + 1);
+      bytes[length++] = b;
+    }
+
+    /**
+     * Grows the array so it holds at least a number of bytes.
+     *
+     * @param capacity bytes needed.
+     */
+    private void ensureCapacity(int capacity) {
+      if (capacity > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+      }
+    }
+  }
+}
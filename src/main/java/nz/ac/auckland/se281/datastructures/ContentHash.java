@@ -0,0 +1,139 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * A 128 bit hash of the content of a graph: its verticies, its distinct edges and their weights.
+ * Each vertex and edge is hashed on its own and the hashes are added together, so the result does
+ * not depend on the order edges were written in, or on duplicate edges, and it is computed in a
+ * single streaming pass without holding anything extra in memory.
+ */
+public final class ContentHash {
+  private static final long SEED_LOW = 0x9E3779B97F4A7C15L;
+  private static final long SEED_HIGH = 0xC2B2AE3D27D4EB4FL;
+
+  private final long[] names;
+  private final boolean weighted;
+  private long low;
+  private long high;
+
+  /**
+   * the constructor for the hash, which hashes the graph straight away. The hash can then be kept
+   * up to date as edges change, without reading the other edges again.
+   *
+   * @param verticies table of the verticies of the graph.
+   * @param edges successor lists over the ids of the table.
+   */
+  public ContentHash(VertexTable<?> verticies, Adjacency edges) {
+    int size = verticies.size();
+    names = new long[size];
+    weighted = edges.isWeighted();
+    low = size;
+    high = size;
+
+    for (int vertex = 0; vertex < size; vertex++) {
+      names[vertex] = hashString(verticies.getVertex(vertex).toString());
+      low += mix(names[vertex] ^ SEED_LOW);
+      high += mix(names[vertex] ^ SEED_HIGH);
+    }
+
+    NeighbourCursor cursor = edges.cursor();
+    for (int vertex = 0; vertex < size; vertex++) {
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        int successor = cursor.next();
+        addEdge(vertex, successor, cursor.weight(), 1);
+      }
+    }
+  }
+
+  /**
+   * Hashes a graph.
+   *
+   * @param verticies table of the verticies of the graph.
+   * @param edges successor lists over the ids of the table.
+   * @return the hash as 32 hex digits.
+   */
+  public static String of(VertexTable<?> verticies, Adjacency edges) {
+    return new ContentHash(verticies, edges).toString();
+  }
+
+  /**
+   * Updates the hash for edges inserted into or removed from the graph. As the hash is a sum,
+   * a removed edge is taken away by subtracting its own hash.
+   *
+   * @param changes the changed edges.
+   */
+  public void update(EdgeChanges changes) {
+    long[] inserted = changes.getInserted();
+    for (int i = 0; i < inserted.length; i++) {
+      addEdge(
+          EdgeChanges.source(inserted[i]),
+          EdgeChanges.destination(inserted[i]),
+          changes.getInsertedWeight(i),
+          1);
+    }
+    long[] removed = changes.getRemoved();
+    for (int i = 0; i < removed.length; i++) {
+      addEdge(
+          EdgeChanges.source(removed[i]),
+          EdgeChanges.destination(removed[i]),
+          changes.getRemovedWeight(i),
+          -1);
+    }
+  }
+
+  /**
+   * Adds the hash of one edge to the sum, or subtracts it.
+   *
+   * @param source id of the source.
+   * @param destination id of the destination.
+   * @param weight weight of the edge.
+   * @param sign 1 to add the edge, -1 to take it away.
+   */
+  private void addEdge(int source, int destination, double weight, long sign) {
+    // hash the names rather than the ids, so the key survives changes to the id order.
+    long edge = mix(names[source]) * 31 + names[destination];
+    if (weighted) {
+      edge = edge * 31 + Double.doubleToLongBits(weight);
+    }
+    low += sign * mix(edge + SEED_LOW);
+    high += sign * mix(edge + SEED_HIGH);
+  }
+
+  /**
+   * The method returns the hash as 32 hex digits.
+   *
+   * @return the hash.
+   */
+  @Override
+  public String toString() {
+    return String.format("%016x%016x", high, low);
+  }
+
+  /**
+   * Hashes a string with 64 bit FNV-1a over its characters.
+   *
+   * @param text string to hash.
+   * @return the hash.
+   */
+  private static long hashString(String text) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < text.length(); i++) {
+      hash ^= text.charAt(i);
+      hash *= 0x100000001B3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Scrambles the bits of a value with the SplitMix64 finaliser, so that sums of hashes do not
+   * cancel out.
+   *
+   * @param value value to scramble.
+   * @return the scrambled value.
+   */
+  private static long mix(long value) {
+    value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+    value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+    return value ^ (value >>> 31);
+  }
+}
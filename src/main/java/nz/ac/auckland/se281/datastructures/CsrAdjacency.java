@@ -0,0 +1,239 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Adjacency stored in compressed sparse row form. The successors of vertex v are held in {@code
+ * targets[offsets[v]]} to {@code targets[offsets[v + 1] - 1]}, and a weighted adjacency keeps the
+ * weight of each edge at the same index of a parallel weights array.
+ */
+public class CsrAdjacency implements Adjacency {
+  private final int[] offsets;
+  private final int[] targets;
+  private final double[] weights;
+
+  /**
+   * the constructor for the adjacency, the successor lists must already be sorted and distinct.
+   *
+   * @param offsets start of each successor list, with one extra entry for the end of the last.
+   * @param targets concatenated successor lists.
+   */
+  public CsrAdjacency(int[] offsets, int[] targets) {
+    this(offsets, targets, null);
+  }
+
+  /**
+   * the constructor for a weighted adjacency, the successor lists must already be sorted and
+   * distinct.
+   *
+   * @param offsets start of each successor list, with one extra entry for the end of the last.
+   * @param targets concatenated successor lists.
+   * @param weights weight of each edge lined up with the targets, or null if unweighted.
+   */
+  public CsrAdjacency(int[] offsets, int[] targets, double[] weights) {
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+  }
+
+  /**
+   * Builds an adjacency from an unordered list of edges. Duplicate edges are removed.
+   *
+   * @param vertexCount number of verticies.
+   * @param sources id of the source of each edge.
+   * @param destinations id of the destination of each edge.
+   * @param edgeCount number of edges in the arrays to use.
+   * @return the adjacency.
+   */
+  public static CsrAdjacency build(
+      int vertexCount, int[] sources, int[] destinations, int edgeCount) {
+    return build(vertexCount, sources, destinations, null, edgeCount);
+  }
+
+  /**
+   * Builds an adjacency from an unordered list of edges. Duplicate edges are removed, keeping the
+   * smallest weight.
+   *
+   * @param vertexCount number of verticies.
+   * @param sources id of the source of each edge.
+   * @param destinations id of the destination of each edge.
+   * @param weights weight of each edge, or null if unweighted.
+   * @param edgeCount number of edges in the arrays to use.
+   * @return the adjacency.
+   */
+  public static CsrAdjacency build(
+      int vertexCount, int[] sources, int[] destinations, double[] weights, int edgeCount) {
+    int[] offsets = new int[vertexCount + 1];
+
+    // count the out degree of every vertex, then turn the counts into start offsets.
+    for (int i = 0; i < edgeCount; i++) {
+      offsets[sources[i] + 1]++;
+    }
+    for (int v = 0; v < vertexCount; v++) {
+      offsets[v + 1] += offsets[v];
+    }
+
+    int[] next = Arrays.copyOf(offsets, vertexCount);
+    int[] targets = new int[edgeCount];
+    double[] targetWeights = weights == null ? null : new double[edgeCount];
+
+    for (int i = 0; i < edgeCount; i++) {
+      int position = next[sources[i]]++;
+      targets[position] = destinations[i];
+      if (weights != null) {
+        targetWeights[position] = weights[i];
+      }
+    }
+
+    // sort every successor list and squeeze out duplicate edges.
+    long[] keys = weights == null ? null : new long[maxDegree(offsets)];
+    double[] rowWeights = weights == null ? null : new double[keys.length];
+    int write = 0;
+
+    for (int v = 0; v < vertexCount; v++) {
+      int start = offsets[v];
+      int end = offsets[v + 1];
+
+      if (weights == null) {
+        Arrays.sort(targets, start, end);
+      } else {
+        sortWeightedRow(targets, targetWeights, start, end, keys, rowWeights);
+      }
+
+      offsets[v] = write;
+      for (int i = start; i < end; i++) {
+        if (i == start || targets[i] != targets[i - 1]) {
+          targets[write] = targets[i];
+          if (weights != null) {
+            targetWeights[write] = targetWeights[i];
+          }
+          write++;
+        } else if (weights != null) {
+          targetWeights[write - 1] = Math.min(targetWeights[write - 1], targetWeights[i]);
+        }
+      }
+    }
+    offsets[vertexCount] = write;
+
+    if (write != edgeCount) {
+      targets = Arrays.copyOf(targets, write);
+      targetWeights = weights == null ? null : Arrays.copyOf(targetWeights, write);
+    }
+
+    return new CsrAdjacency(offsets, targets, targetWeights);
+  }
+
+  /**
+   * Finds the largest out degree from the start offsets.
+   *
+   * @param offsets start of each successor list.
+   * @return largest out degree.
+   */
+  private static int maxDegree(int[] offsets) {
+    int max = 0;
+    for (int v = 0; v + 1 < offsets.length; v++) {
+      max = Math.max(max, offsets[v + 1] - offsets[v]);
+    }
+    return max;
+  }
+
+  /**
+   * Sorts one successor list by target while keeping each weight with its target. Targets are
+   * packed with their position into longs, so a primitive sort gives the permutation.
+   *
+   * @param targets concatenated successor lists.
+   * @param weights weights lined up with the targets.
+   * @param start start of the list.
+   * @param end end of the list.
+   * @param keys scratch space for the packed keys.
+   * @param rowWeights scratch space for the weights of the list.
+   */
+  private static void sortWeightedRow(
+      int[] targets, double[] weights, int start, int end, long[] keys, double[] rowWeights) {
+    int length = end - start;
+
+    for (int i = 0; i < length; i++) {
+      keys[i] = ((long) targets[start + i] << 32) | i;
+      rowWeights[i] = weights[start + i];
+    }
+    Arrays.sort(keys, 0, length);
+
+    for (int i = 0; i < length; i++) {
+      targets[start + i] = (int) (keys[i] >>> 32);
+      weights[start + i] = rowWeights[(int) keys[i]];
+    }
+  }
+
+  @Override
+  public int getVertexCount() {
+    return offsets.length - 1;
+  }
+
+  @Override
+  public int getEdgeCount() {
+    return targets.length;
+  }
+
+  @Override
+  public int getOutDegree(int vertex) {
+    return offsets[vertex + 1] - offsets[vertex];
+  }
+
+  @Override
+  public boolean isWeighted() {
+    return weights != null;
+  }
+
+  @Override
+  public int getSuccessor(int vertex, int index) {
+    return targets[offsets[vertex] + index];
+  }
+
+  @Override
+  public boolean containsEdge(int source, int destination) {
+    return Arrays.binarySearch(targets, offsets[source], offsets[source + 1], destination) >= 0;
+  }
+
+  @Override
+  public long getHeapBytes() {
+    long bytes = (long) (offsets.length + targets.length) * Integer.BYTES;
+    return weights == null ? bytes : bytes + (long) weights.length * Double.BYTES;
+  }
+
+  @Override
+  public long getOffHeapBytes() {
+    return 0;
+  }
+
+  @Override
+  public NeighbourCursor cursor() {
+    return new Cursor();
+  }
+
+  /** Cursor that walks a slice of the target array. */
+  private class Cursor implements NeighbourCursor {
+    private int position;
+    private int end;
+
+    @Override
+    public void reset(int vertex) {
+      position = offsets[vertex];
+      end = offsets[vertex + 1];
+    }
+
+    @Override
+    public boolean hasNext() {
+      return position < end;
+    }
+
+    @Override
+    public int next() {
+      return targets[position++];
+    }
+
+    @Override
+    public double weight() {
+      return weights == null ? Edge.DEFAULT_WEIGHT : weights[position - 1];
+    }
+  }
+}
@@ -0,0 +1,246 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * The in degree and out degree of every vertex, counted in one pass over the edges when the graph
+ * is built and kept up to date as edges change. Degree questions, such as which verticies are
+ * roots, are then answered without reading the edges again.
+ */
+public class DegreeIndex {
+  private final int[] inDegrees;
+  private final int[] outDegrees;
+  private int edgeCount;
+
+  /**
+   * the constructor for the index, which is built straight away.
+   *
+   * @param edges successor lists of the graph.
+   */
+  public DegreeIndex(Adjacency edges) {
+    int size = edges.getVertexCount();
+    inDegrees = new int[size];
+    outDegrees = new int[size];
+    edgeCount = edges.getEdgeCount();
+    NeighbourCursor cursor = edges.cursor();
+
+    for (int vertex = 0; vertex < size; vertex++) {
+      outDegrees[vertex] = edges.getOutDegree(vertex);
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        inDegrees[cursor.next()]++;
+      }
+    }
+  }
+
+  /**
+   * Updates the degrees for edges inserted into or removed from the graph, touching only the
+   * endpoints of the changed edges.
+   *
+   * @param changes the changed edges.
+   */
+  void update(EdgeChanges changes) {
+    for (long key : changes.getInserted()) {
+      outDegrees[EdgeChanges.source(key)]++;
+      inDegrees[EdgeChanges.destination(key)]++;
+    }
+    for (long key : changes.getRemoved()) {
+      outDegrees[EdgeChanges.source(key)]--;
+      inDegrees[EdgeChanges.destination(key)]--;
+    }
+    edgeCount += changes.getInserted().length - changes.getRemoved().length;
+  }
+
+  /**
+   * The method returns roughly how many bytes the index keeps, counting its arrays.
+   *
+   * @return size in bytes.
+   */
+  public long getBytes() {
+    return (long) (inDegrees.length + outDegrees.length) * Integer.BYTES;
+  }
+
+  /**
+   * The method returns the number of verticies in the index.
+   *
+   * @return number of verticies.
+   */
+  public int getVertexCount() {
+    return inDegrees.length;
+  }
+
+  /**
+   * The method returns the number of edges into a vertex.
+   *
+   * @param vertex id of the vertex.
+   * @return in degree of the vertex.
+   */
+  public int getInDegree(int vertex) {
+    return inDegrees[vertex];
+  }
+
+  /**
+   * The method returns the number of edges out of a vertex.
+   *
+   * @param vertex id of the vertex.
+   * @return out degree of the vertex.
+   */
+  public int getOutDegree(int vertex) {
+    return outDegrees[vertex];
+  }
+
+  /**
+   * The method returns the number of edges into and out of a vertex, with a self loop counted
+   * twice.
+   *
+   * @param vertex id of the vertex.
+   * @return total degree of the vertex.
+   */
+  public int getDegree(int vertex) {
+    return inDegrees[vertex] + outDegrees[vertex];
+  }
+
+  /**
+   * Checks if a vertex only has edges leaving it.
+   *
+   * @param vertex id of the vertex.
+   * @return boolean true if the in degree is 0 and the out degree is not.
+   */
+  public boolean isSource(int vertex) {
+    return inDegrees[vertex] == 0 && outDegrees[vertex] > 0;
+  }
+
+  /**
+   * Checks if a vertex only has edges entering it.
+   *
+   * @param vertex id of the vertex.
+   * @return boolean true if the out degree is 0 and the in degree is not.
+   */
+  public boolean isSink(int vertex) {
+    return outDegrees[vertex] == 0 && inDegrees[vertex] > 0;
+  }
+
+  /**
+   * Checks if a vertex has no edges at all.
+   *
+   * @param vertex id of the vertex.
+   * @return boolean of isolation.
+   */
+  public boolean isIsolated(int vertex) {
+    return inDegrees[vertex] == 0 && outDegrees[vertex] == 0;
+  }
+
+  /**
+   * The method returns the mean out degree, which is also the mean in degree.
+   *
+   * @return edges per vertex, or 0 for an empty graph.
+   */
+  public double getMeanDegree() {
+    return inDegrees.length == 0 ? 0 : (double) edgeCount / inDegrees.length;
+  }
+
+  /**
+   * Counts the verticies whose total degree falls in each power of two bucket. Bucket 0 holds
+   * degree 0, and bucket b holds degrees from 2^(b-1) up to 2^b - 1.
+   *
+   * @return count of each bucket, up to the last non-empty one.
+   */
+  public int[] getDegreeHistogram() {
+    int[] buckets = new int[33];
+    int last = 0;
+
+    for (int vertex = 0; vertex < inDegrees.length; vertex++) {
+      int bucket = 32 - Integer.numberOfLeadingZeros(getDegree(vertex));
+      buckets[bucket]++;
+      last = Math.max(last, bucket);
+    }
+
+    return Arrays.copyOf(buckets, last + 1);
+  }
+
+  /**
+   * Finds the verticies with the largest total degree, with ties going to the smaller id. Only a
+   * heap of k candidates is kept, so large graphs are never sorted.
+   *
+   * @param k most verticies to return.
+   * @return ids from the largest degree down.
+   */
+  public int[] getHubs(int k) {
+    int count = Math.min(k, inDegrees.length);
+    // a min heap of the best candidates so far, with the weakest candidate on top.
+    int[] heap = new int[count];
+    int size = 0;
+
+    for (int vertex = 0; vertex < inDegrees.length && count > 0; vertex++) {
+      if (size < count) {
+        heap[size] = vertex;
+        siftUp(heap, size++);
+      } else if (isStronger(vertex, heap[0])) {
+        heap[0] = vertex;
+        siftDown(heap, size);
+      }
+    }
+
+    // popping the weakest each time fills the result from the back.
+    int[] hubs = new int[size];
+    while (size > 0) {
+      hubs[size - 1] = heap[0];
+      heap[0] = heap[--size];
+      siftDown(heap, size);
+    }
+    return hubs;
+  }
+
+  /**
+   * Checks if a vertex ranks above another as a hub.
+   *
+   * @param a id of the first vertex.
+   * @param b id of the second vertex.
+   * @return boolean true if a has a larger degree, or the same degree and a smaller id.
+   */
+  private boolean isStronger(int a, int b) {
+    return getDegree(a) > getDegree(b) || (getDegree(a) == getDegree(b) && a < b);
+  }
+
+  /**
+   * Moves the candidate at a slot up past any stronger parents.
+   *
+   * @param heap the candidate heap.
+   * @param i slot of the candidate.
+   */
+  private void siftUp(int[] heap, int i) {
+    int vertex = heap[i];
+    while (i > 0 && isStronger(heap[(i - 1) / 2], vertex)) {
+      heap[i] = heap[(i - 1) / 2];
+      i = (i - 1) / 2;
+    }
+    heap[i] = vertex;
+  }
+
+  /**
+   * Moves the top candidate down past any weaker children.
+   *
+   * @param heap the candidate heap.
+   * @param size number of candidates in the heap.
+   */
+  private void siftDown(int[] heap, int size) {
+    if (size == 0) {
+      return;
+    }
+
+    int vertex = heap[0];
+    int i = 0;
+    while (2 * i + 1 < size) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && isStronger(heap[child], heap[child + 1])) {
+        child++;
+      }
+      if (!isStronger(vertex, heap[child])) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = vertex;
+  }
+}
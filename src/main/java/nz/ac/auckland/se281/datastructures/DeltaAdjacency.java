@@ -0,0 +1,333 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Adjacency that overlays edge changes on a base adjacency that is never modified. The edges are
+ * those of the base without the removed keys, plus the inserted keys, and a cursor merges the
+ * sorted base row with the sorted inserted keys of the same vertex.
+ *
+ * <p>Later changes are folded into the same overlay rather than stacked. Once the overlay would
+ * grow past a quarter of the base, {@link #isCompactionDue(Adjacency, EdgeChanges)} says so, and
+ * the owner of the edges should replace them with new successor lists in whatever storage the
+ * graph uses rather than overlay any more changes.
+ */
+public class DeltaAdjacency implements Adjacency {
+  /** Overlays smaller than this are never compacted. */
+  private static final int MIN_COMPACT = 1 << 10;
+
+  private static final long[] NO_KEYS = new long[0];
+
+  private final Adjacency base;
+  private final long[] inserted;
+  private final double[] insertedWeights;
+  private final long[] removed;
+
+  /**
+   * the constructor for the overlay.
+   *
+   * @param base the edges the changes apply to.
+   * @param inserted sorted keys of edges missing from the base.
+   * @param insertedWeights weight of each inserted edge, or null if unweighted.
+   * @param removed sorted keys of edges of the base to leave out.
+   */
+  private DeltaAdjacency(
+      Adjacency base, long[] inserted, double[] insertedWeights, long[] removed) {
+    this.base = base;
+    this.inserted = inserted;
+    this.insertedWeights = insertedWeights;
+    this.removed = removed;
+  }
+
+  /**
+   * Applies changes to an adjacency without copying its edges.
+   *
+   * @param current the edges before the changes, which may already be an overlay.
+   * @param changes the changes, found against the current edges.
+   * @return the edges after the changes.
+   */
+  public static Adjacency apply(Adjacency current, EdgeChanges changes) {
+    Adjacency base = current;
+    long[] oldInserted = NO_KEYS;
+    double[] oldWeights = current.isWeighted() ? new double[0] : null;
+    long[] oldRemoved = NO_KEYS;
+
+    if (current instanceof DeltaAdjacency) {
+      DeltaAdjacency delta = (DeltaAdjacency) current;
+      base = delta.base;
+      oldInserted = delta.inserted;
+      oldWeights = delta.insertedWeights;
+      oldRemoved = delta.removed;
+    }
+
+    double[] newWeights = new double[changes.getInserted().length];
+    for (int i = 0; i < newWeights.length; i++) {
+      newWeights[i] = changes.getInsertedWeight(i);
+    }
+
+    // a removed edge that an earlier change inserted is simply forgotten, any other removed edge
+    // belongs to the base. an unweighted edge of the base that comes back is no longer removed,
+    // while a weighted one may come back with a new weight, so it is inserted over the removal.
+    boolean weighted = oldWeights != null;
+    long[] keptInserted = minus(oldInserted, changes.getRemoved());
+    double[] keptWeights = weighted ? weightsOf(oldInserted, oldWeights, keptInserted) : null;
+    long[] addedInserted =
+        weighted ? changes.getInserted() : minus(changes.getInserted(), oldRemoved);
+    double[] addedWeights = weighted ? newWeights : null;
+    long[] keptRemoved = weighted ? oldRemoved : minus(oldRemoved, changes.getInserted());
+    long[] addedRemoved = minus(changes.getRemoved(), oldInserted);
+
+    long[] allInserted = new long[keptInserted.length + addedInserted.length];
+    double[] allWeights = weighted ? new double[allInserted.length] : null;
+    merge(keptInserted, keptWeights, addedInserted, addedWeights, allInserted, allWeights);
+    long[] allRemoved = new long[keptRemoved.length + addedRemoved.length];
+    merge(keptRemoved, null, addedRemoved, null, allRemoved, null);
+
+    return new DeltaAdjacency(base, allInserted, allWeights, allRemoved);
+  }
+
+  /**
+   * Checks if overlaying changes would grow the overlay past a quarter of its base, at which
+   * point the edges are better copied into new successor lists.
+   *
+   * @param current the edges before the changes, which may already be an overlay.
+   * @param changes the changes, found against the current edges.
+   * @return boolean true if the edges should be rebuilt instead of overlaid.
+   */
+  public static boolean isCompactionDue(Adjacency current, EdgeChanges changes) {
+    Adjacency base = current;
+    long overlay = (long) changes.getInserted().length + changes.getRemoved().length;
+
+    // changes that cancel earlier ones shrink the overlay, so this is an upper bound.
+    if (current instanceof DeltaAdjacency) {
+      DeltaAdjacency delta = (DeltaAdjacency) current;
+      base = delta.base;
+      overlay += delta.inserted.length + delta.removed.length;
+    }
+    return overlay > Math.max(MIN_COMPACT, base.getEdgeCount() / 4);
+  }
+
+  /**
+   * Lists the keys of one sorted array that are missing from another.
+   *
+   * @param keys sorted keys.
+   * @param without sorted keys to leave out.
+   * @return the remaining keys, in order.
+   */
+  private static long[] minus(long[] keys, long[] without) {
+    long[] result = new long[keys.length];
+    int count = 0;
+    int j = 0;
+
+    for (long key : keys) {
+      while (j < without.length && without[j] < key) {
+        j++;
+      }
+      if (j == without.length || without[j] != key) {
+        result[count++] = key;
+      }
+    }
+    return count == keys.length ? keys : Arrays.copyOf(result, count);
+  }
+
+  /**
+   * Picks out the weights of a subset of keys.
+   *
+   * @param keys sorted keys.
+   * @param weights weight of each key.
+   * @param subset sorted keys that all appear in keys.
+   * @return weight of each key of the subset.
+   */
+  private static double[] weightsOf(long[] keys, double[] weights, long[] subset) {
+    double[] result = new double[subset.length];
+    int j = 0;
+
+    for (int i = 0; i < subset.length; i++) {
+      while (keys[j] != subset[i]) {
+        j++;
+      }
+      result[i] = weights[j];
+    }
+    return result;
+  }
+
+  /**
+   * Merges two sorted key arrays that share no keys.
+   *
+   * @param a first sorted keys.
+   * @param aWeights weights of the first keys, or null if unweighted.
+   * @param b second sorted keys.
+   * @param bWeights weights of the second keys, or null if unweighted.
+   * @param keys array to fill with every key in order.
+   * @param weights array to fill with the weight of every key, or null if unweighted.
+   */
+  private static void merge(
+      long[] a, double[] aWeights, long[] b, double[] bWeights, long[] keys, double[] weights) {
+    int i = 0;
+    int j = 0;
+
+    for (int k = 0; k < keys.length; k++) {
+      boolean fromA = j == b.length || (i < a.length && a[i] < b[j]);
+      keys[k] = fromA ? a[i] : b[j];
+      if (weights != null) {
+        weights[k] = fromA ? aWeights[i] : bWeights[j];
+      }
+      if (fromA) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+  }
+
+  /**
+   * Finds the first key of a sorted array at or after the start of a row.
+   *
+   * @param keys sorted keys.
+   * @param vertex id of the source vertex.
+   * @return index of the first key of the row or any later row.
+   */
+  private static int rowStart(long[] keys, int vertex) {
+    long first = EdgeChanges.key(vertex, 0);
+    int low = 0;
+    int high = keys.length;
+
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (keys[middle] < first) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  @Override
+  public int getVertexCount() {
+    return base.getVertexCount();
+  }
+
+  @Override
+  public int getEdgeCount() {
+    return base.getEdgeCount() - removed.length + inserted.length;
+  }
+
+  @Override
+  public int getOutDegree(int vertex) {
+    int added = rowStart(inserted, vertex + 1) - rowStart(inserted, vertex);
+    int dropped = rowStart(removed, vertex + 1) - rowStart(removed, vertex);
+    return base.getOutDegree(vertex) - dropped + added;
+  }
+
+  @Override
+  public boolean isWeighted() {
+    return base.isWeighted();
+  }
+
+  @Override
+  public int getSuccessor(int vertex, int index) {
+    // removed and inserted edges shift positions, so the merged row is walked up to the index.
+    NeighbourCursor cursor = new Cursor();
+    cursor.reset(vertex);
+    for (int i = 0; i < index; i++) {
+      cursor.next();
+    }
+    return cursor.next();
+  }
+
+  @Override
+  public boolean containsEdge(int source, int destination) {
+    long key = EdgeChanges.key(source, destination);
+    if (Arrays.binarySearch(inserted, key) >= 0) {
+      return true;
+    }
+    return base.containsEdge(source, destination) && Arrays.binarySearch(removed, key) < 0;
+  }
+
+  @Override
+  public long getHeapBytes() {
+    long bytes = base.getHeapBytes() + (long) (inserted.length + removed.length) * Long.BYTES;
+    return insertedWeights == null
+        ? bytes
+        : bytes + (long) insertedWeights.length * Double.BYTES;
+  }
+
+  @Override
+  public long getOffHeapBytes() {
+    return base.getOffHeapBytes();
+  }
+
+  @Override
+  public NeighbourCursor cursor() {
+    return new Cursor();
+  }
+
+  /** Cursor that merges a base row, less its removed edges, with the inserted edges of the row. */
+  private class Cursor implements NeighbourCursor {
+    private final NeighbourCursor baseCursor = base.cursor();
+    private int insertedPosition;
+    private int insertedEnd;
+    private int removedPosition;
+    private int removedEnd;
+    private int nextBase;
+    private double nextBaseWeight;
+    private double weight;
+
+    @Override
+    public void reset(int vertex) {
+      baseCursor.reset(vertex);
+      insertedPosition = rowStart(inserted, vertex);
+      insertedEnd = rowStart(inserted, vertex + 1);
+      removedPosition = rowStart(removed, vertex);
+      removedEnd = rowStart(removed, vertex + 1);
+      advanceBase();
+    }
+
+    /** Moves to the next successor of the base row that has not been removed. */
+    private void advanceBase() {
+      nextBase = -1;
+      while (baseCursor.hasNext()) {
+        int target = baseCursor.next();
+        while (removedPosition < removedEnd
+            && EdgeChanges.destination(removed[removedPosition]) < target) {
+          removedPosition++;
+        }
+        if (removedPosition < removedEnd
+            && EdgeChanges.destination(removed[removedPosition]) == target) {
+          removedPosition++;
+          continue;
+        }
+        nextBase = target;
+        nextBaseWeight = baseCursor.weight();
+        return;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextBase >= 0 || insertedPosition < insertedEnd;
+    }
+
+    @Override
+    public int next() {
+      if (insertedPosition < insertedEnd
+          && (nextBase < 0
+              || EdgeChanges.destination(inserted[insertedPosition]) < nextBase)) {
+        weight =
+            insertedWeights == null ? Edge.DEFAULT_WEIGHT : insertedWeights[insertedPosition];
+        return EdgeChanges.destination(inserted[insertedPosition++]);
+      }
+
+      int target = nextBase;
+      weight = nextBaseWeight;
+      advanceBase();
+      return target;
+    }
+
+    @Override
+    public double weight() {
+      return weight;
+    }
+  }
+}
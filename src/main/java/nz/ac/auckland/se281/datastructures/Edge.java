@@ -8,8 +8,12 @@ package nz.ac.auckland.se281.datastructures;
  * @param <T> The type of each vertex.
  */
 public class Edge<T> {
+  /** The weight of an edge that was not given one. */
+  public static final double DEFAULT_WEIGHT = 1.0;
+
   private T source;
   private T destination;
+  private double weight;
 
   /**
    * The constructor for the edge type.
@@ -18,8 +22,20 @@ public class Edge<T> {
    * @param destination the destination vertex.
    */
   public Edge(T source, T destination) {
+    this(source, destination, DEFAULT_WEIGHT);
+  }
+
+  /**
+   * The constructor for a weighted edge.
+   *
+   * @param source the source vertex
+   * @param destination the destination vertex.
+   * @param weight the weight of the edge.
+   */
+  public Edge(T source, T destination, double weight) {
     this.source = source;
     this.destination = destination;
+    this.weight = weight;
   }
 
   /**
@@ -39,4 +55,13 @@ public class Edge<T> {
   public T getSource() {
     return source;
   }
+
+  /**
+   * The function returns the weight of the edge.
+   *
+   * @return weight of the edge.
+   */
+  public double getWeight() {
+    return weight;
+  }
 }
@@ -0,0 +1,212 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * The edges inserted into and removed from a graph between two versions of it. Each edge is a key
+ * holding the source id in the high 32 bits and the destination id in the low 32 bits, and both
+ * lists are sorted by key, so they can be merged against successor lists in one pass. An edge whose
+ * weight changed appears in both lists.
+ */
+public class EdgeChanges {
+  private final long[] inserted;
+  private final double[] insertedWeights;
+  private final long[] removed;
+  private final double[] removedWeights;
+
+  /**
+   * the constructor for the changes, the keys must already be sorted and distinct.
+   *
+   * @param inserted keys of the inserted edges.
+   * @param insertedWeights weight of each inserted edge, or null if unweighted.
+   * @param removed keys of the removed edges.
+   * @param removedWeights weight each removed edge had, or null if unweighted.
+   */
+  public EdgeChanges(
+      long[] inserted, double[] insertedWeights, long[] removed, double[] removedWeights) {
+    this.inserted = inserted;
+    this.insertedWeights = insertedWeights;
+    this.removed = removed;
+    this.removedWeights = removedWeights;
+  }
+
+  /**
+   * Finds the edges that differ between two adjacencies over the same verticies, by merging the
+   * sorted successor lists of every vertex.
+   *
+   * @param current successor lists of the loaded graph.
+   * @param next successor lists of the new version of the graph.
+   * @return the changes, or null if only one of the two is weighted, which the changes cannot
+   *     describe.
+   */
+  public static EdgeChanges between(Adjacency current, Adjacency next) {
+    if (current.getVertexCount() != next.getVertexCount()
+        || current.isWeighted() != next.isWeighted()) {
+      return null;
+    }
+
+    boolean weighted = next.isWeighted();
+    KeyList inserted = new KeyList(weighted);
+    KeyList removed = new KeyList(weighted);
+    NeighbourCursor before = current.cursor();
+    NeighbourCursor after = next.cursor();
+
+    for (int vertex = 0; vertex < current.getVertexCount(); vertex++) {
+      before.reset(vertex);
+      after.reset(vertex);
+      int old = before.hasNext() ? before.next() : -1;
+      int now = after.hasNext() ? after.next() : -1;
+
+      while (old >= 0 || now >= 0) {
+        if (now < 0 || (old >= 0 && old < now)) {
+          removed.add(key(vertex, old), before.weight());
+          old = before.hasNext() ? before.next() : -1;
+        } else if (old < 0 || now < old) {
+          inserted.add(key(vertex, now), after.weight());
+          now = after.hasNext() ? after.next() : -1;
+        } else {
+          // a new weight is the old edge removed and the new one inserted.
+          if (Double.compare(before.weight(), after.weight()) != 0) {
+            removed.add(key(vertex, old), before.weight());
+            inserted.add(key(vertex, now), after.weight());
+          }
+          old = before.hasNext() ? before.next() : -1;
+          now = after.hasNext() ? after.next() : -1;
+        }
+      }
+    }
+
+    return new EdgeChanges(
+        inserted.toKeys(), inserted.toWeights(), removed.toKeys(), removed.toWeights());
+  }
+
+  /**
+   * Packs an edge into a key.
+   *
+   * @param source id of the source.
+   * @param destination id of the destination.
+   * @return the key.
+   */
+  public static long key(int source, int destination) {
+    return ((long) source << 32) | destination;
+  }
+
+  /**
+   * The method returns the source of an edge key.
+   *
+   * @param key the key.
+   * @return id of the source.
+   */
+  public static int source(long key) {
+    return (int) (key >>> 32);
+  }
+
+  /**
+   * The method returns the destination of an edge key.
+   *
+   * @param key the key.
+   * @return id of the destination.
+   */
+  public static int destination(long key) {
+    return (int) key;
+  }
+
+  /**
+   * The method returns a boolean true if no edge was inserted or removed.
+   *
+   * @return boolean of is empty.
+   */
+  public boolean isEmpty() {
+    return inserted.length == 0 && removed.length == 0;
+  }
+
+  /**
+   * The method returns the sorted keys of the inserted edges.
+   *
+   * @return the keys.
+   */
+  public long[] getInserted() {
+    return inserted;
+  }
+
+  /**
+   * The method returns the weight of an inserted edge.
+   *
+   * @param i index of the edge in {@link #getInserted()}.
+   * @return weight of the edge, {@link Edge#DEFAULT_WEIGHT} if the edges are unweighted.
+   */
+  public double getInsertedWeight(int i) {
+    return insertedWeights == null ? Edge.DEFAULT_WEIGHT : insertedWeights[i];
+  }
+
+  /**
+   * The method returns the sorted keys of the removed edges.
+   *
+   * @return the keys.
+   */
+  public long[] getRemoved() {
+    return removed;
+  }
+
+  /**
+   * The method returns the weight a removed edge had.
+   *
+   * @param i index of the edge in {@link #getRemoved()}.
+   * @return weight of the edge, {@link Edge#DEFAULT_WEIGHT} if the edges are unweighted.
+   */
+  public double getRemovedWeight(int i) {
+    return removedWeights == null ? Edge.DEFAULT_WEIGHT : removedWeights[i];
+  }
+
+  /** A growable list of keys, with a weight for each key if weighted. */
+  private static class KeyList {
+    private long[] keys = new long[16];
+    private double[] weights;
+    private int size;
+
+    /**
+     * the constructor for an empty list.
+     *
+     * @param weighted if the weights should be kept.
+     */
+    KeyList(boolean weighted) {
+      weights = weighted ? new double[16] : null;
+    }
+
+    /**
+     * Appends a key.
+     *
+     * @param key key to append.
+     * @param weight weight of the edge.
+     */
+    void add(long key, double weight) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        weights = weights == null ? null : Arrays.copyOf(weights, size * 2);
+      }
+      keys[size] = key;
+      if (weights != null) {
+        weights[size] = weight;
+      }
+      size++;
+    }
+
+    /**
+     * Copies the keys into an array of their exact length.
+     *
+     * @return the keys.
+     */
+    long[] toKeys() {
+      return Arrays.copyOf(keys, size);
+    }
+
+    /**
+     * Copies the weights into an array of their exact length.
+     *
+     * @return the weights, or null if unweighted.
+     */
+    double[] toWeights() {
+      return weights == null ? null : Arrays.copyOf(weights, size);
+    }
+  }
+}
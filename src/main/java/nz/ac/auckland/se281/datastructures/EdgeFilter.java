@@ -0,0 +1,118 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * A Bloom filter over the edges of a graph, for answering edge lookups in a few array reads when
+ * the successor lists themselves are slow to search, such as compressed lists that have to be
+ * decoded first. It never misses an edge that exists, but claims a small share of the missing
+ * edges exist as well, which {@link #getFalsePositiveRate()} estimates.
+ */
+public class EdgeFilter {
+  /** Bits kept for each edge, which gives about one false positive in a hundred lookups. */
+  public static final int BITS_PER_EDGE = 10;
+
+  private final long[] words;
+  private final long bits;
+  private final int hashes;
+  private final int edgeCount;
+
+  /**
+   * the constructor for an empty filter, which is filled by {@link #of(Adjacency)}.
+   *
+   * @param edgeCount number of edges the filter is sized for.
+   */
+  private EdgeFilter(int edgeCount) {
+    this.edgeCount = edgeCount;
+    this.words = new long[(int) Math.max(1, ((long) edgeCount * BITS_PER_EDGE + 63) / 64)];
+    this.bits = (long) words.length * 64;
+    // k = (m / n) ln 2 hashes keeps the false positive rate lowest for the bits given.
+    this.hashes = Math.max(1, (int) Math.round(BITS_PER_EDGE * Math.log(2)));
+  }
+
+  /**
+   * Builds the filter of every edge in one pass over the successor lists.
+   *
+   * @param edges successor lists to add.
+   * @return the filter.
+   */
+  public static EdgeFilter of(Adjacency edges) {
+    EdgeFilter filter = new EdgeFilter(edges.getEdgeCount());
+    NeighbourCursor cursor = edges.cursor();
+
+    for (int source = 0; source < edges.getVertexCount(); source++) {
+      cursor.reset(source);
+      while (cursor.hasNext()) {
+        filter.add(source, cursor.next());
+      }
+    }
+
+    return filter;
+  }
+
+  /**
+   * Adds an edge to the filter.
+   *
+   * @param source id of the source vertex.
+   * @param destination id of the destination vertex.
+   */
+  private void add(int source, int destination) {
+    long hash = mix(EdgeChanges.key(source, destination));
+    long step = (hash >>> 32) | 1;
+
+    for (int i = 0; i < hashes; i++) {
+      long bit = Long.remainderUnsigned(hash + i * step, bits);
+      words[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  /**
+   * Checks if an edge might be in the filter.
+   *
+   * @param source id of the source vertex.
+   * @param destination id of the destination vertex.
+   * @return boolean false if the edge is certainly missing, true if it is most likely there.
+   */
+  public boolean mightContain(int source, int destination) {
+    long hash = mix(EdgeChanges.key(source, destination));
+    long step = (hash >>> 32) | 1;
+
+    for (int i = 0; i < hashes; i++) {
+      long bit = Long.remainderUnsigned(hash + i * step, bits);
+      if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * The method returns the expected share of missing edges that the filter claims exist.
+   *
+   * @return the false positive rate, between 0 and 1.
+   */
+  public double getFalsePositiveRate() {
+    return Math.pow(1 - Math.exp(-(double) hashes * edgeCount / bits), hashes);
+  }
+
+  /**
+   * The method returns the number of bytes the filter keeps.
+   *
+   * @return size of the filter.
+   */
+  public long getBytes() {
+    return (long) words.length * Long.BYTES;
+  }
+
+  /**
+   * Spreads the bits of an edge key, so the keys of neighbouring edges land far apart.
+   *
+   * @param key key of the edge.
+   * @return the hash.
+   */
+  private static long mix(long key) {
+    // the finaliser of SplitMix64.
+    key = (key ^ (key >>> 30)) * 0xbf58476d1ce4e5b9L;
+    key = (key ^ (key >>> 27)) * 0x94d049bb133111ebL;
+    return key ^ (key >>> 31);
+  }
+}
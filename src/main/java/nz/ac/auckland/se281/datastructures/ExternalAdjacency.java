@@ -0,0 +1,422 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adjacency whose successor lists stay in a file on disk, for graphs with more edges than fit in
+ * memory. Only the offset of each list is kept in memory, and cursors read the lists through a
+ * window of the file that is refilled with a positional read whenever a list falls outside it.
+ *
+ * <p>The file holds the same compressed sparse row layout as {@link CsrAdjacency}: a header, the
+ * offsets, the concatenated sorted successor lists and then the weights, if there are any. Reading
+ * lists in ascending vertex order only ever moves the window forward, so a sweep over any set of
+ * verticies reads each byte of the file at most once. A cursor reads ahead of a list only while it
+ * is reading lists one after another, so a cursor that jumps between lists reads just the list it
+ * is on, and its window only grows as large as the reads it has made.
+ */
+public class ExternalAdjacency implements Adjacency, Closeable {
+  static final int MAGIC = 0x47454446;
+
+  /** Size of the window each cursor reads the file through. */
+  private static final int WINDOW_BYTES = 1 << 16;
+
+  /** The most edges a window holds. */
+  static final int WINDOW_EDGES = WINDOW_BYTES / Integer.BYTES;
+
+  /** Size of the header, which is the magic number, the counts and the weighted flag. */
+  static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+  private final Path file;
+  private final FileChannel channel;
+  private final int[] offsets;
+  private final int edgeCount;
+  private final boolean weighted;
+  private final long targetsStart;
+  private final long weightsStart;
+  private final AtomicLong bytesRead = new AtomicLong();
+
+  /**
+   * the constructor for an adjacency over an edge file that has been opened.
+   *
+   * @param file the edge file.
+   * @param channel channel the lists are read through.
+   * @param offsets start of each successor list, with one extra entry for the end of the last.
+   * @param weighted if the file holds a weight for each edge.
+   */
+  private ExternalAdjacency(Path file, FileChannel channel, int[] offsets, boolean weighted) {
+    this.file = file;
+    this.channel = channel;
+    this.offsets = offsets;
+    this.edgeCount = offsets[offsets.length - 1];
+    this.weighted = weighted;
+    this.targetsStart = HEADER_BYTES + (long) offsets.length * Integer.BYTES;
+    this.weightsStart = targetsStart + (long) edgeCount * Integer.BYTES;
+  }
+
+  /**
+   * Writes any adjacency to an edge file, one successor list at a time, and opens it.
+   *
+   * @param edges successor lists to write.
+   * @param file the file to write, which is replaced if it exists.
+   * @return the adjacency over the file.
+   * @throws IOException if the file cannot be written.
+   */
+  public static ExternalAdjacency write(Adjacency edges, Path file) throws IOException {
+    int size = edges.getVertexCount();
+    NeighbourCursor cursor = edges.cursor();
+
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(size);
+      out.writeInt(edges.getEdgeCount());
+      out.writeInt(edges.isWeighted() ? 1 : 0);
+
+      int position = 0;
+      for (int vertex = 0; vertex < size; vertex++) {
+        out.writeInt(position);
+        position += edges.getOutDegree(vertex);
+      }
+      out.writeInt(position);
+
+      for (int vertex = 0; vertex < size; vertex++) {
+        cursor.reset(vertex);
+        while (cursor.hasNext()) {
+          out.writeInt(cursor.next());
+        }
+      }
+
+      if (edges.isWeighted()) {
+        for (int vertex = 0; vertex < size; vertex++) {
+          cursor.reset(vertex);
+          while (cursor.hasNext()) {
+            cursor.next();
+            out.writeDouble(cursor.weight());
+          }
+        }
+      }
+    }
+
+    return open(file);
+  }
+
+  /**
+   * Opens an edge file, reading only its header and offsets into memory.
+   *
+   * @param file the edge file.
+   * @return the adjacency over the file.
+   * @throws IOException if the file cannot be read or is not an edge file.
+   */
+  public static ExternalAdjacency open(Path file) throws IOException {
+    int[] offsets;
+    boolean weighted;
+
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException(file + " is not an edge file");
+      }
+      offsets = new int[in.readInt() + 1];
+      int edges = in.readInt();
+      weighted = in.readInt() != 0;
+
+      for (int vertex = 0; vertex < offsets.length; vertex++) {
+        offsets[vertex] = in.readInt();
+      }
+      if (offsets[offsets.length - 1] != edges) {
+        throw new IOException(file + " has offsets that do not match its edges");
+      }
+    } catch (EOFException e) {
+      throw new IOException(file + " is cut short", e);
+    }
+
+    return new ExternalAdjacency(
+        file, FileChannel.open(file, StandardOpenOption.READ), offsets, weighted);
+  }
+
+  /**
+   * The method returns the file the successor lists are read from.
+   *
+   * @return the edge file.
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * The method returns the size of the edge file.
+   *
+   * @return size of the file in bytes.
+   */
+  public long getFileBytes() {
+    return weighted ? weightsStart + (long) edgeCount * Double.BYTES : weightsStart;
+  }
+
+  /**
+   * The method returns how many bytes of the file all cursors have read so far, which is the I/O
+   * volume of the searches run over the edges.
+   *
+   * @return bytes read.
+   */
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+
+  /**
+   * The method returns the index of the first edge of a vertex in the file.
+   *
+   * @param vertex id of the vertex.
+   * @return index of the first successor.
+   */
+  int getRowStart(int vertex) {
+    return offsets[vertex];
+  }
+
+  @Override
+  public int getVertexCount() {
+    return offsets.length - 1;
+  }
+
+  @Override
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  @Override
+  public int getOutDegree(int vertex) {
+    return offsets[vertex + 1] - offsets[vertex];
+  }
+
+  @Override
+  public boolean isWeighted() {
+    return weighted;
+  }
+
+  @Override
+  public int getSuccessor(int vertex, int index) {
+    // the window only has to hold the one edge.
+    FileCursor cursor = new FileCursor();
+    int edge = offsets[vertex] + index;
+    cursor.limitReads(edge + 1);
+    return cursor.target(edge);
+  }
+
+  @Override
+  public boolean containsEdge(int source, int destination) {
+    // a cursor of its own sizes its window to the row, and is dropped with it.
+    FileCursor cursor = new FileCursor();
+    int low = offsets[source];
+    int high = offsets[source + 1] - 1;
+
+    // successor lists are sorted, so the row is binary searched through the window, which never
+    // reads past the row.
+    cursor.limitReads(offsets[source + 1]);
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int target = cursor.target(middle);
+      if (target < destination) {
+        low = middle + 1;
+      } else if (target > destination) {
+        high = middle - 1;
+      } else {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  @Override
+  public long getHeapBytes() {
+    return (long) offsets.length * Integer.BYTES;
+  }
+
+  @Override
+  public long getOffHeapBytes() {
+    return 0;
+  }
+
+  @Override
+  public NeighbourCursor cursor() {
+    return new FileCursor();
+  }
+
+  /**
+   * Creates a cursor that can also resume a successor list part of the way through.
+   *
+   * @return new cursor.
+   */
+  FileCursor fileCursor() {
+    return new FileCursor();
+  }
+
+  /**
+   * Closes the file. The file itself is left on disk.
+   *
+   * @throws IOException if the file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Reads part of the file into a buffer, until the buffer is full.
+   *
+   * @param buffer the buffer, whose limit is the number of bytes to read.
+   * @param position byte offset in the file to read from.
+   */
+  private void read(ByteBuffer buffer, long position) {
+    try {
+      while (buffer.hasRemaining()) {
+        int read = channel.read(buffer, position + buffer.position());
+        if (read < 0) {
+          throw new EOFException(file + " is cut short");
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    bytesRead.addAndGet(buffer.limit());
+  }
+
+  /**
+   * Makes sure a window can hold a number of bytes, replacing it with a larger one if not.
+   *
+   * @param window the window, or null if there is none yet.
+   * @param bytes bytes the window needs to hold.
+   * @return the window, which may be new.
+   */
+  private static ByteBuffer fit(ByteBuffer window, int bytes) {
+    if (window != null && window.capacity() >= bytes) {
+      return window;
+    }
+    int capacity = window == null ? 0 : window.capacity();
+    return ByteBuffer.allocate(Math.min(WINDOW_BYTES, Math.max(bytes, 2 * capacity)));
+  }
+
+  /** Cursor that reads a successor list through a window of the file. */
+  class FileCursor implements NeighbourCursor {
+    private ByteBuffer window;
+    private ByteBuffer weightWindow;
+    // the window holds the targets of edges first to first + count - 1.
+    private int first;
+    private int count;
+    private int weightFirst;
+    private int weightCount;
+    private int position;
+    private int end;
+    private int readLimit = -1;
+    // if the list is the one straight after the last, in which case the file is read ahead.
+    private boolean sequential;
+
+    @Override
+    public void reset(int vertex) {
+      sequential = offsets[vertex] == end;
+      position = offsets[vertex];
+      end = offsets[vertex + 1];
+    }
+
+    /**
+     * Stops the window from reading past an edge, so a reader that knows which lists it needs next
+     * does not read the file beyond them. Reading an edge past the limit reads as if there were no
+     * limit: ahead while lists are read in order, otherwise only to the end of the list.
+     *
+     * @param limit index after the last edge worth reading.
+     */
+    void limitReads(int limit) {
+      this.readLimit = limit;
+    }
+
+    /**
+     * Moves the cursor part of the way through the successor list of a vertex.
+     *
+     * @param vertex id of the vertex.
+     * @param position index of the next edge to read, from {@link #getPosition()}.
+     */
+    void resume(int vertex, int position) {
+      this.position = position;
+      this.end = offsets[vertex + 1];
+    }
+
+    /**
+     * The method returns the index of the next edge the cursor reads.
+     *
+     * @return index of the edge.
+     */
+    int getPosition() {
+      return position;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return position < end;
+    }
+
+    @Override
+    public int next() {
+      return target(position++);
+    }
+
+    @Override
+    public double weight() {
+      if (!weighted) {
+        return Edge.DEFAULT_WEIGHT;
+      }
+
+      int index = position - 1;
+      if (weightWindow == null || index < weightFirst || index >= weightFirst + weightCount) {
+        weightFirst = index;
+        weightCount = Math.min(WINDOW_BYTES / Double.BYTES, limitAt(index) - index);
+        weightWindow = fit(weightWindow, weightCount * Double.BYTES);
+        weightWindow.clear().limit(weightCount * Double.BYTES);
+        read(weightWindow, weightsStart + (long) index * Double.BYTES);
+      }
+      return weightWindow.getDouble((index - weightFirst) * Double.BYTES);
+    }
+
+    /**
+     * The method returns the target of an edge, moving the window to start at the edge if it is
+     * outside the window.
+     *
+     * @param index index of the edge.
+     * @return id of the target.
+     */
+    int target(int index) {
+      if (window == null || index < first || index >= first + count) {
+        first = index;
+        count = Math.min(WINDOW_EDGES, limitAt(index) - index);
+        window = fit(window, count * Integer.BYTES);
+        window.clear().limit(count * Integer.BYTES);
+        read(window, targetsStart + (long) index * Integer.BYTES);
+      }
+      return window.getInt((index - first) * Integer.BYTES);
+    }
+
+    /**
+     * The method returns the index after the last edge a read starting at an edge should cover.
+     *
+     * @param index index of the first edge of the read.
+     * @return index after the last edge to read.
+     */
+    private int limitAt(int index) {
+      if (readLimit > index) {
+        return readLimit;
+      }
+      return sequential ? edgeCount : Math.max(end, index + 1);
+    }
+  }
+}
@@ -0,0 +1,588 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Builds an edge file for {@link ExternalAdjacency} from edges added in any order, without ever
+ * holding all of the edges in memory. Edges are collected in a buffer of a fixed size, and every
+ * time it fills up the buffer is sorted and written out as a sorted run. Building merges the runs
+ * into one stream in (source, destination) order, drops duplicate edges as they meet, keeping the
+ * smallest weight like {@link CsrAdjacency#build(int, int[], int[], double[], int)}, and writes
+ * the successor lists straight into the edge file as they come out of the merge.
+ *
+ * <p>Memory is bounded by the buffer size however many edges there are: a merge reads as many
+ * runs at once as the buffer has room for read buffers, and merges in more than one pass if there
+ * are more runs than that. The only other memory is the offset of each vertex, which the edge file
+ * needs anyway.
+ */
+public class ExternalCsrBuilder implements Closeable {
+  /** Size of the buffer each run is read or written through during a merge. */
+  private static final int STREAM_BYTES = 1 << 16;
+
+  /** The fewest edges a buffer holds, however small a size it is given. */
+  private static final int MIN_BUFFER_EDGES = 1 << 10;
+
+  /** The largest array the JVM reliably allocates. */
+  private static final int MAX_BUFFER_EDGES = Integer.MAX_VALUE - 8;
+
+  private static final int DIGIT_BITS = 16;
+
+  private final int vertexCount;
+  private final boolean weighted;
+  private final Path directory;
+  private final int fanIn;
+  private final ArrayDeque<Path> runs = new ArrayDeque<>();
+  private long[] keys;
+  private double[] weights;
+  private long[] scratchKeys;
+  private double[] scratchWeights;
+  private int[] digitCounts;
+  private int buffered;
+  private int runCount;
+  private int mergePasses;
+
+  /**
+   * the constructor for a builder with an empty buffer.
+   *
+   * @param vertexCount number of verticies, every source and destination must be below this.
+   * @param weighted if each edge carries a weight.
+   * @param directory folder the sorted runs are written to while building.
+   * @param bufferBytes the most memory to sort edges in, which also limits the merge.
+   */
+  public ExternalCsrBuilder(int vertexCount, boolean weighted, Path directory, long bufferBytes) {
+    this.vertexCount = vertexCount;
+    this.weighted = weighted;
+    this.directory = directory;
+    this.fanIn = (int) Math.max(2, Math.min(1 << 12, bufferBytes / STREAM_BYTES));
+
+    // a weighted edge needs its key and weight twice over, once more for the radix sort.
+    int edgeBytes = weighted ? 2 * (Long.BYTES + Double.BYTES) : Long.BYTES;
+    int capacity =
+        (int) Math.max(MIN_BUFFER_EDGES, Math.min(MAX_BUFFER_EDGES, bufferBytes / edgeBytes));
+
+    keys = new long[capacity];
+    if (weighted) {
+      weights = new double[capacity];
+      scratchKeys = new long[capacity];
+      scratchWeights = new double[capacity];
+      digitCounts = new int[(1 << DIGIT_BITS) + 1];
+    }
+  }
+
+  /**
+   * Adds an edge with the default weight.
+   *
+   * @param source id of the source vertex.
+   * @param destination id of the destination vertex.
+   * @throws IOException if the buffer is full and cannot be written out.
+   */
+  public void add(int source, int destination) throws IOException {
+    add(source, destination, Edge.DEFAULT_WEIGHT);
+  }
+
+  /**
+   * Adds an edge, which may be a duplicate of an edge already added.
+   *
+   * @param source id of the source vertex.
+   * @param destination id of the destination vertex.
+   * @param weight weight of the edge, ignored if the builder is unweighted.
+   * @throws IOException if the buffer is full and cannot be written out.
+   */
+  public void add(int source, int destination, double weight) throws IOException {
+    Objects.checkIndex(source, vertexCount);
+    Objects.checkIndex(destination, vertexCount);
+
+    keys[buffered] = EdgeChanges.key(source, destination);
+    if (weighted) {
+      weights[buffered] = weight;
+    }
+    if (++buffered == keys.length) {
+      spill();
+    }
+  }
+
+  /**
+   * The method returns the number of sorted runs written so far, counting the runs written by
+   * merge passes.
+   *
+   * @return number of runs.
+   */
+  public int getRunCount() {
+    return runCount;
+  }
+
+  /**
+   * The method returns the number of merge passes that wrote runs rather than the edge file.
+   *
+   * @return number of passes.
+   */
+  public int getMergePasses() {
+    return mergePasses;
+  }
+
+  /**
+   * Merges every edge added into an edge file and opens it. The builder cannot be used again.
+   *
+   * @param file the edge file to write, which is replaced if it exists.
+   * @return the adjacency over the file.
+   * @throws IOException if a run or the edge file cannot be read or written.
+   */
+  public ExternalAdjacency build(Path file) throws IOException {
+    List<Source> sources = new ArrayList<>();
+
+    if (runs.isEmpty()) {
+      // every edge fit in the buffer, so it is sorted and written without any runs.
+      sortBuffer();
+      sources.add(new BufferSource(buffered));
+    } else {
+      if (buffered > 0) {
+        spill();
+      }
+      releaseBuffer();
+
+      // each pass merges the oldest runs into a new one, until one merge can take them all.
+      while (runs.size() > fanIn) {
+        Path merged = Files.createTempFile(directory, "graph-run-", ".bin");
+        try (RunSink sink = new RunSink(merged)) {
+          merge(openRuns(fanIn), sink);
+        }
+        runs.addLast(merged);
+        runCount++;
+        mergePasses++;
+      }
+      sources = openRuns(runs.size());
+    }
+
+    try (CsrSink sink = new CsrSink(file)) {
+      merge(sources, sink);
+    }
+    releaseBuffer();
+    return ExternalAdjacency.open(file);
+  }
+
+  /**
+   * Deletes any runs left behind, such as when building failed part of the way.
+   *
+   * @throws IOException if a run cannot be deleted.
+   */
+  @Override
+  public void close() throws IOException {
+    while (!runs.isEmpty()) {
+      Files.deleteIfExists(runs.removeFirst());
+    }
+    releaseBuffer();
+  }
+
+  /** Drops the buffer, so its memory can be used by the merge. */
+  private void releaseBuffer() {
+    keys = null;
+    weights = null;
+    scratchKeys = null;
+    scratchWeights = null;
+    digitCounts = null;
+  }
+
+  /**
+   * Sorts the buffer and writes it out as a run, dropping duplicate edges within it.
+   *
+   * @throws IOException if the run cannot be written.
+   */
+  private void spill() throws IOException {
+    sortBuffer();
+    Path run = Files.createTempFile(directory, "graph-run-", ".bin");
+    runs.addLast(run);
+    runCount++;
+
+    try (RunSink sink = new RunSink(run)) {
+      merge(List.of(new BufferSource(buffered)), sink);
+    }
+    buffered = 0;
+  }
+
+  /** Sorts the buffered edges by key, keeping each weight with its edge. */
+  private void sortBuffer() {
+    if (!weighted) {
+      Arrays.sort(keys, 0, buffered);
+      return;
+    }
+
+    // a least significant digit radix sort carries the weights along without boxing.
+    long[] fromKeys = keys;
+    double[] fromWeights = weights;
+    long[] toKeys = scratchKeys;
+    double[] toWeights = scratchWeights;
+    int mask = (1 << DIGIT_BITS) - 1;
+
+    for (int shift = 0; shift < Long.SIZE; shift += DIGIT_BITS) {
+      Arrays.fill(digitCounts, 0);
+      for (int i = 0; i < buffered; i++) {
+        digitCounts[(int) (fromKeys[i] >>> shift & mask) + 1]++;
+      }
+      // a digit that is the same for every edge would leave the order as it is.
+      if (digitCounts[(int) (fromKeys[0] >>> shift & mask) + 1] == buffered) {
+        continue;
+      }
+      for (int digit = 0; digit < mask + 1; digit++) {
+        digitCounts[digit + 1] += digitCounts[digit];
+      }
+      for (int i = 0; i < buffered; i++) {
+        int to = digitCounts[(int) (fromKeys[i] >>> shift & mask)]++;
+        toKeys[to] = fromKeys[i];
+        toWeights[to] = fromWeights[i];
+      }
+
+      long[] swapKeys = fromKeys;
+      fromKeys = toKeys;
+      toKeys = swapKeys;
+      double[] swapWeights = fromWeights;
+      fromWeights = toWeights;
+      toWeights = swapWeights;
+    }
+
+    if (fromKeys != keys) {
+      System.arraycopy(fromKeys, 0, keys, 0, buffered);
+      System.arraycopy(fromWeights, 0, weights, 0, buffered);
+    }
+  }
+
+  /**
+   * Opens the oldest runs for reading, removing them from the runs waiting to be merged.
+   *
+   * @param count number of runs to open.
+   * @return the runs.
+   * @throws IOException if a run cannot be opened.
+   */
+  private List<Source> openRuns(int count) throws IOException {
+    List<Source> sources = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      sources.add(new RunSource(runs.removeFirst()));
+    }
+    return sources;
+  }
+
+  /**
+   * Merges sorted sources into a sink, passing each distinct edge on once with the smallest of its
+   * weights. The sources are closed once they run out.
+   *
+   * @param sources the sorted sources.
+   * @param sink where the merged edges go.
+   * @throws IOException if a source or the sink fails.
+   */
+  private static void merge(List<Source> sources, Sink sink) throws IOException {
+    // heap[0] is the index of the source with the smallest current key.
+    int[] heap = new int[sources.size()];
+    int size = 0;
+
+    try {
+      for (int i = 0; i < sources.size(); i++) {
+        if (sources.get(i).advance()) {
+          heap[size++] = i;
+        }
+      }
+      for (int i = size / 2 - 1; i >= 0; i--) {
+        siftDown(heap, size, i, sources);
+      }
+
+      boolean pending = false;
+      long key = 0;
+      double weight = 0;
+
+      while (size > 0) {
+        Source top = sources.get(heap[0]);
+        if (pending && top.key == key) {
+          weight = Math.min(weight, top.weight);
+        } else {
+          if (pending) {
+            sink.accept(key, weight);
+          }
+          pending = true;
+          key = top.key;
+          weight = top.weight;
+        }
+
+        if (!top.advance()) {
+          heap[0] = heap[--size];
+        }
+        siftDown(heap, size, 0, sources);
+      }
+
+      if (pending) {
+        sink.accept(key, weight);
+      }
+    } finally {
+      for (Source source : sources) {
+        source.close();
+      }
+    }
+  }
+
+  /**
+   * Moves a source down the heap until both of its children have larger keys.
+   *
+   * @param heap indices of the sources.
+   * @param size number of sources in the heap.
+   * @param slot slot of the source to move.
+   * @param sources the sources.
+   */
+  private static void siftDown(int[] heap, int size, int slot, List<Source> sources) {
+    int moving = heap[slot];
+    long key = sources.get(moving).key;
+
+    while (2 * slot + 1 < size) {
+      int child = 2 * slot + 1;
+      if (child + 1 < size && sources.get(heap[child + 1]).key < sources.get(heap[child]).key) {
+        child++;
+      }
+      if (sources.get(heap[child]).key >= key) {
+        break;
+      }
+      heap[slot] = heap[child];
+      slot = child;
+    }
+    heap[slot] = moving;
+  }
+
+  /** Edges in ascending key order, read one at a time. */
+  private abstract static class Source implements Closeable {
+    protected long key;
+    protected double weight;
+
+    /**
+     * Moves on to the next edge.
+     *
+     * @return boolean true if there was another edge.
+     * @throws IOException if the edges cannot be read.
+     */
+    abstract boolean advance() throws IOException;
+
+    @Override
+    public void close() throws IOException {}
+  }
+
+  /** The sorted buffer, read in place. */
+  private class BufferSource extends Source {
+    private final int count;
+    private int next;
+
+    /**
+     * the constructor for a source over the start of the buffer.
+     *
+     * @param count number of edges in the buffer.
+     */
+    BufferSource(int count) {
+      this.count = count;
+    }
+
+    @Override
+    boolean advance() {
+      if (next == count) {
+        return false;
+      }
+      key = keys[next];
+      weight = weighted ? weights[next] : Edge.DEFAULT_WEIGHT;
+      next++;
+      return true;
+    }
+  }
+
+  /** A run file, which is deleted once it has been read. */
+  private class RunSource extends Source {
+    private final Path run;
+    private final DataInputStream in;
+
+    /**
+     * the constructor for a source over a run file.
+     *
+     * @param run the run file.
+     * @throws IOException if the run cannot be opened.
+     */
+    RunSource(Path run) throws IOException {
+      this.run = run;
+      this.in =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(run), STREAM_BYTES));
+    }
+
+    @Override
+    boolean advance() throws IOException {
+      try {
+        key = in.readLong();
+      } catch (EOFException e) {
+        return false;
+      }
+      weight = weighted ? in.readDouble() : Edge.DEFAULT_WEIGHT;
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+      Files.deleteIfExists(run);
+    }
+  }
+
+  /** Somewhere the merged edges go, in ascending key order with no duplicates. */
+  private interface Sink extends Closeable {
+
+    /**
+     * Takes the next edge.
+     *
+     * @param key key of the edge, from {@link EdgeChanges#key(int, int)}.
+     * @param weight weight of the edge.
+     * @throws IOException if the edge cannot be written.
+     */
+    void accept(long key, double weight) throws IOException;
+  }
+
+  /** Writes edges to a run file. */
+  private class RunSink implements Sink {
+    private final DataOutputStream out;
+
+    /**
+     * the constructor for a sink writing a run file.
+     *
+     * @param run the run file.
+     * @throws IOException if the run cannot be created.
+     */
+    RunSink(Path run) throws IOException {
+      this.out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), STREAM_BYTES));
+    }
+
+    @Override
+    public void accept(long key, double weight) throws IOException {
+      out.writeLong(key);
+      if (weighted) {
+        out.writeDouble(weight);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  /**
+   * Writes edges into an edge file. The targets go straight to their place after the room left
+   * for the offsets, the weights go to a file of their own until the number of edges is known,
+   * and the header and offsets are filled in last.
+   */
+  private class CsrSink implements Sink {
+    private final FileChannel out;
+    private final ByteBuffer buffer = ByteBuffer.allocate(STREAM_BYTES);
+    private final int[] offsets = new int[vertexCount + 1];
+    private final long targetsStart = ExternalAdjacency.HEADER_BYTES + 4L * (vertexCount + 1);
+    private final Path weightFile;
+    private final DataOutputStream weightOut;
+    private long position = targetsStart;
+    private int edgeCount;
+
+    /**
+     * the constructor for a sink writing an edge file.
+     *
+     * @param file the edge file.
+     * @throws IOException if the file cannot be created.
+     */
+    CsrSink(Path file) throws IOException {
+      this.out =
+          FileChannel.open(
+              file,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE);
+      this.weightFile = weighted ? Files.createTempFile(directory, "graph-weights-", ".bin") : null;
+      this.weightOut =
+          weighted
+              ? new DataOutputStream(
+                  new BufferedOutputStream(Files.newOutputStream(weightFile), STREAM_BYTES))
+              : null;
+    }
+
+    @Override
+    public void accept(long key, double weight) throws IOException {
+      if (edgeCount == Integer.MAX_VALUE) {
+        throw new IOException("an edge file holds at most " + Integer.MAX_VALUE + " edges");
+      }
+      offsets[EdgeChanges.source(key) + 1]++;
+      edgeCount++;
+
+      if (!buffer.hasRemaining()) {
+        flush();
+      }
+      buffer.putInt(EdgeChanges.destination(key));
+      if (weighted) {
+        weightOut.writeDouble(weight);
+      }
+    }
+
+    /**
+     * Writes the buffered targets to their place in the file.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        position += out.write(buffer, position);
+      }
+      buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        flush();
+
+        if (weighted) {
+          weightOut.close();
+          try (FileChannel in = FileChannel.open(weightFile, StandardOpenOption.READ)) {
+            long copied = 0;
+            long length = in.size();
+            while (copied < length) {
+              copied += in.transferTo(copied, length - copied, out.position(position + copied));
+            }
+          }
+        }
+
+        // the counts become start offsets, and go in front of the targets with the header.
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+          offsets[vertex + 1] += offsets[vertex];
+        }
+        buffer.putInt(ExternalAdjacency.MAGIC);
+        buffer.putInt(vertexCount);
+        buffer.putInt(edgeCount);
+        buffer.putInt(weighted ? 1 : 0);
+        position = 0;
+        for (int offset : offsets) {
+          if (!buffer.hasRemaining()) {
+            flush();
+          }
+          buffer.putInt(offset);
+        }
+        flush();
+      } finally {
+        out.close();
+        if (weighted) {
+          weightOut.close();
+          Files.deleteIfExists(weightFile);
+        }
+      }
+    }
+  }
+}
@@ -1,24 +1,33 @@
 package nz.ac.auckland.se281.datastructures;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
  * A graph that is composed of a set of verticies and edges.
  *
  * <p>You must NOT change the signature of the existing methods or constructor of this class.
  *
+ * <p>Verticies are interned into dense ids by a {@link VertexTable} when the graph is built, and
+ * every algorithm works on those ids. Ids are only converted back into verticies when a result is
+ * returned.
+ *
  * @param <T> The type of each vertex, that have a total ordering.
  */
 public class Graph<T extends Comparable<T>> {
-  private Set<T> verticies;
-  private Set<Edge<T>> edges;
+  private final VertexTable<T> verticies;
+  private Adjacency edges;
+  private final DegreeIndex degrees;
+  private BitMatrix matrix;
+  private BitMatrix transpose;
+  private long matrixLimit = Long.MAX_VALUE;
+  private int[] rootIds;
+  private VertexSet rootSet;
 
   /**
    * the constructor for the graph.
@@ -27,8 +36,217 @@ public class Graph<T extends Comparable<T>> {
    * @param edges a set of the graphs edges.
    */
   public Graph(Set<T> verticies, Set<Edge<T>> edges) {
+    this(internVerticies(verticies, edges), edges);
+  }
+
+  /**
+   * the constructor for a graph whose verticies have already been interned.
+   *
+   * @param verticies table of the graphs verticies.
+   * @param edges a set of the graphs edges.
+   */
+  public Graph(VertexTable<T> verticies, Set<Edge<T>> edges) {
+    this.verticies = verticies;
+
+    int[] sources = new int[edges.size()];
+    int[] destinations = new int[edges.size()];
+    double[] weights = new double[edges.size()];
+    boolean weighted = false;
+    int count = 0;
+
+    // look up each endpoint once, from here on only ids are compared.
+    for (Edge<T> edge : edges) {
+      sources[count] = verticies.getId(edge.getSource());
+      destinations[count] = verticies.getId(edge.getDestination());
+      weights[count] = edge.getWeight();
+      weighted |= edge.getWeight() != Edge.DEFAULT_WEIGHT;
+      count++;
+    }
+
+    this.edges =
+        CsrAdjacency.build(
+            verticies.size(), sources, destinations, weighted ? weights : null, count);
+    this.degrees = new DegreeIndex(this.edges);
+  }
+
+  /**
+   * the constructor for a graph that has already been converted to ids.
+   *
+   * @param verticies table of the graphs verticies.
+   * @param edges successor lists over the ids of the table.
+   */
+  public Graph(VertexTable<T> verticies, Adjacency edges) {
     this.verticies = verticies;
     this.edges = edges;
+    this.degrees = new DegreeIndex(edges);
+  }
+
+  /**
+   * Collects every vertex of the graph, including edge endpoints missing from the vertex set.
+   *
+   * @param verticies a set of the graphs verticies.
+   * @param edges a set of the graphs edges.
+   * @return table of the verticies.
+   */
+  private static <T extends Comparable<T>> VertexTable<T> internVerticies(
+      Set<T> verticies, Set<Edge<T>> edges) {
+    Set<T> all = new HashSet<>(verticies);
+
+    for (Edge<T> edge : edges) {
+      all.add(edge.getSource());
+      all.add(edge.getDestination());
+    }
+
+    return new VertexTable<>(all);
+  }
+
+  /**
+   * The method returns the table used to convert between verticies and their ids.
+   *
+   * @return the vertex table.
+   */
+  public VertexTable<T> getVertexTable() {
+    return verticies;
+  }
+
+  /**
+   * The method returns the number of distinct edges.
+   *
+   * @return number of edges.
+   */
+  public int getEdgeCount() {
+    return edges.getEdgeCount();
+  }
+
+  /**
+   * The method returns roughly how many bytes of the heap the edges keep.
+   *
+   * @return size on the heap in bytes.
+   */
+  public long getEdgeHeapBytes() {
+    return edges.getHeapBytes();
+  }
+
+  /**
+   * The method returns how many bytes the edges keep outside the heap.
+   *
+   * @return size off the heap in bytes.
+   */
+  public long getEdgeOffHeapBytes() {
+    return edges.getOffHeapBytes();
+  }
+
+  /**
+   * The method returns roughly how many bytes the indexes kept by the graph use, which are the
+   * degrees, and the bit matrix, its transpose and the roots once they have been needed.
+   *
+   * @return size in bytes.
+   */
+  public long getIndexBytes() {
+    long bytes = degrees.getBytes() + getMatrixBytes();
+    if (rootIds != null) {
+      bytes += (long) rootIds.length * Integer.BYTES;
+    }
+    if (rootSet != null) {
+      bytes += rootSet.getBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * The method returns the in and out degree of every vertex, counted when the graph was built.
+   *
+   * @return the degree index.
+   */
+  public DegreeIndex getDegreeIndex() {
+    return degrees;
+  }
+
+  /**
+   * Finds the edges that differ between the graph and a new version of its edges.
+   *
+   * @param next successor lists of the new version, over the ids of the same vertex table.
+   * @return the changes, or null if only one of the two is weighted.
+   */
+  public EdgeChanges findEdgeChanges(Adjacency next) {
+    return EdgeChanges.between(edges, next);
+  }
+
+  /**
+   * Applies edges inserted into or removed from the graph, without rebuilding the edges or the
+   * degree index. The verticies of the graph stay the same.
+   *
+   * @param changes the changed edges, found against the current edges of the graph.
+   */
+  public void applyEdgeChanges(EdgeChanges changes) {
+    if (changes.isEmpty()) {
+      return;
+    }
+    edges = DeltaAdjacency.apply(edges, changes);
+    degrees.update(changes);
+    forgetIndexes();
+  }
+
+  /**
+   * Applies changes by swapping in a new version of the edges that already has them, in whatever
+   * storage the caller chose, instead of overlaying them. The degree index is still only updated.
+   *
+   * @param changes the changed edges, found against the current edges of the graph.
+   * @param next the edges with the changes, over the ids of the same vertex table.
+   */
+  public void replaceEdges(EdgeChanges changes, Adjacency next) {
+    if (next.getVertexCount() != edges.getVertexCount()) {
+      throw new IllegalArgumentException("edges over different verticies");
+    }
+    edges = next;
+    degrees.update(changes);
+    forgetIndexes();
+  }
+
+  /**
+   * Checks if changes should be applied with {@link #replaceEdges(EdgeChanges, Adjacency)}
+   * because overlaying them would make the overlay too large.
+   *
+   * @param changes the changed edges, found against the current edges of the graph.
+   * @return boolean true if the edges should be replaced.
+   */
+  public boolean isCompactionDue(EdgeChanges changes) {
+    return DeltaAdjacency.isCompactionDue(edges, changes);
+  }
+
+  /** Drops the matrix and roots, which no longer match the edges. */
+  private void forgetIndexes() {
+    matrix = null;
+    transpose = null;
+    rootIds = null;
+    rootSet = null;
+  }
+
+  /**
+   * The method returns the successor lists of the graph.
+   *
+   * @return the adjacency.
+   */
+  Adjacency getAdjacency() {
+    return edges;
+  }
+
+  /**
+   * Lists the successors of a vertex.
+   *
+   * @param vertex id of the vertex.
+   * @return ids of the successors in ascending order.
+   */
+  public int[] getSuccessorIds(int vertex) {
+    int[] successors = new int[edges.getOutDegree(vertex)];
+    NeighbourCursor cursor = edges.cursor();
+    cursor.reset(vertex);
+
+    for (int i = 0; cursor.hasNext(); i++) {
+      successors[i] = cursor.next();
+    }
+
+    return successors;
   }
 
   /**
@@ -38,57 +256,160 @@ public class Graph<T extends Comparable<T>> {
    * @return set of roots.
    */
   public Set<T> getRoots() {
-    // creates a new set for roots
-    List<T> roots = new ArrayList<T>();
-    // go through each vertice
+    return getRootSet().asSet(verticies);
+  }
+
+  /**
+   * Finds the ids of the roots of the graph as a compressed set, see {@link #getRoots()}.
+   *
+   * @return set of the ids of the roots.
+   */
+  public VertexSet getRootSet() {
+    if (rootSet == null) {
+      rootSet = VertexSet.of(roots());
+    }
+    return rootSet;
+  }
+
+  /**
+   * Finds the ids of the roots of the graph, see {@link #getRoots()}.
+   *
+   * @return ids of the roots in ascending order.
+   */
+  public int[] getRootIds() {
+    return roots().clone();
+  }
+
+  /**
+   * The method returns the ids of the roots, found on first use and kept until the edges change.
+   * The array is shared, so it must not be modified.
+   *
+   * @return ids of the roots in ascending order.
+   */
+  private int[] roots() {
+    if (rootIds == null) {
+      rootIds = findRootIds();
+    }
+    return rootIds;
+  }
+
+  /**
+   * Finds the ids of the roots of the graph, see {@link #getRoots()}.
+   *
+   * @return ids of the roots in ascending order.
+   */
+  private int[] findRootIds() {
+    int size = verticies.size();
+    boolean[] isRoot = new boolean[size];
+    NeighbourCursor cursor = edges.cursor();
 
     // only check equivalence class if the graph is an equivalence realtion
     if (isEquivalence()) {
-      for (T vertex : verticies) {
-        // go through each vertex and add the minimum value for each equivalence relation
-        Set<T> equivalenceClass = getEquivalenceClass(vertex);
-        // if there are more than 1 node in the clas, add to the roots.
-        if (equivalenceClass.size() > 0) {
-          roots.add(Collections.min(equivalenceClass));
+      for (int vertex = 0; vertex < size; vertex++) {
+        // the class of a vertex is its successor list, which is sorted, so the minimum is first.
+        cursor.reset(vertex);
+        if (cursor.hasNext()) {
+          isRoot[cursor.next()] = true;
         }
       }
     }
+
     // if the relation isnt equivalence, then just look for an indegree of 0 and outdegree of > 0
-    for (T vertice : verticies) {
-      int inDegree = 0;
-      int outDegree = 0;
-
-      for (Edge<T> edge : edges) {
-        // if the edge destination is equal to the vertice, and source ISNT, i.e it isnt a self
-        // loop, increase the in degree.
-        if (edge.getDestination().equals(vertice)) {
-          inDegree++;
-        }
-        // otherwise, if the source is the vertice, increase the out degree.
-        if (edge.getSource().equals(vertice)) {
-          outDegree++;
-        }
+    for (int vertex = 0; vertex < size; vertex++) {
+      if (degrees.isSource(vertex)) {
+        isRoot[vertex] = true;
       }
-      // add the verticle if the in degree is 0 and out degree is > 0
-      if (inDegree == 0 && outDegree > 0) {
-        roots.add(vertice);
+    }
+
+    // ids follow the vertex ordering, so collecting them in order sorts the roots.
+    int[] roots = new int[size];
+    int count = 0;
+    for (int vertex = 0; vertex < size; vertex++) {
+      if (isRoot[vertex]) {
+        roots[count++] = vertex;
       }
     }
 
-    // sort the roots and convert to a set
-    Set<T> result = new LinkedHashSet<>();
-    // put into a tree map to sort by integer type.
-    TreeMap<Integer, T> intList = new TreeMap<>();
+    return Arrays.copyOf(roots, count);
+  }
 
-    for (T root : roots) {
-      intList.put(Integer.parseInt(root.toString()), root);
+  /**
+   * The method returns the edges as a bit matrix when the graph is dense enough for whole words of
+   * bits to beat the successor lists. The test for transitivity follows every 2-path xRyRz, which
+   * is the sum over y of its in degree times its out degree, while composing the matrix costs about
+   * n^3 / 512 word operations.
+   *
+   * @return the matrix, built on first use, or null if the successor lists should be used.
+   */
+  private BitMatrix getDenseMatrix() {
+    int size = verticies.size();
+    if (matrix != null || size > BitMatrix.MAX_SIZE) {
+      return matrix;
     }
 
-    for (int key : intList.keySet()) {
-      result.add(intList.get(key));
+    long paths = 0;
+    for (int vertex = 0; vertex < size; vertex++) {
+      paths += (long) degrees.getInDegree(vertex) * degrees.getOutDegree(vertex);
     }
 
-    return result;
+    if (paths > (long) size * size * size / 512 && canKeepMatrix(BitMatrix.getBytes(size))) {
+      matrix = BitMatrix.of(edges);
+    }
+    return matrix;
+  }
+
+  /**
+   * The method returns the transpose of the bit matrix, which the symmetry checks compare it
+   * with. It is kept alongside the matrix, so checking symmetry and then antisymmetry builds it
+   * once.
+   *
+   * @param dense the bit matrix of the graph.
+   * @return the transpose, built on first use, or null if there is no room for it.
+   */
+  private BitMatrix getTranspose(BitMatrix dense) {
+    if (transpose == null && canKeepMatrix(dense.getBytes())) {
+      transpose = dense.transpose();
+    }
+    return transpose;
+  }
+
+  /**
+   * Sets the most heap the bit matrix and its transpose may keep together. A matrix that would
+   * take them past the limit, or that needs more heap than is free, is not built and the checks
+   * walk the successor lists instead.
+   *
+   * @param bytes the limit in bytes.
+   */
+  public void setMatrixLimit(long bytes) {
+    matrixLimit = bytes;
+  }
+
+  /**
+   * The method returns roughly how many bytes the bit matrix and its transpose keep.
+   *
+   * @return size in bytes.
+   */
+  private long getMatrixBytes() {
+    long bytes = 0;
+    if (matrix != null) {
+      bytes += matrix.getBytes();
+    }
+    if (transpose != null) {
+      bytes += transpose.getBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * Checks if another matrix fits within the limit and the heap that is free right now.
+   *
+   * @param bytes size of the matrix in bytes.
+   * @return boolean true if the matrix can be built.
+   */
+  private boolean canKeepMatrix(long bytes) {
+    Runtime runtime = Runtime.getRuntime();
+    long free = runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
+    return bytes <= matrixLimit - getMatrixBytes() && bytes <= free;
   }
 
   /**
@@ -98,18 +419,25 @@ public class Graph<T extends Comparable<T>> {
    * @return boolean of reflexivity.
    */
   public boolean isReflexive() {
-    // check if the vertices is the same as the roots. if all verticles are roots, the graph is
-    // reflexing
-    // creates a new set for roots
-    Set<T> selfLoops = new HashSet<T>();
-    for (Edge<T> edge : edges) {
-      // if an edge has the same source and destination (and so is a root), add it to the set.
-      if (edge.getSource().equals(edge.getDestination())) {
-        selfLoops.add(edge.getSource());
+    return findReflexivityViolations(1).isEmpty();
+  }
+
+  /**
+   * Finds verticies without a self loop.
+   *
+   * @param limit most violations to find.
+   * @return the ids of the verticies.
+   */
+  public Violations findReflexivityViolations(int limit) {
+    Violations violations = new Violations(1, limit);
+
+    for (int vertex = 0; vertex < verticies.size() && !violations.isFull(); vertex++) {
+      if (!edges.containsEdge(vertex, vertex)) {
+        violations.add(vertex);
       }
     }
-    // compare verticles with all self loops
-    return (verticies.equals(selfLoops));
+
+    return violations;
   }
 
   /**
@@ -119,31 +447,36 @@ public class Graph<T extends Comparable<T>> {
    * @return boolean of symmetry.
    */
   public boolean isSymmetric() {
+    return findSymmetryViolations(1).isEmpty();
+  }
 
-    // check for a vertice
-    for (T vertice : verticies) {
-      for (Edge<T> edge : edges) {
-        // check all edges with specific vertice
-        if (edge.getSource().equals(vertice)) {
-          boolean symmetry = false;
-          for (Edge<T> otherEdge : edges) {
-            // go through all edges and look for another edge which has the source of our first
-            // edges destination (i.e the first edge is going into this edge)
-            if (otherEdge.getSource().equals(edge.getDestination())) {
-              // now if there exists an edge which returns back to the vertice, there is symmetry.
-              if (otherEdge.getDestination().equals(edge.getSource())) {
-                symmetry = true;
-              }
-            }
-          }
-          if (!symmetry) {
-            return false;
-          }
+  /**
+   * Finds edges xRy without a yRx.
+   *
+   * @param limit most violations to find.
+   * @return the pairs (x, y).
+   */
+  public Violations findSymmetryViolations(int limit) {
+    BitMatrix dense = getDenseMatrix();
+    if (dense != null && getTranspose(dense) != null) {
+      return dense.findSymmetryViolations(transpose, limit);
+    }
+
+    Violations violations = new Violations(2, limit);
+    NeighbourCursor cursor = edges.cursor();
+
+    for (int x = 0; x < verticies.size() && !violations.isFull(); x++) {
+      cursor.reset(x);
+      while (cursor.hasNext() && !violations.isFull()) {
+        int y = cursor.next();
+        // every xRy needs a yRx to return back to the vertex.
+        if (!edges.containsEdge(y, x)) {
+          violations.add(x, y);
         }
       }
     }
 
-    return true;
+    return violations;
   }
 
   /**
@@ -155,33 +488,54 @@ public class Graph<T extends Comparable<T>> {
    * @return boolean of transitivity.
    */
   public boolean isTransitive() {
-    // go through all edges.
-    for (Edge<T> edge : edges) {
-      // set the 'x'. assuming for this edge, we have xRy
-      T x = edge.getSource();
-      for (Edge<T> secondEdge : edges) {
-        T z = secondEdge.getDestination();
-        // go through all edges again to find an edge which has a source the same as the first edges
-        // destination (i.e the first is incoming to the second) thereby fulfilling yRz
-        if (edge.getDestination().equals(secondEdge.getSource())) {
-          boolean transitivity = false;
-
-          // go through all edges and look for an edge which fulfills xRz.
-          for (Edge<T> validationEdge : edges) {
-            if (validationEdge.getSource().equals(x) && validationEdge.getDestination().equals(z)) {
-              transitivity = true;
-              break;
-            }
-          }
+    return findTransitivityViolations(1).isEmpty();
+  }
+
+  /**
+   * Finds 2-paths xRyRz without an xRz. Each missing xRz is only reported once, through the first
+   * y that needs it.
+   *
+   * @param limit most violations to find.
+   * @return the triples (x, y, z).
+   */
+  public Violations findTransitivityViolations(int limit) {
+    BitMatrix dense = getDenseMatrix();
+    if (dense != null) {
+      return dense.findTransitivityViolations(limit);
+    }
 
-          // if there is no edge which fulfills xRz if xRy and yRz, the graph isnt transitive.
-          if (!transitivity) {
-            return false;
+    int size = verticies.size();
+    Violations violations = new Violations(3, limit);
+    // stamp[z] == x marks that xRz exists, so the check for xRz is a single array read.
+    int[] stamp = new int[size];
+    Arrays.fill(stamp, -1);
+
+    NeighbourCursor outer = edges.cursor();
+    NeighbourCursor inner = edges.cursor();
+
+    for (int x = 0; x < size && !violations.isFull(); x++) {
+      outer.reset(x);
+      while (outer.hasNext()) {
+        stamp[outer.next()] = x;
+      }
+
+      outer.reset(x);
+      while (outer.hasNext() && !violations.isFull()) {
+        // for every xRy, go through every yRz.
+        int y = outer.next();
+        inner.reset(y);
+        while (inner.hasNext() && !violations.isFull()) {
+          int z = inner.next();
+          if (stamp[z] != x) {
+            violations.add(x, y, z);
+            // the missing xRz has been reported, so it is not reported again for another y.
+            stamp[z] = x;
           }
         }
       }
     }
-    return true;
+
+    return violations;
   }
 
   /**
@@ -192,23 +546,37 @@ public class Graph<T extends Comparable<T>> {
    * @return boolean of antisymmetry.
    */
   public boolean isAntiSymmetric() {
-    // go through edges
-    for (Edge<T> edge : edges) {
-      for (Edge<T> nestedEdge : edges) {
-        // if the destination of this edge = the source of the other edge
-        if (edge.getDestination().equals(nestedEdge.getSource())) {
-          // and if the destination of the other edge = source of this (i.e xRy and yRx)
-          if (nestedEdge.getDestination().equals(edge.getSource())) {
-            // if y =/= x, the graph isnt antisymmetric
-            if (!edge.getDestination().equals(edge.getSource())) {
-              return false;
-            }
-          }
+    return findAntiSymmetryViolations(1).isEmpty();
+  }
+
+  /**
+   * Finds pairs of distinct verticies with both xRy and yRx, each pair once with x below y.
+   *
+   * @param limit most violations to find.
+   * @return the pairs (x, y).
+   */
+  public Violations findAntiSymmetryViolations(int limit) {
+    BitMatrix dense = getDenseMatrix();
+    if (dense != null && getTranspose(dense) != null) {
+      return dense.findAntiSymmetryViolations(transpose, limit);
+    }
+
+    Violations violations = new Violations(2, limit);
+    NeighbourCursor cursor = edges.cursor();
+
+    for (int x = 0; x < verticies.size() && !violations.isFull(); x++) {
+      cursor.reset(x);
+      while (cursor.hasNext() && !violations.isFull()) {
+        int y = cursor.next();
+        // if y is above x and there is a yRx, the graph isnt antisymmetric. a y below x was
+        // already found from y.
+        if (y > x && edges.containsEdge(y, x)) {
+          violations.add(x, y);
         }
       }
     }
 
-    return true;
+    return violations;
   }
 
   /**
@@ -222,6 +590,16 @@ public class Graph<T extends Comparable<T>> {
     return (isReflexive() && isSymmetric() && isTransitive());
   }
 
+  /**
+   * Decides reflexivity, symmetry, transitivity and antisymmetry together, in one pass over the
+   * edges rather than one pass for each.
+   *
+   * @return the properties.
+   */
+  public RelationProperties relationProperties() {
+    return new RelationProperties(edges, getDenseMatrix());
+  }
+
   /**
    * Checks the equivalence class for a specific vertex by finding every edge that leads from or to
    * the vertex returns a set of all the vertices which lead to or from the vertex (aka the
@@ -231,31 +609,37 @@ public class Graph<T extends Comparable<T>> {
    * @return set of equivalence class for the vertex.
    */
   public Set<T> getEquivalenceClass(T vertex) {
-    Set<T> equivalenceClasses = new HashSet<T>();
+    int id = verticies.getId(vertex);
+    return (id >= 0 ? getEquivalenceClassSet(id) : VertexSet.of()).asSet(verticies);
+  }
 
-    // only check equivalence class if the graph is an equivalence realtion
-    if (isEquivalence()) {
-      List<T> vertexList = new ArrayList<>();
-      // Iterate through every edge
-      for (Edge<T> edge : edges) {
-        // // If the destination of the edge is the vertex, add the source to the equivalence class
-        if (edge.getDestination().equals(vertex)) {
-          vertexList.add(edge.getSource());
-        }
-        // If the source of the edge is the vertex, add the destination to the equivalence class
-        // (ie. edge fulfills (v1,v2))
-        if (edge.getSource().equals(vertex)) {
-          vertexList.add(edge.getDestination());
-        }
+  /**
+   * Finds the ids in the equivalence class of a vertex as a compressed set, see {@link
+   * #getEquivalenceClass(T)}.
+   *
+   * @param vertex id of the vertex.
+   * @return set of the ids of the equivalence class, empty if the graph is not an equivalence
+   *     relation.
+   */
+  public VertexSet getEquivalenceClassSet(int vertex) {
+    return VertexSet.of(getEquivalenceClassIds(vertex));
+  }
 
-        Collections.sort(vertexList);
-        for (T currentVertex : vertexList) {
-          equivalenceClasses.add(currentVertex);
-        }
-      }
+  /**
+   * Finds the ids in the equivalence class of a vertex, see {@link #getEquivalenceClass(T)}.
+   *
+   * @param vertex id of the vertex.
+   * @return ids of the equivalence class in ascending order, empty if the graph is not an
+   *     equivalence relation.
+   */
+  public int[] getEquivalenceClassIds(int vertex) {
+    // only check equivalence class if the graph is an equivalence realtion
+    if (!isEquivalence()) {
+      return new int[0];
     }
 
-    return equivalenceClasses;
+    // the relation is symmetric, so the successors are also every vertex leading to the vertex.
+    return getSuccessorIds(vertex);
   }
 
   /**
@@ -265,67 +649,58 @@ public class Graph<T extends Comparable<T>> {
    * @return list of order of search.
    */
   public List<T> iterativeBreadthFirstSearch() {
-    Set<T> roots = getRoots();
-    Queue<T> queue = new Queue<T>();
-    Set<T> visited = new HashSet<T>();
-    List<T> result = new ArrayList<T>();
+    return toVerticies(iterativeBreadthFirstSearchIds());
+  }
+
+  /**
+   * goes through an iterative breadth first search, see {@link #iterativeBreadthFirstSearch()}.
+   *
+   * @return ids in the order of search.
+   */
+  public int[] iterativeBreadthFirstSearchIds() {
+    TraversalContext context = newTraversalContext();
+    return Arrays.copyOf(context.getOutput(), breadthFirstSearch(context));
+  }
+
+  /**
+   * goes through an iterative breadth first search using the buffers of a context, so repeated
+   * searches allocate nothing. The order is the same as {@link #iterativeBreadthFirstSearch()}.
+   * Edges kept in a file are searched a level at a time, see {@link SemiExternalSearch}.
+   *
+   * @param context working memory of the search, with room for every vertex of the graph.
+   * @return number of verticies searched, whose ids are at the start of the context output.
+   */
+  public int breadthFirstSearch(TraversalContext context) {
+    checkContext(context);
+    if (edges instanceof ExternalAdjacency) {
+      // reading lists in queue order would seek all over the file, so it is read a level at a time.
+      return new SemiExternalSearch((ExternalAdjacency) edges).breadthFirst(roots(), context);
+    }
+    context.begin();
+    int[] roots = roots();
+    // every vertex is marked as visited when queued, so the result doubles as the queue.
+    int[] result = context.getOutput();
+    int end = 0;
+    NeighbourCursor cursor = context.cursor(edges);
 
     // first visit the roots
-    for (T root : roots) {
-      // Mark the root as visited
-      visited.add(root);
-      // Add the root to the result list
-      result.add(root);
+    for (int root : roots) {
+      context.visit(root);
+      result[end++] = root;
     }
 
     // now visit every child of the roots.
-    for (T root : roots) {
-
-      // create new treemap
-      TreeMap<Integer, Edge<T>> rootsChildren = new TreeMap<>();
-
-      // Find all edges with the root as the source and enqueue them
-      for (Edge<T> edge : edges) {
-        if (edge.getSource().equals(root)) {
-          rootsChildren.put(Integer.parseInt(edge.getDestination().toString()), edge);
-        }
-      }
-
-      // queue the children
-      for (int key : rootsChildren.keySet()) {
-        queue.enqueue(rootsChildren.get(key));
-      }
+    for (int root : roots) {
+      int front = end;
+      end = queueChildren(cursor, root, context, result, end);
 
       // Perform BFS
-      while (!queue.isEmpty()) {
-        Edge<T> currentEdge = queue.dequeue();
-        T currentVertex = currentEdge.getDestination();
-        // check if the current vertex has already been visited
-        if (!visited.contains(currentVertex)) {
-          // mark the current vertex as visited
-          visited.add(currentVertex);
-          // add the current vertex to the result list
-          result.add(currentVertex);
-
-          // create a tree map to automatically sort by the destination values.
-          TreeMap<Integer, Edge<T>> children = new TreeMap<>();
-
-          // find all edges with the same source as this edges destinations
-          for (Edge<T> edge : edges) {
-            if (edge.getSource().equals(currentVertex)) {
-              children.put(Integer.parseInt(edge.getDestination().toString()), edge);
-            }
-          }
-
-          // queue each edge.
-          for (int key : children.keySet()) {
-            queue.enqueue(children.get(key));
-          }
-        }
+      while (front < end) {
+        end = queueChildren(cursor, result[front++], context, result, end);
       }
     }
 
-    return result;
+    return end;
   }
 
   /**
@@ -335,50 +710,62 @@ public class Graph<T extends Comparable<T>> {
    * @return list of order of search.
    */
   public List<T> iterativeDepthFirstSearch() {
-    Set<T> roots = getRoots();
-    Stack<T> stack = new Stack<T>();
-    Set<T> visited = new HashSet<T>();
-    List<T> result = new ArrayList<T>();
+    return toVerticies(iterativeDepthFirstSearchIds());
+  }
 
-    for (T root : roots) {
+  /**
+   * goes through an iterative depth first search, see {@link #iterativeDepthFirstSearch()}.
+   *
+   * @return ids in the order of search.
+   */
+  public int[] iterativeDepthFirstSearchIds() {
+    TraversalContext context = newTraversalContext();
+    return Arrays.copyOf(context.getOutput(), depthFirstSearch(context));
+  }
+
+  /**
+   * goes through an iterative depth first search using the buffers of a context, so repeated
+   * searches allocate nothing. The order is the same as {@link #iterativeDepthFirstSearch()}.
+   * Edges kept in a file are searched with a frame per vertex, see {@link SemiExternalSearch}.
+   *
+   * @param context working memory of the search, with room for every vertex of the graph.
+   * @return number of verticies searched, whose ids are at the start of the context output.
+   */
+  public int depthFirstSearch(TraversalContext context) {
+    checkContext(context);
+    if (edges instanceof ExternalAdjacency) {
+      // the stack below can hold an entry per edge, more than a graph kept on disk has room for.
+      return new SemiExternalSearch((ExternalAdjacency) edges).depthFirst(roots(), context);
+    }
+    context.begin();
+    int[] roots = roots();
+    int[] result = context.getOutput();
+    int count = 0;
+    int[] stack = context.frontier(stackCapacity(roots));
+    NeighbourCursor cursor = context.cursor(edges);
+
+    for (int root : roots) {
       // add roots to results, visited and the stack
-      visited.add(root);
-      result.add(root);
-      stack.push(root);
+      if (context.visit(root)) {
+        result[count++] = root;
+      }
+      int top = 0;
+      stack[top++] = root;
 
-      while (!stack.isEmpty()) {
+      while (top > 0) {
         // pop the current stack
-        T currentVertex = stack.pop();
+        int currentVertex = stack[--top];
 
         // add the vertex on the stack to results and visited if we havent already
-        if (!visited.contains(currentVertex)) {
-          visited.add(currentVertex);
-          result.add(currentVertex);
+        if (context.visit(currentVertex)) {
+          result[count++] = currentVertex;
         }
 
-        // create a tree map that compares in reverse order.
-        TreeMap<Integer, Edge<T>> currentChildren = new TreeMap<>(Comparator.reverseOrder());
-
-        for (Edge<T> edge : edges) {
-          // look for edges with the same source
-          if (edge.getSource().equals(currentVertex)) {
-            // look for edges that do not have a vertex we have already visited
-            if (!visited.contains(edge.getDestination())) {
-              // add the edge to the list
-              currentChildren.put(Integer.parseInt(edge.getDestination().toString()), edge);
-            }
-          }
-        }
-
-        if (!currentChildren.isEmpty()) {
-          // push the destination into the stack.
-          for (int key : currentChildren.keySet()) {
-            stack.push(currentChildren.get(key).getDestination());
-          }
-        }
+        top = pushChildren(cursor, currentVertex, context, stack, top);
       }
     }
-    return result;
+
+    return count;
   }
 
   /**
@@ -388,80 +775,61 @@ public class Graph<T extends Comparable<T>> {
    * @return list of order of search.
    */
   public List<T> recursiveBreadthFirstSearch() {
+    return toVerticies(recursiveBreadthFirstSearchIds());
+  }
+
+  /**
+   * goes through an recursive breadth first search, see {@link #recursiveBreadthFirstSearch()}.
+   *
+   * @return ids in the order of search.
+   */
+  public int[] recursiveBreadthFirstSearchIds() {
     // set initial values for recursive search
-    Set<T> roots = getRoots();
-    Queue<T> queue = new Queue<>();
-    Set<T> visited = new HashSet<>();
-    List<T> result = new ArrayList<>();
-
-    for (T root : roots) {
-      visited.add(root);
-      result.add(root);
-
-      // create new treemap
-      TreeMap<Integer, Edge<T>> rootsChildren = new TreeMap<>();
-
-      // Find all edges with the root as the source and enqueue them
-      for (Edge<T> edge : edges) {
-        if (edge.getSource().equals(root)) {
-          rootsChildren.put(Integer.parseInt(edge.getDestination().toString()), edge);
-        }
-      }
+    int[] roots = roots();
+    TraversalContext context = newTraversalContext();
+    context.begin();
+    int[] result = context.getOutput();
+    int end = 0;
+    NeighbourCursor cursor = context.cursor(edges);
+
+    for (int root : roots) {
+      context.visit(root);
+      result[end++] = root;
+    }
 
-      // queue the children
-      for (int key : rootsChildren.keySet()) {
-        queue.enqueue(rootsChildren.get(key));
-      }
+    // the children of every root are queued before any of them are searched.
+    int front = end;
+    for (int root : roots) {
+      end = queueChildren(cursor, root, context, result, end);
     }
 
     // running recursive function
-    List<T> finalResult = recursiveFunctionBreadthFirst(queue, visited, result);
+    end = recursiveFunctionBreadthFirst(cursor, context, result, front, end);
 
-    return finalResult;
+    return Arrays.copyOf(result, end);
   }
 
   /**
    * a recursive helper function for the recursive breath search.
    *
-   * @param queue queue type of input queue.
-   * @param visited set of visited vertices
-   * @param result list of previous results.
-   * @return list of order of search.
+   * @param cursor cursor used to read successor lists.
+   * @param context visited marks of the search.
+   * @param result order of search, the slice from front to end is the queue.
+   * @param front index of the front of the queue.
+   * @param end index of the end of the queue.
+   * @return index of the end of the result.
    */
-  private List<T> recursiveFunctionBreadthFirst(Queue<T> queue, Set<T> visited, List<T> result) {
-    if (queue.isEmpty()) {
-      // base case of if the queue is empty, return the list of results.
-      return result;
-    } else {
-      // dequeue current edge and vertex.
-      Edge<T> currentEdge = queue.dequeue();
-      T currentVertex = currentEdge.getDestination();
-      // check if the current vertex has already been visited
-      if (!visited.contains(currentVertex)) {
-        // mark the current vertex as visited
-        visited.add(currentVertex);
-        // add the current vertex to the result list
-        result.add(currentVertex);
-
-        // create a tree map to automatically sort by the destination values.
-        TreeMap<Integer, Edge<T>> children = new TreeMap<>();
-
-        // find all edges with the same source as this edges destinations
-        for (Edge<T> edge : edges) {
-          if (edge.getSource().equals(currentVertex)) {
-            children.put(Integer.parseInt(edge.getDestination().toString()), edge);
-          }
-        }
-
-        // queue each edge.
-        for (int key : children.keySet()) {
-          queue.enqueue(children.get(key));
-        }
-      }
+  private int recursiveFunctionBreadthFirst(
+      NeighbourCursor cursor, TraversalContext context, int[] result, int front, int end) {
+    if (front == end) {
+      // base case of if the queue is empty, return the end of the results.
+      return end;
     }
 
+    end = queueChildren(cursor, result[front], context, result, end);
+
     // recursively call function again.
-    return recursiveFunctionBreadthFirst(queue, visited, result);
+    return recursiveFunctionBreadthFirst(cursor, context, result, front + 1, end);
   }
 
   /**
@@ -471,71 +839,273 @@ public class Graph<T extends Comparable<T>> {
    * @return list of order of search.
    */
   public List<T> recursiveDepthFirstSearch() {
+    return toVerticies(recursiveDepthFirstSearchIds());
+  }
+
+  /**
+   * goes through an recursive depth first search, see {@link #recursiveDepthFirstSearch()}.
+   *
+   * @return ids in the order of search.
+   */
+  public int[] recursiveDepthFirstSearchIds() {
     // intiialise variables for recursive search
-    Set<T> roots = getRoots();
-    List<T> listOfRoots = new ArrayList<>();
+    int[] roots = roots();
+    TraversalContext context = newTraversalContext();
+    context.begin();
+    int[] result = context.getOutput();
+    int[] stack = context.frontier(stackCapacity(roots));
+    int top = 0;
+
+    for (int i = 0; i < roots.length; i++) {
+      // add to stack in reverse order of roots.
+      stack[top++] = roots[roots.length - i - 1];
+    }
 
-    // put sets into a list
-    for (T root : roots) {
-      listOfRoots.add(root);
+    int count =
+        recursiveFunctionDepthFirst(context.cursor(edges), context, result, 0, stack, top);
+
+    return Arrays.copyOf(result, count);
+  }
+
+  /**
+   * a recursive helper function for the recursive depth search.
+   *
+   * @param cursor cursor used to read successor lists.
+   * @param context visited marks of the search.
+   * @param result order of search.
+   * @param count number of verticies in the result.
+   * @param stack array holding the stack.
+   * @param top number of verticies on the stack.
+   * @return number of verticies in the result.
+   */
+  private int recursiveFunctionDepthFirst(
+      NeighbourCursor cursor,
+      TraversalContext context,
+      int[] result,
+      int count,
+      int[] stack,
+      int top) {
+    if (top == 0) {
+      return count;
     }
 
-    Stack<T> stack = new Stack<T>();
-    Set<T> visited = new HashSet<T>();
-    List<T> result = new ArrayList<T>();
+    // pop the current stack
+    int currentVertex = stack[--top];
 
-    for (int i = 0; i < listOfRoots.size(); i++) {
-      // add to stack in reverse order of roots.
-      stack.push(listOfRoots.get(listOfRoots.size() - i - 1));
+    // add the vertex on the stack to results and visited if we havent already
+    if (context.visit(currentVertex)) {
+      result[count++] = currentVertex;
     }
 
-    List<T> finalResult = recursiveFunctionDepthFirst(stack, visited, result);
+    top = pushChildren(cursor, currentVertex, context, stack, top);
 
-    return finalResult;
+    return recursiveFunctionDepthFirst(cursor, context, result, count, stack, top);
   }
 
   /**
-   * a recursive helper function for the recursive depth search.
+   * Queues every unvisited child of a vertex in ascending order, marking them as visited. Marking
+   * on queueing gives the same order as marking on dequeueing, as a vertex is always searched from
+   * the first place it was queued.
    *
-   * @param queue queue type of input queue.
-   * @param visited set of visited vertices
-   * @param result list of previous results.
-   * @return list of order of search.
+   * @param cursor cursor used to read successor lists.
+   * @param vertex id of the vertex.
+   * @param context visited marks of the search.
+   * @param queue array holding the queue.
+   * @param end index of the end of the queue.
+   * @return new index of the end of the queue.
    */
-  private List<T> recursiveFunctionDepthFirst(Stack<T> stack, Set<T> visited, List<T> result) {
-    if (stack.isEmpty()) {
-      return result;
-    } else {
-      // pop the current stack
-      T currentVertex = stack.pop();
-
-      // add the vertex on the stack to results and visited if we havent already
-      if (!visited.contains(currentVertex)) {
-        visited.add(currentVertex);
-        result.add(currentVertex);
+  private int queueChildren(
+      NeighbourCursor cursor, int vertex, TraversalContext context, int[] queue, int end) {
+    cursor.reset(vertex);
+
+    while (cursor.hasNext()) {
+      int child = cursor.next();
+      if (context.visit(child)) {
+        queue[end++] = child;
       }
+    }
 
-      // create a tree map that compares in reverse order.
-      TreeMap<Integer, Edge<T>> currentChildren = new TreeMap<>(Comparator.reverseOrder());
+    return end;
+  }
 
-      for (Edge<T> edge : edges) {
-        // look for edges with the same source
-        if (edge.getSource().equals(currentVertex)) {
-          // look for edges that do not have a vertex we have already visited
-          if (!visited.contains(edge.getDestination())) {
-            // add the edge to the list
-            currentChildren.put(Integer.parseInt(edge.getDestination().toString()), edge);
-          }
-        }
+  /**
+   * Pushes every unvisited child of a vertex so that the smallest child is on top of the stack.
+   *
+   * @param cursor cursor used to read successor lists.
+   * @param vertex id of the vertex.
+   * @param context visited marks of the search.
+   * @param stack array holding the stack, with room for every child.
+   * @param top number of verticies on the stack.
+   * @return new number of verticies on the stack.
+   */
+  private int pushChildren(
+      NeighbourCursor cursor, int vertex, TraversalContext context, int[] stack, int top) {
+    int start = top;
+    cursor.reset(vertex);
+
+    while (cursor.hasNext()) {
+      int child = cursor.next();
+      if (!context.isVisited(child)) {
+        stack[top++] = child;
       }
+    }
 
-      if (!currentChildren.isEmpty()) {
-        // push the destination into the stack.
-        for (int key : currentChildren.keySet()) {
-          stack.push(currentChildren.get(key).getDestination());
-        }
-      }
-      return recursiveFunctionDepthFirst(stack, visited, result);
+    // children come out in ascending order, so reverse them to put the smallest on top.
+    for (int i = start, j = top - 1; i < j; i++, j--) {
+      int temp = stack[i];
+      stack[i] = stack[j];
+      stack[j] = temp;
+    }
+
+    return top;
+  }
+
+  /**
+   * Works out how large a depth first search stack can grow. A vertex only pushes children the
+   * first time it is popped, as by the time a stale copy of it is popped every child has been
+   * visited, so the stack never holds more than the roots plus one entry per edge.
+   *
+   * @param roots ids of the roots the search starts from.
+   * @return capacity of the stack.
+   */
+  private int stackCapacity(int[] roots) {
+    return roots.length + edges.getEdgeCount();
+  }
+
+  /**
+   * Creates the working memory for searching the graph, which can be passed to {@link
+   * #breadthFirstSearch(TraversalContext)} and {@link #depthFirstSearch(TraversalContext)} again
+   * and again.
+   *
+   * @return a new context with room for every vertex.
+   */
+  public TraversalContext newTraversalContext() {
+    return new TraversalContext(verticies.size());
+  }
+
+  /**
+   * Checks that a context has room for every vertex of the graph.
+   *
+   * @param context the context.
+   */
+  private void checkContext(TraversalContext context) {
+    if (context.getVertexCount() < verticies.size()) {
+      throw new IllegalArgumentException(
+          "the context has room for "
+              + context.getVertexCount()
+              + " verticies, the graph has "
+              + verticies.size());
     }
   }
+
+  /**
+   * Runs a bit-parallel breadth first search from many sources at once.
+   *
+   * @param sources ids of the verticies to search from.
+   * @param recordLevels if the distance from every source to every vertex should be kept.
+   * @return the finished search.
+   */
+  public MultiSourceBfs multiSourceBreadthFirstSearch(int[] sources, boolean recordLevels) {
+    MultiSourceBfs search = new MultiSourceBfs(edges);
+    search.run(sources, recordLevels);
+    return search;
+  }
+
+  /**
+   * Splits the graph into its strongly connected components.
+   *
+   * @return the components and the graph between them.
+   */
+  public StronglyConnectedComponents computeStronglyConnectedComponents() {
+    return new StronglyConnectedComponents(edges);
+  }
+
+  /**
+   * Runs a breadth first search that keeps the hop distance and parent of every vertex.
+   *
+   * @param source id of the vertex to search from.
+   * @return the finished search.
+   */
+  public BreadthFirstDistances breadthFirstDistances(int source) {
+    BreadthFirstDistances search = new BreadthFirstDistances(edges);
+    search.run(source);
+    return search;
+  }
+
+  /**
+   * Writes the hop distance between every pair of verticies to a file, see {@link
+   * BreadthFirstDistances#writeAllPairs(Adjacency, Path)}.
+   *
+   * @param output file to write to.
+   * @throws IOException if the file cannot be written.
+   */
+  public void writeAllPairDistances(Path output) throws IOException {
+    BreadthFirstDistances.writeAllPairs(edges, output);
+  }
+
+  /**
+   * Starts worker processes that each hold a partition of the graph, for running algorithms as
+   * bulk synchronous supersteps. The workers must be closed once they are no longer needed.
+   *
+   * @param workers number of worker processes.
+   * @return the coordinator of the workers.
+   * @throws IOException if the workers cannot be started.
+   */
+  public BspCoordinator distribute(int workers) throws IOException {
+    return new BspCoordinator(edges, workers);
+  }
+
+  /**
+   * Creates an engine that runs vertex programs over the graph in parallel supersteps.
+   *
+   * @return the engine.
+   */
+  public VertexComputation vertexComputation() {
+    return new VertexComputation(edges);
+  }
+
+  /**
+   * Creates a shortest path search over the weights of the graph.
+   *
+   * @return the search, which is run on demand.
+   */
+  public ShortestPaths shortestPaths() {
+    return new ShortestPaths(edges);
+  }
+
+  /**
+   * Creates a topological sort over the graph.
+   *
+   * @return the sort, which is run on demand.
+   */
+  public TopologicalSort topologicalSort() {
+    return new TopologicalSort(edges);
+  }
+
+  /**
+   * Creates a sampler that estimates how far the graph is from being symmetric, antisymmetric or
+   * transitive, for graphs too large for the exact checks.
+   *
+   * @param filtered whether to look edges up in a Bloom filter instead of the successor lists.
+   * @return the sampler, which is run on demand.
+   */
+  public PropertySampler propertySampler(boolean filtered) {
+    return new PropertySampler(edges, filtered);
+  }
+
+  /**
+   * Converts ids back into their verticies.
+   *
+   * @param ids ids to convert.
+   * @return list of verticies.
+   */
+  private List<T> toVerticies(int[] ids) {
+    List<T> result = new ArrayList<>(ids.length);
+
+    for (int id : ids) {
+      result.add(verticies.getVertex(id));
+    }
+
+    return result;
+  }
 }
@@ -0,0 +1,137 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * A binary min heap of vertex ids keyed by a double, with an index from each vertex to its slot so
+ * a key can be lowered in place. Keys live in primitive arrays, so no operation boxes.
+ */
+public class IndexedMinHeap {
+  private final int[] heap;
+  private final int[] slot;
+  private final double[] keys;
+  private int size;
+
+  /**
+   * the constructor for the heap.
+   *
+   * @param capacity number of vertex ids, every id must be below this.
+   */
+  public IndexedMinHeap(int capacity) {
+    heap = new int[capacity];
+    slot = new int[capacity];
+    keys = new double[capacity];
+    Arrays.fill(slot, -1);
+  }
+
+  /**
+   * The method returns a boolean true if the heap is empty.
+   *
+   * @return boolean of is empty.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Removes every vertex from the heap. */
+  public void clear() {
+    for (int i = 0; i < size; i++) {
+      slot[heap[i]] = -1;
+    }
+    size = 0;
+  }
+
+  /**
+   * Adds a vertex, or lowers its key if it is already in the heap with a larger key.
+   *
+   * @param vertex id of the vertex.
+   * @param key new key of the vertex.
+   */
+  public void insertOrDecrease(int vertex, double key) {
+    int i = slot[vertex];
+
+    if (i < 0) {
+      i = size++;
+    } else if (key >= keys[vertex]) {
+      return;
+    }
+
+    keys[vertex] = key;
+    siftUp(vertex, i);
+  }
+
+  /**
+   * The method returns the smallest key in the heap.
+   *
+   * @return smallest key.
+   */
+  public double peekKey() {
+    return keys[heap[0]];
+  }
+
+  /**
+   * Removes and returns the vertex with the smallest key.
+   *
+   * @return id of the vertex.
+   */
+  public int pop() {
+    int result = heap[0];
+    slot[result] = -1;
+    int last = heap[--size];
+
+    if (size > 0) {
+      siftDown(last, 0);
+    }
+
+    return result;
+  }
+
+  /**
+   * Moves a vertex up from a slot past any parents with larger keys.
+   *
+   * @param vertex id of the vertex.
+   * @param i slot to start from.
+   */
+  private void siftUp(int vertex, int i) {
+    double key = keys[vertex];
+
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (keys[heap[parent]] <= key) {
+        break;
+      }
+      heap[i] = heap[parent];
+      slot[heap[i]] = i;
+      i = parent;
+    }
+
+    heap[i] = vertex;
+    slot[vertex] = i;
+  }
+
+  /**
+   * Moves a vertex down from a slot past any children with smaller keys.
+   *
+   * @param vertex id of the vertex.
+   * @param i slot to start from.
+   */
+  private void siftDown(int vertex, int i) {
+    double key = keys[vertex];
+
+    while (2 * i + 1 < size) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+        child++;
+      }
+      if (keys[heap[child]] >= key) {
+        break;
+      }
+      heap[i] = heap[child];
+      slot[heap[i]] = i;
+      i = child;
+    }
+
+    heap[i] = vertex;
+    slot[vertex] = i;
+  }
+}
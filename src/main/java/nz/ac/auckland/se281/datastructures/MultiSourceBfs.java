@@ -0,0 +1,305 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * A bit-parallel breadth first search from many sources at once. Each source owns one bit lane of
+ * a {@code long} mask per vertex, so a single pass over an edge moves every source that is
+ * currently on its tail, and 64 sources share each sweep of the edges.
+ *
+ * <p>The masks are kept in one array per batch of sources, and the levels in one array per source,
+ * so the number of sources is never multiplied by the number of verticies into a single index.
+ */
+public class MultiSourceBfs {
+  /** The most lanes searched together, so the working masks stay a fixed size per vertex. */
+  private static final int MAX_LANES = 512;
+
+  /** The longest array the virtual machine reliably allocates. */
+  private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+  private final Adjacency edges;
+  private final int vertexCount;
+
+  private int[] sources = new int[0];
+  // reached[s / MAX_LANES][v * words + s % MAX_LANES / 64] has bit s % 64 set when source s reaches
+  // v, where words is the number of words in the batch of s.
+  private long[][] reached = new long[0][];
+  // levels[s][v] is the distance from source s to v, or -1.
+  private int[][] levels;
+
+  /**
+   * the constructor for the search.
+   *
+   * @param edges successor lists to search.
+   */
+  public MultiSourceBfs(Adjacency edges) {
+    this.edges = edges;
+    this.vertexCount = edges.getVertexCount();
+  }
+
+  /**
+   * Searches from every source, recording which verticies each source reaches.
+   *
+   * @param sources ids of the verticies to search from.
+   * @param recordLevels if the distance from every source to every vertex should be kept.
+   * @throws IllegalArgumentException if the graph has too many verticies for the masks of a
+   *     batch of sources to fit in an array.
+   */
+  public void run(int[] sources, boolean recordLevels) {
+    long maskLength = (long) vertexCount * getWords(Math.min(sources.length, MAX_LANES));
+    if (maskLength > MAX_ARRAY_LENGTH) {
+      throw new IllegalArgumentException(
+          "the masks of "
+              + vertexCount
+              + " verticies need "
+              + maskLength
+              + " words, more than an array holds");
+    }
+
+    this.sources = sources.clone();
+    // sources are split into batches so the frontier masks stay bounded.
+    this.reached = new long[(sources.length + MAX_LANES - 1) / MAX_LANES][];
+    this.levels = null;
+
+    if (recordLevels) {
+      levels = new int[sources.length][];
+      for (int s = 0; s < sources.length; s++) {
+        levels[s] = new int[vertexCount];
+        Arrays.fill(levels[s], -1);
+      }
+    }
+
+    for (int batch = 0; batch < reached.length; batch++) {
+      runBatch(batch);
+    }
+  }
+
+  /**
+   * The method returns the number of words that hold a mask of lanes.
+   *
+   * @param lanes number of lanes.
+   * @return number of words.
+   */
+  private static int getWords(int lanes) {
+    return (lanes + 63) / 64;
+  }
+
+  /**
+   * The method returns the number of words in the masks of a batch of sources.
+   *
+   * @param batch index of the batch.
+   * @return number of words.
+   */
+  private int getBatchWords(int batch) {
+    return getWords(Math.min(MAX_LANES, sources.length - batch * MAX_LANES));
+  }
+
+  /**
+   * Searches from one batch of sources, with every source in the batch sharing each edge sweep.
+   *
+   * @param batch index of the batch.
+   */
+  private void runBatch(int batch) {
+    int first = batch * MAX_LANES;
+    int last = Math.min(sources.length, first + MAX_LANES);
+    int batchWords = getBatchWords(batch);
+    long[] batchReached = new long[vertexCount * batchWords];
+    long[] visit = new long[vertexCount * batchWords];
+    long[] visitNext = new long[vertexCount * batchWords];
+    NeighbourCursor cursor = edges.cursor();
+    reached[batch] = batchReached;
+
+    for (int s = first; s < last; s++) {
+      int lane = s - first;
+      int vertex = sources[s];
+      visit[vertex * batchWords + lane / 64] |= 1L << lane;
+      batchReached[vertex * batchWords + lane / 64] |= 1L << lane;
+      recordLevel(s, vertex, 0);
+    }
+
+    boolean frontier = true;
+    for (int level = 1; frontier; level++) {
+      frontier = false;
+
+      for (int vertex = 0; vertex < vertexCount; vertex++) {
+        int base = vertex * batchWords;
+        if (isEmpty(visit, base, batchWords)) {
+          continue;
+        }
+
+        cursor.reset(vertex);
+        while (cursor.hasNext()) {
+          int child = cursor.next();
+          int childBase = child * batchWords;
+
+          for (int w = 0; w < batchWords; w++) {
+            // the lanes on this vertex that have not yet reached the child.
+            long fresh = visit[base + w] & ~batchReached[childBase + w];
+            if (fresh != 0) {
+              visitNext[childBase + w] |= fresh;
+              batchReached[childBase + w] |= fresh;
+              frontier = true;
+
+              if (levels != null) {
+                recordLevels(first + w * 64, fresh, child, level);
+              }
+            }
+          }
+        }
+      }
+
+      long[] temp = visit;
+      visit = visitNext;
+      visitNext = temp;
+      Arrays.fill(visitNext, 0);
+    }
+  }
+
+  /**
+   * Records the level of a vertex for every lane set in a mask.
+   *
+   * @param firstSource index of the source in lane 0 of the mask.
+   * @param mask lanes that reached the vertex.
+   * @param vertex id of the vertex.
+   * @param level distance from the sources.
+   */
+  private void recordLevels(int firstSource, long mask, int vertex, int level) {
+    while (mask != 0) {
+      recordLevel(firstSource + Long.numberOfTrailingZeros(mask), vertex, level);
+      mask &= mask - 1;
+    }
+  }
+
+  /**
+   * Records the level of a vertex for one source, if levels are being kept.
+   *
+   * @param source index of the source.
+   * @param vertex id of the vertex.
+   * @param level distance from the source.
+   */
+  private void recordLevel(int source, int vertex, int level) {
+    if (levels != null) {
+      levels[source][vertex] = level;
+    }
+  }
+
+  /**
+   * Checks if a slice of a mask array is all zero.
+   *
+   * @param masks mask array.
+   * @param base start of the slice.
+   * @param length length of the slice.
+   * @return boolean of is empty.
+   */
+  private static boolean isEmpty(long[] masks, int base, int length) {
+    for (int w = 0; w < length; w++) {
+      if (masks[base + w] != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The method returns roughly how many bytes the search keeps, counting its arrays.
+   *
+   * @return size in bytes.
+   */
+  public long getBytes() {
+    long bytes = (long) sources.length * Integer.BYTES;
+    for (long[] masks : reached) {
+      bytes += (long) masks.length * Long.BYTES;
+    }
+    return levels == null ? bytes : bytes + (long) levels.length * vertexCount * Integer.BYTES;
+  }
+
+  /**
+   * The method returns the number of sources searched by the last run.
+   *
+   * @return number of sources.
+   */
+  public int getSourceCount() {
+    return sources.length;
+  }
+
+  /**
+   * The method returns the vertex id of a source.
+   *
+   * @param source index of the source.
+   * @return id of the source vertex.
+   */
+  public int getSource(int source) {
+    return sources[source];
+  }
+
+  /**
+   * Checks if a source reaches a vertex.
+   *
+   * @param source index of the source.
+   * @param vertex id of the vertex.
+   * @return boolean of reachability.
+   */
+  public boolean reaches(int source, int vertex) {
+    int batch = source / MAX_LANES;
+    int lane = source % MAX_LANES;
+    return (reached[batch][vertex * getBatchWords(batch) + lane / 64] & (1L << lane)) != 0;
+  }
+
+  /**
+   * Finds the distance from a source to a vertex.
+   *
+   * @param source index of the source.
+   * @param vertex id of the vertex.
+   * @return number of edges on a shortest path, or -1 if the vertex is unreachable.
+   * @throws IllegalStateException if the last run did not record levels.
+   */
+  public int getLevel(int source, int vertex) {
+    if (levels == null) {
+      throw new IllegalStateException("levels were not recorded by the last run");
+    }
+    return levels[source][vertex];
+  }
+
+  /**
+   * Lists every vertex a source reaches, including the source itself.
+   *
+   * @param source index of the source.
+   * @return ids of the reached verticies in ascending order.
+   */
+  public int[] getReachable(int source) {
+    int[] result = new int[vertexCount];
+    int count = 0;
+
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      if (reaches(source, vertex)) {
+        result[count++] = vertex;
+      }
+    }
+
+    return Arrays.copyOf(result, count);
+  }
+
+  /**
+   * Lists every source that reaches a vertex.
+   *
+   * @param vertex id of the vertex.
+   * @return indexes of the sources in ascending order.
+   */
+  public int[] getSourcesReaching(int vertex) {
+    int[] result = new int[sources.length];
+    int count = 0;
+
+    for (int batch = 0; batch < reached.length; batch++) {
+      int batchWords = getBatchWords(batch);
+      for (int w = 0; w < batchWords; w++) {
+        long mask = reached[batch][vertex * batchWords + w];
+        while (mask != 0) {
+          result[count++] = batch * MAX_LANES + w * 64 + Long.numberOfTrailingZeros(mask);
+          mask &= mask - 1;
+        }
+      }
+    }
+
+    return Arrays.copyOf(result, count);
+  }
+}
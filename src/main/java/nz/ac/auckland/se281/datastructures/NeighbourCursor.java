@@ -0,0 +1,33 @@
+package nz.ac.auckland.se281.datastructures;
+
+/** Iterates over the successors of one vertex at a time, in ascending order, without boxing. */
+public interface NeighbourCursor {
+
+  /**
+   * Moves the cursor to the start of the successor list of a vertex.
+   *
+   * @param vertex id of the vertex.
+   */
+  void reset(int vertex);
+
+  /**
+   * The method returns a boolean true if there are successors left to visit.
+   *
+   * @return boolean of has next.
+   */
+  boolean hasNext();
+
+  /**
+   * The method returns the next successor and advances the cursor.
+   *
+   * @return id of the next successor.
+   */
+  int next();
+
+  /**
+   * The method returns the weight of the edge to the successor last returned by {@link #next()}.
+   *
+   * @return weight of the edge, {@link Edge#DEFAULT_WEIGHT} if the graph is unweighted.
+   */
+  double weight();
+}
@@ -0,0 +1,207 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Adjacency in the same compressed sparse row layout as {@link CsrAdjacency}, but held in direct
+ * buffers outside the Java heap. The heap only keeps a handful of buffer objects however many edges
+ * there are, so the garbage collector never has to scan or copy the edges.
+ *
+ * <p>A direct buffer holds at most 2GB, so the targets and weights are split into fixed size
+ * chunks and edge i lives at slot {@code i & CHUNK_MASK} of chunk {@code i >>> CHUNK_SHIFT}. Reads
+ * only use absolute gets, so any number of cursors can read the buffers from different threads.
+ */
+public class OffHeapAdjacency implements Adjacency {
+  /** Each chunk holds 2^27 entries, which is 512MB of ints or 1GB of doubles. */
+  private static final int CHUNK_SHIFT = 27;
+
+  private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+  private final int vertexCount;
+  private final int edgeCount;
+  private final IntBuffer offsets;
+  private final IntBuffer[] targets;
+  private final DoubleBuffer[] weights;
+
+  /**
+   * the constructor for an empty adjacency, which is filled in by {@link #copyOf(Adjacency)}.
+   *
+   * @param vertexCount number of verticies.
+   * @param edgeCount number of edges.
+   * @param weighted if a weight is kept for each edge.
+   */
+  private OffHeapAdjacency(int vertexCount, int edgeCount, boolean weighted) {
+    this.vertexCount = vertexCount;
+    this.edgeCount = edgeCount;
+    this.offsets = allocate((vertexCount + 1L) * Integer.BYTES).asIntBuffer();
+
+    int chunks = (int) ((edgeCount + (long) CHUNK_MASK) >>> CHUNK_SHIFT);
+    this.targets = new IntBuffer[chunks];
+    this.weights = weighted ? new DoubleBuffer[chunks] : null;
+
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      int length = Math.min(CHUNK_MASK + 1, edgeCount - (chunk << CHUNK_SHIFT));
+      targets[chunk] = allocate((long) length * Integer.BYTES).asIntBuffer();
+      if (weighted) {
+        weights[chunk] = allocate((long) length * Double.BYTES).asDoubleBuffer();
+      }
+    }
+  }
+
+  /**
+   * The method returns the direct memory an adjacency of some size takes off the heap.
+   *
+   * @param vertexCount number of verticies.
+   * @param edgeCount number of edges.
+   * @param weighted if a weight is kept for each edge.
+   * @return size in bytes.
+   */
+  public static long getBytes(int vertexCount, long edgeCount, boolean weighted) {
+    long edgeBytes = Integer.BYTES + (weighted ? Double.BYTES : 0);
+    return (vertexCount + 1L) * Integer.BYTES + edgeCount * edgeBytes;
+  }
+
+  /**
+   * Allocates a direct buffer in the native byte order.
+   *
+   * @param bytes size of the buffer.
+   * @return the buffer.
+   */
+  private static ByteBuffer allocate(long bytes) {
+    return ByteBuffer.allocateDirect(Math.toIntExact(bytes)).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Copies any adjacency into off heap buffers, one successor list at a time.
+   *
+   * @param edges successor lists to copy.
+   * @return the off heap adjacency.
+   */
+  public static OffHeapAdjacency copyOf(Adjacency edges) {
+    OffHeapAdjacency copy =
+        new OffHeapAdjacency(edges.getVertexCount(), edges.getEdgeCount(), edges.isWeighted());
+    NeighbourCursor cursor = edges.cursor();
+    int position = 0;
+
+    for (int vertex = 0; vertex < copy.vertexCount; vertex++) {
+      copy.offsets.put(vertex, position);
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        copy.targets[position >>> CHUNK_SHIFT].put(position & CHUNK_MASK, cursor.next());
+        if (copy.weights != null) {
+          copy.weights[position >>> CHUNK_SHIFT].put(position & CHUNK_MASK, cursor.weight());
+        }
+        position++;
+      }
+    }
+    copy.offsets.put(copy.vertexCount, position);
+
+    return copy;
+  }
+
+  /**
+   * The method returns the target of an edge.
+   *
+   * @param index index of the edge.
+   * @return id of the target.
+   */
+  private int target(int index) {
+    return targets[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+  }
+
+  @Override
+  public int getVertexCount() {
+    return vertexCount;
+  }
+
+  @Override
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  @Override
+  public int getOutDegree(int vertex) {
+    return offsets.get(vertex + 1) - offsets.get(vertex);
+  }
+
+  @Override
+  public boolean isWeighted() {
+    return weights != null;
+  }
+
+  @Override
+  public int getSuccessor(int vertex, int index) {
+    return target(offsets.get(vertex) + index);
+  }
+
+  @Override
+  public boolean containsEdge(int source, int destination) {
+    int low = offsets.get(source);
+    int high = offsets.get(source + 1) - 1;
+
+    // successor lists are sorted, so the row can be binary searched in place.
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int target = target(middle);
+      if (target < destination) {
+        low = middle + 1;
+      } else if (target > destination) {
+        high = middle - 1;
+      } else {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  @Override
+  public long getHeapBytes() {
+    // only the buffer objects themselves are on the heap.
+    return 0;
+  }
+
+  @Override
+  public long getOffHeapBytes() {
+    long bytes = (vertexCount + 1L) * Integer.BYTES + (long) edgeCount * Integer.BYTES;
+    return weights == null ? bytes : bytes + (long) edgeCount * Double.BYTES;
+  }
+
+  @Override
+  public NeighbourCursor cursor() {
+    return new Cursor();
+  }
+
+  /** Cursor that walks a slice of the target chunks. */
+  private class Cursor implements NeighbourCursor {
+    private int position;
+    private int end;
+
+    @Override
+    public void reset(int vertex) {
+      position = offsets.get(vertex);
+      end = offsets.get(vertex + 1);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return position < end;
+    }
+
+    @Override
+    public int next() {
+      return target(position++);
+    }
+
+    @Override
+    public double weight() {
+      int index = position - 1;
+      return weights == null
+          ? Edge.DEFAULT_WEIGHT
+          : weights[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * The result of checking a property on a random sample of edges or 2-paths instead of all of
+ * them. The share of sampled cases that break the property estimates the share across the whole
+ * graph, and the Wilson score interval around it bounds the true share with 95% confidence.
+ */
+public class PropertySample {
+  /** The normal quantile of a two sided 95% interval. */
+  private static final double Z = 1.959963984540054;
+
+  private final long population;
+  private final long samples;
+  private final long violations;
+  private final long nanos;
+  private final double falsePositiveRate;
+
+  /**
+   * the constructor for a finished sample.
+   *
+   * @param population number of edges or 2-paths the sample was drawn from.
+   * @param samples number of cases checked.
+   * @param violations number of checked cases that broke the property.
+   * @param nanos time spent sampling.
+   * @param falsePositiveRate share of missing edges the edge lookups took as present, 0 if exact.
+   */
+  PropertySample(
+      long population, long samples, long violations, long nanos, double falsePositiveRate) {
+    this.population = population;
+    this.samples = samples;
+    this.violations = violations;
+    this.nanos = nanos;
+    this.falsePositiveRate = falsePositiveRate;
+  }
+
+  /**
+   * The method returns the number of edges or 2-paths the sample was drawn from.
+   *
+   * @return size of the population.
+   */
+  public long getPopulation() {
+    return population;
+  }
+
+  /**
+   * The method returns the number of cases checked.
+   *
+   * @return number of samples.
+   */
+  public long getSamples() {
+    return samples;
+  }
+
+  /**
+   * The method returns the number of checked cases that broke the property.
+   *
+   * @return number of violations.
+   */
+  public long getViolations() {
+    return violations;
+  }
+
+  /**
+   * The method returns the time spent sampling.
+   *
+   * @return nanoseconds spent.
+   */
+  public long getNanos() {
+    return nanos;
+  }
+
+  /**
+   * The method returns the share of missing edges that the edge lookups took as present, which
+   * biases the estimate. It is 0 when every lookup searched the successor lists.
+   *
+   * @return the false positive rate, between 0 and 1.
+   */
+  public double getFalsePositiveRate() {
+    return falsePositiveRate;
+  }
+
+  /**
+   * The method returns the share of sampled cases that broke the property.
+   *
+   * @return the estimated violation rate, 0 if nothing was sampled.
+   */
+  public double getRate() {
+    return samples == 0 ? 0 : (double) violations / samples;
+  }
+
+  /**
+   * The method returns the lower end of the 95% Wilson score interval of the violation rate.
+   *
+   * @return the lower bound, between 0 and 1.
+   */
+  public double getLowerBound() {
+    return samples == 0 ? 0 : Math.max(0, centre() - halfWidth());
+  }
+
+  /**
+   * The method returns the upper end of the 95% Wilson score interval of the violation rate.
+   *
+   * @return the upper bound, between 0 and 1.
+   */
+  public double getUpperBound() {
+    return samples == 0 ? 1 : Math.min(1, centre() + halfWidth());
+  }
+
+  /**
+   * The method returns the centre of the Wilson interval, which is pulled towards a half so the
+   * interval stays sensible when no or every sampled case broke the property.
+   *
+   * @return the centre.
+   */
+  private double centre() {
+    double z2 = Z * Z / samples;
+    return (getRate() + z2 / 2) / (1 + z2);
+  }
+
+  /**
+   * The method returns the half width of the Wilson interval.
+   *
+   * @return the half width.
+   */
+  private double halfWidth() {
+    double rate = getRate();
+    double z2 = Z * Z / samples;
+    return Z * Math.sqrt(rate * (1 - rate) / samples + z2 / (4.0 * samples)) / (1 + z2);
+  }
+}
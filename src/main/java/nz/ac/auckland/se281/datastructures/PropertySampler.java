@@ -0,0 +1,273 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.SplittableRandom;
+
+/**
+ * Estimates how far a graph is from being symmetric, antisymmetric or transitive by checking
+ * random edges or random 2-paths, for graphs too large to check every case of. Each sample is
+ * drawn uniformly, so the share of samples that break the property is an unbiased estimate of the
+ * share of the whole graph that does, whatever its degree distribution.
+ *
+ * <p>Sampling stops after a number of samples or an amount of time, whichever comes first. The
+ * samples are drawn from a seed fixed by the graph, so the same graph and budget give the same
+ * estimate.
+ */
+public class PropertySampler {
+  /** Samples drawn between looks at the clock. */
+  private static final int CLOCK_INTERVAL = 256;
+
+  /** Edges between the checkpoints of the running total of 2-paths. */
+  private static final int PATH_BLOCK = 32;
+
+  private final Adjacency edges;
+  private final EdgeFilter filter;
+  private final NeighbourCursor outer;
+  private long[] firstEdge;
+  private long[] pathCheckpoints;
+
+  /**
+   * the constructor for a sampler over a graph.
+   *
+   * @param edges successor lists of the graph.
+   * @param filtered whether to look edges up in a Bloom filter instead of the successor lists,
+   *     which is faster when the lists are slow to search but biases the estimate slightly.
+   */
+  public PropertySampler(Adjacency edges, boolean filtered) {
+    this.edges = edges;
+    this.filter = filtered ? EdgeFilter.of(edges) : null;
+    this.outer = edges.cursor();
+  }
+
+  /**
+   * The method returns roughly how many bytes the sampler keeps, not
+   * counting the edges it samples, counting its arrays.
+   *
+   * @return size in bytes.
+   */
+  public long getBytes() {
+    long bytes = filter == null ? 0 : filter.getBytes();
+    if (firstEdge != null) {
+      bytes += (long) firstEdge.length * Long.BYTES;
+    }
+    if (pathCheckpoints != null) {
+      bytes += (long) pathCheckpoints.length * Long.BYTES;
+    }
+    return bytes;
+  }
+
+  /**
+   * Estimates the share of edges xRy without a yRx.
+   *
+   * @param samples most edges to check.
+   * @param nanos most time to spend.
+   * @return the estimate.
+   */
+  public PropertySample sampleSymmetry(long samples, long nanos) {
+    long start = System.nanoTime();
+    long[] prefix = edgePrefix();
+    long population = prefix[prefix.length - 1];
+    SplittableRandom random = new SplittableRandom(population);
+    long drawn = 0;
+    long violations = 0;
+
+    while (drawn < samples && population > 0 && withinTime(drawn, start, nanos)) {
+      long edge = random.nextLong(population);
+      int x = locate(prefix, edge);
+      int y = edges.getSuccessor(x, (int) (edge - prefix[x]));
+      if (!present(y, x)) {
+        violations++;
+      }
+      drawn++;
+    }
+
+    return finish(population, drawn, violations, start);
+  }
+
+  /**
+   * Estimates the share of edges xRy between different verticies that also have a yRx. Every pair
+   * that breaks antisymmetry is counted through both of its edges.
+   *
+   * @param samples most edges to check.
+   * @param nanos most time to spend.
+   * @return the estimate.
+   */
+  public PropertySample sampleAntiSymmetry(long samples, long nanos) {
+    long start = System.nanoTime();
+    long[] prefix = edgePrefix();
+    long population = prefix[prefix.length - 1];
+    SplittableRandom random = new SplittableRandom(population);
+    long drawn = 0;
+    long violations = 0;
+
+    while (drawn < samples && population > 0 && withinTime(drawn, start, nanos)) {
+      long edge = random.nextLong(population);
+      int x = locate(prefix, edge);
+      int y = edges.getSuccessor(x, (int) (edge - prefix[x]));
+      if (x != y && present(y, x)) {
+        violations++;
+      }
+      drawn++;
+    }
+
+    return finish(population, drawn, violations, start);
+  }
+
+  /**
+   * Estimates the share of 2-paths xRyRz without an xRz. The 2-paths are numbered in edge order,
+   * out(y) of them for each edge xRy, and a 2-path is drawn uniformly by its number. A running
+   * total of the 2-paths is kept every {@link #PATH_BLOCK} edges, so finding the edge of a path
+   * reads at most that many edges however long the successor lists are, and no list of
+   * predecessors is ever needed.
+   *
+   * @param samples most 2-paths to check.
+   * @param nanos most time to spend.
+   * @return the estimate.
+   */
+  public PropertySample sampleTransitivity(long samples, long nanos) {
+    long start = System.nanoTime();
+    long[] prefix = edgePrefix();
+    long[] checkpoints = pathCheckpoints();
+    long population = checkpoints[checkpoints.length - 1];
+    SplittableRandom random = new SplittableRandom(population);
+    long drawn = 0;
+    long violations = 0;
+
+    while (drawn < samples && population > 0 && withinTime(drawn, start, nanos)) {
+      long path = random.nextLong(population);
+      int block = locate(checkpoints, path);
+      long offset = path - checkpoints[block];
+
+      // walk the edges of the block to the one whose out(y) 2-paths hold the chosen path.
+      long edge = (long) block * PATH_BLOCK;
+      int x = locate(prefix, edge);
+      int y = edges.getSuccessor(x, (int) (edge - prefix[x]));
+      while (offset >= edges.getOutDegree(y)) {
+        offset -= edges.getOutDegree(y);
+        edge++;
+        while (edge >= prefix[x + 1]) {
+          x++;
+        }
+        y = edges.getSuccessor(x, (int) (edge - prefix[x]));
+      }
+
+      int z = edges.getSuccessor(y, (int) offset);
+      if (!present(x, z)) {
+        violations++;
+      }
+      drawn++;
+    }
+
+    return finish(population, drawn, violations, start);
+  }
+
+  /**
+   * Gets the index of the first edge of each vertex, building it on first use.
+   *
+   * @return the running total of the out degrees, one longer than the number of verticies.
+   */
+  private long[] edgePrefix() {
+    if (firstEdge == null) {
+      int size = edges.getVertexCount();
+      firstEdge = new long[size + 1];
+      for (int vertex = 0; vertex < size; vertex++) {
+        firstEdge[vertex + 1] = firstEdge[vertex] + edges.getOutDegree(vertex);
+      }
+    }
+    return firstEdge;
+  }
+
+  /**
+   * Gets the running total of the 2-paths at every {@link #PATH_BLOCK}th edge, building it on
+   * first use in one pass over the edges.
+   *
+   * @return the 2-paths of the edges before each block, with the total of all of them last.
+   */
+  private long[] pathCheckpoints() {
+    if (pathCheckpoints == null) {
+      int size = edges.getVertexCount();
+      long[] checkpoints = new long[(int) ((edgePrefix()[size] + PATH_BLOCK - 1) / PATH_BLOCK) + 1];
+      long paths = 0;
+      long edge = 0;
+      for (int x = 0; x < size; x++) {
+        outer.reset(x);
+        while (outer.hasNext()) {
+          if (edge % PATH_BLOCK == 0) {
+            checkpoints[(int) (edge / PATH_BLOCK)] = paths;
+          }
+          paths += edges.getOutDegree(outer.next());
+          edge++;
+        }
+      }
+      checkpoints[checkpoints.length - 1] = paths;
+      pathCheckpoints = checkpoints;
+    }
+    return pathCheckpoints;
+  }
+
+  /**
+   * Finds the vertex whose range of a running total holds an index.
+   *
+   * @param prefix running total, starting at 0.
+   * @param index index below the last total.
+   * @return the vertex v with prefix[v] at most the index and prefix[v + 1] above it.
+   */
+  private static int locate(long[] prefix, long index) {
+    int low = 0;
+    int high = prefix.length - 2;
+
+    // the last v with prefix[v] <= index, which skips verticies with an empty range.
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (prefix[middle] <= index) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    return low;
+  }
+
+  /**
+   * Checks for an edge, in the filter if there is one.
+   *
+   * @param source id of the source vertex.
+   * @param destination id of the destination vertex.
+   * @return boolean of if the edge exists.
+   */
+  private boolean present(int source, int destination) {
+    return filter != null
+        ? filter.mightContain(source, destination)
+        : edges.containsEdge(source, destination);
+  }
+
+  /**
+   * Checks the time budget, only every so many samples as reading the clock is not free.
+   *
+   * @param drawn samples drawn so far.
+   * @param start time sampling started.
+   * @param nanos most time to spend.
+   * @return boolean of if there is time left.
+   */
+  private static boolean withinTime(long drawn, long start, long nanos) {
+    return drawn % CLOCK_INTERVAL != 0 || System.nanoTime() - start < nanos;
+  }
+
+  /**
+   * Wraps up a finished sample.
+   *
+   * @param population number of cases the sample was drawn from.
+   * @param drawn number of cases checked.
+   * @param violations number of cases that broke the property.
+   * @param start time sampling started.
+   * @return the sample.
+   */
+  private PropertySample finish(long population, long drawn, long violations, long start) {
+    return new PropertySample(
+        population,
+        drawn,
+        violations,
+        System.nanoTime() - start,
+        filter == null ? 0 : filter.getFalsePositiveRate());
+  }
+}
@@ -0,0 +1,129 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * A monotone radix heap of vertex ids keyed by a non-negative long. Every key pushed must be at
+ * least the last key popped, which always holds for Dijkstra's algorithm with integer weights.
+ *
+ * <p>Bucket i holds keys whose highest bit that differs from the last popped key is bit i - 1, so
+ * each entry only moves to lower buckets, at most 64 times in total. A vertex whose key is lowered
+ * is simply pushed again, and the stale entry is skipped by the caller.
+ */
+public class RadixHeap {
+  private static final int BUCKETS = 65;
+
+  private final int[][] vertexBuckets = new int[BUCKETS][];
+  private final long[][] keyBuckets = new long[BUCKETS][];
+  private final int[] bucketSizes = new int[BUCKETS];
+  private long last;
+  private int size;
+  private long poppedKey;
+
+  /** the constructor for the heap. */
+  public RadixHeap() {
+    for (int b = 0; b < BUCKETS; b++) {
+      vertexBuckets[b] = new int[4];
+      keyBuckets[b] = new long[4];
+    }
+  }
+
+  /**
+   * The method returns a boolean true if the heap is empty.
+   *
+   * @return boolean of is empty.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Removes every entry and resets the last popped key to zero. */
+  public void clear() {
+    Arrays.fill(bucketSizes, 0);
+    size = 0;
+    last = 0;
+  }
+
+  /**
+   * Adds a vertex with a key.
+   *
+   * @param vertex id of the vertex.
+   * @param key key of the vertex, at least the last popped key.
+   */
+  public void push(int vertex, long key) {
+    add(bucketOf(key), vertex, key);
+    size++;
+  }
+
+  /**
+   * Removes and returns a vertex with the smallest key, see {@link #getPoppedKey()}.
+   *
+   * @return id of the vertex.
+   */
+  public int pop() {
+    if (bucketSizes[0] == 0) {
+      int b = 1;
+      while (bucketSizes[b] == 0) {
+        b++;
+      }
+
+      // the smallest key of the first non-empty bucket becomes the new last key.
+      long min = Long.MAX_VALUE;
+      for (int i = 0; i < bucketSizes[b]; i++) {
+        min = Math.min(min, keyBuckets[b][i]);
+      }
+      last = min;
+
+      // every entry of the bucket now differs from last in a lower bit.
+      int count = bucketSizes[b];
+      bucketSizes[b] = 0;
+      for (int i = 0; i < count; i++) {
+        long key = keyBuckets[b][i];
+        add(bucketOf(key), vertexBuckets[b][i], key);
+      }
+    }
+
+    int i = --bucketSizes[0];
+    size--;
+    poppedKey = keyBuckets[0][i];
+    return vertexBuckets[0][i];
+  }
+
+  /**
+   * The method returns the key of the vertex returned by the last {@link #pop()}.
+   *
+   * @return key of the last popped vertex.
+   */
+  public long getPoppedKey() {
+    return poppedKey;
+  }
+
+  /**
+   * Works out which bucket a key belongs in.
+   *
+   * @param key key to place.
+   * @return index of the bucket.
+   */
+  private int bucketOf(long key) {
+    return key == last ? 0 : 64 - Long.numberOfLeadingZeros(key ^ last);
+  }
+
+  /**
+   * Appends an entry to a bucket, growing the bucket if needed.
+   *
+   * @param bucket index of the bucket.
+   * @param vertex id of the vertex.
+   * @param key key of the vertex.
+   */
+  private void add(int bucket, int vertex, long key) {
+    int i = bucketSizes[bucket]++;
+
+    if (i == vertexBuckets[bucket].length) {
+      vertexBuckets[bucket] = Arrays.copyOf(vertexBuckets[bucket], i * 2);
+      keyBuckets[bucket] = Arrays.copyOf(keyBuckets[bucket], i * 2);
+    }
+
+    vertexBuckets[bucket][i] = vertex;
+    keyBuckets[bucket][i] = key;
+  }
+}
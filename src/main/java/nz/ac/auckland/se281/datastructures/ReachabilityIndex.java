@@ -0,0 +1,300 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Answers "can u reach v?" without searching the whole graph each time. The graph is first
+ * condensed into its strongly connected components, which form a DAG.
+ *
+ * <p>Small condensations store the full transitive closure as one bit row per component, so every
+ * query is a single bit test. Larger condensations keep GRAIL-style interval labels from a few
+ * randomised depth first searches: if the interval of v is not nested in the interval of u for any
+ * of the labellings, u cannot reach v. Queries that pass every filter fall back to a depth first
+ * search of the condensation that is pruned by the same labels.
+ */
+public class ReachabilityIndex {
+  /** The largest condensation that gets a full closure, about 32MB of bit rows. */
+  private static final int CLOSURE_LIMIT = 1 << 14;
+
+  /** The number of randomised interval labellings kept for large condensations. */
+  private static final int LABELLINGS = 3;
+
+  private final StronglyConnectedComponents components;
+  private final CsrAdjacency dag;
+  private final int size;
+
+  private long[] closure;
+  private int words;
+
+  private int[][] low;
+  private int[][] rank;
+
+  private int[] visited;
+  private int epoch;
+  private int[] stack;
+
+  /**
+   * the constructor for the index, which is built straight away.
+   *
+   * @param edges successor lists of the graph.
+   */
+  public ReachabilityIndex(Adjacency edges) {
+    this(new StronglyConnectedComponents(edges));
+  }
+
+  /**
+   * the constructor for an index over components that have already been computed.
+   *
+   * @param components strongly connected components of the graph.
+   */
+  public ReachabilityIndex(StronglyConnectedComponents components) {
+    this.components = components;
+    this.dag = components.getCondensation();
+    this.size = components.getComponentCount();
+
+    if (size <= CLOSURE_LIMIT) {
+      buildClosure();
+    } else {
+      buildLabels();
+    }
+  }
+
+  /**
+   * Builds the transitive closure of the condensation. Components are numbered in reverse
+   * topological order, so every successor of a component has its row finished before it.
+   */
+  private void buildClosure() {
+    words = (size + 63) / 64;
+    closure = new long[size * words];
+    NeighbourCursor cursor = dag.cursor();
+
+    for (int c = 0; c < size; c++) {
+      int row = c * words;
+      closure[row + c / 64] |= 1L << c;
+
+      cursor.reset(c);
+      while (cursor.hasNext()) {
+        int childRow = cursor.next() * words;
+        for (int w = 0; w < words; w++) {
+          closure[row + w] |= closure[childRow + w];
+        }
+      }
+    }
+  }
+
+  /**
+   * Builds the interval labels. Each labelling visits components in a random order with a depth
+   * first search, ranking components by post order, and the low of a component is the smallest
+   * rank below it.
+   */
+  private void buildLabels() {
+    low = new int[LABELLINGS][size];
+    rank = new int[LABELLINGS][size];
+    visited = new int[size];
+    stack = new int[size];
+    Random random = new Random(size);
+
+    int[] order = new int[size];
+    for (int c = 0; c < size; c++) {
+      order[c] = c;
+    }
+
+    for (int labelling = 0; labelling < LABELLINGS; labelling++) {
+      // shuffle the starting order so each labelling prunes different queries.
+      for (int i = size - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        int temp = order[i];
+        order[i] = order[j];
+        order[j] = temp;
+      }
+      label(order, low[labelling], rank[labelling]);
+    }
+  }
+
+  /**
+   * Computes one labelling with an iterative post order depth first search.
+   *
+   * @param order order to start searches from.
+   * @param low the low label of each component, filled in.
+   * @param rank the post order rank of each component, filled in.
+   */
+  private void label(int[] order, int[] low, int[] rank) {
+    nextEpoch();
+    NeighbourCursor[] cursors = new NeighbourCursor[size];
+    int nextRank = 0;
+
+    for (int start : order) {
+      if (visited[start] == epoch) {
+        continue;
+      }
+
+      int top = 0;
+      visited[start] = epoch;
+      stack[top] = start;
+      cursors[top] = cursorAt(cursors[top], start);
+      low[start] = Integer.MAX_VALUE;
+      top++;
+
+      while (top > 0) {
+        int c = stack[top - 1];
+        NeighbourCursor cursor = cursors[top - 1];
+
+        if (cursor.hasNext()) {
+          int child = cursor.next();
+          if (visited[child] != epoch) {
+            visited[child] = epoch;
+            stack[top] = child;
+            cursors[top] = cursorAt(cursors[top], child);
+            low[child] = Integer.MAX_VALUE;
+            top++;
+          } else {
+            low[c] = Math.min(low[c], low[child]);
+          }
+          continue;
+        }
+
+        top--;
+        rank[c] = nextRank++;
+        low[c] = Math.min(low[c], rank[c]);
+        if (top > 0) {
+          int parent = stack[top - 1];
+          low[parent] = Math.min(low[parent], low[c]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Resets a cursor over the condensation, creating it the first time a depth is reached.
+   *
+   * @param cursor cursor previously used at this depth, or null.
+   * @param component id of the component.
+   * @return the reset cursor.
+   */
+  private NeighbourCursor cursorAt(NeighbourCursor cursor, int component) {
+    if (cursor == null) {
+      cursor = dag.cursor();
+    }
+    cursor.reset(component);
+    return cursor;
+  }
+
+  /**
+   * The method returns roughly how many bytes the index keeps, counting its arrays but not the
+   * components it was built from, which hold the graph it searches.
+   *
+   * @return size in bytes.
+   */
+  public long getBytes() {
+    long bytes = 0;
+    if (closure != null) {
+      bytes += (long) closure.length * Long.BYTES;
+    }
+    if (low != null) {
+      bytes += (long) LABELLINGS * 2 * size * Integer.BYTES;
+      bytes += (long) (visited.length + stack.length) * Integer.BYTES;
+    }
+    return bytes;
+  }
+
+  /**
+   * Checks if a vertex can reach another vertex. Every vertex can reach itself.
+   *
+   * @param source id of the vertex to start from.
+   * @param destination id of the vertex to reach.
+   * @return boolean of reachability.
+   */
+  public boolean isReachable(int source, int destination) {
+    int from = components.getComponent(source);
+    int to = components.getComponent(destination);
+
+    if (from == to) {
+      return true;
+    }
+    // edges only go from higher to lower component ids.
+    if (from < to) {
+      return false;
+    }
+    if (closure != null) {
+      return (closure[from * words + to / 64] & (1L << to)) != 0;
+    }
+    if (!mayReach(from, to)) {
+      return false;
+    }
+    return search(from, to);
+  }
+
+  /**
+   * Answers a batch of queries, see {@link #isReachable(int, int)}.
+   *
+   * @param sources ids of the verticies to start from.
+   * @param destinations ids of the verticies to reach, lined up with the sources.
+   * @param results whether each query is reachable, filled in.
+   */
+  public void areReachable(int[] sources, int[] destinations, boolean[] results) {
+    for (int i = 0; i < sources.length; i++) {
+      results[i] = isReachable(sources[i], destinations[i]);
+    }
+  }
+
+  /**
+   * Checks the interval labels, which can prove that a component is unreachable.
+   *
+   * @param from component to start from.
+   * @param to component to reach.
+   * @return false if to is definitely unreachable from from.
+   */
+  private boolean mayReach(int from, int to) {
+    for (int labelling = 0; labelling < LABELLINGS; labelling++) {
+      if (low[labelling][to] < low[labelling][from]
+          || rank[labelling][to] > rank[labelling][from]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Starts a new search, which leaves every component unvisited. The marks are cleared when the
+   * epoch would wrap, so a mark left by a search long ago is never taken for the current one.
+   */
+  private void nextEpoch() {
+    if (epoch == Integer.MAX_VALUE) {
+      Arrays.fill(visited, 0);
+      epoch = 0;
+    }
+    epoch++;
+  }
+
+  /**
+   * Searches the condensation for a path, skipping components the labels rule out.
+   *
+   * @param from component to start from.
+   * @param to component to reach.
+   * @return boolean of reachability.
+   */
+  private boolean search(int from, int to) {
+    nextEpoch();
+    NeighbourCursor cursor = dag.cursor();
+    int top = 0;
+    stack[top++] = from;
+    visited[from] = epoch;
+
+    while (top > 0) {
+      cursor.reset(stack[--top]);
+      while (cursor.hasNext()) {
+        int child = cursor.next();
+        if (child == to) {
+          return true;
+        }
+        if (visited[child] != epoch && child > to && mayReach(child, to)) {
+          visited[child] = epoch;
+          stack[top++] = child;
+        }
+      }
+    }
+
+    return false;
+  }
+}
@@ -0,0 +1,132 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Decides reflexivity, symmetry, transitivity and antisymmetry together, in a single pass over the
+ * successor lists, instead of one pass for each of them.
+ *
+ * <p>The pass marks the successors of each x, then walks the successors of each of its y to check
+ * every 2-path xRyRz against the marks. That walk also shows whether x is a successor of y, so the
+ * yRx needed by both symmetry and antisymmetry comes for free, and is only looked up separately
+ * once transitivity has failed and the walks stop. Each property stops doing work as soon as it
+ * fails, and the pass ends once every property has failed.
+ */
+public class RelationProperties {
+  private boolean reflexive = true;
+  private boolean symmetric = true;
+  private boolean transitive = true;
+  private boolean antiSymmetric = true;
+
+  /**
+   * the constructor for the properties, which are computed straight away.
+   *
+   * @param edges successor lists of the graph.
+   * @param dense the bit matrix of the graph, or null if it is too sparse to have one. Transitivity
+   *     is checked on the matrix when there is one, and the pass only does the lookups.
+   */
+  public RelationProperties(Adjacency edges, BitMatrix dense) {
+    if (dense != null) {
+      transitive = dense.isTransitive();
+    }
+
+    int size = edges.getVertexCount();
+    // stamp[z] == x marks that xRz exists, so the check for xRz is a single array read.
+    int[] stamp = new int[size];
+    Arrays.fill(stamp, -1);
+
+    // a fresh walk of the 2-paths is only needed while transitivity is still unknown.
+    boolean walking = dense == null;
+    NeighbourCursor outer = edges.cursor();
+    NeighbourCursor inner = edges.cursor();
+
+    for (int x = 0; x < size && (reflexive || symmetric || transitive || antiSymmetric); x++) {
+      walking &= transitive;
+
+      if (walking) {
+        outer.reset(x);
+        while (outer.hasNext()) {
+          stamp[outer.next()] = x;
+        }
+      }
+
+      boolean selfLoop = false;
+      outer.reset(x);
+      while (outer.hasNext() && (symmetric || antiSymmetric || walking)) {
+        int y = outer.next();
+        if (y == x) {
+          selfLoop = true;
+          continue;
+        }
+
+        boolean reverse = false;
+        if (walking) {
+          // the whole list of y is walked even after a failure, to find out if yRx exists.
+          inner.reset(y);
+          while (inner.hasNext()) {
+            int z = inner.next();
+            reverse |= z == x;
+            if (stamp[z] != x) {
+              transitive = false;
+            }
+          }
+        } else if (symmetric || antiSymmetric) {
+          reverse = edges.containsEdge(y, x);
+        }
+
+        symmetric &= reverse;
+        antiSymmetric &= !reverse;
+      }
+
+      // the list may have been left early, so a missing self loop is looked up to be sure.
+      if (reflexive && !selfLoop) {
+        reflexive = edges.containsEdge(x, x);
+      }
+    }
+  }
+
+  /**
+   * The method returns a boolean true if every vertex has a self loop.
+   *
+   * @return boolean of reflexivity.
+   */
+  public boolean isReflexive() {
+    return reflexive;
+  }
+
+  /**
+   * The method returns a boolean true if every xRy has a yRx.
+   *
+   * @return boolean of symmetry.
+   */
+  public boolean isSymmetric() {
+    return symmetric;
+  }
+
+  /**
+   * The method returns a boolean true if every xRyRz has an xRz.
+   *
+   * @return boolean of transitivity.
+   */
+  public boolean isTransitive() {
+    return transitive;
+  }
+
+  /**
+   * The method returns a boolean true if no two different verticies have edges both ways.
+   *
+   * @return boolean of antisymmetry.
+   */
+  public boolean isAntiSymmetric() {
+    return antiSymmetric;
+  }
+
+  /**
+   * The method returns a boolean true if the graph is reflexive, symmetric and transitive.
+   *
+   * @return boolean of equivalence.
+   */
+  public boolean isEquivalence() {
+    return reflexive && symmetric && transitive;
+  }
+}
@@ -0,0 +1,223 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Breadth first and depth first searches over successor lists kept on disk, which visit the
+ * verticies in the same order as the searches of {@link Graph} while only keeping state for each
+ * vertex in memory, never for each edge.
+ *
+ * <p>The breadth first search works one level at a time. The lists of the whole level are read in
+ * ascending vertex order, so the file is read forwards and at most once per level, and every list
+ * is read in exactly one level. Each vertex reached for the first time is claimed by its parent
+ * that was queued first, and sorting the level by claim and then by id gives the order the
+ * in-memory search queues them in. The depth first search keeps a frame of each vertex on the
+ * path, holding where its list was left, instead of a stack with an entry per edge.
+ */
+class SemiExternalSearch {
+  /**
+   * The largest gap between two lists of a level that is read through rather than skipped with a
+   * separate read, about a disk block.
+   */
+  private static final int GAP_EDGES = 1024;
+
+  /** The most edges read when the depth first search returns to a list it left part way. */
+  private static final int RESUME_EDGES = 256;
+
+  private final ExternalAdjacency edges;
+  private final ExternalAdjacency.FileCursor cursor;
+
+  /**
+   * the constructor for the searches over an edge file.
+   *
+   * @param edges successor lists of the graph, on disk.
+   */
+  SemiExternalSearch(ExternalAdjacency edges) {
+    this.edges = edges;
+    this.cursor = edges.fileCursor();
+  }
+
+  /**
+   * Searches breadth first from every root, in the order of {@link
+   * Graph#breadthFirstSearch(TraversalContext)}: all the roots, then the search from each root in
+   * turn.
+   *
+   * @param roots ids of the roots in ascending order.
+   * @param context working memory of the search.
+   * @return number of verticies searched, whose ids are at the start of the context output.
+   */
+  int breadthFirst(int[] roots, TraversalContext context) {
+    int size = edges.getVertexCount();
+    int[] result = context.getOutput();
+    // claim[v] is the rank of the parent that queues v, for the level in claimLevel[v].
+    int[] claim = new int[size];
+    int[] claimLevel = new int[size];
+    // holds the level sorted by id while its lists are read, then the reached verticies.
+    long[] keys = new long[size];
+    int level = 0;
+    int end = 0;
+
+    context.begin();
+    for (int root : roots) {
+      context.visit(root);
+      result[end++] = root;
+    }
+
+    for (int index = 0; index < roots.length; index++) {
+      // the first level is the root itself, which is already in the result.
+      int front = index;
+      int back = index + 1;
+      int start = end;
+
+      while (front < back) {
+        end = queueLevel(result, front, back, end, ++level, claim, claimLevel, keys, context);
+        front = start;
+        back = end;
+        start = end;
+      }
+    }
+
+    return end;
+  }
+
+  /**
+   * Queues the next level of a breadth first search, reading the lists of the current level in
+   * file order.
+   *
+   * @param queue the queue, which is the result of the search.
+   * @param front index of the first vertex of the level.
+   * @param back index after the last vertex of the level.
+   * @param end index of the end of the queue.
+   * @param level number of the level, unique within the search.
+   * @param claim rank of the parent claiming each vertex.
+   * @param claimLevel level each claim was made in.
+   * @param keys buffer with room for every vertex.
+   * @param context visited marks of the search.
+   * @return new index of the end of the queue.
+   */
+  private int queueLevel(
+      int[] queue,
+      int front,
+      int back,
+      int end,
+      int level,
+      int[] claim,
+      int[] claimLevel,
+      long[] keys,
+      TraversalContext context) {
+    int width = back - front;
+    for (int rank = 0; rank < width; rank++) {
+      keys[rank] = (long) queue[front + rank] << 32 | rank;
+    }
+    Arrays.sort(keys, 0, width);
+
+    // the first claims are collected after the level, as keys is still being read.
+    int reached = 0;
+    int[] found = context.frontier(edges.getVertexCount());
+    int last = 0;
+    for (int i = 0; i < width; i++) {
+      int rank = (int) keys[i];
+      int vertex = (int) (keys[i] >>> 32);
+      // a read from this list goes on through the lists after it that are close enough.
+      int start = edges.getRowStart(vertex);
+      last = Math.max(last, i);
+      while (last + 1 < width) {
+        int next = edges.getRowStart((int) (keys[last + 1] >>> 32));
+        int nextEnd = edges.getRowStart((int) (keys[last + 1] >>> 32) + 1);
+        int lastEnd = edges.getRowStart((int) (keys[last] >>> 32) + 1);
+        if (next - lastEnd > GAP_EDGES || nextEnd - start > ExternalAdjacency.WINDOW_EDGES) {
+          break;
+        }
+        last++;
+      }
+      cursor.limitReads(edges.getRowStart((int) (keys[last] >>> 32) + 1));
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        int child = cursor.next();
+        if (context.isVisited(child)) {
+          continue;
+        }
+        if (claimLevel[child] != level) {
+          claimLevel[child] = level;
+          claim[child] = rank;
+          found[reached++] = child;
+        } else if (rank < claim[child]) {
+          claim[child] = rank;
+        }
+      }
+    }
+
+    // siblings come out of one list in ascending order, so ties on the claim are broken by id.
+    for (int i = 0; i < reached; i++) {
+      keys[i] = (long) claim[found[i]] << 32 | found[i];
+    }
+    Arrays.sort(keys, 0, reached);
+
+    for (int i = 0; i < reached; i++) {
+      int child = (int) keys[i];
+      context.visit(child);
+      queue[end++] = child;
+    }
+
+    return end;
+  }
+
+  /**
+   * Searches depth first from every root, in the order of {@link
+   * Graph#depthFirstSearch(TraversalContext)}.
+   *
+   * @param roots ids of the roots in ascending order.
+   * @param context working memory of the search.
+   * @return number of verticies searched, whose ids are at the start of the context output.
+   */
+  int depthFirst(int[] roots, TraversalContext context) {
+    int size = edges.getVertexCount();
+    int[] result = context.getOutput();
+    // a path holds each vertex at most once, so the frames never outgrow the verticies.
+    int[] path = context.frontier(size);
+    int[] resume = new int[size];
+    int count = 0;
+
+    context.begin();
+    for (int root : roots) {
+      // a root that was already reached has had its whole list searched.
+      if (!context.visit(root)) {
+        continue;
+      }
+      result[count++] = root;
+      int top = 0;
+      path[top] = root;
+      resume[top++] = edges.getRowStart(root);
+
+      while (top > 0) {
+        int vertex = path[top - 1];
+        int position = resume[top - 1];
+        // a list is left once per child, so only a little of it is read each time it is resumed.
+        cursor.limitReads(
+            (int) Math.min(edges.getRowStart(vertex + 1), (long) position + RESUME_EDGES));
+        cursor.resume(vertex, position);
+
+        int child = -1;
+        while (cursor.hasNext()) {
+          int next = cursor.next();
+          if (context.visit(next)) {
+            child = next;
+            break;
+          }
+        }
+
+        if (child < 0) {
+          top--;
+          continue;
+        }
+
+        resume[top - 1] = cursor.getPosition();
+        result[count++] = child;
+        path[top] = child;
+        resume[top++] = edges.getRowStart(child);
+      }
+    }
+
+    return count;
+  }
+}
@@ -0,0 +1,185 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Finds the weighted shortest paths from a source with Dijkstra's algorithm. Edges without a weight
+ * count as {@link Edge#DEFAULT_WEIGHT}, so an unweighted graph gives hop distances.
+ *
+ * <p>When every weight is a non-negative integer the frontier is kept in a {@link RadixHeap}, which
+ * only moves each entry between buckets a bounded number of times. Otherwise an {@link
+ * IndexedMinHeap} lowers keys in place, so the frontier never holds more than one entry per vertex.
+ */
+public class ShortestPaths {
+  private final Adjacency edges;
+  private final NeighbourCursor cursor;
+  private final double[] distances;
+  private final int[] parents;
+  private final boolean integral;
+
+  private IndexedMinHeap heap;
+  private RadixHeap radixHeap;
+
+  /**
+   * the constructor for the search.
+   *
+   * @param edges weighted successor lists to search.
+   * @throws IllegalArgumentException if an edge has a negative or non-finite weight.
+   */
+  public ShortestPaths(Adjacency edges) {
+    this.edges = edges;
+    this.cursor = edges.cursor();
+    this.distances = new double[edges.getVertexCount()];
+    this.parents = new int[edges.getVertexCount()];
+    this.integral = checkWeights();
+  }
+
+  /**
+   * Checks every weight, which Dijkstra's algorithm needs to be non-negative.
+   *
+   * @return boolean true if every weight is a whole number that fits in a long.
+   */
+  private boolean checkWeights() {
+    boolean whole = true;
+
+    if (!edges.isWeighted()) {
+      return true;
+    }
+
+    for (int vertex = 0; vertex < edges.getVertexCount(); vertex++) {
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        cursor.next();
+        double weight = cursor.weight();
+        if (!(weight >= 0) || Double.isInfinite(weight)) {
+          throw new IllegalArgumentException("edge weights must be non-negative, found " + weight);
+        }
+        whole &= weight == Math.rint(weight) && weight < (1L << 52);
+      }
+    }
+
+    return whole;
+  }
+
+  /**
+   * Searches from a source, replacing the results of the previous search.
+   *
+   * @param source id of the vertex to search from.
+   */
+  public void run(int source) {
+    Arrays.fill(distances, Double.POSITIVE_INFINITY);
+    Arrays.fill(parents, -1);
+    distances[source] = 0;
+
+    if (integral) {
+      runRadix(source);
+    } else {
+      runIndexed(source);
+    }
+  }
+
+  /**
+   * Runs the search with an indexed binary heap, for any non-negative weights.
+   *
+   * @param source id of the vertex to search from.
+   */
+  private void runIndexed(int source) {
+    if (heap == null) {
+      heap = new IndexedMinHeap(edges.getVertexCount());
+    }
+    heap.clear();
+    heap.insertOrDecrease(source, 0);
+
+    while (!heap.isEmpty()) {
+      int vertex = heap.pop();
+      double distance = distances[vertex];
+
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        int child = cursor.next();
+        double through = distance + cursor.weight();
+        if (through < distances[child]) {
+          distances[child] = through;
+          parents[child] = vertex;
+          heap.insertOrDecrease(child, through);
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs the search with a radix heap, for whole number weights. A vertex whose distance is lowered
+   * is pushed again, and its older entries are skipped when they are popped.
+   *
+   * @param source id of the vertex to search from.
+   */
+  private void runRadix(int source) {
+    if (radixHeap == null) {
+      radixHeap = new RadixHeap();
+    }
+    radixHeap.clear();
+    radixHeap.push(source, 0);
+
+    while (!radixHeap.isEmpty()) {
+      int vertex = radixHeap.pop();
+      long distance = radixHeap.getPoppedKey();
+      if (distance > distances[vertex]) {
+        continue;
+      }
+
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        int child = cursor.next();
+        long through = distance + (long) cursor.weight();
+        if (through < distances[child]) {
+          distances[child] = through;
+          parents[child] = vertex;
+          radixHeap.push(child, through);
+        }
+      }
+    }
+  }
+
+  /**
+   * The method returns the length of a shortest path from the last source.
+   *
+   * @param vertex id of the vertex.
+   * @return total weight of the path, or infinity if the vertex is unreachable.
+   */
+  public double getDistance(int vertex) {
+    return distances[vertex];
+  }
+
+  /**
+   * The method returns the vertex before a vertex on its shortest path.
+   *
+   * @param vertex id of the vertex.
+   * @return id of the parent, or -1 for the source and unreachable verticies.
+   */
+  public int getParent(int vertex) {
+    return parents[vertex];
+  }
+
+  /**
+   * Follows the parents back from a vertex to the last source.
+   *
+   * @param vertex id of the vertex.
+   * @return ids along the path starting with the source, or an empty array if unreachable.
+   */
+  public int[] getPath(int vertex) {
+    if (distances[vertex] == Double.POSITIVE_INFINITY) {
+      return new int[0];
+    }
+
+    int length = 1;
+    for (int v = vertex; parents[v] >= 0; v = parents[v]) {
+      length++;
+    }
+
+    int[] path = new int[length];
+    for (int v = vertex; v >= 0; v = parents[v]) {
+      path[--length] = v;
+    }
+    return path;
+  }
+}
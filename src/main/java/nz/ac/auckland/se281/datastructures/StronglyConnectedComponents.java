@@ -0,0 +1,275 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Splits a graph into strongly connected components with an iterative version of Pearce's
+ * variant of Tarjan's algorithm. It runs in O(V + E), needs no recursion so deep graphs do not
+ * overflow the call stack, and replaces Tarjan's index, low link, on stack and component arrays with
+ * a single array, so it stays within a few ints per vertex on very large graphs.
+ *
+ * <p>Components are numbered in the order they are completed, which is a reverse topological order:
+ * every edge between two components goes from a higher id to a lower id.
+ */
+public class StronglyConnectedComponents {
+  private final int vertexCount;
+  private final int[] component;
+  private final int componentCount;
+  private final int[] componentSizes;
+  private final CsrAdjacency condensation;
+
+  private int[] memberOffsets;
+  private int[] members;
+
+  /**
+   * the constructor for the components, which are computed straight away.
+   *
+   * @param edges successor lists of the graph.
+   */
+  public StronglyConnectedComponents(Adjacency edges) {
+    vertexCount = edges.getVertexCount();
+    component = findComponents(edges);
+
+    int count = 0;
+    for (int id : component) {
+      count = Math.max(count, id + 1);
+    }
+    componentCount = count;
+
+    componentSizes = new int[componentCount];
+    for (int id : component) {
+      componentSizes[id]++;
+    }
+
+    condensation = condense(edges);
+  }
+
+  /**
+   * Runs Pearce's algorithm. While a vertex is being searched, rindex holds its visiting index, or
+   * the smallest index it has been found to reach. Once its component is complete, rindex holds the
+   * component id counted down from the top, which is always larger than any visiting index, so
+   * completed verticies never lower the rindex of another vertex.
+   *
+   * @param edges successor lists of the graph.
+   * @return the component id of each vertex.
+   */
+  private int[] findComponents(Adjacency edges) {
+    int size = vertexCount;
+    int[] rindex = new int[size];
+    boolean[] root = new boolean[size];
+
+    // the stack of verticies waiting for their component, and the explicit call stack.
+    int[] stack = new int[size];
+    int stackTop = 0;
+    int[] callStack = new int[size];
+    NeighbourCursor[] cursors = new NeighbourCursor[Math.min(size, 1024)];
+    int callTop = 0;
+
+    int index = 1;
+    int nextComponent = size - 1;
+
+    for (int start = 0; start < size; start++) {
+      if (rindex[start] != 0) {
+        continue;
+      }
+
+      rindex[start] = index++;
+      root[start] = true;
+      callStack[callTop] = start;
+      cursors = cursorAt(edges, cursors, callTop, start);
+      callTop++;
+
+      while (callTop > 0) {
+        int vertex = callStack[callTop - 1];
+        NeighbourCursor cursor = cursors[callTop - 1];
+
+        if (cursor.hasNext()) {
+          int child = cursor.next();
+
+          if (rindex[child] == 0) {
+            // descend into the child, as the recursive algorithm would.
+            rindex[child] = index++;
+            root[child] = true;
+            callStack[callTop] = child;
+            cursors = cursorAt(edges, cursors, callTop, child);
+            callTop++;
+          } else if (rindex[child] < rindex[vertex]) {
+            rindex[vertex] = rindex[child];
+            root[vertex] = false;
+          }
+          continue;
+        }
+
+        // every child is done, so return to the parent.
+        callTop--;
+        if (callTop > 0) {
+          int parent = callStack[callTop - 1];
+          if (rindex[vertex] < rindex[parent]) {
+            rindex[parent] = rindex[vertex];
+            root[parent] = false;
+          }
+        }
+
+        if (!root[vertex]) {
+          stack[stackTop++] = vertex;
+          continue;
+        }
+
+        // the vertex is the root of a component, so pop the rest of the component off the stack.
+        index--;
+        while (stackTop > 0 && rindex[vertex] <= rindex[stack[stackTop - 1]]) {
+          rindex[stack[--stackTop]] = nextComponent;
+          index--;
+        }
+        rindex[vertex] = nextComponent--;
+      }
+    }
+
+    // renumber so the first completed component is 0.
+    for (int vertex = 0; vertex < size; vertex++) {
+      rindex[vertex] = size - 1 - rindex[vertex];
+    }
+
+    return rindex;
+  }
+
+  /**
+   * Resets the cursor at a depth of the call stack, creating it the first time the depth is
+   * reached.
+   *
+   * @param edges successor lists of the graph.
+   * @param cursors cursor for each depth.
+   * @param depth depth of the call stack.
+   * @param vertex id of the vertex.
+   * @return the cursors, grown if needed.
+   */
+  private static NeighbourCursor[] cursorAt(
+      Adjacency edges, NeighbourCursor[] cursors, int depth, int vertex) {
+    if (depth == cursors.length) {
+      cursors = Arrays.copyOf(cursors, cursors.length * 2);
+    }
+    if (cursors[depth] == null) {
+      cursors[depth] = edges.cursor();
+    }
+    cursors[depth].reset(vertex);
+    return cursors;
+  }
+
+  /**
+   * Builds the graph of components, with an edge between two components whenever an edge joins
+   * their members.
+   *
+   * @param edges successor lists of the graph.
+   * @return the condensation in compressed sparse row form, which has no cycles.
+   */
+  private CsrAdjacency condense(Adjacency edges) {
+    int count = 0;
+    NeighbourCursor cursor = edges.cursor();
+
+    // count the crossing edges first so the edge arrays are only as large as the condensation.
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        if (component[vertex] != component[cursor.next()]) {
+          count++;
+        }
+      }
+    }
+
+    int[] sources = new int[count];
+    int[] destinations = new int[count];
+    count = 0;
+
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        int child = cursor.next();
+        if (component[vertex] != component[child]) {
+          sources[count] = component[vertex];
+          destinations[count] = component[child];
+          count++;
+        }
+      }
+    }
+
+    return CsrAdjacency.build(componentCount, sources, destinations, count);
+  }
+
+  /**
+   * The method returns roughly how many bytes the components keep, counting its arrays.
+   *
+   * @return size in bytes.
+   */
+  public long getBytes() {
+    long bytes = (long) (component.length + componentSizes.length) * Integer.BYTES;
+    if (members != null) {
+      bytes += (long) (memberOffsets.length + members.length) * Integer.BYTES;
+    }
+    return bytes + condensation.getHeapBytes();
+  }
+
+  /**
+   * The method returns the number of components.
+   *
+   * @return number of components.
+   */
+  public int getComponentCount() {
+    return componentCount;
+  }
+
+  /**
+   * The method returns the component a vertex belongs to.
+   *
+   * @param vertex id of the vertex.
+   * @return id of the component.
+   */
+  public int getComponent(int vertex) {
+    return component[vertex];
+  }
+
+  /**
+   * The method returns the number of verticies in a component.
+   *
+   * @param component id of the component.
+   * @return size of the component.
+   */
+  public int getComponentSize(int component) {
+    return componentSizes[component];
+  }
+
+  /**
+   * Lists the verticies in a component.
+   *
+   * @param component id of the component.
+   * @return ids of the members in ascending order.
+   */
+  public int[] getMembers(int component) {
+    if (members == null) {
+      groupMembers();
+    }
+    return Arrays.copyOfRange(members, memberOffsets[component], memberOffsets[component + 1]);
+  }
+
+  /** Groups the verticies by component, with the members of each component in ascending order. */
+  private void groupMembers() {
+    memberOffsets = new int[componentCount + 1];
+    for (int c = 0; c < componentCount; c++) {
+      memberOffsets[c + 1] = memberOffsets[c] + componentSizes[c];
+    }
+
+    int[] next = Arrays.copyOf(memberOffsets, componentCount);
+    members = new int[vertexCount];
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      members[next[component[vertex]]++] = vertex;
+    }
+  }
+
+  /**
+   * The method returns the graph of components.
+   *
+   * @return the condensation.
+   */
+  public CsrAdjacency getCondensation() {
+    return condensation;
+  }
+}
@@ -0,0 +1,274 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Orders the verticies of a graph so that every edge goes from an earlier vertex to a later one,
+ * using Kahn's algorithm over an array of in degrees. A graph has such an order exactly when it has
+ * no cycles.
+ */
+public class TopologicalSort {
+  /** The number of verticies of a level handed to a worker at once, small levels use one. */
+  private static final int CHUNK_SIZE = 1 << 12;
+
+  private final Adjacency edges;
+  private final int size;
+
+  /**
+   * the constructor for the sort.
+   *
+   * @param edges successor lists of the graph.
+   */
+  public TopologicalSort(Adjacency edges) {
+    this.edges = edges;
+    this.size = edges.getVertexCount();
+  }
+
+  /**
+   * Finds the topological order that always takes the smallest ready vertex next, which matches the
+   * ascending order the traversals use for ties.
+   *
+   * @return ids in topological order. If the graph has a cycle, only the verticies that are not on
+   *     or after a cycle are returned.
+   */
+  public int[] sort() {
+    int[] inDegree = countInDegrees();
+    IntHeap ready = new IntHeap(size);
+    int[] order = new int[size];
+    int count = 0;
+    NeighbourCursor cursor = edges.cursor();
+
+    for (int vertex = 0; vertex < size; vertex++) {
+      if (inDegree[vertex] == 0) {
+        ready.push(vertex);
+      }
+    }
+
+    while (!ready.isEmpty()) {
+      int vertex = ready.pop();
+      order[count++] = vertex;
+
+      // removing the vertex may make its children ready.
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        int child = cursor.next();
+        if (--inDegree[child] == 0) {
+          ready.push(child);
+        }
+      }
+    }
+
+    return Arrays.copyOf(order, count);
+  }
+
+  /**
+   * Finds a topological order one level at a time, where a level is every vertex whose
+   * predecessors are all in earlier levels. The verticies of a wide level are processed in
+   * parallel.
+   *
+   * @return ids in topological order, with each level in ascending order. If the graph has a cycle,
+   *     only the verticies that are not on or after a cycle are returned.
+   */
+  public int[] sortByLevel() {
+    int[] counts = countInDegrees();
+    AtomicIntegerArray inDegree = new AtomicIntegerArray(counts);
+    int[] order = new int[size];
+    int end = 0;
+
+    for (int vertex = 0; vertex < size; vertex++) {
+      if (counts[vertex] == 0) {
+        order[end++] = vertex;
+      }
+    }
+
+    int start = 0;
+    while (start < end) {
+      int levelStart = start;
+      int levelEnd = end;
+      AtomicInteger next = new AtomicInteger(levelEnd);
+
+      int chunks = (levelEnd - levelStart + CHUNK_SIZE - 1) / CHUNK_SIZE;
+      IntStream work = IntStream.range(0, chunks);
+      if (chunks > 1) {
+        work = work.parallel();
+      }
+
+      // each vertex of the level releases its children, claiming a slot for any that are ready.
+      work.forEach(
+          chunk -> {
+            NeighbourCursor cursor = edges.cursor();
+            int chunkEnd = Math.min(levelEnd, levelStart + (chunk + 1) * CHUNK_SIZE);
+
+            for (int i = levelStart + chunk * CHUNK_SIZE; i < chunkEnd; i++) {
+              cursor.reset(order[i]);
+              while (cursor.hasNext()) {
+                int child = cursor.next();
+                if (inDegree.decrementAndGet(child) == 0) {
+                  order[next.getAndIncrement()] = child;
+                }
+              }
+            }
+          });
+
+      start = levelEnd;
+      end = next.get();
+      Arrays.sort(order, start, end);
+    }
+
+    return Arrays.copyOf(order, end);
+  }
+
+  /**
+   * Checks if the graph has no cycles. A self loop counts as a cycle.
+   *
+   * @return boolean of acyclicity.
+   */
+  public boolean isAcyclic() {
+    return sortByLevel().length == size;
+  }
+
+  /**
+   * Finds a cycle in the graph. A self loop is looked for first, as it needs no components. Any
+   * other vertex in a strongly connected component with more than one vertex has a successor in the
+   * same component, so following such successors must come back around.
+   *
+   * @param componentsOf gives the strongly connected components of the graph, which is only asked
+   *     for when there is no self loop, so components that are already computed can be reused.
+   * @return ids along the cycle, starting and ending with the same vertex, or an empty array if
+   *     the graph is acyclic.
+   */
+  public int[] findCycle(Supplier<StronglyConnectedComponents> componentsOf) {
+    for (int vertex = 0; vertex < size; vertex++) {
+      if (edges.containsEdge(vertex, vertex)) {
+        return new int[] {vertex, vertex};
+      }
+    }
+
+    StronglyConnectedComponents components = componentsOf.get();
+    NeighbourCursor cursor = edges.cursor();
+
+    for (int vertex = 0; vertex < size; vertex++) {
+      int component = components.getComponent(vertex);
+      if (components.getComponentSize(component) < 2) {
+        continue;
+      }
+
+      // walk inside the component until a vertex repeats, remembering where each was seen.
+      int[] seenAt = new int[size];
+      Arrays.fill(seenAt, -1);
+      int[] walk = new int[components.getComponentSize(component) + 1];
+      int length = 0;
+      int current = vertex;
+
+      while (seenAt[current] < 0) {
+        seenAt[current] = length;
+        walk[length++] = current;
+
+        cursor.reset(current);
+        int next = -1;
+        while (next < 0 && cursor.hasNext()) {
+          int child = cursor.next();
+          if (components.getComponent(child) == component) {
+            next = child;
+          }
+        }
+        current = next;
+      }
+
+      int[] cycle = Arrays.copyOfRange(walk, seenAt[current], length + 1);
+      cycle[cycle.length - 1] = current;
+      return cycle;
+    }
+
+    return new int[0];
+  }
+
+  /**
+   * Counts the number of edges into each vertex.
+   *
+   * @return in degree of each vertex.
+   */
+  private int[] countInDegrees() {
+    int[] inDegree = new int[size];
+    NeighbourCursor cursor = edges.cursor();
+
+    for (int vertex = 0; vertex < size; vertex++) {
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        inDegree[cursor.next()]++;
+      }
+    }
+
+    return inDegree;
+  }
+
+  /** A binary min heap of ints, used to always release the smallest ready vertex. */
+  private static class IntHeap {
+    private final int[] heap;
+    private int size;
+
+    /**
+     * the constructor for the heap.
+     *
+     * @param capacity most values the heap will hold.
+     */
+    IntHeap(int capacity) {
+      heap = new int[capacity];
+    }
+
+    /**
+     * The method returns a boolean true if the heap is empty.
+     *
+     * @return boolean of is empty.
+     */
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    /**
+     * Adds a value to the heap.
+     *
+     * @param value value to add.
+     */
+    void push(int value) {
+      int i = size++;
+      // sift the new value up past any larger parents.
+      while (i > 0 && heap[(i - 1) / 2] > value) {
+        heap[i] = heap[(i - 1) / 2];
+        i = (i - 1) / 2;
+      }
+      heap[i] = value;
+    }
+
+    /**
+     * Removes and returns the smallest value.
+     *
+     * @return smallest value.
+     */
+    int pop() {
+      int result = heap[0];
+      int last = heap[--size];
+      int i = 0;
+
+      // sift the last value down past any smaller children.
+      while (2 * i + 1 < size) {
+        int child = 2 * i + 1;
+        if (child + 1 < size && heap[child + 1] < heap[child]) {
+          child++;
+        }
+        if (heap[child] >= last) {
+          break;
+        }
+        heap[i] = heap[child];
+        i = child;
+      }
+      heap[i] = last;
+
+      return result;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * The working memory of a search, kept between searches so that running many of them allocates
+ * nothing once the buffers have grown to fit the graph.
+ *
+ * <p>Instead of a visited flag per vertex that has to be cleared before every search, each vertex
+ * keeps the number of the last search that visited it, and starting a search just moves on to the
+ * next number. The arrays are only cleared when the numbers run out, once every two billion
+ * searches. A context is not thread safe, so each thread searching at the same time needs its own.
+ */
+public class TraversalContext {
+  private final int[] visitedEpoch;
+  private final int[] output;
+  private int[] frontier;
+  private int epoch;
+  private Adjacency cursorEdges;
+  private NeighbourCursor cursor;
+
+  /**
+   * the constructor for a context that can search graphs of up to a number of verticies.
+   *
+   * @param vertexCount number of verticies of the graph.
+   */
+  public TraversalContext(int vertexCount) {
+    this.visitedEpoch = new int[vertexCount];
+    this.output = new int[vertexCount];
+    this.frontier = new int[0];
+  }
+
+  /**
+   * The method returns the most verticies a graph searched with this context can have.
+   *
+   * @return number of verticies.
+   */
+  public int getVertexCount() {
+    return visitedEpoch.length;
+  }
+
+  /** Starts a new search, which leaves every vertex unvisited. */
+  void begin() {
+    if (epoch == Integer.MAX_VALUE) {
+      Arrays.fill(visitedEpoch, 0);
+      epoch = 0;
+    }
+    epoch++;
+  }
+
+  /**
+   * Marks a vertex as visited by the current search.
+   *
+   * @param vertex id of the vertex.
+   * @return boolean true if the vertex had not been visited yet.
+   */
+  boolean visit(int vertex) {
+    if (visitedEpoch[vertex] == epoch) {
+      return false;
+    }
+    visitedEpoch[vertex] = epoch;
+    return true;
+  }
+
+  /**
+   * Checks if the current search has visited a vertex.
+   *
+   * @param vertex id of the vertex.
+   * @return boolean of if the vertex is visited.
+   */
+  boolean isVisited(int vertex) {
+    return visitedEpoch[vertex] == epoch;
+  }
+
+  /**
+   * The method returns the buffer a search writes its order to. Only the number of verticies the
+   * search returned are part of its result, and the next search overwrites them.
+   *
+   * @return the output buffer, with room for every vertex.
+   */
+  public int[] getOutput() {
+    return output;
+  }
+
+  /**
+   * Collects the verticies a search visited as a compressed set, for keeping after the next search
+   * has reused the buffers.
+   *
+   * @param count number of verticies the search returned.
+   * @return set of the ids at the start of the output.
+   */
+  public VertexSet toVertexSet(int count) {
+    return VertexSet.copyOf(output, count);
+  }
+
+  /**
+   * Gets a buffer for the queue or stack of a search, growing it if it is too small.
+   *
+   * @param capacity number of entries needed.
+   * @return the buffer, with at least the room needed.
+   */
+  int[] frontier(int capacity) {
+    if (frontier.length < capacity) {
+      frontier = new int[capacity];
+    }
+    return frontier;
+  }
+
+  /**
+   * Gets a cursor over successor lists, reusing the last one if it reads the same lists.
+   *
+   * @param edges successor lists to read.
+   * @return the cursor.
+   */
+  NeighbourCursor cursor(Adjacency edges) {
+    if (cursorEdges != edges) {
+      cursorEdges = edges;
+      cursor = edges.cursor();
+    }
+    return cursor;
+  }
+}
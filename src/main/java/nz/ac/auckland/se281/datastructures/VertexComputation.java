@@ -0,0 +1,274 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Runs {@link VertexProgram}s in parallel supersteps. Values, halt flags and message inboxes are
+ * primitive arrays with one slot per vertex, and each superstep splits the verticies into chunks
+ * that are computed on the fork-join common pool, so a program gets every core without handling
+ * any concurrency itself.
+ *
+ * <p>Messages are combined as they are sent: the slot of the receiving vertex is updated with a
+ * compare and set of the combined message, so no message is ever queued.
+ */
+public class VertexComputation {
+  /** The number of verticies computed by one task of a superstep. */
+  private static final int CHUNK_SIZE = 1 << 12;
+
+  private final Adjacency edges;
+  private Adjacency predecessors;
+  private int supersteps;
+
+  /**
+   * the constructor for the computation.
+   *
+   * @param edges successor lists of the graph.
+   */
+  public VertexComputation(Adjacency edges) {
+    this.edges = edges;
+  }
+
+  /**
+   * Runs a program until every vertex has halted with no messages in flight, or a number of
+   * supersteps have run.
+   *
+   * @param program the program to run.
+   * @param maxSupersteps most supersteps to run.
+   * @return the final value of every vertex.
+   */
+  public int[] run(VertexProgram program, int maxSupersteps) {
+    int size = edges.getVertexCount();
+    if (program.usesPredecessors() && predecessors == null) {
+      predecessors = transpose();
+    }
+
+    int[] values = new int[size];
+    Arrays.setAll(values, program::initialValue);
+    boolean[] halted = new boolean[size];
+
+    Inbox inbox = new Inbox(size, program.identity());
+    Inbox outbox = new Inbox(size, program.identity());
+    int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    supersteps = 0;
+
+    while (supersteps < maxSupersteps) {
+      int superstep = supersteps;
+      Inbox in = inbox;
+      Inbox out = outbox;
+      AtomicBoolean active = new AtomicBoolean();
+
+      IntStream.range(0, chunks)
+          .parallel()
+          .forEach(
+              chunk -> {
+                Context context = new Context(program, superstep, values, in, out);
+                int end = Math.min(size, (chunk + 1) * CHUNK_SIZE);
+                boolean anyRunning = false;
+
+                for (int v = chunk * CHUNK_SIZE; v < end; v++) {
+                  // a halted vertex only wakes up when it has a message.
+                  if (superstep > 0 && halted[v] && !in.flags[v]) {
+                    continue;
+                  }
+                  context.vertex = v;
+                  context.halted = false;
+                  program.compute(context);
+                  halted[v] = context.halted;
+                  anyRunning |= !context.halted;
+
+                  // only this vertex reads its slot, so it is emptied for the superstep after next.
+                  in.reset(v);
+                }
+
+                if (anyRunning || context.sent) {
+                  active.set(true);
+                }
+              });
+
+      supersteps++;
+      if (!active.get()) {
+        break;
+      }
+
+      inbox = out;
+      outbox = in;
+    }
+
+    return values;
+  }
+
+  /**
+   * The method returns the number of supersteps the last run took.
+   *
+   * @return number of supersteps.
+   */
+  public int getSupersteps() {
+    return supersteps;
+  }
+
+  /**
+   * Builds the predecessor lists by reversing every edge.
+   *
+   * @return the reversed adjacency.
+   */
+  private Adjacency transpose() {
+    int[] sources = new int[edges.getEdgeCount()];
+    int[] destinations = new int[edges.getEdgeCount()];
+    int count = 0;
+    NeighbourCursor cursor = edges.cursor();
+
+    for (int vertex = 0; vertex < edges.getVertexCount(); vertex++) {
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        sources[count] = cursor.next();
+        destinations[count] = vertex;
+        count++;
+      }
+    }
+
+    return CsrAdjacency.build(edges.getVertexCount(), sources, destinations, count);
+  }
+
+  /** The combined messages waiting for each vertex, and whether any were sent. */
+  private static class Inbox {
+    private final AtomicIntegerArray messages;
+    private final boolean[] flags;
+    private final int identity;
+
+    /**
+     * the constructor for an empty inbox.
+     *
+     * @param size number of verticies.
+     * @param identity identity of the combiner.
+     */
+    Inbox(int size, int identity) {
+      this.messages = new AtomicIntegerArray(size);
+      this.flags = new boolean[size];
+      this.identity = identity;
+      for (int v = 0; v < size; v++) {
+        messages.set(v, identity);
+      }
+    }
+
+    /**
+     * Empties the slot of a vertex.
+     *
+     * @param vertex id of the vertex.
+     */
+    void reset(int vertex) {
+      if (flags[vertex]) {
+        messages.set(vertex, identity);
+        flags[vertex] = false;
+      }
+    }
+  }
+
+  /** The context handed to the program, reused for every vertex of a chunk. */
+  private class Context implements VertexContext {
+    private final VertexProgram program;
+    private final int superstep;
+    private final int[] values;
+    private final Inbox in;
+    private final Inbox out;
+    private final NeighbourCursor successors = edges.cursor();
+    private final NeighbourCursor reversed = predecessors == null ? null : predecessors.cursor();
+    private int vertex;
+    private boolean halted;
+    private boolean sent;
+
+    /**
+     * the constructor for the context.
+     *
+     * @param program the program being run.
+     * @param superstep number of the superstep.
+     * @param values value of every vertex.
+     * @param in messages sent in the previous superstep.
+     * @param out messages sent in this superstep.
+     */
+    Context(VertexProgram program, int superstep, int[] values, Inbox in, Inbox out) {
+      this.program = program;
+      this.superstep = superstep;
+      this.values = values;
+      this.in = in;
+      this.out = out;
+    }
+
+    @Override
+    public int getVertex() {
+      return vertex;
+    }
+
+    @Override
+    public int getSuperstep() {
+      return superstep;
+    }
+
+    @Override
+    public int getValue() {
+      return values[vertex];
+    }
+
+    @Override
+    public void setValue(int value) {
+      values[vertex] = value;
+    }
+
+    @Override
+    public boolean hasMessage() {
+      return in.flags[vertex];
+    }
+
+    @Override
+    public int getMessage() {
+      return in.messages.get(vertex);
+    }
+
+    @Override
+    public int getOutDegree() {
+      return edges.getOutDegree(vertex);
+    }
+
+    @Override
+    public void sendTo(int target, int message) {
+      int old = out.messages.get(target);
+      int combined = program.combine(old, message);
+
+      // a message the slot already covers needs no write.
+      while (combined != old && !out.messages.compareAndSet(target, old, combined)) {
+        old = out.messages.get(target);
+        combined = program.combine(old, message);
+      }
+      if (!out.flags[target]) {
+        out.flags[target] = true;
+      }
+      sent = true;
+    }
+
+    @Override
+    public void sendToSuccessors(int message) {
+      successors.reset(vertex);
+      while (successors.hasNext()) {
+        sendTo(successors.next(), message);
+      }
+    }
+
+    @Override
+    public void sendToPredecessors(int message) {
+      if (reversed == null) {
+        throw new IllegalStateException("the program does not use predecessors");
+      }
+      reversed.reset(vertex);
+      while (reversed.hasNext()) {
+        sendTo(reversed.next(), message);
+      }
+    }
+
+    @Override
+    public void voteToHalt() {
+      halted = true;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package nz.ac.auckland.se281.datastructures;
+
+/** The view a {@link VertexProgram} has of the vertex it is computing. */
+public interface VertexContext {
+
+  /**
+   * The method returns the id of the vertex being computed.
+   *
+   * @return id of the vertex.
+   */
+  int getVertex();
+
+  /**
+   * The method returns the number of the current superstep, starting from 0.
+   *
+   * @return superstep number.
+   */
+  int getSuperstep();
+
+  /**
+   * The method returns the value of the vertex.
+   *
+   * @return current value.
+   */
+  int getValue();
+
+  /**
+   * Replaces the value of the vertex.
+   *
+   * @param value new value.
+   */
+  void setValue(int value);
+
+  /**
+   * Checks if any message was sent to the vertex in the previous superstep.
+   *
+   * @return boolean of a message being waiting.
+   */
+  boolean hasMessage();
+
+  /**
+   * The method returns the combined messages sent to the vertex in the previous superstep.
+   *
+   * @return the combined message, or the identity of the combiner if there were none.
+   */
+  int getMessage();
+
+  /**
+   * The method returns the out degree of the vertex.
+   *
+   * @return number of successors.
+   */
+  int getOutDegree();
+
+  /**
+   * Sends a message to a vertex, to be read in the next superstep.
+   *
+   * @param vertex id of the vertex to send to.
+   * @param message the message.
+   */
+  void sendTo(int vertex, int message);
+
+  /**
+   * Sends a message to every successor of the vertex.
+   *
+   * @param message the message.
+   */
+  void sendToSuccessors(int message);
+
+  /**
+   * Sends a message to every predecessor of the vertex. Only allowed if the program uses
+   * predecessors.
+   *
+   * @param message the message.
+   */
+  void sendToPredecessors(int message);
+
+  /**
+   * Stops computing the vertex until a message is sent to it. The computation ends once every
+   * vertex has halted and no messages are in flight.
+   */
+  void voteToHalt();
+}
@@ -0,0 +1,55 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * An algorithm written from the point of view of a single vertex, run by a {@link
+ * VertexComputation}. In every superstep each active vertex reads the messages sent to it in the
+ * previous superstep, updates its value and sends messages along its edges. Verticies run in
+ * parallel, so compute must only touch the vertex it is given through the context.
+ *
+ * <p>All the messages sent to a vertex in one superstep are folded into a single int by the
+ * combiner, so message memory stays at one int per vertex. The combiner must be associative and
+ * commutative, with {@link #identity()} as its identity.
+ */
+public interface VertexProgram {
+
+  /**
+   * The method returns the value of a vertex before the first superstep.
+   *
+   * @param vertex id of the vertex.
+   * @return initial value.
+   */
+  int initialValue(int vertex);
+
+  /**
+   * Runs one superstep for one vertex.
+   *
+   * @param context the vertex, its value and messages, and the ways to send messages.
+   */
+  void compute(VertexContext context);
+
+  /**
+   * Folds two messages to the same vertex into one.
+   *
+   * @param a the first message.
+   * @param b the second message.
+   * @return the combined message.
+   */
+  int combine(int a, int b);
+
+  /**
+   * The method returns the message that combines with any message to give that message back.
+   *
+   * @return the identity of the combiner.
+   */
+  int identity();
+
+  /**
+   * Checks if the program sends messages against the direction of the edges, in which case the
+   * predecessor lists are built before the first superstep.
+   *
+   * @return boolean true if predecessors are used.
+   */
+  default boolean usesPredecessors() {
+    return false;
+  }
+}
@@ -0,0 +1,871 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable set of vertex ids, compressed in the style of Roaring bitmaps. The ids are split
+ * into chunks of 65536 by their upper 16 bits, and each chunk keeps its lower 16 bits in whichever
+ * container is smallest:
+ *
+ * <ul>
+ *   <li>an array of sorted values, for chunks of at most {@link #ARRAY_LIMIT} ids.
+ *   <li>a bitmap of 65536 bits, for fuller chunks.
+ *   <li>a list of runs of consecutive values, for chunks that are mostly ranges.
+ * </ul>
+ *
+ * <p>A set costs at most two bytes per id, and far less when its ids are clustered, against the
+ * forty or so bytes of a boxed id in a hash set. Union and intersection work a chunk at a time and
+ * never look at chunks only one of the sets has, and the ids always come out in ascending order,
+ * which is also the vertex order of the {@link VertexTable} they came from.
+ */
+public class VertexSet {
+  /** The most values an array container holds, beyond which a bitmap is smaller. */
+  static final int ARRAY_LIMIT = 4096;
+
+  private static final int BITMAP_WORDS = 1024;
+
+  private static final VertexSet EMPTY = new VertexSet(new char[0], new Container[0], 0);
+
+  private final char[] keys;
+  private final Container[] containers;
+  private final int containerCount;
+
+  /**
+   * the constructor for a set from its chunks.
+   *
+   * @param keys upper 16 bits of each chunk, ascending.
+   * @param containers lower 16 bits of each chunk, none of them empty.
+   * @param containerCount number of chunks.
+   */
+  private VertexSet(char[] keys, Container[] containers, int containerCount) {
+    this.keys = keys;
+    this.containers = containers;
+    this.containerCount = containerCount;
+  }
+
+  /**
+   * Creates a set of ids that are already in ascending order without duplicates.
+   *
+   * @param ids the ids.
+   * @return the set.
+   */
+  public static VertexSet of(int... ids) {
+    return of(ids, 0, ids.length);
+  }
+
+  /**
+   * Creates a set of a slice of ids that are already in ascending order without duplicates.
+   *
+   * @param ids the ids.
+   * @param from index of the first id.
+   * @param to index after the last id.
+   * @return the set.
+   */
+  public static VertexSet of(int[] ids, int from, int to) {
+    if (from == to) {
+      return EMPTY;
+    }
+
+    int chunks = 1;
+    for (int i = from + 1; i < to; i++) {
+      if (ids[i] >>> 16 != ids[i - 1] >>> 16) {
+        chunks++;
+      }
+    }
+
+    char[] keys = new char[chunks];
+    Container[] containers = new Container[chunks];
+    int chunk = 0;
+    int start = from;
+
+    for (int i = from + 1; i <= to; i++) {
+      if (i == to || ids[i] >>> 16 != ids[start] >>> 16) {
+        keys[chunk] = (char) (ids[start] >>> 16);
+        containers[chunk++] = chunk(ids, start, i);
+        start = i;
+      }
+    }
+
+    return new VertexSet(keys, containers, chunks);
+  }
+
+  /**
+   * Creates a set of ids in any order, which may hold duplicates.
+   *
+   * @param ids the ids.
+   * @param count number of ids to take from the start of the array.
+   * @return the set.
+   */
+  public static VertexSet copyOf(int[] ids, int count) {
+    int[] sorted = Arrays.copyOf(ids, count);
+    Arrays.sort(sorted);
+
+    int distinct = 0;
+    for (int i = 0; i < count; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[distinct++] = sorted[i];
+      }
+    }
+
+    return of(sorted, 0, distinct);
+  }
+
+  /**
+   * Creates the set of every id in a range.
+   *
+   * @param from the first id.
+   * @param to the id after the last id.
+   * @return the set.
+   */
+  public static VertexSet range(int from, int to) {
+    if (from >= to) {
+      return EMPTY;
+    }
+
+    int first = from >>> 16;
+    int last = (to - 1) >>> 16;
+    char[] keys = new char[last - first + 1];
+    Container[] containers = new Container[keys.length];
+
+    for (int high = first; high <= last; high++) {
+      int low = high == first ? from & 0xFFFF : 0;
+      int end = high == last ? (to - 1) & 0xFFFF : 0xFFFF;
+      keys[high - first] = (char) high;
+      containers[high - first] =
+          new RunContainer(new char[] {(char) low}, new char[] {(char) (end - low)}, 1);
+    }
+
+    return new VertexSet(keys, containers, keys.length);
+  }
+
+  /**
+   * Builds the container of one chunk of sorted ids.
+   *
+   * @param ids the ids.
+   * @param from index of the first id of the chunk.
+   * @param to index after the last id of the chunk.
+   * @return the smallest container of the chunk.
+   */
+  private static Container chunk(int[] ids, int from, int to) {
+    int count = to - from;
+    int runs = 1;
+    for (int i = from + 1; i < to; i++) {
+      if (ids[i] != ids[i - 1] + 1) {
+        runs++;
+      }
+    }
+
+    if (preferRuns(count, runs)) {
+      char[] starts = new char[runs];
+      char[] lengths = new char[runs];
+      int run = 0;
+      int start = from;
+      for (int i = from + 1; i <= to; i++) {
+        if (i == to || ids[i] != ids[i - 1] + 1) {
+          starts[run] = (char) ids[start];
+          lengths[run++] = (char) (ids[i - 1] - ids[start]);
+          start = i;
+        }
+      }
+      return new RunContainer(starts, lengths, runs);
+    }
+
+    if (count <= ARRAY_LIMIT) {
+      char[] values = new char[count];
+      for (int i = 0; i < count; i++) {
+        values[i] = (char) ids[from + i];
+      }
+      return new ArrayContainer(values, count);
+    }
+
+    long[] words = new long[BITMAP_WORDS];
+    for (int i = from; i < to; i++) {
+      words[(ids[i] & 0xFFFF) >>> 6] |= 1L << ids[i];
+    }
+    return new BitmapContainer(words, count);
+  }
+
+  /**
+   * Checks if runs are the smallest way to keep a chunk.
+   *
+   * @param count number of values in the chunk.
+   * @param runs number of runs of consecutive values.
+   * @return boolean of if runs are smallest.
+   */
+  private static boolean preferRuns(int count, int runs) {
+    return runs * 4 < Math.min(count * 2, BITMAP_WORDS * 8);
+  }
+
+  /**
+   * The method returns the number of ids in the set.
+   *
+   * @return size of the set.
+   */
+  public int size() {
+    int size = 0;
+    for (int i = 0; i < containerCount; i++) {
+      size += containers[i].cardinality();
+    }
+    return size;
+  }
+
+  /**
+   * The method returns a boolean true if the set holds no ids.
+   *
+   * @return boolean of is empty.
+   */
+  public boolean isEmpty() {
+    return containerCount == 0;
+  }
+
+  /**
+   * Checks if an id is in the set.
+   *
+   * @param id the id.
+   * @return boolean of if the set holds the id.
+   */
+  public boolean contains(int id) {
+    if (id < 0) {
+      return false;
+    }
+    int index = Arrays.binarySearch(keys, 0, containerCount, (char) (id >>> 16));
+    return index >= 0 && containers[index].contains((char) id);
+  }
+
+  /**
+   * Finds the ids in this set, the other set or both.
+   *
+   * @param other the other set.
+   * @return the union.
+   */
+  public VertexSet or(VertexSet other) {
+    char[] resultKeys = new char[containerCount + other.containerCount];
+    Container[] result = new Container[resultKeys.length];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+
+    while (i < containerCount || j < other.containerCount) {
+      if (j == other.containerCount || (i < containerCount && keys[i] < other.keys[j])) {
+        resultKeys[count] = keys[i];
+        // containers are immutable, so a chunk only one set has is shared.
+        result[count++] = containers[i++];
+      } else if (i == containerCount || other.keys[j] < keys[i]) {
+        resultKeys[count] = other.keys[j];
+        result[count++] = other.containers[j++];
+      } else {
+        resultKeys[count] = keys[i];
+        result[count++] = or(containers[i++], other.containers[j++]);
+      }
+    }
+
+    return new VertexSet(resultKeys, result, count);
+  }
+
+  /**
+   * Finds the ids in both this set and the other set.
+   *
+   * @param other the other set.
+   * @return the intersection.
+   */
+  public VertexSet and(VertexSet other) {
+    int length = Math.min(containerCount, other.containerCount);
+    char[] resultKeys = new char[length];
+    Container[] result = new Container[length];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+
+    while (i < containerCount && j < other.containerCount) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (other.keys[j] < keys[i]) {
+        j++;
+      } else {
+        Container both = and(containers[i++], other.containers[j++]);
+        if (both != null) {
+          resultKeys[count] = keys[i - 1];
+          result[count++] = both;
+        }
+      }
+    }
+
+    return new VertexSet(resultKeys, result, count);
+  }
+
+  /**
+   * Unites two containers of the same chunk.
+   *
+   * @param first one container.
+   * @param second the other container.
+   * @return the union.
+   */
+  private static Container or(Container first, Container second) {
+    if (first instanceof ArrayContainer && second instanceof ArrayContainer) {
+      return ((ArrayContainer) first).or((ArrayContainer) second);
+    }
+    if (first instanceof RunContainer && second instanceof RunContainer) {
+      return ((RunContainer) first).or((RunContainer) second);
+    }
+
+    long[] words = first.toWords();
+    second.orInto(words);
+    return fromWords(words);
+  }
+
+  /**
+   * Intersects two containers of the same chunk.
+   *
+   * @param first one container.
+   * @param second the other container.
+   * @return the intersection, or null if it is empty.
+   */
+  private static Container and(Container first, Container second) {
+    if (first instanceof ArrayContainer) {
+      return ((ArrayContainer) first).and(second);
+    }
+    if (second instanceof ArrayContainer) {
+      return ((ArrayContainer) second).and(first);
+    }
+    if (first instanceof RunContainer && second instanceof RunContainer) {
+      return ((RunContainer) first).and((RunContainer) second);
+    }
+
+    // every other pair has a bitmap, so the run container, if any, is expanded to meet it.
+    long[] words = first.toWords();
+    second.andInto(words);
+    return fromWords(words);
+  }
+
+  /**
+   * Builds the smallest container of a bitmap.
+   *
+   * @param words the bitmap, which is kept if a bitmap is smallest.
+   * @return the container, or null if the bitmap is empty.
+   */
+  private static Container fromWords(long[] words) {
+    int count = 0;
+    int runs = 0;
+    long carry = 0;
+
+    // a run starts at every set bit whose lower neighbour is clear.
+    for (long word : words) {
+      count += Long.bitCount(word);
+      runs += Long.bitCount(word & ~((word << 1) | carry));
+      carry = word >>> 63;
+    }
+
+    if (count == 0) {
+      return null;
+    }
+
+    if (!preferRuns(count, runs) && count > ARRAY_LIMIT) {
+      return new BitmapContainer(words, count);
+    }
+
+    int[] values = new int[count];
+    BitmapContainer.fill(words, values, 0, 0);
+    return chunk(values, 0, count);
+  }
+
+  /**
+   * Copies the ids into an array.
+   *
+   * @return the ids in ascending order.
+   */
+  public int[] toArray() {
+    int[] result = new int[size()];
+    int offset = 0;
+
+    for (int i = 0; i < containerCount; i++) {
+      offset = containers[i].fill(result, offset, keys[i] << 16);
+    }
+
+    return result;
+  }
+
+  /**
+   * Runs an action for every id, in ascending order.
+   *
+   * @param action the action.
+   */
+  public void forEach(IntConsumer action) {
+    PrimitiveIterator.OfInt iterator = iterator();
+    while (iterator.hasNext()) {
+      action.accept(iterator.nextInt());
+    }
+  }
+
+  /**
+   * Creates an iterator over the ids in ascending order, which decodes one chunk at a time.
+   *
+   * @return the iterator.
+   */
+  public PrimitiveIterator.OfInt iterator() {
+    return new PrimitiveIterator.OfInt() {
+      private int[] buffer = new int[0];
+      private int index;
+      private int length;
+      private int chunk;
+
+      @Override
+      public boolean hasNext() {
+        while (index == length && chunk < containerCount) {
+          Container container = containers[chunk];
+          if (buffer.length < container.cardinality()) {
+            buffer = new int[container.cardinality()];
+          }
+          length = container.fill(buffer, 0, keys[chunk++] << 16);
+          index = 0;
+        }
+        return index < length;
+      }
+
+      @Override
+      public int nextInt() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return buffer[index++];
+      }
+    };
+  }
+
+  /**
+   * The method returns roughly how many bytes the set keeps, counting its arrays.
+   *
+   * @return size of the set in bytes.
+   */
+  public long getBytes() {
+    long bytes = keys.length * 2L + containers.length * 8L;
+    for (int i = 0; i < containerCount; i++) {
+      bytes += containers[i].bytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * Creates a read only view of the set as the verticies the ids stand for, without copying it.
+   *
+   * @param <T> The type of each vertex.
+   * @param table the table the ids come from.
+   * @return the view, which iterates in vertex order.
+   */
+  public <T extends Comparable<T>> Set<T> asSet(VertexTable<T> table) {
+    return new AbstractSet<T>() {
+      @Override
+      public Iterator<T> iterator() {
+        PrimitiveIterator.OfInt ids = VertexSet.this.iterator();
+        return new Iterator<T>() {
+          @Override
+          public boolean hasNext() {
+            return ids.hasNext();
+          }
+
+          @Override
+          public T next() {
+            return table.getVertex(ids.nextInt());
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return VertexSet.this.size();
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public boolean contains(Object vertex) {
+        // the table looks verticies up by equality, so any object can be looked up safely.
+        return VertexSet.this.contains(table.getId((T) vertex));
+      }
+    };
+  }
+
+  /** The lower 16 bits of the ids in one chunk. */
+  private abstract static class Container {
+
+    /**
+     * The method returns the number of values in the container.
+     *
+     * @return number of values.
+     */
+    abstract int cardinality();
+
+    /**
+     * Checks if a value is in the container.
+     *
+     * @param low the value.
+     * @return boolean of if the container holds the value.
+     */
+    abstract boolean contains(char low);
+
+    /**
+     * Writes the ids of the container.
+     *
+     * @param out array to write to.
+     * @param offset index to write the first id at.
+     * @param high upper bits of every id of the chunk.
+     * @return index after the last id written.
+     */
+    abstract int fill(int[] out, int offset, int high);
+
+    /**
+     * Sets the bits of the values of the container in a bitmap.
+     *
+     * @param words the bitmap.
+     */
+    abstract void orInto(long[] words);
+
+    /**
+     * Clears the bits of a bitmap that are not values of the container.
+     *
+     * @param words the bitmap.
+     */
+    void andInto(long[] words) {
+      long[] own = toWords();
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        words[w] &= own[w];
+      }
+    }
+
+    /**
+     * The method returns the number of bytes the container keeps.
+     *
+     * @return size in bytes.
+     */
+    abstract int bytes();
+
+    /**
+     * Creates a bitmap of the values of the container.
+     *
+     * @return a new bitmap.
+     */
+    long[] toWords() {
+      long[] words = new long[BITMAP_WORDS];
+      orInto(words);
+      return words;
+    }
+  }
+
+  /** A container of up to {@link #ARRAY_LIMIT} sorted values. */
+  private static final class ArrayContainer extends Container {
+    private final char[] values;
+    private final int count;
+
+    /**
+     * the constructor for the container.
+     *
+     * @param values sorted values.
+     * @param count number of values.
+     */
+    ArrayContainer(char[] values, int count) {
+      this.values = values;
+      this.count = count;
+    }
+
+    @Override
+    int cardinality() {
+      return count;
+    }
+
+    @Override
+    boolean contains(char low) {
+      return Arrays.binarySearch(values, 0, count, low) >= 0;
+    }
+
+    @Override
+    int fill(int[] out, int offset, int high) {
+      for (int i = 0; i < count; i++) {
+        out[offset++] = high | values[i];
+      }
+      return offset;
+    }
+
+    @Override
+    void orInto(long[] words) {
+      for (int i = 0; i < count; i++) {
+        words[values[i] >>> 6] |= 1L << values[i];
+      }
+    }
+
+    @Override
+    int bytes() {
+      return values.length * 2;
+    }
+
+    /**
+     * Merges two sorted arrays.
+     *
+     * @param other the other container.
+     * @return the union.
+     */
+    Container or(ArrayContainer other) {
+      int[] merged = new int[count + other.count];
+      int length = 0;
+      int i = 0;
+      int j = 0;
+
+      while (i < count || j < other.count) {
+        char next;
+        if (j == other.count || (i < count && values[i] < other.values[j])) {
+          next = values[i++];
+        } else if (i == count || other.values[j] < values[i]) {
+          next = other.values[j++];
+        } else {
+          next = values[i++];
+          j++;
+        }
+        merged[length++] = next;
+      }
+
+      return chunk(merged, 0, length);
+    }
+
+    /**
+     * Keeps the values that another container also holds.
+     *
+     * @param other the other container.
+     * @return the intersection, or null if it is empty.
+     */
+    Container and(Container other) {
+      char[] kept = new char[count];
+      int length = 0;
+
+      for (int i = 0; i < count; i++) {
+        if (other.contains(values[i])) {
+          kept[length++] = values[i];
+        }
+      }
+
+      return length == 0 ? null : new ArrayContainer(Arrays.copyOf(kept, length), length);
+    }
+  }
+
+  /** A container of a bitmap over every value of the chunk. */
+  private static final class BitmapContainer extends Container {
+    private final long[] words;
+    private final int count;
+
+    /**
+     * the constructor for the container.
+     *
+     * @param words bitmap of {@link #BITMAP_WORDS} words.
+     * @param count number of set bits.
+     */
+    BitmapContainer(long[] words, int count) {
+      this.words = words;
+      this.count = count;
+    }
+
+    @Override
+    int cardinality() {
+      return count;
+    }
+
+    @Override
+    boolean contains(char low) {
+      return (words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    @Override
+    int fill(int[] out, int offset, int high) {
+      return fill(words, out, offset, high);
+    }
+
+    /**
+     * Writes the ids of the set bits of a bitmap.
+     *
+     * @param words the bitmap.
+     * @param out array to write to.
+     * @param offset index to write the first id at.
+     * @param high upper bits of every id.
+     * @return index after the last id written.
+     */
+    static int fill(long[] words, int[] out, int offset, int high) {
+      for (int w = 0; w < words.length; w++) {
+        long word = words[w];
+        while (word != 0) {
+          out[offset++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+          word &= word - 1;
+        }
+      }
+      return offset;
+    }
+
+    @Override
+    void orInto(long[] target) {
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        target[w] |= words[w];
+      }
+    }
+
+    @Override
+    void andInto(long[] target) {
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        target[w] &= words[w];
+      }
+    }
+
+    @Override
+    long[] toWords() {
+      return words.clone();
+    }
+
+    @Override
+    int bytes() {
+      return words.length * 8;
+    }
+  }
+
+  /** A container of runs of consecutive values. */
+  private static final class RunContainer extends Container {
+    private final char[] starts;
+    private final char[] lengths;
+    private final int runCount;
+
+    /**
+     * the constructor for the container.
+     *
+     * @param starts first value of each run, ascending.
+     * @param lengths number of values after the first of each run.
+     * @param runCount number of runs.
+     */
+    RunContainer(char[] starts, char[] lengths, int runCount) {
+      this.starts = starts;
+      this.lengths = lengths;
+      this.runCount = runCount;
+    }
+
+    @Override
+    int cardinality() {
+      int count = 0;
+      for (int r = 0; r < runCount; r++) {
+        count += lengths[r] + 1;
+      }
+      return count;
+    }
+
+    @Override
+    boolean contains(char low) {
+      int index = Arrays.binarySearch(starts, 0, runCount, low);
+      if (index >= 0) {
+        return true;
+      }
+      // the run before the insertion point is the only one that can hold the value.
+      int run = -index - 2;
+      return run >= 0 && low <= starts[run] + lengths[run];
+    }
+
+    @Override
+    int fill(int[] out, int offset, int high) {
+      for (int r = 0; r < runCount; r++) {
+        for (int value = starts[r], end = starts[r] + lengths[r]; value <= end; value++) {
+          out[offset++] = high | value;
+        }
+      }
+      return offset;
+    }
+
+    @Override
+    void orInto(long[] words) {
+      for (int r = 0; r < runCount; r++) {
+        int from = starts[r];
+        int to = from + lengths[r];
+        int first = from >>> 6;
+        int last = to >>> 6;
+        // whole words are filled at once, and only the two ends need masks.
+        if (first == last) {
+          words[first] |= (-1L >>> (63 - (to & 63))) & (-1L << from);
+        } else {
+          words[first] |= -1L << from;
+          Arrays.fill(words, first + 1, last, -1L);
+          words[last] |= -1L >>> (63 - (to & 63));
+        }
+      }
+    }
+
+    @Override
+    int bytes() {
+      return (starts.length + lengths.length) * 2;
+    }
+
+    /**
+     * Merges two lists of runs, joining runs that overlap or touch.
+     *
+     * @param other the other container.
+     * @return the union.
+     */
+    Container or(RunContainer other) {
+      char[] mergedStarts = new char[runCount + other.runCount];
+      char[] mergedLengths = new char[mergedStarts.length];
+      int count = 0;
+      int i = 0;
+      int j = 0;
+
+      while (i < runCount || j < other.runCount) {
+        int start;
+        int end;
+        if (j == other.runCount || (i < runCount && starts[i] <= other.starts[j])) {
+          start = starts[i];
+          end = start + lengths[i++];
+        } else {
+          start = other.starts[j];
+          end = start + other.lengths[j++];
+        }
+
+        if (count > 0 && start <= mergedStarts[count - 1] + mergedLengths[count - 1] + 1) {
+          int last = mergedStarts[count - 1] + mergedLengths[count - 1];
+          mergedLengths[count - 1] = (char) (Math.max(last, end) - mergedStarts[count - 1]);
+        } else {
+          mergedStarts[count] = (char) start;
+          mergedLengths[count++] = (char) (end - start);
+        }
+      }
+
+      return new RunContainer(mergedStarts, mergedLengths, count);
+    }
+
+    /**
+     * Intersects two lists of runs.
+     *
+     * @param other the other container.
+     * @return the intersection, or null if it is empty.
+     */
+    Container and(RunContainer other) {
+      char[] keptStarts = new char[runCount + other.runCount];
+      char[] keptLengths = new char[keptStarts.length];
+      int count = 0;
+      int i = 0;
+      int j = 0;
+
+      while (i < runCount && j < other.runCount) {
+        int firstEnd = starts[i] + lengths[i];
+        int secondEnd = other.starts[j] + other.lengths[j];
+        int start = Math.max(starts[i], other.starts[j]);
+        int end = Math.min(firstEnd, secondEnd);
+
+        if (start <= end) {
+          keptStarts[count] = (char) start;
+          keptLengths[count++] = (char) (end - start);
+        }
+
+        // the run that ends first cannot overlap anything later.
+        if (firstEnd < secondEnd) {
+          i++;
+        } else {
+          j++;
+        }
+      }
+
+      return count == 0 ? null : new RunContainer(keptStarts, keptLengths, count);
+    }
+  }
+}
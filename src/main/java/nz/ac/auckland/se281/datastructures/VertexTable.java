@@ -0,0 +1,131 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A symbol table that interns each distinct vertex into a dense integer id. Ids are handed out in
+ * ascending vertex order, so comparing two ids gives the same answer as comparing the verticies
+ * they stand for.
+ *
+ * @param <T> The type of each vertex, that have a total ordering.
+ */
+public class VertexTable<T extends Comparable<T>> {
+  /**
+   * Roughly the bytes of each entry besides the vertex itself: its slot in the list, its hash map
+   * node and bucket, and the boxed id.
+   */
+  private static final int ENTRY_BYTES = 4 + 32 + 8 + 16;
+
+  /** Roughly the bytes of a string besides its characters, the object and its array. */
+  private static final int STRING_BYTES = 24 + 16;
+
+  private final List<T> verticies;
+  private final Map<T, Integer> ids;
+
+  /**
+   * the constructor for the vertex table.
+   *
+   * @param verticies the verticies to intern, duplicates are ignored.
+   */
+  public VertexTable(Collection<T> verticies) {
+    // sort once so that the ids follow the vertex ordering.
+    TreeSet<T> sorted = new TreeSet<>(new VertexOrder<T>());
+    sorted.addAll(verticies);
+
+    this.verticies = new ArrayList<>(sorted);
+    this.ids = new HashMap<>(this.verticies.size() * 2);
+
+    for (int id = 0; id < this.verticies.size(); id++) {
+      ids.put(this.verticies.get(id), id);
+    }
+  }
+
+  /**
+   * The method returns the number of verticies in the table.
+   *
+   * @return number of verticies.
+   */
+  public int size() {
+    return verticies.size();
+  }
+
+  /**
+   * The method returns roughly how many bytes the table keeps, counting the verticies themselves
+   * as strings of their names.
+   *
+   * @return size in bytes.
+   */
+  public long getBytes() {
+    long bytes = (long) verticies.size() * (ENTRY_BYTES + STRING_BYTES);
+    for (T vertex : verticies) {
+      bytes += vertex.toString().length();
+    }
+    return bytes;
+  }
+
+  /**
+   * Looks up the id of a vertex.
+   *
+   * @param vertex vertex to look up.
+   * @return id of the vertex, or -1 if the vertex is not in the table.
+   */
+  public int getId(T vertex) {
+    Integer id = ids.get(vertex);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Converts an id back into the vertex it was interned from.
+   *
+   * @param id id of the vertex.
+   * @return the vertex.
+   */
+  public T getVertex(int id) {
+    return verticies.get(id);
+  }
+
+  /**
+   * Orders verticies so that numeric ids compare by value and come before non-numeric ids, which
+   * fall back to their natural ordering.
+   */
+  private static class VertexOrder<T extends Comparable<T>> implements Comparator<T> {
+    @Override
+    public int compare(T first, T second) {
+      Long firstNumber = parseNumber(first);
+      Long secondNumber = parseNumber(second);
+
+      if (firstNumber != null && secondNumber != null) {
+        int result = Long.compare(firstNumber, secondNumber);
+        // ties such as "01" and "1" are still different verticies.
+        return result != 0 ? result : first.compareTo(second);
+      }
+      if (firstNumber != null) {
+        return -1;
+      }
+      if (secondNumber != null) {
+        return 1;
+      }
+      return first.compareTo(second);
+    }
+
+    /**
+     * Parses a vertex as a whole number.
+     *
+     * @param vertex vertex to parse.
+     * @return the number, or null if the vertex is not numeric.
+     */
+    private Long parseNumber(T vertex) {
+      try {
+        return Long.parseLong(vertex.toString());
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * The counterexamples found by a check of a relation property, each a tuple of vertex ids, such as
+ * the vertex missing a self loop or the x, y and z of a 2-path missing its shortcut. A search stops
+ * as soon as it has found as many as it was asked for, so asking for one answers the property with
+ * the least work, and an empty result means the property holds.
+ */
+public class Violations {
+  private final int arity;
+  private final int limit;
+  private int[] parts;
+  private int count;
+
+  /**
+   * the constructor for an empty list of violations.
+   *
+   * @param arity number of vertex ids in each violation.
+   * @param limit most violations to keep.
+   */
+  public Violations(int arity, int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("at least one violation must be wanted");
+    }
+    this.arity = arity;
+    this.limit = limit;
+    this.parts = new int[arity * Math.min(limit, 16)];
+  }
+
+  /**
+   * Records a violation, unless the list is already full.
+   *
+   * @param ids the vertex ids of the violation.
+   */
+  public void add(int... ids) {
+    if (isFull()) {
+      return;
+    }
+    if ((count + 1) * arity > parts.length) {
+      parts = Arrays.copyOf(parts, Math.min(limit, count * 2) * arity);
+    }
+    System.arraycopy(ids, 0, parts, count * arity, arity);
+    count++;
+  }
+
+  /**
+   * Appends the violations of another list, until this list is full.
+   *
+   * @param other violations of the same arity.
+   */
+  public void addAll(Violations other) {
+    for (int i = 0; i < other.count && !isFull(); i++) {
+      add(Arrays.copyOfRange(other.parts, i * arity, (i + 1) * arity));
+    }
+  }
+
+  /**
+   * The method returns a boolean true if no more violations are wanted.
+   *
+   * @return boolean of is full.
+   */
+  public boolean isFull() {
+    return count == limit;
+  }
+
+  /**
+   * The method returns a boolean true if no violation was found, so the property holds.
+   *
+   * @return boolean of is empty.
+   */
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * The method returns the number of violations found.
+   *
+   * @return number of violations.
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * The method returns the most violations that are kept.
+   *
+   * @return the limit.
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * The method returns one vertex id of a violation.
+   *
+   * @param index index of the violation.
+   * @param part index of the id within the violation.
+   * @return id of the vertex.
+   */
+  public int get(int index, int part) {
+    return parts[index * arity + part];
+  }
+}
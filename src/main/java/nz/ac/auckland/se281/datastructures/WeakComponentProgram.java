@@ -0,0 +1,40 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * Labels the weakly connected components of a graph, which ignore the direction of edges, by
+ * propagating the smallest vertex id along edges in both directions. Every vertex ends up labelled
+ * with the smallest id in its component.
+ */
+public class WeakComponentProgram implements VertexProgram {
+
+  @Override
+  public int initialValue(int vertex) {
+    return vertex;
+  }
+
+  @Override
+  public void compute(VertexContext context) {
+    // the first superstep announces every label, after that only smaller labels are passed on.
+    if (context.getSuperstep() == 0 || context.getMessage() < context.getValue()) {
+      context.setValue(Math.min(context.getValue(), context.getMessage()));
+      context.sendToSuccessors(context.getValue());
+      context.sendToPredecessors(context.getValue());
+    }
+    context.voteToHalt();
+  }
+
+  @Override
+  public int combine(int a, int b) {
+    return Math.min(a, b);
+  }
+
+  @Override
+  public int identity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public boolean usesPredecessors() {
+    return true;
+  }
+}
@@ -1,7 +1,17 @@
 package nz.ac.auckland.se281;
 
 import static nz.ac.auckland.se281.Command.*;
-
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -269,6 +279,19 @@ public class MainTest {
       super(Main.class);
     }
 
+    /**
+     * Deletes a temporary file, or a temporary folder and everything in it.
+     *
+     * @param path The file or folder.
+     */
+    private static void deleteTemporary(final Path path) throws Exception {
+      try (Stream<Path> paths = Files.walk(path)) {
+        for (final Path entry : paths.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+          Files.deleteIfExists(entry);
+        }
+      }
+    }
+
     @Test
     public void TY_01_your_own_test() throws Exception {
       // Write your own test here, in the same format as the other tests.
@@ -780,5 +803,756 @@ public class MainTest {
       assertContains("Successfully opened graph from file f.txt");
       assertContains("[0]");
     }
+
+    @Test
+    public void TY_J_roots_mixed_ids() throws Exception {
+      runCommands(OPEN_FILE, "j.txt", LIST_ROOT_VERTICIES);
+      assertContains("Successfully opened graph from file j.txt");
+      assertContains("[2]");
+    }
+
+    @Test
+    public void TY_J_iterative_BFS_mixed_ids() throws Exception {
+      runCommands(OPEN_FILE, "j.txt", GRAPH_SEARCH_IBFS);
+      assertContains("Successfully opened graph from file j.txt");
+      assertContains("[2, 10, b, a, c]");
+    }
+
+    @Test
+    public void TY_J_iterative_DFS_mixed_ids() throws Exception {
+      runCommands(OPEN_FILE, "j.txt", GRAPH_SEARCH_IDFS);
+      assertContains("Successfully opened graph from file j.txt");
+      assertContains("[2, 10, a, b, c]");
+    }
+
+    @Test
+    public void TY_D_roots_reaching() throws Exception {
+      runCommands(OPEN_FILE, "d.txt", LIST_ROOTS_REACHING, 7);
+      assertContains("Successfully opened graph from file d.txt");
+      assertContains("[6]");
+    }
+
+    @Test
+    public void TY_X_roots_reaching() throws Exception {
+      runCommands(OPEN_FILE, "x.txt", LIST_ROOTS_REACHING, 3, LIST_ROOTS_REACHING, "z");
+      assertContains("Successfully opened graph from file x.txt");
+      assertContains("[2]");
+      assertContains("Error: vertex 'z' not found in the graph");
+    }
+
+    @Test
+    public void TY_G_reachable() throws Exception {
+      runCommands(OPEN_FILE, "g.txt", REACHABLE, "1 12 12 1 4 2");
+      assertContains("Successfully opened graph from file g.txt");
+      assertContains("Vertex 12 is reachable from vertex 1");
+      assertContains("Vertex 1 is NOT reachable from vertex 12");
+      assertContains("Vertex 2 is reachable from vertex 4");
+    }
+
+    @Test
+    public void TY_G_reachable_odd_arguments() throws Exception {
+      runCommands(OPEN_FILE, "g.txt", REACHABLE, "1 12 3");
+      assertContains(
+          "Error! Incorrect number of arguments provided. Expected 2 arguments for the"
+              + " \"REACHABLE\" command");
+    }
+
+    @Test
+    public void TY_G_compute_scc() throws Exception {
+      runCommands(OPEN_FILE, "g.txt", COMPUTE_SCC, 5);
+      assertContains("Successfully opened graph from file g.txt");
+      assertContains("[2, 3, 4, 5, 6, 7, 8, 10]");
+    }
+
+    @Test
+    public void TY_G_list_scc() throws Exception {
+      runCommands(OPEN_FILE, "g.txt", LIST_SCC);
+      assertContains("Successfully opened graph from file g.txt");
+      assertContains("The graph has 3 strongly connected components");
+      assertContains("[1]");
+      assertContains("[2, 3, 4, 5, 6, 7, 8, 10]");
+      assertContains("[9, 11, 12]");
+    }
+
+    @Test
+    public void TY_H_topological_sort() throws Exception {
+      runCommands(OPEN_FILE, "h.txt", TOPO_SORT, CHECK_ACYCLIC);
+      assertContains("Successfully opened graph from file h.txt");
+      assertContains(
+          "[0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23,"
+              + " 24]");
+      assertContains("The graph is acyclic");
+    }
+
+    @Test
+    public void TY_G_topological_sort_cycle() throws Exception {
+      runCommands(OPEN_FILE, "g.txt", TOPO_SORT);
+      assertContains("Successfully opened graph from file g.txt");
+      assertContains("The graph is NOT acyclic");
+      assertContains("Cycle found: [2, 4, 10, 6, 2]");
+    }
+
+    @Test
+    public void TY_A_distances() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", DISTANCES, 0);
+      assertContains("Successfully opened graph from file a.txt");
+      assertContains("Distances from 0:");
+      assertContains("\t2: 1 (from 0)");
+      assertContains("\t5: 2 (from 1)");
+    }
+
+    @Test
+    public void TY_A_distances_unreachable() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", DISTANCES, 2);
+      assertContains("Distances from 2:");
+      assertContains("\t2: 0");
+      assertDoesNotContain("\t0: ");
+    }
+
+    @Test
+    public void TY_K_shortest_path() throws Exception {
+      runCommands(OPEN_FILE, "k.txt", SHORTEST_PATH, "a", "d");
+      assertContains("The shortest path from a to d has length 4: [a, c, b, d]");
+    }
+
+    @Test
+    public void TY_K_shortest_path_none() throws Exception {
+      runCommands(OPEN_FILE, "k.txt", SHORTEST_PATH, "d", "a");
+      assertContains("There is no path from d to a");
+    }
+
+    @Test
+    public void TY_A_shortest_path_unweighted() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", SHORTEST_PATH, "1", "3");
+      assertContains("The shortest path from 1 to 3 has length 1: [1, 3]");
+    }
+
+    @Test
+    public void TY_A_degree_stats() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", DEGREE_STATS);
+      assertContains("Out degree: min 0, max 3, mean 0.83");
+      assertContains("In degree: min 0, max 1, mean 0.83");
+      assertContains("Sources: 1, sinks: 4, isolated: 0");
+      assertContains("Hubs: [1, 0, 2, 3, 4]");
+    }
+
+    @Test
+    public void TY_K_shortest_path_off_heap() throws Exception {
+      System.setProperty("graph.storage", "offheap");
+      try {
+        runCommands(OPEN_FILE, "k.txt", SHORTEST_PATH, "a", "d", GRAPH_SEARCH_IDFS);
+        assertContains("The shortest path from a to d has length 4: [a, c, b, d]");
+        assertContains("[e, a, b, d, c]");
+      } finally {
+        System.clearProperty("graph.storage");
+      }
+    }
+
+    @Test
+    public void TY_D_search_compressed() throws Exception {
+      System.setProperty("graph.storage", "compressed");
+      try {
+        runCommands(
+            OPEN_FILE, "d.txt", GRAPH_SEARCH_RDFS, GRAPH_SEARCH_IBFS, LIST_ROOT_VERTICIES);
+        assertContains("[0, 1, 2, 3, 4, 5, 6, 7, 8]");
+        assertContains("[0, 1, 6, 8]");
+      } finally {
+        System.clearProperty("graph.storage");
+      }
+    }
+
+    @Test
+    public void TY_D_bsp_analyse() throws Exception {
+      runCommands(OPEN_FILE, "d.txt", BSP_ANALYSE, 3);
+      assertContains("[0, 1, 6, 8]");
+      assertContains("The graph is reflexive");
+      assertContains("The graph is NOT antisymmetric");
+      assertContains("The graph is an equivalence relation");
+      assertContains("[0, 1, 6, 8, 2, 3, 4, 5, 7]");
+    }
+
+    @Test
+    public void TY_B_bsp_analyse_matches_single_process() throws Exception {
+      runCommands(OPEN_FILE, "b.txt", BSP_ANALYSE, 2);
+      assertContains("[6]");
+      assertContains("The graph is NOT transitive");
+      assertContains("The graph is NOT an equivalence relation");
+      assertContains("[6, 5, 4, 3, 2, 1, 0]");
+    }
+
+    @Test
+    public void TY_D_bsp_analyse_invalid_workers() throws Exception {
+      runCommands(OPEN_FILE, "d.txt", BSP_ANALYSE, "none");
+      assertContains("Error: 'none' is not a valid number of workers");
+    }
+
+    @Test
+    public void TY_J_list_wcc() throws Exception {
+      runCommands(OPEN_FILE, "j.txt", LIST_WCC);
+      assertContains("The graph has 1 weakly connected component");
+      assertContains("\t[2, 10, a, b, c]");
+    }
+
+    @Test
+    public void TY_E_list_wcc() throws Exception {
+      runCommands(OPEN_FILE, "e.txt", LIST_WCC);
+      assertContains("The graph has 3 weakly connected components");
+      assertContains("\t[0, 1]");
+      assertContains("\t[2]");
+      assertContains("\t[3, 4]");
+    }
+
+    @Test
+    public void TY_A_result_cache() throws Exception {
+      final Path directory = Files.createTempDirectory("graph-cache");
+      System.setProperty("graph.cache", directory.toString());
+      try {
+        runCommands(OPEN_FILE, "a.txt", CHECK_TRANSITIVITY, LIST_ROOT_VERTICIES);
+        assertContains("The graph is NOT transitive");
+        assertContains("[0]");
+
+        try (Stream<Path> files = Files.list(directory)) {
+          final Path results =
+              files.filter(path -> path.toString().endsWith(".properties")).findFirst().get();
+          final List<String> lines = Files.readAllLines(results);
+          assertTrue(lines.contains("transitive=false"));
+          assertTrue(lines.contains("roots=0"));
+        }
+      } finally {
+        System.clearProperty("graph.cache");
+        deleteTemporary(directory);
+      }
+    }
+
+    @Test
+    public void TY_A_watch_file_applies_changes() throws Exception {
+      final Path file = Files.createTempDirectory("graph-watch").resolve("watched.txt");
+      Files.writeString(file, Files.readString(Path.of("testcases", "a.txt")));
+      System.setProperty("graph.cache", "off");
+      try {
+        runCommands(OPEN_FILE, file.toString(), WATCH_FILE, LIST_ROOT_VERTICIES);
+        assertContains("Watching file watched.txt for changes");
+        assertContains("[0]");
+
+        // The rest runs on a calculator of its own, so the file can change between commands.
+        final GraphCalculator calculator = new GraphCalculator(file.toString());
+        calculator.watchFile();
+
+        // The vertex 5 loses its only parent and becomes the parent of 0.
+        Files.writeString(file, Files.readString(file).replace("1 -> 5;", "5 -> 0;"));
+        for (int i = 0; i < 50 && !getCaptureOut().contains("Applied changes"); i++) {
+          Thread.sleep(100);
+          calculator.applyFileChanges();
+        }
+        calculator.printRoots();
+        calculator.close();
+        assertContains("Applied changes to watched.txt: 1 edge inserted, 1 edge removed");
+        assertContains("[5]");
+      } finally {
+        System.clearProperty("graph.cache");
+        deleteTemporary(file.getParent());
+      }
+    }
+
+    @Test
+    public void TY_A_watch_file_keeps_external_storage() throws Exception {
+      final Path file = Files.createTempDirectory("graph-watch").resolve("watched.txt");
+      Files.writeString(file, Files.readString(Path.of("testcases", "a.txt")));
+      System.setProperty("graph.cache", "off");
+      System.setProperty("graph.storage", "external");
+      try {
+        runCommands(OPEN_FILE, file.toString(), GRAPH_SEARCH_IBFS);
+        assertContains("[0, 1, 2, 3, 4, 5]");
+
+        final GraphCalculator calculator = new GraphCalculator(file.toString());
+        calculator.watchFile();
+        Files.writeString(file, Files.readString(file).replace("1 -> 5;", "5 -> 0;"));
+        for (int i = 0; i < 50 && !getCaptureOut().contains("Applied changes"); i++) {
+          Thread.sleep(100);
+          calculator.applyFileChanges();
+        }
+        calculator.printIterativeBreadthFirstSearch();
+        calculator.printMemory();
+        calculator.close();
+        assertContains("Applied changes to watched.txt: 1 edge inserted, 1 edge removed");
+        assertContains("[5, 0, 1, 2, 3, 4]");
+        assertContains("Edges, stored on disk");
+      } finally {
+        System.clearProperty("graph.cache");
+        System.clearProperty("graph.storage");
+        deleteTemporary(file.getParent());
+      }
+    }
+
+    @Test
+    public void TY_A_explain_transitivity_lists_paths() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", EXPLAIN_TRANSITIVITY, "2");
+      assertContains("The graph is NOT transitive");
+      assertContains("Path 0 -> 1 -> 3 has no edge 0 -> 3");
+      assertContains("Path 0 -> 1 -> 4 has no edge 0 -> 4");
+      assertContains("Stopped after 2 violations, there may be more");
+    }
+
+    @Test
+    public void TY_A_explain_antisymmetry_two_way_edge() throws Exception {
+      runCommands(OPEN_FILE, "b.txt", EXPLAIN_ANTISYMMETRY, "1", EXPLAIN_SYMMETRY, "3");
+      assertContains("The graph is NOT antisymmetric");
+      assertContains("Edges 0 -> 1 and 1 -> 0 join two different verticies");
+      assertContains("Stopped after 1 violation, there may be more");
+      assertContains("Edge 6 -> 5 has no reverse edge 5 -> 6");
+    }
+
+    @Test
+    public void TY_A_explain_holds_lists_nothing() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", EXPLAIN_ANTISYMMETRY, "3");
+      assertContains("The graph is antisymmetric");
+      assertDoesNotContain("Stopped after");
+    }
+
+    @Test
+    public void TY_A_explain_invalid_count() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", EXPLAIN_REFLEXIVITY, "0");
+      assertContains("'0' is not a valid number of violations");
+      assertDoesNotContain("The graph is NOT reflexive");
+    }
+
+    @Test
+    public void TY_A_sample_antisymmetry_estimate() throws Exception {
+      runCommands(OPEN_FILE, "b.txt", SAMPLE_ANTISYMMETRY, "1000", "1000");
+      assertContains("604 of 1000 sampled edges have a reverse edge to a different vertex");
+      assertContains(
+          "An estimated 60.40% of the 17 edges have a reverse edge to a different vertex"
+              + " (95% confidence 57.33% to 63.39%)");
+    }
+
+    @Test
+    public void TY_A_sample_transitivity_every_path_breaks() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", SAMPLE_TRANSITIVITY, "500", "1000");
+      assertContains("500 of 500 sampled 2-paths have no shortcut edge");
+      assertContains("An estimated 100.00% of the 3 2-paths have no shortcut edge");
+    }
+
+    @Test
+    public void TY_A_sample_invalid_budget() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", SAMPLE_SYMMETRY, "100", "soon");
+      assertContains("Error: 'soon' is not a valid number of samples or milliseconds");
+      assertDoesNotContain("sampled edges");
+    }
+
+    @Test
+    public void TY_A_batch_analyse_writes_csv() throws Exception {
+      final Path output = Files.createTempFile("graph-batch", ".csv");
+      try {
+        runCommands(BATCH_ANALYSE, ".", output.toString(), EXIT);
+        assertContains("Analysed 13 graph files in folder ., and wrote the results to " + output);
+        final List<String> rows = Files.readAllLines(output);
+        assertTrue(rows.get(0).startsWith("file,verticies,edges,reflexive,symmetric,transitive"));
+        assertTrue(
+            rows.stream()
+                .anyMatch(
+                    row -> row.startsWith("c.txt,4,10,true,true,true,false,true,false,2,2,")));
+        assertTrue(
+            rows.stream()
+                .anyMatch(
+                    row -> row.startsWith("a.txt,6,5,false,false,false,true,false,true,1,6,")));
+      } finally {
+        deleteTemporary(output);
+      }
+    }
+
+    @Test
+    public void TY_A_batch_analyse_writes_json_lines() throws Exception {
+      final Path output = Files.createTempFile("graph-batch", ".jsonl");
+      try {
+        runCommands(BATCH_ANALYSE, ".", output.toString(), EXIT);
+        assertTrue(
+            Files.readAllLines(output).stream()
+                .anyMatch(
+                    row ->
+                        row.startsWith("{\"file\":\"f.txt\",\"verticies\":1,\"edges\":1")
+                            && row.endsWith("\"error\":null}")));
+      } finally {
+        deleteTemporary(output);
+      }
+    }
+
+    @Test
+    public void TY_A_batch_analyse_missing_folder() throws Exception {
+      runCommands(BATCH_ANALYSE, "missing", "out.csv", EXIT);
+      assertContains("Error: folder 'missing' not found in `testcases` folder");
+    }
+
+    @Test
+    public void TY_A_check_all_equivalence() throws Exception {
+      runCommands(OPEN_FILE, "c.txt", CHECK_ALL);
+      assertContains(
+          String.join(
+              System.lineSeparator(),
+              "The graph is reflexive",
+              "The graph is symmetric",
+              "The graph is transitive",
+              "The graph is NOT antisymmetric",
+              "The graph is an equivalence relation"));
+    }
+
+    @Test
+    public void TY_A_check_all_antisymmetric() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", CHECK_ALL);
+      assertContains(
+          String.join(
+              System.lineSeparator(),
+              "The graph is NOT reflexive",
+              "The graph is NOT symmetric",
+              "The graph is NOT transitive",
+              "The graph is antisymmetric",
+              "The graph is NOT an equivalence relation"));
+    }
+
+    @Test
+    public void TY_A_graph_memory() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", GRAPH_MEMORY);
+      assertContains("Vertex table: about 606 B for 6 verticies");
+      assertContains("Parse order: about 64 B");
+      assertContains("Edges, stored on the heap: about 48 B on the heap and 0 B off the heap");
+      assertContains("against a memory budget of none");
+    }
+
+    @Test
+    public void TY_A_memory_budget_compresses_edges() throws Exception {
+      runCommands(
+          SET_MEMORY_BUDGET, "1350", OPEN_FILE, "d.txt", GRAPH_MEMORY, SET_MEMORY_BUDGET, "none");
+      assertContains("The memory budget for opening graphs is 1.3 KB");
+      assertContains("so they are stored compressed on the heap");
+      assertContains("Successfully opened graph from file d.txt");
+      assertContains("Edges, stored compressed on the heap");
+    }
+
+    @Test
+    public void TY_A_memory_budget_refuses_file() throws Exception {
+      runCommands(
+          OPEN_FILE,
+          "a.txt",
+          SET_MEMORY_BUDGET,
+          "900b",
+          OPEN_FILE,
+          "d.txt",
+          INFO,
+          SET_MEMORY_BUDGET,
+          "lots",
+          SET_MEMORY_BUDGET,
+          "none");
+      assertContains(
+          "Error: 'd.txt' needs about 1.2 KB of memory to open, but only 900 B is available");
+      assertDoesNotContain("Successfully opened graph from file d.txt");
+      assertContains("File name: a.txt");
+      assertContains("Error: 'lots' is not a valid memory budget");
+    }
+
+    @Test
+    public void TY_K_search_external() throws Exception {
+      System.setProperty("graph.storage", "external");
+      try {
+        runCommands(
+            OPEN_FILE, "k.txt", GRAPH_SEARCH_IBFS, GRAPH_SEARCH_IDFS, SHORTEST_PATH, "a", "d");
+        assertContains("[e, a, b, c, d]");
+        assertContains("[e, a, b, d, c]");
+        assertContains("The shortest path from a to d has length 4: [a, c, b, d]");
+      } finally {
+        System.clearProperty("graph.storage");
+      }
+    }
+
+    @Test
+    public void TY_D_memory_external() throws Exception {
+      System.setProperty("graph.storage", "external");
+      try {
+        runCommands(OPEN_FILE, "d.txt", GRAPH_SEARCH_IBFS, GRAPH_MEMORY);
+        assertContains("[0, 1, 6, 8, 2, 3, 4, 5, 7]");
+        assertContains("Edges, stored on disk: about 40 B on the heap and 0 B off the heap");
+      } finally {
+        System.clearProperty("graph.storage");
+      }
+    }
+
+    @Test
+    public void TY_D_search_external_sort_buffer() throws Exception {
+      System.setProperty("graph.storage", "external");
+      System.setProperty("graph.sort.buffer", "1k");
+      try {
+        runCommands(OPEN_FILE, "d.txt", GRAPH_SEARCH_IBFS, GRAPH_MEMORY);
+        assertContains("[0, 1, 6, 8, 2, 3, 4, 5, 7]");
+        assertContains("Edges, stored on disk");
+        assertDoesNotContain("could not be written");
+      } finally {
+        System.clearProperty("graph.storage");
+        System.clearProperty("graph.sort.buffer");
+      }
+    }
+
+    /**
+     * Writes a cycle through every vertex, which makes a search as deep as the graph, with vertex 0
+     * as a hub with an edge to every vertex.
+     *
+     * @param directory The folder to write the file to.
+     * @param size The number of verticies.
+     * @return The file.
+     */
+    private static Path writeHubGraph(final Path directory, final int size) throws Exception {
+      final StringBuilder dot = new StringBuilder("digraph hub {\n");
+      for (int i = 0; i < size; i++) {
+        dot.append(' ').append(i).append(" -> ").append((i + 1) % size).append(";\n");
+        dot.append(" 0 -> ").append(i).append(";\n");
+      }
+      return Files.writeString(directory.resolve("hub.txt"), dot.append("}\n"));
+    }
+
+    @Test
+    public void TY_H_components_compressed_hub() throws Exception {
+      final Path directory = Files.createTempDirectory("graph-hub");
+      final Path file = writeHubGraph(directory, 20000);
+      System.setProperty("graph.cache", "off");
+      System.setProperty("graph.storage", "compressed");
+      try {
+        runCommands(OPEN_FILE, file.toString(), LIST_SCC, REACHABLE, "19999", "1", "2", "0");
+        assertContains("The graph has 1 strongly connected component");
+        assertContains("Vertex 1 is reachable from vertex 19999");
+        assertContains("Vertex 0 is reachable from vertex 2");
+      } finally {
+        System.clearProperty("graph.cache");
+        System.clearProperty("graph.storage");
+        deleteTemporary(directory);
+      }
+    }
+
+    @Test
+    public void TY_H_components_external_hub() throws Exception {
+      final Path directory = Files.createTempDirectory("graph-hub");
+      final Path file = writeHubGraph(directory, 40000);
+      System.setProperty("graph.cache", "off");
+      System.setProperty("graph.storage", "external");
+      try {
+        runCommands(OPEN_FILE, file.toString(), LIST_SCC, CHECK_SYMMETRY, REACHABLE, "39999", "1");
+        assertContains("The graph has 1 strongly connected component");
+        assertContains("The graph is NOT symmetric");
+        assertContains("Vertex 1 is reachable from vertex 39999");
+      } finally {
+        System.clearProperty("graph.cache");
+        System.clearProperty("graph.storage");
+        deleteTemporary(directory);
+      }
+    }
+
+    @Test
+    public void TY_A_snapshot_notices_same_size_rewrite() throws Exception {
+      final Path directory = Files.createTempDirectory("graph-snapshot");
+      final Path file = directory.resolve("graph.txt");
+      Files.writeString(file, Files.readString(Path.of("testcases", "a.txt")));
+      System.setProperty("graph.cache", directory.resolve("cache").toString());
+      try {
+        runCommands(OPEN_FILE, file.toString(), LIST_ROOT_VERTICIES);
+        assertContains("[0]");
+
+        // The same number of bytes, written back with the same modified time.
+        final FileTime modified = Files.getLastModifiedTime(file);
+        Files.writeString(file, Files.readString(file).replace("1 -> 5;", "5 -> 0;"));
+        Files.setLastModifiedTime(file, modified);
+        runCommands(OPEN_FILE, file.toString(), LIST_ROOT_VERTICIES);
+        assertContains("[5]");
+      } finally {
+        System.clearProperty("graph.cache");
+        deleteTemporary(directory);
+      }
+    }
+
+    @Test
+    public void TY_A_snapshot_external_storage() throws Exception {
+      final Path directory = Files.createTempDirectory("graph-snapshot");
+      final Path file = directory.resolve("graph.txt");
+      Files.writeString(file, Files.readString(Path.of("testcases", "a.txt")));
+      System.setProperty("graph.cache", directory.resolve("cache").toString());
+      System.setProperty("graph.storage", "external");
+      try {
+        runCommands(OPEN_FILE, file.toString(), GRAPH_SEARCH_IBFS);
+        runCommands(OPEN_FILE, file.toString(), GRAPH_SEARCH_IDFS, GRAPH_MEMORY);
+        assertContains("[0, 1, 2, 3, 4, 5]");
+        assertContains("[0, 1, 3, 4, 5, 2]");
+        assertContains("Edges, stored on disk");
+        try (Stream<Path> files = Files.list(directory.resolve("cache"))) {
+          assertTrue(files.anyMatch(path -> path.toString().contains("snapshot")));
+        }
+      } finally {
+        System.clearProperty("graph.cache");
+        System.clearProperty("graph.storage");
+        deleteTemporary(directory);
+      }
+    }
+
+    @Test
+    public void TY_A_batch_analyse_budget_per_file() throws Exception {
+      final Path output = Files.createTempFile("graph-batch", ".csv");
+      try {
+        runCommands(
+            SET_MEMORY_BUDGET,
+            "1100",
+            BATCH_ANALYSE,
+            ".",
+            output.toString(),
+            SET_MEMORY_BUDGET,
+            "none",
+            EXIT);
+        assertContains("Analysed 13 graph files in folder ., and wrote the results to " + output);
+        assertContains("could not be read or analysed, see the error column");
+        final List<String> rows = Files.readAllLines(output);
+        assertTrue(
+            rows.stream()
+                .anyMatch(
+                    row -> row.startsWith("a.txt,6,5,false,false,false,true,false,true,1,6,")));
+        assertTrue(
+            rows.contains(
+                "h.txt,,,,,,,,,,,,,\"needs about 2.9 KB, but only 1.1 KB is available\""));
+      } finally {
+        deleteTemporary(output);
+      }
+    }
+
+    @Test
+    public void TY_E_all_distances_file_contents() throws Exception {
+      final Path output = Files.createTempFile("graph-distances", ".bin");
+      try {
+        runCommands(OPEN_FILE, "e.txt", ALL_DISTANCES, output.toString());
+        assertContains("Wrote the hop distances between 5 verticies to file " + output);
+        final IntBuffer file = ByteBuffer.wrap(Files.readAllBytes(output)).asIntBuffer();
+        final int[] distances = new int[file.remaining()];
+        file.get(distances);
+        assertTrue(
+            Arrays.equals(
+                new int[] {
+                  0, 1, -1, -1, -1,
+                  -1, 0, -1, -1, -1,
+                  -1, -1, 0, -1, -1,
+                  -1, -1, -1, 0, 1,
+                  -1, -1, -1, 1, 0
+                },
+                distances));
+      } finally {
+        deleteTemporary(output);
+      }
+    }
+
+    @Test
+    public void TY_J_list_follows_file_order() throws Exception {
+      runCommands(OPEN_FILE, "j.txt", LIST_VERTICIES_EDGES);
+      final String out = getCaptureOut();
+      // The file lists b and its edge to c first, though 2 comes first in the vertex table.
+      assertTrue(out.indexOf("\tb" + System.lineSeparator()) < out.indexOf("\t2"));
+      assertTrue(out.indexOf("\tb -> c") < out.indexOf("\t2 -> 10"));
+      assertTrue(out.indexOf("\ta -> b") < out.indexOf("\t10 -> a"));
+    }
+
+    @Test
+    public void TY_A_list_keeps_loaded_graph_after_file_changes() throws Exception {
+      final Path file = Files.createTempDirectory("graph-list").resolve("listed.txt");
+      Files.writeString(file, Files.readString(Path.of("testcases", "a.txt")));
+      System.setProperty("graph.cache", "off");
+      try {
+        final GraphCalculator calculator = new GraphCalculator(file.toString());
+        Files.writeString(file, Files.readString(file).replace("1 -> 5;", "5 -> 0;"));
+        calculator.printVerticiesEdges();
+        calculator.close();
+        assertContains("\t1 -> 5");
+        assertDoesNotContain("\t5 -> 0");
+      } finally {
+        System.clearProperty("graph.cache");
+        deleteTemporary(file.getParent());
+      }
+    }
+
+    @Test
+    public void TY_J_list_follows_file_order_from_snapshot() throws Exception {
+      final Path directory = Files.createTempDirectory("graph-cache");
+      System.setProperty("graph.cache", directory.toString());
+      try {
+        new GraphCalculator("j.txt").close();
+        // The second calculator reads the snapshot the first one wrote, without the parser.
+        final GraphCalculator calculator = new GraphCalculator("j.txt");
+        calculator.printVerticiesEdges();
+        calculator.close();
+        final String out = getCaptureOut();
+        assertTrue(out.indexOf("\tb" + System.lineSeparator()) < out.indexOf("\t2"));
+        assertTrue(out.indexOf("\tb -> c") < out.indexOf("\t2 -> 10"));
+      } finally {
+        System.clearProperty("graph.cache");
+        deleteTemporary(directory);
+      }
+    }
+
+    @Test
+    public void TY_A_sample_filters_graphs_the_budget_compressed() throws Exception {
+      runCommands(
+          SET_MEMORY_BUDGET,
+          "1350",
+          OPEN_FILE,
+          "d.txt",
+          SAMPLE_SYMMETRY,
+          "100",
+          "1000",
+          SET_MEMORY_BUDGET,
+          "none");
+      assertContains("so they are stored compressed on the heap");
+      assertContains("Edges were looked up in a Bloom filter");
+    }
+
+    @Test
+    public void TY_A_result_cache_writes_once_per_command() throws Exception {
+      final Path directory = Files.createTempDirectory("graph-cache");
+      System.setProperty("graph.cache", directory.toString());
+      try {
+        final GraphCalculator calculator = new GraphCalculator("a.txt");
+        calculator.printAllProperties();
+        try (Stream<Path> files = Files.list(directory)) {
+          assertTrue(files.noneMatch(path -> path.toString().endsWith(".properties")));
+        }
+
+        // Every flag the command found is written together once it is done.
+        calculator.saveResults();
+        calculator.close();
+        try (Stream<Path> files = Files.list(directory)) {
+          final Path results =
+              files.filter(path -> path.toString().endsWith(".properties")).findFirst().get();
+          final List<String> lines = Files.readAllLines(results);
+          assertTrue(lines.contains("transitive=false"));
+          assertTrue(lines.contains("equivalence=false"));
+        }
+
+        runCommands(OPEN_FILE, "a.txt", CHECK_TRANSITIVITY);
+        assertContains("The graph is NOT transitive");
+      } finally {
+        System.clearProperty("graph.cache");
+        deleteTemporary(directory);
+      }
+    }
+
+    @Test
+    public void TY_G_cycle_keeps_its_components() throws Exception {
+      runCommands(OPEN_FILE, "g.txt", CHECK_ACYCLIC, GRAPH_MEMORY);
+      assertContains("Cycle found: [2, 4, 10, 6, 2]");
+      // The components the cycle was found through are kept for later commands.
+      assertDoesNotContain("Cached results: about 0 B");
+    }
+
+    @Test
+    public void TY_D_bsp_analyse_reports_worker_that_exits() throws Exception {
+      // Workers are started with this class path, so they exit straight away without the classes.
+      final String classPath = System.getProperty("java.class.path");
+      System.setProperty("java.class.path", "missing");
+      try {
+        runCommands(OPEN_FILE, "d.txt", BSP_ANALYSE, 2);
+        assertContains("Error: could not run the worker processes: worker");
+        assertContains("exited with status");
+        assertContains("BspWorker");
+      } finally {
+        System.setProperty("java.class.path", classPath);
+      }
+    }
   }
 }
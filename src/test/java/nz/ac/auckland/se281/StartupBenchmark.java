@@ -0,0 +1,140 @@
+package nz.ac.auckland.se281;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the time from launching the calculator to its first answer, the way batch jobs use it:
+ * a new JVM that opens a small graph, checks a property and exits. Each configuration is run a
+ * number of times and its median and 90th percentile are printed, and appended to a history file
+ * so the startup time can be tracked over time.
+ *
+ * <p>Usage: {@code StartupBenchmark <jar> <cds archive> [runs] [history file]}. It is run by the
+ * {@code cds} Maven profile once the archive has been created.
+ */
+public class StartupBenchmark {
+  private static final String COMMANDS =
+      String.join(System.lineSeparator(), "open-file a.txt", "check-equivalence", "exit", "");
+
+  private static final String ANSWER = "The graph is";
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args The jar, the archive, the number of runs and the history file.
+   * @throws Exception If the calculator cannot be launched, or exits without answering.
+   */
+  public static void main(final String[] args) throws Exception {
+    final Path jar = Path.of(args[0]);
+    final Path archive = Path.of(args[1]);
+    final int runs = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    final Path history = args.length > 3 ? Path.of(args[3]) : null;
+
+    final String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    final String shared = "-XX:SharedArchiveFile=" + archive;
+    final String snapshots = "-Dgraph.cache=" + Files.createTempDirectory("startup-cache");
+
+    run("parse", runs, history, java, "-Dgraph.cache=off", "-jar", jar.toString());
+
+    if (Files.isRegularFile(archive)) {
+      run("cds", runs, history, java, shared, "-Dgraph.cache=off", "-jar", jar.toString());
+      run("cds+snapshot", runs, history, java, shared, snapshots, "-jar", jar.toString());
+    } else {
+      System.out.println("No archive at " + archive + ", skipping the cds configurations");
+    }
+  }
+
+  /**
+   * Times one configuration, after a first run that is not counted.
+   *
+   * @param name The name of the configuration.
+   * @param runs The number of runs to time.
+   * @param history The file to append the result to, or null.
+   * @param command The command that launches the calculator.
+   * @throws Exception If the calculator cannot be launched, or exits without answering.
+   */
+  private static void run(
+      final String name, final int runs, final Path history, final String... command)
+      throws Exception {
+    // The first run warms the file system cache, and writes any snapshot.
+    timeToFirstAnswer(command);
+
+    final double[] millis = new double[runs];
+
+    for (int i = 0; i < runs; i++) {
+      millis[i] = timeToFirstAnswer(command) / 1e6;
+    }
+
+    Arrays.sort(millis);
+    final double median = millis[runs / 2];
+    final double p90 = millis[Math.min(runs - 1, (int) Math.ceil(runs * 0.9) - 1)];
+
+    System.out.printf(
+        "%-14s median %7.1f ms, p90 %7.1f ms, min %7.1f ms%n", name, median, p90, millis[0]);
+
+    if (history != null) {
+      final List<String> lines = new ArrayList<>();
+
+      if (!Files.exists(history)) {
+        lines.add("time,configuration,runs,median_ms,p90_ms");
+      }
+
+      lines.add(String.format("%s,%s,%d,%.1f,%.1f", Instant.now(), name, runs, median, p90));
+      Files.write(
+          history,
+          lines,
+          StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+    }
+  }
+
+  /**
+   * Launches the calculator and waits for its first answer.
+   *
+   * @param command The command that launches the calculator.
+   * @return The nanoseconds from launching the process to reading the answer.
+   * @throws Exception If the calculator cannot be launched, or exits without answering.
+   */
+  private static long timeToFirstAnswer(final String... command) throws Exception {
+    final long start = System.nanoTime();
+    final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    long elapsed = -1;
+
+    try (Writer in = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+        BufferedReader out =
+            new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      in.write(COMMANDS);
+      in.flush();
+
+      for (String line = out.readLine(); line != null; line = out.readLine()) {
+        if (elapsed < 0 && line.contains(ANSWER)) {
+          elapsed = System.nanoTime() - start;
+        }
+      }
+    } catch (IOException e) {
+      process.destroy();
+      throw e;
+    }
+
+    process.waitFor();
+
+    if (elapsed < 0) {
+      throw new IllegalStateException("the calculator exited without answering");
+    }
+
+    return elapsed;
+  }
+}
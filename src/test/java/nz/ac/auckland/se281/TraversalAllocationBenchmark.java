@@ -0,0 +1,126 @@
+package nz.ac.auckland.se281;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import nz.ac.auckland.se281.datastructures.CsrAdjacency;
+import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.TraversalContext;
+import nz.ac.auckland.se281.datastructures.VertexTable;
+
+/**
+ * Measures the bytes allocated by each breadth-first and depth-first search, once through the
+ * methods that return a new array per search and once through a reused {@link TraversalContext}.
+ * The allocation is read from the counter the JVM keeps for each thread, so the garbage collector
+ * does not affect the result.
+ *
+ * <p>Usage: {@code TraversalAllocationBenchmark [verticies] [edges] [searches]}. Run it with {@code
+ * mvn test-compile exec:java@allocation-benchmark}. It exits with an error if a search through a
+ * context allocates anything once it has warmed up.
+ */
+public class TraversalAllocationBenchmark {
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  /** A search that can be run many times over. */
+  private interface Search {
+
+    /**
+     * Runs the search once.
+     *
+     * @return A value of the result, so the search cannot be optimised away.
+     */
+    int run();
+  }
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args The number of verticies, edges and searches.
+   */
+  public static void main(final String[] args) {
+    final int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+    final int edgeCount = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+    final int searches = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+    final Graph<Integer> graph = randomGraph(size, edgeCount);
+    final TraversalContext context = graph.newTraversalContext();
+
+    System.out.printf(
+        "%d verticies, %d edges, %d searches%n", size, graph.getEdgeCount(), searches);
+
+    measure("bfs, new arrays", searches, () -> graph.iterativeBreadthFirstSearchIds().length);
+    measure("dfs, new arrays", searches, () -> graph.iterativeDepthFirstSearchIds().length);
+    final double bfs = measure("bfs, context", searches, () -> graph.breadthFirstSearch(context));
+    final double dfs = measure("dfs, context", searches, () -> graph.depthFirstSearch(context));
+
+    if (bfs > 0 || dfs > 0) {
+      System.err.println("a search through a context allocated memory");
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Builds a graph with random edges, with a few sources so the searches have roots to start from.
+   *
+   * @param size The number of verticies.
+   * @param edgeCount The number of edges to draw, before duplicates are removed.
+   * @return The graph.
+   */
+  private static Graph<Integer> randomGraph(final int size, final int edgeCount) {
+    final Random random = new Random(size);
+    final int[] sources = new int[edgeCount];
+    final int[] destinations = new int[edgeCount];
+
+    for (int i = 0; i < edgeCount; i++) {
+      sources[i] = random.nextInt(size);
+      // Vertex 0 to 9 are never a destination, so they are sources.
+      destinations[i] = 10 + random.nextInt(size - 10);
+    }
+
+    final List<Integer> ids = new ArrayList<>(size);
+
+    for (int vertex = 0; vertex < size; vertex++) {
+      ids.add(vertex);
+    }
+
+    return new Graph<>(
+        new VertexTable<>(ids),
+        CsrAdjacency.build(size, sources, destinations, edgeCount));
+  }
+
+  /**
+   * Runs a search until it has warmed up, then measures the bytes and time of each search.
+   *
+   * @param name The name of the search.
+   * @param searches The number of searches to measure.
+   * @param search The search.
+   * @return The bytes allocated per search.
+   */
+  private static double measure(final String name, final int searches, final Search search) {
+    final long thread = Thread.currentThread().getId();
+    int checksum = 0;
+
+    for (int i = 0; i < searches; i++) {
+      checksum += search.run();
+    }
+
+    final long bytesBefore = THREADS.getThreadAllocatedBytes(thread);
+    final long start = System.nanoTime();
+
+    for (int i = 0; i < searches; i++) {
+      checksum += search.run();
+    }
+
+    final long nanos = System.nanoTime() - start;
+    final long bytes = THREADS.getThreadAllocatedBytes(thread) - bytesBefore;
+    final double perSearch = (double) bytes / searches;
+
+    System.out.printf(
+        "%-16s %12.1f bytes/search %10.1f us/search (checksum %d)%n",
+        name, perSearch, nanos / 1e3 / searches, checksum);
+
+    return perSearch;
+  }
+}
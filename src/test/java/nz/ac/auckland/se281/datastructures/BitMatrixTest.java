@@ -0,0 +1,380 @@
+package nz.ac.auckland.se281.datastructures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+public class BitMatrixTest {
+  /** Sizes on and around the 8 bit groups and 64 bit words, and past a tile and a chunk. */
+  private static final int[] SIZES = {1, 5, 8, 13, 63, 64, 65, 127, 200, 1100, 2100};
+
+  /**
+   * Builds a random relation, with some rows copied from earlier rows.
+   *
+   * @param random the source of the pairs.
+   * @param size number of verticies.
+   * @param density the chance of each pair being related.
+   * @return the relation, as rows of booleans.
+   */
+  private static boolean[][] randomRelation(Random random, int size, double density) {
+    boolean[][] relation = new boolean[size][size];
+    for (int x = 0; x < size; x++) {
+      if (x > 0 && random.nextInt(4) == 0) {
+        relation[x] = relation[random.nextInt(x)].clone();
+        continue;
+      }
+      for (int y = 0; y < size; y++) {
+        relation[x][y] = random.nextDouble() < density;
+      }
+    }
+    return relation;
+  }
+
+  /**
+   * Picks a density that keeps the brute force checks quick on the larger sizes.
+   *
+   * @param size number of verticies.
+   * @param dense if the relation should be dense.
+   * @return the chance of each pair being related.
+   */
+  private static double density(int size, boolean dense) {
+    return size > 500 ? 4.0 / size : dense ? 0.5 : 0.05;
+  }
+
+  /**
+   * Builds the matrix of a relation.
+   *
+   * @param relation the relation, as rows of booleans.
+   * @return the matrix.
+   */
+  private static BitMatrix matrix(boolean[][] relation) {
+    BitMatrix matrix = new BitMatrix(relation.length);
+    for (int x = 0; x < relation.length; x++) {
+      for (int y = 0; y < relation.length; y++) {
+        if (relation[x][y]) {
+          matrix.set(x, y);
+        }
+      }
+    }
+    return matrix;
+  }
+
+  /**
+   * Lists the verticies each vertex is related to.
+   *
+   * @param relation the relation, as rows of booleans.
+   * @return the related verticies of each vertex.
+   */
+  private static int[][] rows(boolean[][] relation) {
+    int[][] rows = new int[relation.length][];
+    for (int x = 0; x < relation.length; x++) {
+      int[] row = new int[relation.length];
+      int count = 0;
+      for (int y = 0; y < relation.length; y++) {
+        if (relation[x][y]) {
+          row[count++] = y;
+        }
+      }
+      rows[x] = Arrays.copyOf(row, count);
+    }
+    return rows;
+  }
+
+  /**
+   * Composes a relation with another by following every pair of pairs.
+   *
+   * @param first the relation applied first.
+   * @param second the relation applied second.
+   * @return the composed relation.
+   */
+  private static boolean[][] compose(boolean[][] first, boolean[][] second) {
+    int[][] firstRows = rows(first);
+    int[][] secondRows = rows(second);
+    boolean[][] product = new boolean[first.length][first.length];
+
+    for (int x = 0; x < first.length; x++) {
+      for (int y : firstRows[x]) {
+        for (int z : secondRows[y]) {
+          product[x][z] = true;
+        }
+      }
+    }
+    return product;
+  }
+
+  /**
+   * Checks a matrix holds exactly a relation.
+   *
+   * @param expected the relation, as rows of booleans.
+   * @param actual the matrix.
+   */
+  private static void assertRelation(boolean[][] expected, BitMatrix actual) {
+    assertEquals(expected.length, actual.size());
+    for (int x = 0; x < expected.length; x++) {
+      for (int y = 0; y < expected.length; y++) {
+        assertEquals("pair " + x + ", " + y, expected[x][y], actual.get(x, y));
+      }
+    }
+  }
+
+  /**
+   * Encodes a pair of verticies as one number.
+   *
+   * @param x the first vertex.
+   * @param y the second vertex.
+   * @return the pair.
+   */
+  private static long pair(int x, int y) {
+    return (long) x << 32 | y;
+  }
+
+  @Test
+  public void compose_matches_every_path_of_two_pairs() {
+    Random random = new Random(41);
+
+    for (int size : SIZES) {
+      for (boolean dense : new boolean[] {false, true}) {
+        boolean[][] first = randomRelation(random, size, density(size, dense));
+        boolean[][] second = randomRelation(random, size, density(size, !dense));
+        assertRelation(compose(first, second), matrix(first).compose(matrix(second)));
+      }
+    }
+  }
+
+  @Test
+  public void transpose_swaps_every_pair() {
+    Random random = new Random(410);
+
+    for (int size : SIZES) {
+      boolean[][] relation = randomRelation(random, size, size > 500 ? 0.01 : 0.3);
+      boolean[][] swapped = new boolean[size][size];
+      for (int x = 0; x < size; x++) {
+        for (int y = 0; y < size; y++) {
+          swapped[y][x] = relation[x][y];
+        }
+      }
+
+      BitMatrix transpose = matrix(relation).transpose();
+      assertRelation(swapped, transpose);
+      assertRelation(relation, transpose.transpose());
+    }
+  }
+
+  @Test
+  public void transitivity_violations_match_every_missing_shortcut() {
+    Random random = new Random(4100);
+
+    for (int size : SIZES) {
+      for (boolean dense : new boolean[] {false, true}) {
+        boolean[][] relation = randomRelation(random, size, density(size, dense));
+        boolean[][] twoSteps = compose(relation, relation);
+        Set<Long> missing = new HashSet<>();
+        for (int x = 0; x < size; x++) {
+          for (int z = 0; z < size; z++) {
+            if (twoSteps[x][z] && !relation[x][z]) {
+              missing.add(pair(x, z));
+            }
+          }
+        }
+
+        BitMatrix matrix = matrix(relation);
+        Violations violations = matrix.findTransitivityViolations(Integer.MAX_VALUE);
+        Set<Long> found = new HashSet<>();
+        for (int i = 0; i < violations.size(); i++) {
+          int x = violations.get(i, 0);
+          int y = violations.get(i, 1);
+          int z = violations.get(i, 2);
+          assertTrue(relation[x][y] && relation[y][z] && !relation[x][z]);
+          assertTrue("reported twice", found.add(pair(x, z)));
+        }
+
+        assertEquals(missing, found);
+        assertEquals(missing.isEmpty(), matrix.isTransitive());
+        assertEquals(Math.min(3, missing.size()), matrix.findTransitivityViolations(3).size());
+      }
+    }
+  }
+
+  @Test
+  public void copied_rows_of_an_equivalence_are_transitive() {
+    // three classes, so every row is a copy of the first row of its class.
+    int size = 100;
+    boolean[][] relation = new boolean[size][size];
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        relation[x][y] = x % 3 == y % 3;
+      }
+    }
+
+    BitMatrix matrix = matrix(relation);
+    assertTrue(matrix.isTransitive());
+
+    // joining 0 to 1 breaks transitivity for all 34 rows of the class of 0, though 33 of them are
+    // copies of row 3 and only one of those is composed.
+    matrix.set(0, 1);
+    assertEquals(34, countDistinctX(matrix.findTransitivityViolations(1000)));
+  }
+
+  /**
+   * Counts the different first verticies of some violations.
+   *
+   * @param violations the violations.
+   * @return the count.
+   */
+  private static int countDistinctX(Violations violations) {
+    Set<Integer> xs = new HashSet<>();
+    for (int i = 0; i < violations.size(); i++) {
+      xs.add(violations.get(i, 0));
+    }
+    return xs.size();
+  }
+
+  @Test
+  public void symmetry_violations_match_every_missing_reverse() {
+    Random random = new Random(41000);
+
+    for (int size : SIZES) {
+      boolean[][] relation = randomRelation(random, size, size > 500 ? 0.002 : 0.3);
+      for (int x = 0; x < size; x++) {
+        for (int y = 0; y < x; y++) {
+          // most pairs are made two way, so both kinds of violation are left.
+          if (random.nextBoolean()) {
+            relation[y][x] = relation[x][y];
+          }
+        }
+      }
+
+      Set<Long> oneWay = new HashSet<>();
+      Set<Long> twoWay = new HashSet<>();
+      for (int x = 0; x < size; x++) {
+        for (int y = 0; y < size; y++) {
+          if (relation[x][y] && !relation[y][x]) {
+            oneWay.add(pair(x, y));
+          }
+          if (x < y && relation[x][y] && relation[y][x]) {
+            twoWay.add(pair(x, y));
+          }
+        }
+      }
+
+      BitMatrix matrix = matrix(relation);
+      BitMatrix transpose = matrix.transpose();
+      assertEquals(oneWay, pairs(matrix.findSymmetryViolations(transpose, Integer.MAX_VALUE)));
+      assertEquals(twoWay, pairs(matrix.findAntiSymmetryViolations(transpose, Integer.MAX_VALUE)));
+      assertEquals(oneWay.isEmpty(), transpose.contains(matrix));
+    }
+  }
+
+  /**
+   * Collects the pairs of some violations.
+   *
+   * @param violations the violations.
+   * @return the pairs.
+   */
+  private static Set<Long> pairs(Violations violations) {
+    Set<Long> pairs = new HashSet<>();
+    for (int i = 0; i < violations.size(); i++) {
+      assertTrue("reported twice", pairs.add(pair(violations.get(i, 0), violations.get(i, 1))));
+    }
+    return pairs;
+  }
+
+  @Test
+  public void graph_checks_agree_whether_or_not_they_use_the_matrix() {
+    Random random = new Random(410000);
+
+    for (int size : new int[] {13, 65, 130}) {
+      for (boolean dense : new boolean[] {false, true}) {
+        boolean[][] relation = randomRelation(random, size, dense ? 0.6 : 0.02);
+        int[][] rows = rows(relation);
+        int[] offsets = new int[size + 1];
+        for (int x = 0; x < size; x++) {
+          offsets[x + 1] = offsets[x] + rows[x].length;
+        }
+        int[] targets = new int[offsets[size]];
+        for (int x = 0; x < size; x++) {
+          System.arraycopy(rows[x], 0, targets, offsets[x], rows[x].length);
+        }
+
+        List<Integer> names = new ArrayList<>();
+        for (int x = 0; x < size; x++) {
+          names.add(x);
+        }
+        Graph<Integer> graph =
+            new Graph<>(new VertexTable<>(names), new CsrAdjacency(offsets, targets));
+        long before = graph.getIndexBytes();
+
+        BitMatrix matrix = matrix(relation);
+        BitMatrix transpose = matrix.transpose();
+        assertEquals(matrix.isTransitive(), graph.isTransitive());
+        assertEquals(transpose.contains(matrix), graph.isSymmetric());
+        assertEquals(
+            matrix.findAntiSymmetryViolations(transpose, 1).isEmpty(), graph.isAntiSymmetric());
+        assertEquals(
+            matrix.findTransitivityViolations(Integer.MAX_VALUE).size(),
+            graph.findTransitivityViolations(Integer.MAX_VALUE).size());
+
+        // only the dense relations are worth a matrix of their own.
+        assertEquals(dense, graph.getIndexBytes() > before);
+      }
+    }
+  }
+
+  @Test
+  public void graph_keeps_its_matrices_within_the_limit() {
+    Random random = new Random(41);
+    int size = 130;
+    boolean[][] relation = randomRelation(random, size, 0.6);
+    int[][] rows = rows(relation);
+    int[] offsets = new int[size + 1];
+    for (int x = 0; x < size; x++) {
+      offsets[x + 1] = offsets[x] + rows[x].length;
+    }
+    int[] targets = new int[offsets[size]];
+    for (int x = 0; x < size; x++) {
+      System.arraycopy(rows[x], 0, targets, offsets[x], rows[x].length);
+    }
+    List<Integer> names = new ArrayList<>();
+    for (int x = 0; x < size; x++) {
+      names.add(x);
+    }
+
+    BitMatrix matrix = matrix(relation);
+    BitMatrix transpose = matrix.transpose();
+    long matrixBytes = BitMatrix.getBytes(size);
+    assertEquals(matrix.getBytes(), matrixBytes);
+
+    // the transpose is built once and kept for every later symmetry check.
+    Graph<Integer> graph =
+        new Graph<>(new VertexTable<>(names), new CsrAdjacency(offsets, targets));
+    long before = graph.getIndexBytes();
+    assertEquals(transpose.contains(matrix), graph.isSymmetric());
+    assertEquals(before + 2 * matrixBytes, graph.getIndexBytes());
+    assertEquals(
+        matrix.findAntiSymmetryViolations(transpose, 1).isEmpty(), graph.isAntiSymmetric());
+    assertEquals(before + 2 * matrixBytes, graph.getIndexBytes());
+
+    // room for the matrix but not its transpose leaves symmetry to the successor lists.
+    graph = new Graph<>(new VertexTable<>(names), new CsrAdjacency(offsets, targets));
+    graph.setMatrixLimit(matrixBytes);
+    assertEquals(transpose.contains(matrix), graph.isSymmetric());
+    assertEquals(
+        matrix.findAntiSymmetryViolations(transpose, 1).isEmpty(), graph.isAntiSymmetric());
+    assertEquals(matrix.isTransitive(), graph.isTransitive());
+    assertEquals(before + matrixBytes, graph.getIndexBytes());
+
+    // no room at all leaves every check to the successor lists.
+    graph = new Graph<>(new VertexTable<>(names), new CsrAdjacency(offsets, targets));
+    graph.setMatrixLimit(matrixBytes - 1);
+    assertEquals(matrix.isTransitive(), graph.isTransitive());
+    assertEquals(transpose.contains(matrix), graph.isSymmetric());
+    assertEquals(before, graph.getIndexBytes());
+  }
+}
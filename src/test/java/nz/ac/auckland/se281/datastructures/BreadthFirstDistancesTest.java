@@ -0,0 +1,57 @@
+package nz.ac.auckland.se281.datastructures;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.Test;
+
+public class BreadthFirstDistancesTest {
+
+  @Test
+  public void all_pairs_file_holds_each_row_of_levels() throws Exception {
+    Random random = new Random(31);
+    int size = 37;
+    int[] sources = new int[60];
+    int[] destinations = new int[60];
+    for (int i = 0; i < sources.length; i++) {
+      sources[i] = random.nextInt(size);
+      destinations[i] = random.nextInt(size);
+    }
+    CsrAdjacency edges = CsrAdjacency.build(size, sources, destinations, sources.length);
+    BreadthFirstDistances search = new BreadthFirstDistances(edges);
+    Path output = Files.createTempFile("distances", ".bin");
+
+    try {
+      // blocks of several rows, a block of one row, and rows split over several blocks.
+      for (long blockBytes : new long[] {1 << 24, size * 4, 12}) {
+        BreadthFirstDistances.writeAllPairs(edges, output, blockBytes);
+        assertEquals((long) size * size * Integer.BYTES, Files.size(output));
+        IntBuffer file = ByteBuffer.wrap(Files.readAllBytes(output)).asIntBuffer();
+
+        for (int source = 0; source < size; source++) {
+          search.run(source);
+          int[] row = new int[size];
+          file.get(row);
+          for (int vertex = 0; vertex < size; vertex++) {
+            assertEquals(search.getLevel(vertex), row[vertex]);
+          }
+        }
+      }
+
+      // a smaller graph written over the file replaces all of it.
+      CsrAdjacency pair = new CsrAdjacency(new int[] {0, 1, 1}, new int[] {1});
+      BreadthFirstDistances.writeAllPairs(pair, output);
+      IntBuffer file = ByteBuffer.wrap(Files.readAllBytes(output)).asIntBuffer();
+      int[] all = new int[file.remaining()];
+      file.get(all);
+      assertArrayEquals(new int[] {0, 1, -1, 0}, all);
+    } finally {
+      Files.deleteIfExists(output);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package nz.ac.auckland.se281.datastructures;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class MultiSourceBfsTest {
+
+  /**
+   * Builds a random graph.
+   *
+   * @param random the source of the edges.
+   * @param vertexCount number of verticies.
+   * @param edgeCount number of edges, before duplicates are removed.
+   * @return the successor lists.
+   */
+  private static CsrAdjacency randomGraph(Random random, int vertexCount, int edgeCount) {
+    int[] sources = new int[edgeCount];
+    int[] destinations = new int[edgeCount];
+    for (int i = 0; i < edgeCount; i++) {
+      sources[i] = random.nextInt(vertexCount);
+      destinations[i] = random.nextInt(vertexCount);
+    }
+    return CsrAdjacency.build(vertexCount, sources, destinations, edgeCount);
+  }
+
+  /**
+   * Finds the distance from one vertex to every other with a plain queue.
+   *
+   * @param edges the successor lists.
+   * @param source the vertex to search from.
+   * @return the distance to each vertex, or -1 if it is unreachable.
+   */
+  private static int[] distances(Adjacency edges, int source) {
+    int[] levels = new int[edges.getVertexCount()];
+    Arrays.fill(levels, -1);
+    levels[source] = 0;
+
+    ArrayDeque<Integer> queue = new ArrayDeque<>();
+    queue.add(source);
+    NeighbourCursor cursor = edges.cursor();
+
+    while (!queue.isEmpty()) {
+      int vertex = queue.poll();
+      cursor.reset(vertex);
+      while (cursor.hasNext()) {
+        int child = cursor.next();
+        if (levels[child] < 0) {
+          levels[child] = levels[vertex] + 1;
+          queue.add(child);
+        }
+      }
+    }
+    return levels;
+  }
+
+  @Test
+  public void levels_match_a_search_from_each_source() {
+    Random random = new Random(27);
+
+    // more than one batch of 512 lanes, with the last batch not a multiple of 64.
+    for (int sourceCount : new int[] {1, 63, 64, 65, 600}) {
+      CsrAdjacency edges = randomGraph(random, 300, 450);
+      int[] sources = new int[sourceCount];
+      for (int s = 0; s < sourceCount; s++) {
+        sources[s] = random.nextInt(300);
+      }
+
+      MultiSourceBfs search = new MultiSourceBfs(edges);
+      search.run(sources, true);
+      assertEquals(sourceCount, search.getSourceCount());
+
+      for (int s = 0; s < sourceCount; s++) {
+        assertEquals(sources[s], search.getSource(s));
+        int[] expected = distances(edges, sources[s]);
+
+        for (int vertex = 0; vertex < 300; vertex++) {
+          assertEquals(expected[vertex], search.getLevel(s, vertex));
+          assertEquals(expected[vertex] >= 0, search.reaches(s, vertex));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void reachable_lists_agree_with_each_other() {
+    Random random = new Random(270);
+    CsrAdjacency edges = randomGraph(random, 200, 260);
+    int[] sources = new int[530];
+    for (int s = 0; s < sources.length; s++) {
+      sources[s] = random.nextInt(200);
+    }
+
+    MultiSourceBfs search = new MultiSourceBfs(edges);
+    search.run(sources, false);
+
+    for (int vertex = 0; vertex < 200; vertex++) {
+      int[] reaching = search.getSourcesReaching(vertex);
+      int count = 0;
+
+      for (int s = 0; s < sources.length; s++) {
+        boolean listed = Arrays.binarySearch(search.getReachable(s), vertex) >= 0;
+        assertEquals(search.reaches(s, vertex), listed);
+        if (listed) {
+          assertEquals(s, reaching[count++]);
+        }
+      }
+      assertEquals(count, reaching.length);
+    }
+  }
+
+  @Test
+  public void levels_need_to_be_recorded() {
+    CsrAdjacency edges = new CsrAdjacency(new int[] {0, 1, 1}, new int[] {1});
+    MultiSourceBfs search = new MultiSourceBfs(edges);
+    search.run(new int[] {1, 0}, false);
+    assertArrayEquals(new int[] {0, 1}, search.getReachable(1));
+    assertFalse(search.reaches(0, 0));
+
+    try {
+      search.getLevel(0, 1);
+      fail("expected the levels to be missing");
+    } catch (IllegalStateException e) {
+      assertEquals("levels were not recorded by the last run", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package nz.ac.auckland.se281.datastructures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.Test;
+
+public class PropertySamplerTest {
+
+  /**
+   * Builds a random graph with one hub, so some successor lists span many checkpoints.
+   *
+   * @param random the source of the edges.
+   * @param vertexCount number of verticies.
+   * @param edgeCount number of edges, before duplicates are removed.
+   * @return the successor lists.
+   */
+  private static CsrAdjacency randomGraph(Random random, int vertexCount, int edgeCount) {
+    int[] sources = new int[edgeCount];
+    int[] destinations = new int[edgeCount];
+    for (int i = 0; i < edgeCount; i++) {
+      sources[i] = i % 3 == 0 ? 7 : random.nextInt(vertexCount);
+      destinations[i] = random.nextInt(vertexCount);
+    }
+    return CsrAdjacency.build(vertexCount, sources, destinations, edgeCount);
+  }
+
+  /**
+   * Checks every successor read by position matches the one a cursor reads.
+   *
+   * @param expected the successor lists to compare with.
+   * @param actual the adjacency read by position.
+   */
+  private static void assertSuccessors(Adjacency expected, Adjacency actual) {
+    NeighbourCursor cursor = expected.cursor();
+    for (int vertex = 0; vertex < expected.getVertexCount(); vertex++) {
+      cursor.reset(vertex);
+      for (int index = 0; cursor.hasNext(); index++) {
+        assertEquals(cursor.next(), actual.getSuccessor(vertex, index));
+      }
+    }
+  }
+
+  @Test
+  public void successors_by_position_match_every_storage() throws Exception {
+    Random random = new Random(43);
+    CsrAdjacency edges = randomGraph(random, 150, 900);
+
+    assertSuccessors(edges, edges);
+    assertSuccessors(edges, OffHeapAdjacency.copyOf(edges));
+    assertSuccessors(edges, CompressedAdjacency.copyOf(edges));
+
+    Path file = Files.createTempFile("graph-edges-", ".bin");
+    try (ExternalAdjacency external = ExternalAdjacency.write(edges, file)) {
+      assertSuccessors(edges, external);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+
+    CsrAdjacency next = randomGraph(random, 150, 900);
+    assertSuccessors(next, DeltaAdjacency.apply(edges, EdgeChanges.between(edges, next)));
+  }
+
+  @Test
+  public void transitivity_samples_are_drawn_from_every_path() {
+    Random random = new Random(430);
+    CsrAdjacency edges = randomGraph(random, 60, 400);
+
+    long paths = 0;
+    long broken = 0;
+    for (int x = 0; x < 60; x++) {
+      for (int i = 0; i < edges.getOutDegree(x); i++) {
+        int y = edges.getSuccessor(x, i);
+        for (int j = 0; j < edges.getOutDegree(y); j++) {
+          paths++;
+          if (!edges.containsEdge(x, edges.getSuccessor(y, j))) {
+            broken++;
+          }
+        }
+      }
+    }
+
+    PropertySample sample =
+        new PropertySampler(edges, false).sampleTransitivity(200_000, Long.MAX_VALUE);
+    assertEquals(paths, sample.getPopulation());
+    assertEquals(200_000, sample.getSamples());
+    assertTrue(Math.abs(sample.getRate() - (double) broken / paths) < 0.01);
+  }
+
+  @Test
+  public void symmetry_samples_are_drawn_from_every_edge() {
+    Random random = new Random(4300);
+    CsrAdjacency edges = randomGraph(random, 60, 300);
+
+    long oneWay = 0;
+    for (int x = 0; x < 60; x++) {
+      for (int i = 0; i < edges.getOutDegree(x); i++) {
+        if (!edges.containsEdge(edges.getSuccessor(x, i), x)) {
+          oneWay++;
+        }
+      }
+    }
+
+    PropertySample sample =
+        new PropertySampler(OffHeapAdjacency.copyOf(edges), false)
+            .sampleSymmetry(200_000, Long.MAX_VALUE);
+    assertEquals(edges.getEdgeCount(), sample.getPopulation());
+    assertTrue(Math.abs(sample.getRate() - (double) oneWay / edges.getEdgeCount()) < 0.01);
+  }
+}
@@ -0,0 +1,208 @@
+package nz.ac.auckland.se281.datastructures;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+
+public class VertexSetTest {
+  private static final int CHUNK = 1 << 16;
+
+  /**
+   * Picks random ids over three chunks, each left out or filled sparsely, densely or with runs, so
+   * every kind of container meets every other.
+   *
+   * @param random the source of the ids.
+   * @return the ids.
+   */
+  private static TreeSet<Integer> randomIds(Random random) {
+    TreeSet<Integer> ids = new TreeSet<>();
+
+    for (int high = 0; high < 3; high++) {
+      int base = high * CHUNK;
+      int kind = random.nextInt(4);
+
+      if (kind == 1) {
+        // at most as many as an array holds, and sometimes exactly that many.
+        int count = random.nextBoolean() ? VertexSet.ARRAY_LIMIT : 1 + random.nextInt(200);
+        while (ids.subSet(base, base + CHUNK).size() < count) {
+          ids.add(base + random.nextInt(CHUNK));
+        }
+      } else if (kind == 2) {
+        int count = VertexSet.ARRAY_LIMIT + 1 + random.nextInt(30000);
+        for (int i = 0; i < count; i++) {
+          ids.add(base + random.nextInt(CHUNK));
+        }
+      } else if (kind == 3) {
+        for (int run = random.nextInt(20); run >= 0; run--) {
+          int start = random.nextInt(CHUNK);
+          int end = Math.min(CHUNK, start + 1 + random.nextInt(3000));
+          for (int low = start; low < end; low++) {
+            ids.add(base + low);
+          }
+        }
+      }
+    }
+
+    // ids either side of the first chunk boundary.
+    if (random.nextBoolean()) {
+      for (int id = CHUNK - 3; id < CHUNK + 3; id++) {
+        ids.add(id);
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Copies ids into an array.
+   *
+   * @param ids the ids.
+   * @return the ids in ascending order.
+   */
+  private static int[] toArray(TreeSet<Integer> ids) {
+    return ids.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Checks a set holds exactly some ids, through every way of reading it.
+   *
+   * @param expected the ids.
+   * @param actual the set.
+   */
+  private static void assertIds(TreeSet<Integer> expected, VertexSet actual) {
+    int[] ids = toArray(expected);
+    assertArrayEquals(ids, actual.toArray());
+    assertEquals(ids.length, actual.size());
+    assertEquals(ids.length == 0, actual.isEmpty());
+
+    PrimitiveIterator.OfInt iterator = actual.iterator();
+    for (int id : ids) {
+      assertTrue(iterator.hasNext());
+      assertEquals(id, iterator.nextInt());
+    }
+    assertTrue(!iterator.hasNext());
+
+    int[] index = {0};
+    actual.forEach(id -> assertEquals(ids[index[0]++], id));
+    assertEquals(ids.length, index[0]);
+
+    for (int id : ids) {
+      assertTrue(actual.contains(id));
+    }
+    for (int id : new int[] {-1, 0, CHUNK - 1, CHUNK, 2 * CHUNK, 3 * CHUNK, Integer.MAX_VALUE}) {
+      assertEquals(expected.contains(id), actual.contains(id));
+    }
+  }
+
+  @Test
+  public void sets_hold_their_ids() {
+    Random random = new Random(47);
+
+    for (int trial = 0; trial < 60; trial++) {
+      TreeSet<Integer> ids = randomIds(random);
+      assertIds(ids, VertexSet.of(toArray(ids)));
+
+      for (int probe = 0; probe < 1000; probe++) {
+        int id = random.nextInt(3 * CHUNK + 10) - 5;
+        assertEquals(ids.contains(id), VertexSet.of(toArray(ids)).contains(id));
+      }
+    }
+  }
+
+  @Test
+  public void copies_sort_and_drop_duplicates() {
+    Random random = new Random(470);
+
+    for (int trial = 0; trial < 20; trial++) {
+      TreeSet<Integer> ids = randomIds(random);
+      int[] shuffled = new int[ids.size() * 2 + 1];
+      int count = 0;
+      for (int id : ids) {
+        shuffled[count++] = id;
+        if (random.nextBoolean()) {
+          shuffled[count++] = id;
+        }
+      }
+      for (int i = count - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        int swap = shuffled[i];
+        shuffled[i] = shuffled[j];
+        shuffled[j] = swap;
+      }
+
+      assertIds(ids, VertexSet.copyOf(shuffled, count));
+    }
+  }
+
+  @Test
+  public void or_and_and_match_the_set_operations() {
+    Random random = new Random(4700);
+
+    for (int trial = 0; trial < 80; trial++) {
+      TreeSet<Integer> first = randomIds(random);
+      TreeSet<Integer> second = randomIds(random);
+      VertexSet firstSet = VertexSet.of(toArray(first));
+      VertexSet secondSet = VertexSet.of(toArray(second));
+
+      TreeSet<Integer> union = new TreeSet<>(first);
+      union.addAll(second);
+      assertIds(union, firstSet.or(secondSet));
+      assertIds(union, secondSet.or(firstSet));
+
+      TreeSet<Integer> intersection = new TreeSet<>(first);
+      intersection.retainAll(second);
+      assertIds(intersection, firstSet.and(secondSet));
+      assertIds(intersection, secondSet.and(firstSet));
+
+      // the results are sets like any other, so they combine again.
+      assertIds(first, firstSet.or(firstSet.and(secondSet)));
+    }
+  }
+
+  @Test
+  public void ranges_hold_every_id_between_their_ends() {
+    int[][] ends = {
+      {0, 0}, {5, 5}, {7, 3}, {0, 1}, {0, CHUNK}, {CHUNK - 1, CHUNK + 1}, {CHUNK - 6, CHUNK},
+      {CHUNK, CHUNK + 6}, {100, 3 * CHUNK + 100}, {2 * CHUNK - 1, 2 * CHUNK}
+    };
+
+    for (int[] range : ends) {
+      TreeSet<Integer> ids = new TreeSet<>();
+      for (int id = range[0]; id < range[1]; id++) {
+        ids.add(id);
+      }
+
+      VertexSet set = VertexSet.range(range[0], range[1]);
+      assertIds(ids, set);
+      // a range is kept as one run a chunk, whatever its length.
+      assertTrue(set.getBytes() < 64L * ((range[1] >>> 16) - (range[0] >>> 16) + 1));
+
+      TreeSet<Integer> sparse = randomIds(new Random(range[1]));
+      TreeSet<Integer> both = new TreeSet<>(sparse);
+      both.retainAll(ids);
+      assertIds(both, set.and(VertexSet.of(toArray(sparse))));
+      both = new TreeSet<>(sparse);
+      both.addAll(ids);
+      assertIds(both, set.or(VertexSet.of(toArray(sparse))));
+    }
+  }
+
+  @Test
+  public void chunks_keep_the_smallest_container() {
+    // an array of at most 4096 values takes two bytes each, and a bitmap past that is 8KB.
+    int[] spread = new int[VertexSet.ARRAY_LIMIT + 1];
+    for (int i = 0; i < spread.length; i++) {
+      spread[i] = i * 2;
+    }
+
+    long array = VertexSet.of(spread, 0, VertexSet.ARRAY_LIMIT).getBytes();
+    long bitmap = VertexSet.of(spread).getBytes();
+    assertTrue(array < 2L * VertexSet.ARRAY_LIMIT + 64);
+    assertTrue(bitmap < 8192 + 64);
+    assertTrue(VertexSet.of(spread, 0, 10).getBytes() < 64);
+  }
+}